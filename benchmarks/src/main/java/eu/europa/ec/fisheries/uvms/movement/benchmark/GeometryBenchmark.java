@@ -0,0 +1,69 @@
+package eu.europa.ec.fisheries.uvms.movement.benchmark;
+
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.util.GeometryUtil;
+import eu.europa.ec.fisheries.uvms.movement.service.util.WKTUtil;
+import org.locationtech.jts.geom.LineString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Track lines and WKT for the map, with and without simplification.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeometryBenchmark {
+
+    @Param({"2000"})
+    private int positions;
+
+    private List<Movement> track;
+    private LineString line;
+
+    @Setup
+    public void setup() {
+        track = SyntheticFleet.createMovements(1, positions, 42);
+        line = GeometryUtil.getLineStringFromMovements(track);
+    }
+
+    @Benchmark
+    public LineString lineStringFromMovements() {
+        return GeometryUtil.getLineStringFromMovements(track);
+    }
+
+    @Benchmark
+    public String wktLineStringFromMovementList() {
+        return WKTUtil.getWktLineStringFromMovementList(track);
+    }
+
+    @Benchmark
+    public String wktLineStringFromMovements() {
+        return WKTUtil.getWktLineStringFromMovements(track.get(0), track.get(1));
+    }
+
+    @Benchmark
+    public String simplifiedWktZoomedIn() {
+        return WKTUtil.getWktLineString(GeometryUtil.simplify(line, GeometryUtil.getTolerance(null, 14)));
+    }
+
+    @Benchmark
+    public String simplifiedWktZoomedOut() {
+        return WKTUtil.getWktLineString(GeometryUtil.simplify(line, GeometryUtil.getTolerance(null, 6)));
+    }
+}
@@ -0,0 +1,56 @@
+package eu.europa.ec.fisheries.uvms.movement.benchmark;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementType;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementEntityToModelMapper;
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO and entity to XML model mapping for a fleet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"500"})
+    private int assets;
+
+    @Param({"20"})
+    private int positionsPerAsset;
+
+    private List<Movement> movements;
+
+    @Setup
+    public void setup() {
+        movements = SyntheticFleet.createMovements(assets, positionsPerAsset, 42);
+    }
+
+    @Benchmark
+    public List<MovementDto> mapToMovementDto() {
+        return MovementMapper.mapToMovementDtoList(movements);
+    }
+
+    @Benchmark
+    public List<MovementType> mapToMovementType() {
+        return MovementEntityToModelMapper.mapToMovementType(movements);
+    }
+}
@@ -0,0 +1,101 @@
+package eu.europa.ec.fisheries.uvms.movement.benchmark;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.schema.movement.v1.MovementTypeType;
+import eu.europa.ec.fisheries.uvms.movement.model.constants.SatId;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.service.dto.MovementProjection;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.MovementConnect;
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementMapper;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The micro track read path from result set rows to MovementDto: hydrating Movement and MovementConnect entities
+ * and mapping them, as before the projections, against building MovementProjection directly from the selected
+ * columns. Only the mapping in the JVM is measured, not the database or the persistence context.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    @Param({"500"})
+    private int assets;
+
+    @Param({"20"})
+    private int positionsPerAsset;
+
+    private List<Object[]> rows;
+
+    @Setup
+    public void setup() {
+        List<Movement> movements = SyntheticFleet.createMovements(assets, positionsPerAsset, 42);
+        rows = new ArrayList<>(movements.size());
+        for (Movement movement : movements) {
+            rows.add(new Object[]{movement.getId(), movement.getLocation(), movement.getSpeed(), movement.getCalculatedSpeed(),
+                    movement.getHeading(), movement.getMovementConnect().getId(), movement.getStatus(), movement.getSource(),
+                    movement.getMovementType(), movement.getTimestamp(), movement.getLesReportTime(),
+                    movement.getSourceSatelliteId(), movement.getUpdated(), movement.getUpdatedBy(), movement.getAisPositionAccuracy()});
+        }
+    }
+
+    @Benchmark
+    public List<MovementDto> entityMapping() {
+        List<MovementDto> dtos = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            MovementConnect movementConnect = new MovementConnect();
+            movementConnect.setId((UUID) row[5]);
+            Movement movement = new Movement();
+            movement.setId((UUID) row[0]);
+            movement.setLocation((Point) row[1]);
+            movement.setSpeed((Float) row[2]);
+            movement.setCalculatedSpeed((Double) row[3]);
+            movement.setHeading((Float) row[4]);
+            movement.setMovementConnect(movementConnect);
+            movement.setStatus((String) row[6]);
+            movement.setSource((MovementSourceType) row[7]);
+            movement.setMovementType((MovementTypeType) row[8]);
+            movement.setTimestamp((Instant) row[9]);
+            movement.setLesReportTime((Instant) row[10]);
+            movement.setSourceSatelliteId((SatId) row[11]);
+            movement.setUpdated((Instant) row[12]);
+            movement.setUpdatedBy((String) row[13]);
+            movement.setAisPositionAccuracy((Short) row[14]);
+            dtos.add(MovementMapper.mapToMovementDto(movement));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<MovementDto> projection() {
+        List<MovementDto> dtos = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            dtos.add(new MovementProjection((UUID) row[0], (Geometry) row[1], (Float) row[2], (Double) row[3], (Float) row[4],
+                    (UUID) row[5], (String) row[6], (MovementSourceType) row[7], (MovementTypeType) row[8], (Instant) row[9],
+                    (Instant) row[10], (SatId) row[11], (Instant) row[12], (String) row[13], (Short) row[14]));
+        }
+        return dtos;
+    }
+}
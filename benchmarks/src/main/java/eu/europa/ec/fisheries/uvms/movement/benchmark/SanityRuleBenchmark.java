@@ -0,0 +1,47 @@
+package eu.europa.ec.fisheries.uvms.movement.benchmark;
+
+import eu.europa.ec.fisheries.uvms.movement.service.entity.IncomingMovement;
+import eu.europa.ec.fisheries.uvms.movement.service.validation.SanityRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All sanity rules against incoming movements from a mixed AIS and satellite fleet, as MovementSanityValidatorBean
+ * evaluates them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SanityRuleBenchmark {
+
+    private List<IncomingMovement> incomingMovements;
+
+    @Setup
+    public void setup() {
+        incomingMovements = SyntheticFleet.createIncomingMovements(1000, 42);
+    }
+
+    @Benchmark
+    public void evaluateAllRules(Blackhole blackhole) {
+        for (IncomingMovement movement : incomingMovements) {
+            for (SanityRule sanityRule : SanityRule.values()) {
+                blackhole.consume(sanityRule.evaluate(movement));
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package eu.europa.ec.fisheries.uvms.movement.benchmark;
+
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.search.SearchField;
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.search.SearchFieldMapper;
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.search.SearchValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the JPQL and the parameters of a movement search for 50 assets, a source and a date range.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private List<SearchValue> searchValues;
+
+    @Setup
+    public void setup() {
+        searchValues = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            searchValues.add(new SearchValue(SearchField.CONNECT_ID, new UUID(42, i).toString()));
+        }
+        searchValues.add(new SearchValue(SearchField.SOURCE, "AIS"));
+        searchValues.add(new SearchValue(SearchField.DATE, "2019-05-01 00:00:00 Z", "2019-05-02 00:00:00 Z"));
+    }
+
+    @Benchmark
+    public String selectSearchSql() {
+        return SearchFieldMapper.createSelectSearchSql(searchValues, true);
+    }
+
+    @Benchmark
+    public Map<String, Object> searchParameters() {
+        return SearchFieldMapper.createSearchParameters(searchValues);
+    }
+}
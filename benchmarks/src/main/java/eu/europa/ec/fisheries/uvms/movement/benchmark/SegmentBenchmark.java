@@ -0,0 +1,73 @@
+package eu.europa.ec.fisheries.uvms.movement.benchmark;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSegment;
+import eu.europa.ec.fisheries.uvms.movement.service.dto.SegmentCalculations;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementEntityToModelMapper;
+import eu.europa.ec.fisheries.uvms.movement.service.util.CalculationUtil;
+import eu.europa.ec.fisheries.uvms.movement.service.util.SegmentEngine;
+import eu.europa.ec.fisheries.uvms.movement.service.util.WKTUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Segment calculations for one long track, pair by pair with CalculationUtil and WKTUtil as they were done before
+ * and with the SegmentEngine used by the map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentBenchmark {
+
+    @Param({"100000"})
+    private int positions;
+
+    private List<Movement> track;
+
+    @Setup
+    public void setup() {
+        track = SyntheticFleet.createMovements(1, positions, 42);
+    }
+
+    @Benchmark
+    public void calculationUtilPerPair(Blackhole blackhole) {
+        for (int i = 1; i < track.size(); i++) {
+            Movement previous = track.get(i).getPreviousMovement();
+            SegmentCalculations calculations = CalculationUtil.getPositionCalculations(previous, track.get(i));
+            blackhole.consume(calculations);
+            blackhole.consume(WKTUtil.getWktLineStringFromMovements(previous, track.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void segmentEngine(Blackhole blackhole) {
+        SegmentEngine engine = SegmentEngine.fromMovements(null, track);
+        for (int i = 0; i < engine.getSegmentCount(); i++) {
+            blackhole.consume(engine.getDistance(i));
+            blackhole.consume(engine.getSpeed(i));
+            blackhole.consume(engine.getCourse(i));
+            blackhole.consume(engine.getWkt(i));
+        }
+    }
+
+    @Benchmark
+    public List<MovementSegment> mapToMovementSegment() {
+        return MovementEntityToModelMapper.mapToMovementSegment(track, false);
+    }
+}
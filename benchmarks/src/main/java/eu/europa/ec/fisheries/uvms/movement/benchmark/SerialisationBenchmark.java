@@ -0,0 +1,62 @@
+package eu.europa.ec.fisheries.uvms.movement.benchmark;
+
+import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementListByQueryResponse;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.model.mapper.JAXBMarshaller;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementEntityToModelMapper;
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementMapper;
+import eu.europa.ec.fisheries.uvms.movement.service.util.JsonBConfiguratorMovement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.json.bind.Jsonb;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JSON-B serialisation used by the REST endpoints and the JAXB serialisation used by the JMS replies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerialisationBenchmark {
+
+    @Param({"1000", "10000"})
+    private int movementCount;
+
+    private Jsonb jsonb;
+    private List<MovementDto> movementDtos;
+    private GetMovementListByQueryResponse listResponse;
+
+    @Setup
+    public void setup() {
+        jsonb = new JsonBConfiguratorMovement().getContext(null);
+        List<Movement> movements = SyntheticFleet.createMovements(movementCount / 10, 10, 42);
+        movementDtos = MovementMapper.mapToMovementDtoList(movements);
+        listResponse = new GetMovementListByQueryResponse();
+        listResponse.getMovement().addAll(MovementEntityToModelMapper.mapToMovementType(movements));
+    }
+
+    @Benchmark
+    public String jsonb() {
+        return jsonb.toJson(movementDtos);
+    }
+
+    @Benchmark
+    public String jaxb() {
+        return JAXBMarshaller.marshallJaxBObjectToString(listResponse);
+    }
+}
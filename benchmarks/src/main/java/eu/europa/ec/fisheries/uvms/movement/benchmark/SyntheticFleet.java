@@ -0,0 +1,109 @@
+package eu.europa.ec.fisheries.uvms.movement.benchmark;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.schema.movement.v1.MovementTypeType;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.IncomingMovement;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.MovementConnect;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Track;
+import eu.europa.ec.fisheries.uvms.movement.service.util.GeometryUtil;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generated fleets for the benchmarks. Every asset sails a random walk off the Swedish west coast and reports once a
+ * minute, the same seed gives the same fleet.
+ */
+public class SyntheticFleet {
+
+    private static final GeometryFactory FACTORY = new GeometryFactory();
+    private static final Instant START = Instant.parse("2019-05-01T00:00:00Z");
+    private static final MovementSourceType[] SOURCES = {MovementSourceType.AIS, MovementSourceType.INMARSAT_C, MovementSourceType.IRIDIUM};
+
+    private SyntheticFleet() {}
+
+    /**
+     * Positions ordered by asset and then by timestamp, each linked to the position before it.
+     */
+    public static List<Movement> createMovements(int assets, int positionsPerAsset, long seed) {
+        Random random = new Random(seed);
+        List<Movement> movements = new ArrayList<>(assets * positionsPerAsset);
+        for (int a = 0; a < assets; a++) {
+            MovementConnect movementConnect = new MovementConnect();
+            movementConnect.setId(new UUID(seed, a));
+            Track track = new Track();
+            track.setId(UUID.randomUUID());
+            track.setUpdated(START);
+
+            double longitude = 10.5 + random.nextDouble();
+            double latitude = 56.5 + random.nextDouble() * 2;
+            double heading = random.nextDouble() * 360;
+            Movement previous = null;
+            for (int i = 0; i < positionsPerAsset; i++) {
+                heading = (heading + random.nextGaussian() * 10 + 360) % 360;
+                longitude += Math.sin(Math.toRadians(heading)) * 0.002;
+                latitude += Math.cos(Math.toRadians(heading)) * 0.001;
+
+                Movement movement = new Movement();
+                movement.setId(UUID.randomUUID());
+                movement.setMovementConnect(movementConnect);
+                movement.setTrack(track);
+                movement.setPreviousMovement(previous);
+                movement.setLocation(createPoint(longitude, latitude));
+                movement.setTimestamp(START.plusSeconds(60L * i + a));
+                movement.setLesReportTime(movement.getTimestamp().plusSeconds(5));
+                movement.setUpdated(movement.getTimestamp().plusSeconds(10));
+                movement.setUpdatedBy("benchmark");
+                movement.setSpeed((float) (6 + random.nextDouble() * 6));
+                movement.setCalculatedSpeed(movement.getSpeed().doubleValue());
+                movement.setHeading((float) heading);
+                movement.setSource(SOURCES[a % SOURCES.length]);
+                movement.setMovementType(MovementTypeType.POS);
+                movements.add(movement);
+                previous = movement;
+            }
+        }
+        return movements;
+    }
+
+    public static List<IncomingMovement> createIncomingMovements(int count, long seed) {
+        Random random = new Random(seed);
+        List<IncomingMovement> movements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            IncomingMovement movement = new IncomingMovement();
+            MovementSourceType source = SOURCES[i % SOURCES.length];
+            movement.setMovementSourceType(source.value());
+            movement.setPluginType(source == MovementSourceType.AIS ? "OTHER" : "SATELLITE_RECEIVER");
+            movement.setPositionTime(Instant.now().minusSeconds(random.nextInt(3600)));
+            movement.setLongitude(10.5 + random.nextDouble());
+            movement.setLatitude(56.5 + random.nextDouble() * 2);
+            movement.setReportedSpeed(random.nextDouble() * 12);
+            movement.setReportedCourse(random.nextDouble() * 360);
+            movement.setAssetGuid(new UUID(seed, i % 500).toString());
+            movement.setAssetCFR("SWE" + (100000000 + i % 500));
+            movement.setAssetIRCS("SK" + (1000 + i % 500));
+            movement.setAssetMMSI(String.valueOf(265000000 + i % 500));
+            movement.setComChannelType("NAF");
+            movement.setMobileTerminalConnectId(new UUID(seed + 1, i % 500).toString());
+            movement.setMobileTerminalActive(true);
+            movement.setMobileTerminalDNID("10745");
+            movement.setMobileTerminalMemberNumber("255");
+            movement.setMobileTerminalSerialNumber("SN" + i % 500);
+            movements.add(movement);
+        }
+        return movements;
+    }
+
+    private static Point createPoint(double longitude, double latitude) {
+        Point point = FACTORY.createPoint(new Coordinate(longitude, latitude));
+        point.setSRID(GeometryUtil.SRID);
+        return point;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.model.mapper;
+
+import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementListByQueryResponse;
+import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementMapByQueryResponse;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Chunked replies to MOVEMENT_LIST and MOVEMENT_MAP requests. A requestor that sets the REPLY_MODE property to
+ * CHUNKED on the request gets the response as a number of gzipped XML BytesMessages instead of one TextMessage.
+ * Every chunk is a complete response of the requested type, carries the request's correlation id and the
+ * CHUNK_INDEX and CHUNK_COUNT properties, and is reassembled here.
+ */
+public class ChunkedReplyMapper {
+
+    public static final String REPLY_MODE_PROPERTY = "REPLY_MODE";
+    public static final String CHUNKED = "CHUNKED";
+    public static final String CHUNK_INDEX_PROPERTY = "CHUNK_INDEX";
+    public static final String CHUNK_COUNT_PROPERTY = "CHUNK_COUNT";
+
+    private ChunkedReplyMapper() {
+        // private constructor because utility class
+    }
+
+    public static void requestChunkedReply(Message request) throws JMSException {
+        request.setStringProperty(REPLY_MODE_PROPERTY, CHUNKED);
+    }
+
+    public static boolean isChunkedReplyRequested(Message request) throws JMSException {
+        return CHUNKED.equals(request.getStringProperty(REPLY_MODE_PROPERTY));
+    }
+
+    public static int getChunkCount(Message chunk) throws JMSException {
+        return chunk.getIntProperty(CHUNK_COUNT_PROPERTY);
+    }
+
+    /**
+     * Marshalls the response to gzipped XML. The XML is compressed while it is written, so it never exists
+     * uncompressed in memory.
+     */
+    public static byte[] compress(Object response) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            JAXBMarshaller.marshallJaxBObjectToStream(response, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static <R> R unmarshallChunk(BytesMessage chunk, Class<R> clazz) throws JMSException {
+        byte[] body = new byte[(int) chunk.getBodyLength()];
+        chunk.readBytes(body);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return JAXBMarshaller.unmarshallStream(in, clazz);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static GetMovementListByQueryResponse mapToMovementListResponse(List<? extends Message> chunks) throws JMSException {
+        GetMovementListByQueryResponse response = new GetMovementListByQueryResponse();
+        for (BytesMessage chunk : sortChunks(chunks)) {
+            response.getMovement().addAll(unmarshallChunk(chunk, GetMovementListByQueryResponse.class).getMovement());
+        }
+        return response;
+    }
+
+    public static GetMovementMapByQueryResponse mapToMovementMapResponse(List<? extends Message> chunks) throws JMSException {
+        GetMovementMapByQueryResponse response = new GetMovementMapByQueryResponse();
+        for (BytesMessage chunk : sortChunks(chunks)) {
+            response.getMovementMap().addAll(unmarshallChunk(chunk, GetMovementMapByQueryResponse.class).getMovementMap());
+        }
+        return response;
+    }
+
+    private static List<BytesMessage> sortChunks(List<? extends Message> chunks) throws JMSException {
+        if (chunks.isEmpty()) {
+            throw new IllegalArgumentException("No chunks received");
+        }
+        int count = getChunkCount(chunks.get(0));
+        List<BytesMessage> sorted = new ArrayList<>(count);
+        for (Message chunk : chunks) {
+            sorted.add((BytesMessage) chunk);
+        }
+        // Chunks are sent in order but may be received in any order when the requestor uses several consumers
+        sorted.sort(Comparator.comparingInt(ChunkedReplyMapper::getChunkIndex));
+        // A chunk delivered twice is only used once
+        List<BytesMessage> unique = new ArrayList<>(count);
+        for (BytesMessage chunk : sorted) {
+            if (unique.isEmpty() || getChunkIndex(unique.get(unique.size() - 1)) != getChunkIndex(chunk)) {
+                unique.add(chunk);
+            }
+        }
+        if (unique.size() != count) {
+            throw new IllegalArgumentException("Received " + unique.size() + " of " + count + " chunks");
+        }
+        return unique;
+    }
+
+    private static int getChunkIndex(Message chunk) {
+        try {
+            return chunk.getIntProperty(CHUNK_INDEX_PROPERTY);
+        } catch (JMSException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
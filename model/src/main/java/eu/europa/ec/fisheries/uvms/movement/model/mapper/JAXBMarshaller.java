@@ -20,17 +20,51 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * JAXB (un)marshalling of the module messages. The JAXBContexts are created once per class and the Marshallers and
+ * Unmarshallers, which are not thread safe, are pooled per class and only used by one thread at a time.
+ */
 public class JAXBMarshaller {
 
     private static final Logger LOG = LoggerFactory.getLogger(JAXBMarshaller.class);
 
-    private static Map<String, JAXBContext> contexts = new HashMap<>();
+    // Enough for the MDB pool, more than this are created and dropped again when the load peaks
+    static final int MAX_POOLED_PER_CLASS = 16;
+
+    private static final Map<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, BlockingQueue<Marshaller>> marshallers = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, BlockingQueue<Unmarshaller>> unmarshallers = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the JAXBContexts and one Marshaller and Unmarshaller for these classes, so that the first messages
+     * do not have to wait for them.
+     *
+     * @param classes
+     */
+    public static void warmUp(Class<?>... classes) {
+        for (Class<?> clazz : classes) {
+            try {
+                JAXBContext jaxbContext = getContext(clazz);
+                getPool(marshallers, clazz).offer(jaxbContext.createMarshaller());
+                getPool(unmarshallers, clazz).offer(jaxbContext.createUnmarshaller());
+            } catch (JAXBException ex) {
+                LOG.warn("Could not create JAXBContext for {}", clazz.getName(), ex);
+            }
+        }
+    }
 
     /**
      * Marshalls a JAXB Object to a XML String representation
@@ -41,29 +75,46 @@ public class JAXBMarshaller {
      * @throws
      */
     public static <T> String marshallJaxBObjectToString(T data) {
+        return marshallJaxBObjectToString(data, false);
+    }
+
+    /**
+     * Marshalls a JAXB Object to a XML String representation, indented when formattedOutput is set
+     *
+     * @param <T>
+     * @param data
+     * @param formattedOutput
+     * @return
+     * @throws
+     */
+    public static <T> String marshallJaxBObjectToString(T data, boolean formattedOutput) {
         try {
-            JAXBContext jaxbContext = contexts.get(data.getClass().getName());
-            if (jaxbContext == null) {
-                long before = System.currentTimeMillis();
-                jaxbContext = JAXBContext.newInstance(data.getClass());
-                contexts.put(data.getClass().getName(), jaxbContext);
-                LOG.debug("Stored contexts: {}", contexts.size());
-                LOG.debug("JAXBContext creation time: {}", (System.currentTimeMillis() - before));
-            }
-            Marshaller marshaller = jaxbContext.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
             StringWriter sw = new StringWriter();
-            marshaller.marshal(data, sw);
-            long before = System.currentTimeMillis();
-            String marshalled = sw.toString();
-            LOG.debug("StringWriter time: {}", (System.currentTimeMillis() - before));
-            return marshalled;
+            marshall(data, formattedOutput, new StreamResult(sw));
+            return sw.toString();
         } catch (JAXBException ex) {
             LOG.error("[ Error when marshalling object to string ] {} ", ex.getMessage());
             throw new RuntimeException("[ Error when marshalling Object to String ]", ex);
         }
     }
 
+    /**
+     * Marshalls a JAXB Object as UTF-8 XML straight to the stream, without building a String first
+     *
+     * @param <T>
+     * @param data
+     * @param out
+     * @throws
+     */
+    public static <T> void marshallJaxBObjectToStream(T data, OutputStream out) {
+        try {
+            marshall(data, false, new StreamResult(out));
+        } catch (JAXBException ex) {
+            LOG.error("[ Error when marshalling object to stream ] {} ", ex.getMessage());
+            throw new RuntimeException("[ Error when marshalling Object to stream ]", ex);
+        }
+    }
+
     /**
      * Unmarshalls A textMessage to the desired Object. The object must be the
      * root object of the unmarchalled message!
@@ -76,24 +127,72 @@ public class JAXBMarshaller {
      */
     public static <R> R unmarshallTextMessage(TextMessage textMessage, Class clazz){
         try {
-            JAXBContext jc = contexts.get(clazz.getName());
-            if (jc == null) {
-                long before = System.currentTimeMillis();
-                jc = JAXBContext.newInstance(clazz);
-                contexts.put(clazz.getName(), jc);
-                LOG.debug("Stored contexts: {}", contexts.size());
-                LOG.debug("JAXBContext creation time: {}", (System.currentTimeMillis() - before));
-            }
-            Unmarshaller unmarshaller = jc.createUnmarshaller();
-            StringReader sr = new StringReader(textMessage.getText());
-            StreamSource source = new StreamSource(sr);
-            long before = System.currentTimeMillis();
-            R object = (R) unmarshaller.unmarshal(source);
-            LOG.debug("Unmarshalling time: {}", (System.currentTimeMillis() - before));
-            return object;
+            return unmarshall(new StreamSource(new StringReader(textMessage.getText())), clazz);
         } catch (JMSException | JAXBException ex) {
             //LOG.error("[ Error when marshalling Text message to object ] {} ", ex.getMessage());
             throw new RuntimeException("[Error when unmarshalling response in ResponseMapper ]", ex);
         }
     }
+
+    /**
+     * Unmarshalls XML read from the stream to the desired Object. The object must be the root object of the XML.
+     *
+     * @param <R>
+     * @param in
+     * @param clazz
+     * @return
+     * @throws
+     */
+    public static <R> R unmarshallStream(InputStream in, Class clazz) {
+        try {
+            return unmarshall(new StreamSource(in), clazz);
+        } catch (JAXBException ex) {
+            throw new RuntimeException("[Error when unmarshalling stream ]", ex);
+        }
+    }
+
+    private static <T> void marshall(T data, boolean formattedOutput, Result result) throws JAXBException {
+        BlockingQueue<Marshaller> pool = getPool(marshallers, data.getClass());
+        Marshaller marshaller = pool.poll();
+        if (marshaller == null) {
+            marshaller = getContext(data.getClass()).createMarshaller();
+        }
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formattedOutput);
+        marshaller.marshal(data, result);
+        // Only pooled again when it worked, a marshaller that failed may be left in a broken state
+        pool.offer(marshaller);
+    }
+
+    private static <R> R unmarshall(Source source, Class<?> clazz) throws JAXBException {
+        BlockingQueue<Unmarshaller> pool = getPool(unmarshallers, clazz);
+        Unmarshaller unmarshaller = pool.poll();
+        if (unmarshaller == null) {
+            unmarshaller = getContext(clazz).createUnmarshaller();
+        }
+        long before = System.currentTimeMillis();
+        R object = (R) unmarshaller.unmarshal(source);
+        pool.offer(unmarshaller);
+        LOG.debug("Unmarshalling time: {}", (System.currentTimeMillis() - before));
+        return object;
+    }
+
+    static JAXBContext getContext(Class<?> clazz) throws JAXBException {
+        JAXBContext jaxbContext = contexts.get(clazz);
+        if (jaxbContext == null) {
+            // Two threads may both create a context for a new class, only the first one is kept
+            long before = System.currentTimeMillis();
+            jaxbContext = JAXBContext.newInstance(clazz);
+            JAXBContext existing = contexts.putIfAbsent(clazz, jaxbContext);
+            if (existing != null) {
+                return existing;
+            }
+            LOG.debug("Stored contexts: {}", contexts.size());
+            LOG.debug("JAXBContext creation time: {}", (System.currentTimeMillis() - before));
+        }
+        return jaxbContext;
+    }
+
+    private static <P> BlockingQueue<P> getPool(Map<Class<?>, BlockingQueue<P>> pools, Class<?> clazz) {
+        return pools.computeIfAbsent(clazz, c -> new ArrayBlockingQueue<>(MAX_POOLED_PER_CLASS));
+    }
 }
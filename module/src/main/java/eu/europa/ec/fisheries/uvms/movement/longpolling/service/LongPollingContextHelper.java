@@ -11,17 +11,33 @@ copy of the GNU General Public License along with the IFDM Suite. If not, see <h
  */
 package eu.europa.ec.fisheries.uvms.movement.longpolling.service;
 
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.Singleton;
 import javax.servlet.AsyncContext;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * The waiting long polls per path. Each context is claimed once, either by popping it for a reply or by removing it
+ * on timeout, so a poll is never completed twice. Removed contexts are only marked as removed and skipped when
+ * popping, the path queues are purged of them once enough have piled up.
+ */
 @Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class LongPollingContextHelper {
 
-    private final Map<String, List<AsyncContext>> asyncContexts = new ConcurrentHashMap<>();
+    static final int PURGE_THRESHOLD = 1024;
+
+    private final Map<String, PathContexts> asyncContexts = new ConcurrentHashMap<>();
+
+    // The path of every waiting context, a context that is not in here has been claimed
+    private final Map<AsyncContext, String> waiting = new ConcurrentHashMap<>();
 
     /**
      * Adds an async context, associated with the given path.
@@ -30,13 +46,13 @@ public class LongPollingContextHelper {
      * @param longPollingPath a long-polling path
      */
     public void add(AsyncContext ctx, String longPollingPath) {
-        List<AsyncContext> ctxs = asyncContexts.get(longPollingPath);
-        if (ctxs == null) {
-            ctxs = new ArrayList<>();
-            asyncContexts.put(longPollingPath, ctxs);
+        PathContexts ctxs = asyncContexts.computeIfAbsent(longPollingPath, path -> new PathContexts());
+        waiting.put(ctx, longPollingPath);
+        ctxs.queue.add(ctx);
+        if (ctxs.removed.get() >= PURGE_THRESHOLD) {
+            ctxs.removed.set(0);
+            ctxs.queue.removeIf(queued -> !waiting.containsKey(queued));
         }
-
-        ctxs.add(ctx);
     }
 
     /**
@@ -46,21 +62,59 @@ public class LongPollingContextHelper {
      * @return the first context for this path, or null if none exist
      */
     public AsyncContext popContext(String longPollingPath) {
-        List<AsyncContext> ctxs = asyncContexts.get(longPollingPath);
-        if (ctxs == null || ctxs.isEmpty()) {
+        PathContexts ctxs = asyncContexts.get(longPollingPath);
+        if (ctxs == null) {
             return null;
         }
+        AsyncContext ctx;
+        while ((ctx = ctxs.queue.poll()) != null) {
+            if (waiting.remove(ctx) != null) {
+                return ctx;
+            }
+        }
+        return null;
+    }
 
-        return ctxs.remove(0);
+    /**
+     * Removes and returns all async contexts for a path.
+     *
+     * @param longPollingPath a path
+     * @return the contexts for this path, oldest first
+     */
+    public List<AsyncContext> popContexts(String longPollingPath) {
+        List<AsyncContext> ctxs = new ArrayList<>();
+        AsyncContext ctx;
+        while ((ctx = popContext(longPollingPath)) != null) {
+            ctxs.add(ctx);
+        }
+        return ctxs;
     }
 
-    public void remove(AsyncContext ctx) {
-        for (List<AsyncContext> ctxs : asyncContexts.values()) {
-            if (ctxs.contains(ctx)) {
-                ctxs.remove(ctx);
-                break;
-            }
+    /**
+     * Removes the context if it is still waiting.
+     *
+     * @param ctx an asynchronous context
+     * @return true if it was waiting, false if it has already been popped
+     */
+    public boolean remove(AsyncContext ctx) {
+        String path = waiting.remove(ctx);
+        if (path == null) {
+            return false;
+        }
+        PathContexts ctxs = asyncContexts.get(path);
+        if (ctxs != null) {
+            ctxs.removed.incrementAndGet();
         }
+        return true;
     }
 
-}
\ No newline at end of file
+    public int getWaiting() {
+        return waiting.size();
+    }
+
+    private static final class PathContexts {
+        private final Queue<AsyncContext> queue = new ConcurrentLinkedQueue<>();
+        // Removed since the last purge but possibly still in the queue
+        private final AtomicInteger removed = new AtomicInteger();
+    }
+}
@@ -17,8 +17,12 @@ import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
 import eu.europa.ec.fisheries.uvms.movement.service.event.AlarmReportCountEvent;
 import eu.europa.ec.fisheries.uvms.movement.service.event.AlarmReportEvent;
 import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Resource;
 import javax.ejb.EJB;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.event.Observes;
 import javax.enterprise.event.TransactionPhase;
 import javax.json.Json;
@@ -31,16 +35,23 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 @WebServlet(asyncSupported = true, urlPatterns = {LongPollingConstants.MOVEMENT_PATH, LongPollingConstants.MANUAL_MOVEMENT_PATH, LongPollingConstants.ALARM_REPORT_PATH, LongPollingConstants.ALARM_REPORT_COUNT_PATH})
 public class LongPollingHttpServlet extends HttpServlet {
 
     private static final long serialVersionUID = 1L;
 
+    private static final Logger LOG = LoggerFactory.getLogger(LongPollingHttpServlet.class);
+
     @EJB
     private LongPollingContextHelper asyncContexts;
 
+    @Resource
+    private ManagedExecutorService executorService;
+
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
         AsyncContext ctx = req.startAsync(req, resp);
@@ -50,8 +61,10 @@ public class LongPollingHttpServlet extends HttpServlet {
             @Override
             public void onTimeout(AsyncEvent event) throws IOException {
                 AsyncContext ctx = event.getAsyncContext();
-                asyncContexts.remove(ctx);
-                completePoll(ctx, createJsonMessage(null));
+                // Otherwise it has already been popped and is being completed with a reply
+                if (asyncContexts.remove(ctx)) {
+                    completePoll(ctx, createJsonMessage(null));
+                }
             }
 
         });
@@ -59,16 +72,16 @@ public class LongPollingHttpServlet extends HttpServlet {
         asyncContexts.add(ctx, req.getServletPath());
     }
 
-    public void createdMovement(@Observes(during = TransactionPhase.AFTER_SUCCESS) @CreatedMovement Movement movement) throws IOException {
+    public void createdMovement(@Observes(during = TransactionPhase.AFTER_SUCCESS) @CreatedMovement Movement movement) {
         completePoll(LongPollingConstants.MOVEMENT_PATH, createJsonMessage(movement.getId().toString()));
     }
 
-    public void observeAlarmCreated(@Observes(during = TransactionPhase.AFTER_SUCCESS) @AlarmReportEvent NotificationMessage message) throws IOException {
+    public void observeAlarmCreated(@Observes(during = TransactionPhase.AFTER_SUCCESS) @AlarmReportEvent NotificationMessage message) {
         UUID guid = (UUID) message.getProperties().get(LongPollingConstants.PROPERTY_GUID);
         completePoll(LongPollingConstants.ALARM_REPORT_PATH, createJsonMessage(guid.toString()));
     }
     
-    public void observeTicketCount(@Observes(during = TransactionPhase.AFTER_SUCCESS) @AlarmReportCountEvent NotificationMessage message) throws IOException {
+    public void observeTicketCount(@Observes(during = TransactionPhase.AFTER_SUCCESS) @AlarmReportCountEvent NotificationMessage message) {
         completePoll(LongPollingConstants.ALARM_REPORT_COUNT_PATH, createJsonMessageCount(true));
     }
 
@@ -85,10 +98,30 @@ public class LongPollingHttpServlet extends HttpServlet {
         return Json.createObjectBuilder().add(LongPollingConstants.ACTION_UPDATED, value).build().toString();
     }
 
-    private void completePoll(String resourcePath, String message) throws IOException {
-        AsyncContext ctx = null;
-        while ((ctx = asyncContexts.popContext(resourcePath)) != null) {
-            completePoll(ctx, message);
+    /**
+     * Completes all polls waiting on the path. They are written on the executor, so that the committing thread
+     * does not wait for the clients.
+     */
+    private void completePoll(String resourcePath, String message) {
+        List<AsyncContext> ctxs = asyncContexts.popContexts(resourcePath);
+        if (ctxs.isEmpty()) {
+            return;
+        }
+        try {
+            executorService.submit(() -> completePolls(ctxs, message));
+        } catch (RejectedExecutionException e) {
+            completePolls(ctxs, message);
+        }
+    }
+
+    private void completePolls(List<AsyncContext> ctxs, String message) {
+        for (AsyncContext ctx : ctxs) {
+            try {
+                completePoll(ctx, message);
+            } catch (IOException | RuntimeException e) {
+                // The client has most likely gone away, the others should still get their reply
+                LOG.debug("Could not complete long poll", e);
+            }
         }
     }
 
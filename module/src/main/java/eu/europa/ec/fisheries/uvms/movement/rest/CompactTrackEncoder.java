@@ -0,0 +1,118 @@
+package eu.europa.ec.fisheries.uvms.movement.rest;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementPoint;
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.rest.dto.CompactTrack;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes movements for the map as a CompactTrack. Positions are written as an encoded polyline (the Google
+ * algorithm with six decimals, latitude before longitude) and timestamps as a polyline of millisecond deltas from
+ * timeBase, so the usual polyline decoders can read both. Only the fields drawn by the map are kept, not the ids.
+ */
+public class CompactTrackEncoder {
+
+    public static final int PRECISION = 6;
+    private static final double FACTOR = Math.pow(10, PRECISION);
+
+    private CompactTrackEncoder() {}
+
+    public static CompactTrack encode(List<MovementDto> movements) {
+        CompactTrack track = new CompactTrack();
+        track.setPrecision(PRECISION);
+        Map<String, Integer> assetIndex = new HashMap<>();
+        Map<MovementSourceType, Integer> sourceIndex = new HashMap<>();
+        StringBuilder path = new StringBuilder(movements.size() * 8);
+        StringBuilder time = new StringBuilder(movements.size() * 4);
+
+        long previousLatitude = 0;
+        long previousLongitude = 0;
+        long previousTime = movements.isEmpty() ? 0 : movements.get(0).getTimestamp().toEpochMilli();
+        track.setTimeBase(previousTime);
+
+        for (MovementDto movement : movements) {
+            track.getAsset().add(assetIndex.computeIfAbsent(movement.getAsset(), asset -> {
+                track.getAssets().add(asset);
+                return track.getAssets().size() - 1;
+            }));
+            track.getSource().add(movement.getSource() == null ? null : sourceIndex.computeIfAbsent(movement.getSource(), source -> {
+                track.getSources().add(source.value());
+                return track.getSources().size() - 1;
+            }));
+            track.getSpeed().add(movement.getSpeed());
+            track.getHeading().add(movement.getHeading());
+
+            long latitude = Math.round(movement.getLocation().getLatitude() * FACTOR);
+            long longitude = Math.round(movement.getLocation().getLongitude() * FACTOR);
+            encodeSigned(latitude - previousLatitude, path);
+            encodeSigned(longitude - previousLongitude, path);
+            previousLatitude = latitude;
+            previousLongitude = longitude;
+
+            long timestamp = movement.getTimestamp().toEpochMilli();
+            encodeSigned(timestamp - previousTime, time);
+            previousTime = timestamp;
+        }
+        track.setPath(path.toString());
+        track.setTime(time.toString());
+        return track;
+    }
+
+    public static List<MovementDto> decode(CompactTrack track) {
+        int size = track.getAsset().size();
+        List<MovementDto> movements = new ArrayList<>(size);
+        double factor = Math.pow(10, track.getPrecision());
+        int[] pathCursor = {0};
+        int[] timeCursor = {0};
+        long latitude = 0;
+        long longitude = 0;
+        long timestamp = track.getTimeBase();
+
+        for (int i = 0; i < size; i++) {
+            latitude += decodeSigned(track.getPath(), pathCursor);
+            longitude += decodeSigned(track.getPath(), pathCursor);
+            timestamp += decodeSigned(track.getTime(), timeCursor);
+
+            MovementDto movement = new MovementDto();
+            movement.setAsset(track.getAssets().get(track.getAsset().get(i)));
+            Integer source = track.getSource().get(i);
+            movement.setSource(source == null ? null : MovementSourceType.fromValue(track.getSources().get(source)));
+            movement.setSpeed(track.getSpeed().get(i));
+            movement.setHeading(track.getHeading().get(i));
+            MovementPoint location = new MovementPoint();
+            location.setLatitude(latitude / factor);
+            location.setLongitude(longitude / factor);
+            movement.setLocation(location);
+            movement.setTimestamp(Instant.ofEpochMilli(timestamp));
+            movements.add(movement);
+        }
+        return movements;
+    }
+
+    static void encodeSigned(long value, StringBuilder out) {
+        long remaining = value < 0 ? ~(value << 1) : value << 1;
+        while (remaining >= 0x20) {
+            out.append((char) ((0x20 | (remaining & 0x1f)) + 63));
+            remaining >>>= 5;
+        }
+        out.append((char) (remaining + 63));
+    }
+
+    static long decodeSigned(String encoded, int[] cursor) {
+        long result = 0;
+        int shift = 0;
+        int chunk;
+        do {
+            chunk = encoded.charAt(cursor[0]++) - 63;
+            result |= (long) (chunk & 0x1f) << shift;
+            shift += 5;
+        } while (chunk >= 0x20);
+        return (result & 1) != 0 ? ~(result >>> 1) : result >>> 1;
+    }
+}
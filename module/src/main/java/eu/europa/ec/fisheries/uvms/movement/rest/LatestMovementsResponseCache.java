@@ -0,0 +1,170 @@
+package eu.europa.ec.fisheries.uvms.movement.rest;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.rest.dto.CompactRealTimeMapInitialData;
+import eu.europa.ec.fisheries.uvms.movement.rest.dto.RealTimeMapInitialData;
+import eu.europa.ec.fisheries.uvms.movement.service.bean.LatestMovementsSnapshot;
+import eu.europa.ec.fisheries.uvms.movement.service.util.JsonBConfiguratorMovement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.json.bind.Jsonb;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+
+/**
+ * Serialised /micro/latest responses built from the LatestMovementsSnapshot. A response is reused by all requests
+ * for the same sources and format until the snapshot changes. Each response is built once: concurrent requests for
+ * the same key wait for the FutureTask of the first one instead of building it again.
+ */
+@ApplicationScoped
+public class LatestMovementsResponseCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LatestMovementsResponseCache.class);
+
+    // Rebuilt now and then even when nothing changed, so that positions older than eight hours drop out
+    static final long MAX_AGE_MILLIS = 60_000;
+
+    @Inject
+    private LatestMovementsSnapshot snapshot;
+
+    private Jsonb jsonb;
+
+    private final Map<Key, Future<CachedResponse>> responses = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        jsonb = new JsonBConfiguratorMovement().getContext(null);
+    }
+
+    public CachedResponse get(List<MovementSourceType> sources, boolean compact) {
+        Key key = new Key(sources, compact);
+        long now = System.currentTimeMillis();
+        long version = snapshot.getVersion();
+        while (true) {
+            Future<CachedResponse> cached = responses.get(key);
+            if (cached != null) {
+                CachedResponse response = await(key, cached);
+                if (response != null && response.isUsable(version, now)) {
+                    return response;
+                }
+            }
+            FutureTask<CachedResponse> task = new FutureTask<>(() -> build(key, version, now));
+            boolean installed = cached == null ? responses.putIfAbsent(key, task) == null : responses.replace(key, cached, task);
+            if (installed) {
+                task.run();
+                CachedResponse response = await(key, task);
+                if (response == null) {
+                    throw new IllegalStateException("Could not build the latest movements");
+                }
+                return response;
+            }
+            // Another request started a build first, wait for that one
+        }
+    }
+
+    /**
+     * The response of the build, or null if it failed. A failed build is removed so that the next request retries it.
+     */
+    private CachedResponse await(Key key, Future<CachedResponse> build) {
+        try {
+            return build.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the latest movements", e);
+        } catch (ExecutionException e) {
+            responses.remove(key, build);
+            LOG.error("Could not build the latest movements", e.getCause());
+            return null;
+        }
+    }
+
+    private CachedResponse build(Key key, long version, long now) {
+        List<MovementDto> movements = snapshot.getLatest(key.sources);
+        List<String> assetIds = new ArrayList<>(movements.size());
+        for (MovementDto movement : movements) {
+            assetIds.add(movement.getAsset());
+        }
+        String assetInfo = snapshot.getMicroAssets(assetIds);
+
+        String json = key.compact
+                ? jsonb.toJson(new CompactRealTimeMapInitialData(CompactTrackEncoder.encode(movements)))
+                : jsonb.toJson(new RealTimeMapInitialData(movements));
+        json = json.replace(RealTimeMapInitialData.ASSET_JSON_PLACE_HERE, assetInfo);
+
+        CRC32 checksum = new CRC32();
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        checksum.update(bytes);
+        String etag = Long.toHexString(checksum.getValue()) + "-" + Integer.toHexString(bytes.length) + (key.compact ? "-c" : "");
+        return new CachedResponse(json, etag, version, now);
+    }
+
+    public static final class CachedResponse {
+
+        private final String json;
+        private final String etag;
+        private final long version;
+        private final long created;
+
+        private CachedResponse(String json, String etag, long version, long created) {
+            this.json = json;
+            this.etag = etag;
+            this.version = version;
+            this.created = created;
+        }
+
+        // The version only grows, a response built for a later version than the request read is just as good
+        private boolean isUsable(long currentVersion, long now) {
+            return version >= currentVersion && now - created < MAX_AGE_MILLIS;
+        }
+
+        public String getJson() {
+            return json;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    private static final class Key {
+
+        private final Set<MovementSourceType> sources;
+        private final boolean compact;
+
+        private Key(List<MovementSourceType> sources, boolean compact) {
+            this.sources = sources.isEmpty() ? EnumSet.noneOf(MovementSourceType.class) : EnumSet.copyOf(sources);
+            this.compact = compact;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return compact == key.compact && sources.equals(key.sources);
+        }
+
+        @Override
+        public int hashCode() {
+            return sources.hashCode() * 31 + (compact ? 1 : 0);
+        }
+    }
+}
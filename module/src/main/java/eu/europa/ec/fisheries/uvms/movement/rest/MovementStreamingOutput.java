@@ -0,0 +1,64 @@
+package eu.europa.ec.fisheries.uvms.movement.rest;
+
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+
+import javax.json.bind.Jsonb;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Writes movements as a JSON array while they are read from the database, so that large tracks are neither held
+ * in memory nor delayed until the last row has been read.
+ */
+public class MovementStreamingOutput implements StreamingOutput {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @FunctionalInterface
+    public interface MovementSource {
+        void forEach(Consumer<MovementDto> consumer);
+    }
+
+    private final Jsonb jsonb;
+    private final MovementSource source;
+
+    public MovementStreamingOutput(Jsonb jsonb, MovementSource source) {
+        this.jsonb = jsonb;
+        this.source = source;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write('[');
+        try {
+            source.forEach(new Consumer<MovementDto>() {
+                private boolean first = true;
+
+                @Override
+                public void accept(MovementDto movement) {
+                    try {
+                        if (!first) {
+                            writer.write(',');
+                        }
+                        first = false;
+                        writer.write(jsonb.toJson(movement));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.write(']');
+        writer.flush();
+    }
+}
@@ -16,4 +16,6 @@ public class RestConstants {
     public static final String MODULE_REST = "/rest";
     public static final String MODULE_NAME = "/movement";
 
+    public static final String COMPACT_TRACK_JSON = "application/vnd.uvms.compact-track+json";
+
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package eu.europa.ec.fisheries.uvms.movement.rest;
+
+import eu.europa.ec.fisheries.uvms.movement.rest.dto.SseMetrics;
+import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovementBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.ws.rs.sse.OutboundSseEvent;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans out SSE events to the subscriptions whose filters match. Publishing only queues the event, the sending is
+ * done on the executor with at most one event in flight per subscription, so a slow client only delays its own
+ * events. Each send is a task of its own that hands the event to the sink and returns, the next one is submitted
+ * when the sink completes, so no executor thread waits for a client. Clients that do not accept an event within
+ * SEND_TIMEOUT_MILLIS are disconnected on the next publish. The last REPLAY_BATCHES batches are kept for clients
+ * that reconnect with a Last-Event-ID.
+ */
+@ApplicationScoped
+public class SseFanOut {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SseFanOut.class);
+
+    static final long SEND_TIMEOUT_MILLIS = 10_000;
+    // Two minutes with the default batching window
+    static final int REPLAY_BATCHES = 480;
+
+    @Resource
+    private ManagedExecutorService executorService;
+
+    private final Set<SseSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    // Also guards publishing, so that a subscription gets each batch once, either replayed or published
+    private final SseReplayBuffer replayBuffer = new SseReplayBuffer(REPLAY_BATCHES);
+
+    private final AtomicLong sentEvents = new AtomicLong();
+    // Dropped by subscriptions that are gone, the others are summed when asked for
+    private final AtomicLong removedDroppedEvents = new AtomicLong();
+
+    /**
+     * Registers the subscription. With a lastEventId the batches after it are replayed first, or a reload event is
+     * sent if they are no longer available.
+     */
+    public void subscribe(SseSubscription subscription, Long lastEventId) {
+        long now = System.currentTimeMillis();
+        synchronized (replayBuffer) {
+            if (lastEventId != null) {
+                List<CreatedMovementBatch> missed = replayBuffer.getAfter(lastEventId);
+                if (missed == null) {
+                    subscription.offerReload(now);
+                } else {
+                    missed.forEach(batch -> subscription.offer(batch, now));
+                }
+            }
+            subscriptions.add(subscription);
+        }
+        if (subscription.getQueued() > 0) {
+            schedule(subscription);
+        }
+    }
+
+    public void publish(CreatedMovementBatch batch) {
+        long now = System.currentTimeMillis();
+        synchronized (replayBuffer) {
+            replayBuffer.add(batch);
+            for (SseSubscription subscription : subscriptions) {
+                // Clients that went away are otherwise only noticed when an event for them is sent
+                if (subscription.getSink().isClosed() || subscription.isSendTimedOut(now, SEND_TIMEOUT_MILLIS)) {
+                    remove(subscription);
+                } else if (subscription.offer(batch, now)) {
+                    schedule(subscription);
+                }
+            }
+        }
+    }
+
+    private void schedule(SseSubscription subscription) {
+        if (subscription.startDraining()) {
+            submitSend(subscription);
+        }
+    }
+
+    private void submitSend(SseSubscription subscription) {
+        try {
+            executorService.submit(() -> send(subscription));
+        } catch (RejectedExecutionException e) {
+            subscription.stopDraining();
+            LOG.warn("Could not schedule SSE sending, the events are sent with the next batch", e);
+        }
+    }
+
+    private void send(SseSubscription subscription) {
+        OutboundSseEvent event = subscription.poll();
+        if (event == null) {
+            subscription.stopDraining();
+            // An event queued after the last poll but before stopDraining would otherwise wait for the next one
+            if (subscription.getQueued() > 0 && subscriptions.contains(subscription)) {
+                schedule(subscription);
+            }
+            return;
+        }
+        if (subscription.getSink().isClosed()) {
+            stopSending(subscription, null);
+            return;
+        }
+        subscription.sendStarted(System.currentTimeMillis());
+        try {
+            subscription.getSink().send(event).whenComplete((result, e) -> {
+                subscription.sendCompleted();
+                if (e != null) {
+                    stopSending(subscription, e);
+                } else {
+                    sentEvents.incrementAndGet();
+                    submitSend(subscription);
+                }
+            });
+        } catch (Exception e) {
+            subscription.sendCompleted();
+            stopSending(subscription, e);
+        }
+    }
+
+    private void stopSending(SseSubscription subscription, Throwable e) {
+        if (e != null) {
+            LOG.debug("Could not send SSE event, removing the subscription", e);
+        }
+        remove(subscription);
+        subscription.stopDraining();
+    }
+
+    private void remove(SseSubscription subscription) {
+        if (subscriptions.remove(subscription)) {
+            removedDroppedEvents.addAndGet(subscription.getDropped());
+            try {
+                subscription.getSink().close();
+            } catch (Exception e) {
+                LOG.debug("Could not close SSE sink", e);
+            }
+        }
+    }
+
+    public SseMetrics getMetrics() {
+        long now = System.currentTimeMillis();
+        int queued = 0;
+        long dropped = removedDroppedEvents.get();
+        long maxLag = 0;
+        for (SseSubscription subscription : subscriptions) {
+            queued += subscription.getQueued();
+            dropped += subscription.getDropped();
+            maxLag = Math.max(maxLag, subscription.getLagMillis(now));
+        }
+        return new SseMetrics(subscriptions.size(), queued, maxLag, sentEvents.get(), dropped);
+    }
+}
@@ -0,0 +1,58 @@
+package eu.europa.ec.fisheries.uvms.movement.rest;
+
+import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovementBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The latest batches sent to the SSE clients, so that a client reconnecting with a Last-Event-ID gets what it
+ * missed. Batch ids increase by one within an epoch, so a gap means that batches have already been pushed out.
+ * Not thread safe.
+ */
+class SseReplayBuffer {
+
+    private final CreatedMovementBatch[] batches;
+    private int next;
+    private int size;
+
+    SseReplayBuffer(int capacity) {
+        batches = new CreatedMovementBatch[capacity];
+    }
+
+    void add(CreatedMovementBatch batch) {
+        batches[next] = batch;
+        next = (next + 1) % batches.length;
+        size = Math.min(size + 1, batches.length);
+    }
+
+    /**
+     * The batches after lastEventId, oldest first, or null if they can not all be replayed. That is the case when
+     * they have been pushed out, or when the id is from another epoch, that is from another node or from before a
+     * restart.
+     */
+    List<CreatedMovementBatch> getAfter(long lastEventId) {
+        if (size == 0) {
+            return null;
+        }
+        int oldest = (next - size + batches.length) % batches.length;
+        long oldestId = batches[oldest].getId();
+        long newestId = batches[(next - 1 + batches.length) % batches.length].getId();
+        if (CreatedMovementBatch.getEpoch(lastEventId) != CreatedMovementBatch.getEpoch(newestId)
+                || lastEventId < oldestId - 1 || lastEventId > newestId) {
+            return null;
+        }
+        List<CreatedMovementBatch> missed = new ArrayList<>((int) (newestId - lastEventId));
+        for (int i = 0; i < size; i++) {
+            CreatedMovementBatch batch = batches[(oldest + i) % batches.length];
+            if (batch.getId() > lastEventId) {
+                missed.add(batch);
+            }
+        }
+        return missed;
+    }
+
+    int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,195 @@
+package eu.europa.ec.fisheries.uvms.movement.rest;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovementBatch;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One SSE client with its filter and its own bounded queue of events waiting to be sent. Empty filters match
+ * everything. Each event is a JSON array with the matching movements of one CreatedMovementBatch and has the batch
+ * id as event id. When the client does not keep up the oldest queued events are dropped.
+ */
+public class SseSubscription {
+
+    static final int MAX_QUEUED_EVENTS = 1000;
+
+    public static final String MOVEMENTS_EVENT = "Movements";
+    // Sent when the events since Last-Event-ID can not be replayed, the client has to load everything again
+    public static final String RELOAD_EVENT = "Reload";
+
+    private final SseEventSink sink;
+    private final Sse sse;
+    private final Set<String> assets;
+    private final Set<MovementSourceType> sources;
+    // minLongitude, minLatitude, maxLongitude, maxLatitude or null for the whole world
+    private final double[] boundingBox;
+
+    private final Queue<QueuedEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    // When the event being sent was handed to the sink, 0 when no send is in progress
+    private volatile long sendStarted;
+
+    public SseSubscription(SseEventSink sink, Sse sse, Collection<String> assets, Collection<MovementSourceType> sources, double[] boundingBox) {
+        this.sink = sink;
+        this.sse = sse;
+        this.assets = assets == null ? new HashSet<>() : new HashSet<>(assets);
+        this.sources = sources == null || sources.isEmpty() ? EnumSet.noneOf(MovementSourceType.class) : EnumSet.copyOf(sources);
+        this.boundingBox = boundingBox;
+    }
+
+    /**
+     * Parses "minLongitude,minLatitude,maxLongitude,maxLatitude", null and empty mean no bounding box.
+     */
+    public static double[] parseBoundingBox(String boundingBox) {
+        if (boundingBox == null || boundingBox.trim().isEmpty()) {
+            return null;
+        }
+        String[] parts = boundingBox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Bounding box should be minLongitude,minLatitude,maxLongitude,maxLatitude: " + boundingBox);
+        }
+        double[] box = new double[4];
+        for (int i = 0; i < 4; i++) {
+            box[i] = Double.parseDouble(parts[i].trim());
+        }
+        if (box[0] > box[2] || box[1] > box[3]) {
+            throw new IllegalArgumentException("Bounding box minimum is larger than maximum: " + boundingBox);
+        }
+        return box;
+    }
+
+    public boolean matches(MovementDto movement) {
+        if (!assets.isEmpty() && !assets.contains(movement.getAsset())) {
+            return false;
+        }
+        if (!sources.isEmpty() && !sources.contains(movement.getSource())) {
+            return false;
+        }
+        if (boundingBox == null) {
+            return true;
+        }
+        if (movement.getLocation() == null) {
+            return false;
+        }
+        double longitude = movement.getLocation().getLongitude();
+        double latitude = movement.getLocation().getLatitude();
+        return longitude >= boundingBox[0] && latitude >= boundingBox[1] && longitude <= boundingBox[2] && latitude <= boundingBox[3];
+    }
+
+    /**
+     * Queues the matching movements of the batch, returns false if none of them match.
+     */
+    boolean offer(CreatedMovementBatch batch, long now) {
+        String data = batch.getJsonArray(this::matches);
+        if (data == null) {
+            return false;
+        }
+        offer(new QueuedEvent(MOVEMENTS_EVENT, batch.getId(), data, now));
+        return true;
+    }
+
+    void offerReload(long now) {
+        offer(new QueuedEvent(RELOAD_EVENT, null, RELOAD_EVENT, now));
+    }
+
+    private void offer(QueuedEvent event) {
+        queue.add(event);
+        if (queued.incrementAndGet() > MAX_QUEUED_EVENTS && queue.poll() != null) {
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+    }
+
+    OutboundSseEvent poll() {
+        QueuedEvent event = queue.poll();
+        if (event == null) {
+            return null;
+        }
+        queued.decrementAndGet();
+        OutboundSseEvent.Builder builder = sse.newEventBuilder()
+                .name(event.name)
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(String.class, event.data);
+        if (event.id != null) {
+            builder.id(event.id.toString());
+        }
+        return builder.build();
+    }
+
+    /**
+     * True if the caller should start draining the queue, false if someone else already does.
+     */
+    boolean startDraining() {
+        return draining.compareAndSet(false, true);
+    }
+
+    void stopDraining() {
+        draining.set(false);
+    }
+
+    void sendStarted(long now) {
+        sendStarted = now;
+    }
+
+    void sendCompleted() {
+        sendStarted = 0;
+    }
+
+    /**
+     * True if the client has not accepted the event being sent within the timeout.
+     */
+    boolean isSendTimedOut(long now, long timeoutMillis) {
+        long started = sendStarted;
+        return started != 0 && now - started > timeoutMillis;
+    }
+
+    SseEventSink getSink() {
+        return sink;
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * How long the oldest queued event has been waiting.
+     */
+    public long getLagMillis(long now) {
+        QueuedEvent oldest = queue.peek();
+        return oldest == null ? 0 : now - oldest.queued;
+    }
+
+    private static final class QueuedEvent {
+        private final String name;
+        private final Long id;
+        private final String data;
+        private final long queued;
+
+        private QueuedEvent(String name, Long id, String data, long queued) {
+            this.name = name;
+            this.id = id;
+            this.data = data;
+            this.queued = queued;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package eu.europa.ec.fisheries.uvms.movement.rest.dto;
+
+public class CompactRealTimeMapInitialData {
+
+    CompactTrack movements;
+
+    String assetList;
+
+    public CompactRealTimeMapInitialData(CompactTrack movements) {
+        this.movements = movements;
+        this.assetList = RealTimeMapInitialData.ASSET_JSON_PLACE_HERE.replace("\"", "");
+    }
+
+    public CompactRealTimeMapInitialData() {
+    }
+
+    public CompactTrack getMovements() {
+        return movements;
+    }
+
+    public void setMovements(CompactTrack movements) {
+        this.movements = movements;
+    }
+
+    public String getAssetList() {
+        return assetList;
+    }
+
+    public void setAssetList(String assetList) {
+        this.assetList = assetList;
+    }
+}
@@ -0,0 +1,105 @@
+package eu.europa.ec.fisheries.uvms.movement.rest.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Column oriented track where row i of every list is the same movement. Assets and sources are given once and
+ * referred to by index, positions and timestamps are delta encoded polylines, see CompactTrackEncoder. Movement ids
+ * are left out since they would make up most of the payload, use the JSON format when they are needed.
+ */
+public class CompactTrack {
+
+    private int precision;
+    private long timeBase;
+
+    private List<String> assets = new ArrayList<>();
+    private List<String> sources = new ArrayList<>();
+
+    private List<Integer> asset = new ArrayList<>();
+    private List<Integer> source = new ArrayList<>();
+    private String path = "";
+    private String time = "";
+    private List<Float> speed = new ArrayList<>();
+    private List<Float> heading = new ArrayList<>();
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void setPrecision(int precision) {
+        this.precision = precision;
+    }
+
+    public long getTimeBase() {
+        return timeBase;
+    }
+
+    public void setTimeBase(long timeBase) {
+        this.timeBase = timeBase;
+    }
+
+    public List<String> getAssets() {
+        return assets;
+    }
+
+    public void setAssets(List<String> assets) {
+        this.assets = assets;
+    }
+
+    public List<String> getSources() {
+        return sources;
+    }
+
+    public void setSources(List<String> sources) {
+        this.sources = sources;
+    }
+
+    public List<Integer> getAsset() {
+        return asset;
+    }
+
+    public void setAsset(List<Integer> asset) {
+        this.asset = asset;
+    }
+
+    public List<Integer> getSource() {
+        return source;
+    }
+
+    public void setSource(List<Integer> source) {
+        this.source = source;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    public void setTime(String time) {
+        this.time = time;
+    }
+
+    public List<Float> getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(List<Float> speed) {
+        this.speed = speed;
+    }
+
+    public List<Float> getHeading() {
+        return heading;
+    }
+
+    public void setHeading(List<Float> heading) {
+        this.heading = heading;
+    }
+}
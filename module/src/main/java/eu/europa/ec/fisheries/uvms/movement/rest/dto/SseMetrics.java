@@ -0,0 +1,65 @@
+package eu.europa.ec.fisheries.uvms.movement.rest.dto;
+
+public class SseMetrics {
+
+    private int subscribers;
+
+    private int queuedEvents;
+
+    private long maxLagMillis;
+
+    private long sentEvents;
+
+    private long droppedEvents;
+
+    public SseMetrics(int subscribers, int queuedEvents, long maxLagMillis, long sentEvents, long droppedEvents) {
+        this.subscribers = subscribers;
+        this.queuedEvents = queuedEvents;
+        this.maxLagMillis = maxLagMillis;
+        this.sentEvents = sentEvents;
+        this.droppedEvents = droppedEvents;
+    }
+
+    public SseMetrics() {
+    }
+
+    public int getSubscribers() {
+        return subscribers;
+    }
+
+    public void setSubscribers(int subscribers) {
+        this.subscribers = subscribers;
+    }
+
+    public int getQueuedEvents() {
+        return queuedEvents;
+    }
+
+    public void setQueuedEvents(int queuedEvents) {
+        this.queuedEvents = queuedEvents;
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis;
+    }
+
+    public void setMaxLagMillis(long maxLagMillis) {
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    public long getSentEvents() {
+        return sentEvents;
+    }
+
+    public void setSentEvents(long sentEvents) {
+        this.sentEvents = sentEvents;
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    public void setDroppedEvents(long droppedEvents) {
+        this.droppedEvents = droppedEvents;
+    }
+}
@@ -8,12 +8,17 @@ import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
 import eu.europa.ec.fisheries.uvms.movement.model.GetMovementListByQueryResponse;
 import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementsForConnectIdsBetweenDatesRequest;
 import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.rest.MovementStreamingOutput;
+import eu.europa.ec.fisheries.uvms.movement.rest.SseFanOut;
 import eu.europa.ec.fisheries.uvms.movement.service.bean.MovementService;
 import eu.europa.ec.fisheries.uvms.movement.service.dao.MovementDao;
 import eu.europa.ec.fisheries.uvms.movement.service.dto.CursorPagination;
+import eu.europa.ec.fisheries.uvms.movement.service.dto.ListCountType;
+import eu.europa.ec.fisheries.uvms.movement.service.dto.MovementKeysetListResponseDto;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
 import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementEntityToModelMapper;
 import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementMapper;
+import eu.europa.ec.fisheries.uvms.movement.service.util.GeometryUtil;
 import eu.europa.ec.fisheries.uvms.movement.service.util.JsonBConfiguratorMovement;
 import eu.europa.ec.fisheries.uvms.rest.security.RequiresFeature;
 import eu.europa.ec.fisheries.uvms.rest.security.UnionVMSFeature;
@@ -47,6 +52,9 @@ public class InternalRestResource {
     @Inject
     private MovementDao movementDao;
 
+    @Inject
+    private SseFanOut sseFanOut;
+
     private Jsonb jsonb;    //since for some reason jackson is used to serialize stuff if we use the framework
 
     @PostConstruct
@@ -61,6 +69,13 @@ public class InternalRestResource {
         return Response.ok("pong").build();
     }
 
+    @GET
+    @Path("/sse/metrics")
+    @RequiresFeature(UnionVMSFeature.manageInternalRest)
+    public Response getSseMetrics() {
+        return Response.ok(jsonb.toJson(sseFanOut.getMetrics())).header("MDC", MDC.get("requestId")).build();
+    }
+
     @POST
     @Path("/list")
     @RequiresFeature(UnionVMSFeature.manageInternalRest)
@@ -74,6 +89,23 @@ public class InternalRestResource {
         }
     }
 
+    @POST
+    @Path("/list/keyset")
+    @RequiresFeature(UnionVMSFeature.manageInternalRest)
+    public Response getKeysetListByQuery(MovementQuery query,
+                                         @QueryParam("cursor") String cursor,
+                                         @DefaultValue("CAPPED") @QueryParam("count") ListCountType count) {
+        try {
+            MovementKeysetListResponseDto list = movementService.getKeysetList(query, cursor, count);
+            String jsonString = jsonb.toJson(list);
+            return Response.ok(jsonString).header("MDC", MDC.get("requestId")).build();
+        } catch (Exception e) {
+            LOG.error("[ Error when getting keyset list. ]", e);
+            return Response.status(Status.INTERNAL_SERVER_ERROR).entity(ExceptionUtils.getRootCause(e))
+                    .header("MDC", MDC.get("requestId")).build();
+        }
+    }
+
     @POST
     @Path("/latest")
     @RequiresFeature(UnionVMSFeature.manageInternalRest)
@@ -93,9 +125,9 @@ public class InternalRestResource {
     @POST
     @Path("/movementMapByQuery")
     @RequiresFeature(UnionVMSFeature.manageInternalRest)
-    public Response getMovementMapByQuery(MovementQuery query) {
+    public Response getMovementMapByQuery(MovementQuery query, @QueryParam("tolerance") Double tolerance, @QueryParam("zoom") Integer zoom) {
         try {
-            GetMovementMapByQueryResponse response = movementService.getMapByQuery(query);
+            GetMovementMapByQueryResponse response = movementService.getMapByQuery(query, GeometryUtil.getTolerance(tolerance, zoom));
             return Response.ok(response).build();
         } catch (IllegalArgumentException e) {
             LOG.error("Error when retrieving movement map", e);
@@ -168,7 +200,7 @@ public class InternalRestResource {
     @POST
     @Path("/movementsForConnectIdsBetweenDates")
     @RequiresFeature(UnionVMSFeature.manageInternalRest)
-    public Response getMovementsForConnectIdsBetweenDates(MovementsForConnectIdsBetweenDatesRequest request) {
+    public Response getMovementsForConnectIdsBetweenDates(@DefaultValue("false") @QueryParam("stream") boolean stream, MovementsForConnectIdsBetweenDatesRequest request) {
         List<String> vesselIds = request.getAssetIds();
         Instant fromDate = request.getFromDate();
         Instant toDate = request.getToDate();
@@ -184,8 +216,13 @@ public class InternalRestResource {
                     .map(UUID::fromString)
                     .collect(Collectors.toList());
 
-            List<Movement> movements = movementDao.getMicroMovementsForConnectIdsBetweenDates(uuids, fromDate, toDate, sourceTypes);
-            List<MovementDto> movementDtos = MovementMapper.mapToMovementDtoList(movements);
+            if (stream) {
+                MovementStreamingOutput output = new MovementStreamingOutput(jsonb, consumer ->
+                        movementService.streamMicroMovementsForConnectIdsBetweenDates(uuids, fromDate, toDate, sourceTypes, consumer));
+                return Response.ok(output).header("MDC", MDC.get("requestId")).build();
+            }
+
+            List<MovementDto> movementDtos = movementDao.getMicroMovementsForConnectIdsBetweenDates(uuids, fromDate, toDate, sourceTypes);
 
             Response.ResponseBuilder ok = Response.ok(movementDtos);
             return ok.header("MDC", MDC.get("requestId")).build();
@@ -14,16 +14,19 @@ package eu.europa.ec.fisheries.uvms.movement.rest.service;
 import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
 import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
 import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.rest.CompactTrackEncoder;
+import eu.europa.ec.fisheries.uvms.movement.rest.LatestMovementsResponseCache;
+import eu.europa.ec.fisheries.uvms.movement.rest.MovementStreamingOutput;
+import eu.europa.ec.fisheries.uvms.movement.rest.RestConstants;
 import eu.europa.ec.fisheries.uvms.movement.rest.RestUtilMapper;
-import eu.europa.ec.fisheries.uvms.movement.rest.dto.RealTimeMapInitialData;
 import eu.europa.ec.fisheries.uvms.movement.rest.dto.TrackForAssetsQuery;
 import eu.europa.ec.fisheries.uvms.movement.service.bean.MovementService;
 import eu.europa.ec.fisheries.uvms.movement.service.dao.MovementDao;
-import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
-import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementMapper;
+import eu.europa.ec.fisheries.uvms.movement.service.util.GeometryUtil;
 import eu.europa.ec.fisheries.uvms.movement.service.util.JsonBConfiguratorMovement;
 import eu.europa.ec.fisheries.uvms.rest.security.RequiresFeature;
 import eu.europa.ec.fisheries.uvms.rest.security.UnionVMSFeature;
+import org.locationtech.jts.geom.Coordinate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -33,13 +36,20 @@ import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.json.bind.Jsonb;
 import javax.ws.rs.*;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Stateless
@@ -56,6 +66,9 @@ public class MicroMovementRestResource {
     @Inject
     private MovementDao movementDao;
 
+    @Inject
+    private LatestMovementsResponseCache latestMovementsResponseCache;
+
     private Jsonb jsonb;    //to be able to replace one part of the string beeing sent out since yasson does not allow one to send raw ;(
 
     @PostConstruct
@@ -65,16 +78,18 @@ public class MicroMovementRestResource {
 
     @POST
     @Path("/track/asset/{id}/")
+    @Produces({MediaType.APPLICATION_JSON, RestConstants.COMPACT_TRACK_JSON})
     @RequiresFeature(UnionVMSFeature.viewMovements)
-    public Response getMovementTrackForAssetByDate(@PathParam("id") UUID connectId, @DefaultValue("") @QueryParam("startDate") String startDate, @DefaultValue("") @QueryParam("endDate") String endDate, List<String> sources) {
+    public Response getMovementTrackForAssetByDate(@PathParam("id") UUID connectId, @DefaultValue("") @QueryParam("startDate") String startDate, @DefaultValue("") @QueryParam("endDate") String endDate,
+                                                   @QueryParam("tolerance") Double tolerance, @QueryParam("zoom") Integer zoom,
+                                                   @Context HttpHeaders headers, List<String> sources) {
         try {
 
             List<MovementSourceType> sourceTypes = RestUtilMapper.convertToMovementSourceTypes(sources);
             Instant startInstant = (startDate.isEmpty() ? Instant.now().minus(8, ChronoUnit.HOURS) : DateUtils.stringToDate(startDate));
             Instant endInstant = (endDate.isEmpty() ? Instant.now() : DateUtils.stringToDate(endDate));
-            List<Movement> movements = movementDao.getMicroMovementsForAssetAfterDate(connectId, startInstant, endInstant, sourceTypes);
-            List<MovementDto> movementDtos = MovementMapper.mapToMovementDtoList(movements);
-            return Response.ok(movementDtos).header("MDC", MDC.get("requestId")).build();
+            List<MovementDto> movementDtos = movementDao.getMicroMovementDtosForAssetAfterDate(connectId, startInstant, endInstant, sourceTypes);
+            return trackResponse(simplifyTracks(movementDtos, GeometryUtil.getTolerance(tolerance, zoom)), headers);
         } catch (Exception e) {
             LOG.error("Error when getting Micro Movement for connectId: {}", connectId, e);
             throw e;
@@ -83,14 +98,16 @@ public class MicroMovementRestResource {
 
     @POST
     @Path("/track/latest/asset/{id}/")
+    @Produces({MediaType.APPLICATION_JSON, RestConstants.COMPACT_TRACK_JSON})
     @RequiresFeature(UnionVMSFeature.viewMovements)
-    public Response getMovementTrackForAssetByNumber(@PathParam("id") UUID connectId, @DefaultValue("2000") @QueryParam("maxNbr") Integer maxNumber, List<String> sources) {
+    public Response getMovementTrackForAssetByNumber(@PathParam("id") UUID connectId, @DefaultValue("2000") @QueryParam("maxNbr") Integer maxNumber,
+                                                     @QueryParam("tolerance") Double tolerance, @QueryParam("zoom") Integer zoom,
+                                                     @Context HttpHeaders headers, List<String> sources) {
         try {
 
             List<MovementSourceType> sourceTypes = RestUtilMapper.convertToMovementSourceTypes(sources);
-            List<Movement> movements = movementDao.getLatestNumberOfMovementsForAsset(connectId, maxNumber, sourceTypes);
-            List<MovementDto> movementDtos = MovementMapper.mapToMovementDtoList(movements);
-            return Response.ok(movementDtos).header("MDC", MDC.get("requestId")).build();
+            List<MovementDto> movementDtos = movementDao.getLatestNumberOfMovementsForAsset(connectId, maxNumber, sourceTypes);
+            return trackResponse(simplifyTracks(movementDtos, GeometryUtil.getTolerance(tolerance, zoom)), headers);
         } catch (Exception e) {
             LOG.error("Error when getting Micro Movement for connectId: {}", connectId, e);
             throw e;
@@ -99,19 +116,28 @@ public class MicroMovementRestResource {
 
     @POST
     @Path("/track/assets/")
+    @Produces({MediaType.APPLICATION_JSON, RestConstants.COMPACT_TRACK_JSON})
     @RequiresFeature(UnionVMSFeature.viewMovements)
-    public Response getMovementTrackForAssets(@DefaultValue("") @QueryParam("startDate") String startDate, @DefaultValue("") @QueryParam("endDate") String endDate, TrackForAssetsQuery query) {
+    public Response getMovementTrackForAssets(@DefaultValue("") @QueryParam("startDate") String startDate, @DefaultValue("") @QueryParam("endDate") String endDate,
+                                              @DefaultValue("false") @QueryParam("stream") boolean stream, @QueryParam("tolerance") Double tolerance, @QueryParam("zoom") Integer zoom,
+                                              @Context HttpHeaders headers, TrackForAssetsQuery query) {
         try {
             if (query.getAssetIds().isEmpty()) {
-                return Response.ok(Collections.emptyList()).header("MDC", MDC.get("requestId")).build();
+                return trackResponse(Collections.emptyList(), headers);
             }
 
             List<MovementSourceType> sourceTypes = RestUtilMapper.convertToMovementSourceTypes(query.getSources());
             Instant startInstant = (endDate.isEmpty() ? Instant.now().minus(8, ChronoUnit.HOURS) : DateUtils.stringToDate(startDate));
             Instant endInstant = (endDate.isEmpty() ? Instant.now() : DateUtils.stringToDate(endDate));
-            List<Movement> movements = movementDao.getMicroMovementsForConnectIdsBetweenDates(query.getAssetIds(), startInstant, endInstant, sourceTypes);
-            List<MovementDto> movementDtos = MovementMapper.mapToMovementDtoList(movements);
-            return Response.ok(movementDtos).header("MDC", MDC.get("requestId")).build();
+            double simplifyTolerance = GeometryUtil.getTolerance(tolerance, zoom);
+            // A simplified track needs all positions of an asset at once, so it is not streamed
+            if (stream && simplifyTolerance == 0 && !isCompactRequested(headers)) {
+                MovementStreamingOutput output = new MovementStreamingOutput(jsonb, consumer ->
+                        movementService.streamMicroMovementsForConnectIdsBetweenDates(query.getAssetIds(), startInstant, endInstant, sourceTypes, consumer));
+                return Response.ok(output, MediaType.APPLICATION_JSON).header("MDC", MDC.get("requestId")).build();
+            }
+            List<MovementDto> movementDtos = movementDao.getMicroMovementsForConnectIdsBetweenDates(query.getAssetIds(), startInstant, endInstant, sourceTypes);
+            return trackResponse(simplifyTracks(movementDtos, simplifyTolerance), headers);
         } catch (Exception e) {
             LOG.error("Error when getting Micro Movement for connectIds: {}", query.getAssetIds(), e);
             throw e;
@@ -120,27 +146,61 @@ public class MicroMovementRestResource {
 
     @POST
     @Path("/latest")
+    @Produces({MediaType.APPLICATION_JSON, RestConstants.COMPACT_TRACK_JSON})
     @RequiresFeature(UnionVMSFeature.viewMovements)
-    public Response getLastMovementForAllAssets(List<String> sources) {
+    public Response getLastMovementForAllAssets(@Context HttpHeaders headers, @Context Request request, List<String> sources) {
         try {
             List<MovementSourceType> sourceTypes = RestUtilMapper.convertToMovementSourceTypes(sources);
-            List<MovementDto> movements = movementService.getLatestMovementsLast8Hours(sourceTypes);
-
-            List<String> assetIdList = new ArrayList<>(movements.size());
-            for (MovementDto movement: movements) {
-                assetIdList.add(movement.getAsset());
+            boolean compact = isCompactRequested(headers);
+            LatestMovementsResponseCache.CachedResponse latest = latestMovementsResponseCache.get(sourceTypes, compact);
+
+            EntityTag etag = new EntityTag(latest.getEtag());
+            CacheControl cacheControl = new CacheControl();
+            cacheControl.setPrivate(true);
+            cacheControl.setNoCache(true);
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+            if (notModified != null) {
+                return notModified.cacheControl(cacheControl).header("MDC", MDC.get("requestId")).build();
             }
-
-            String assetInfo = movementService.getMicroAssets(assetIdList);
-
-            RealTimeMapInitialData retVal = new RealTimeMapInitialData(movements);
-            String returnJson = jsonb.toJson(retVal).replace(RealTimeMapInitialData.ASSET_JSON_PLACE_HERE, assetInfo);
-
-            return Response.ok(returnJson).header("MDC", MDC.get("requestId")).build();
+            return Response.ok(latest.getJson(), compact ? RestConstants.COMPACT_TRACK_JSON : MediaType.APPLICATION_JSON)
+                    .tag(etag)
+                    .cacheControl(cacheControl)
+                    .header("MDC", MDC.get("requestId")).build();
         } catch (Exception e) {
             LOG.error("Error when getting latest Micro Movements", e);
             throw e;
         }
     }
 
+    private Response trackResponse(List<MovementDto> movementDtos, HttpHeaders headers) {
+        if (isCompactRequested(headers)) {
+            String compactJson = jsonb.toJson(CompactTrackEncoder.encode(movementDtos));
+            return Response.ok(compactJson, RestConstants.COMPACT_TRACK_JSON).header("MDC", MDC.get("requestId")).build();
+        }
+        return Response.ok(movementDtos, MediaType.APPLICATION_JSON).header("MDC", MDC.get("requestId")).build();
+    }
+
+    private List<MovementDto> simplifyTracks(List<MovementDto> movementDtos, double tolerance) {
+        if (tolerance == 0) {
+            return movementDtos;
+        }
+        Map<String, List<MovementDto>> tracks = new LinkedHashMap<>();
+        for (MovementDto movementDto : movementDtos) {
+            tracks.computeIfAbsent(movementDto.getAsset(), asset -> new ArrayList<>()).add(movementDto);
+        }
+        List<MovementDto> simplified = new ArrayList<>(movementDtos.size());
+        for (List<MovementDto> track : tracks.values()) {
+            simplified.addAll(GeometryUtil.simplify(track,
+                    movementDto -> new Coordinate(movementDto.getLocation().getLongitude(), movementDto.getLocation().getLatitude()), tolerance));
+        }
+        return simplified;
+    }
+
+    // Only when asked for explicitly, a wildcard Accept header still gets the plain JSON
+    private boolean isCompactRequested(HttpHeaders headers) {
+        MediaType compact = MediaType.valueOf(RestConstants.COMPACT_TRACK_JSON);
+        return headers.getAcceptableMediaTypes().stream()
+                .anyMatch(type -> !type.isWildcardType() && !type.isWildcardSubtype() && type.isCompatible(compact));
+    }
+
 }
@@ -20,9 +20,12 @@ import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
 import eu.europa.ec.fisheries.uvms.movement.rest.RestUtilMapper;
 import eu.europa.ec.fisheries.uvms.movement.service.bean.MovementService;
 import eu.europa.ec.fisheries.uvms.movement.service.dao.MovementDao;
+import eu.europa.ec.fisheries.uvms.movement.service.dto.ListCountType;
+import eu.europa.ec.fisheries.uvms.movement.service.dto.MovementKeysetListResponseDto;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
 import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementEntityToModelMapper;
 import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementMapper;
+import eu.europa.ec.fisheries.uvms.movement.service.util.GeometryUtil;
 import eu.europa.ec.fisheries.uvms.rest.security.RequiresFeature;
 import eu.europa.ec.fisheries.uvms.rest.security.UnionVMSFeature;
 import org.slf4j.Logger;
@@ -72,6 +75,21 @@ public class MovementRestResource {
         }
     }
 
+    @POST
+    @Path("/list/keyset")
+    @RequiresFeature(UnionVMSFeature.viewMovements)
+    public Response getKeysetListByQuery(MovementQuery query,
+                                         @QueryParam("cursor") String cursor,
+                                         @DefaultValue("CAPPED") @QueryParam("count") ListCountType count) {
+        try {
+            MovementKeysetListResponseDto list = serviceLayer.getKeysetList(query, cursor, count);
+            return Response.ok(list).header("MDC", MDC.get("requestId")).build();
+        } catch (Exception ex) {
+            LOG.error("[ Error when getting keyset list. ]", ex);
+            throw ex;
+        }
+    }
+
     @POST
     @Path("/list/minimal")          //Used by a position part in old frontend, use until we have moved that functionality to new frontend
     @RequiresFeature(UnionVMSFeature.viewMovements)
@@ -150,9 +168,9 @@ public class MovementRestResource {
     @POST
     @Path("/movementMap")
     @RequiresFeature(UnionVMSFeature.viewMovements)
-    public Response getMapByQuery(MovementQuery query) {
+    public Response getMapByQuery(MovementQuery query, @QueryParam("tolerance") Double tolerance, @QueryParam("zoom") Integer zoom) {
         try {
-            GetMovementMapByQueryResponse mapByQuery = serviceLayer.getMapByQuery(query);
+            GetMovementMapByQueryResponse mapByQuery = serviceLayer.getMapByQuery(query, GeometryUtil.getTolerance(tolerance, zoom));
             return Response.ok(mapByQuery).build();
         } catch (Exception ex) {
             LOG.error("[ Error when getting movement map. ]", ex);
@@ -167,8 +185,7 @@ public class MovementRestResource {
         try {
 
             List<MovementSourceType> sourceTypes = RestUtilMapper.convertToMovementSourceTypes(sources);
-            List<Movement> movements = movementDao.getLatestNumberOfMovementsForAsset(connectId, maxNumber, sourceTypes);
-            List<MovementDto> movementDtos = MovementMapper.mapToMovementDtoList(movements);
+            List<MovementDto> movementDtos = movementDao.getLatestNumberOfMovementsForAsset(connectId, maxNumber, sourceTypes);
             return Response.ok(movementDtos).header("MDC", MDC.get("requestId")).build();
         } catch (Exception e) {
             LOG.error("Error when getting Movement for connectId: {}", connectId, e);
@@ -1,10 +1,9 @@
 package eu.europa.ec.fisheries.uvms.movement.rest.service;
 
-import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
-import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
-import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovement;
-import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementMapper;
-import eu.europa.ec.fisheries.uvms.movement.service.util.JsonBConfiguratorMovement;
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.uvms.movement.rest.SseFanOut;
+import eu.europa.ec.fisheries.uvms.movement.rest.SseSubscription;
+import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovementBatch;
 import eu.europa.ec.fisheries.uvms.rest.security.RequiresFeature;
 import eu.europa.ec.fisheries.uvms.rest.security.UnionVMSFeature;
 import org.slf4j.Logger;
@@ -13,17 +12,19 @@ import org.slf4j.LoggerFactory;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.Initialized;
 import javax.enterprise.event.Observes;
-import javax.enterprise.event.TransactionPhase;
-import javax.json.bind.Jsonb;
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.sse.OutboundSseEvent;
 import javax.ws.rs.sse.Sse;
-import javax.ws.rs.sse.SseBroadcaster;
 import javax.ws.rs.sse.SseEventSink;
+import java.util.List;
 
 @ApplicationScoped
 @Path("sse")
@@ -33,50 +34,58 @@ public class SSEResource {
     private final static Logger LOG = LoggerFactory.getLogger(SSEResource.class);
 
     private Sse sse;
-    private OutboundSseEvent.Builder eventBuilder;
-    private SseBroadcaster sseBroadcaster;
-    private Jsonb jsonb = new JsonBConfiguratorMovement().getContext(null);
 
     public void initAtStartup(@Observes @Initialized(ApplicationScoped.class) Object init) {
         LOG.debug("Starting SSEResource by initAtStartup");
     }
 
+    @Inject
+    private SseFanOut fanOut;
+
     @Context
     public void setSse(Sse sse) {
         this.sse = sse;
-        this.eventBuilder = sse.newEventBuilder();
-        this.sseBroadcaster = sse.newBroadcaster();
     }
 
-    public void createdMovement(@Observes(during = TransactionPhase.AFTER_SUCCESS) @CreatedMovement Movement move){
-        LOG.debug("Movement {} came to SseResource" , move);
+    public void createdMovements(@Observes CreatedMovementBatch batch){
+        LOG.debug("Movement batch {} with {} movements came to SseResource", batch.getId(), batch.getMovements().size());
         try {
-            if (move != null) {
-                MovementDto dto = MovementMapper.mapToMovementDto(move);
-                String outboundJson = jsonb.toJson(dto);
-                OutboundSseEvent sseEvent = eventBuilder
-                        .name("Movement")
-                        .id("" + System.currentTimeMillis())
-                        .mediaType(MediaType.APPLICATION_JSON_PATCH_JSON_TYPE)
-                        //.data(MicroMovementExtended.class, micro)         //for some unknown reason this does not get serialized, so we serialize manually and send the string instead.
-                        .data(String.class, outboundJson)
-                        //.reconnectDelay(3000) //this one is optional and governs how long the client should wait b4 attempting to reconnect to this server
-                        .comment("New Movement")
-                        .build();
-                sseBroadcaster.broadcast(sseEvent);
-            }
+            fanOut.publish(batch);
         }catch (Exception e){
+            // Not rethrown, the other observers of the batch should still get it
             LOG.error("Error while broadcasting SSE: ", e);
-            throw new RuntimeException(e);
         }
     }
 
     @GET
     @Path("subscribe")
     @Produces(MediaType.SERVER_SENT_EVENTS)
-    public void listen(@Context SseEventSink sseEventSink) {
-        sseEventSink.send(sse.newEvent("Welcome to UVMS SSE notifications. Version 2"));
-        sseBroadcaster.register(sseEventSink);
+    public void listen(@Context SseEventSink sseEventSink,
+                       @QueryParam("asset") List<String> assets,
+                       @QueryParam("source") List<MovementSourceType> sources,
+                       @QueryParam("bbox") String boundingBox,
+                       @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId) {
+        SseSubscription subscription;
+        try {
+            subscription = new SseSubscription(sseEventSink, sse, assets, sources, SseSubscription.parseBoundingBox(boundingBox));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+        // Sent before subscribing, after that the fan out is the only one writing to the sink
+        sseEventSink.send(sse.newEvent("Welcome to UVMS SSE notifications. Version 3"));
         sseEventSink.send(sse.newEvent("You are now registered for receiving new movements."));
+        fanOut.subscribe(subscription, parseLastEventId(lastEventId));
+    }
+
+    private static Long parseLastEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            // Not one of ours, so nothing can be replayed and the client gets a reload event
+            return -1L;
+        }
     }
 }
@@ -0,0 +1,244 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.archive;
+
+import eu.europa.ec.fisheries.uvms.config.service.ParameterService;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.service.constant.ParameterKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ejb.EJB;
+import javax.enterprise.context.ApplicationScoped;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Movements moved out of movement.movement by the MovementArchiver, kept in one MovementArchiveCodec file per asset
+ * and month: {directory}/{yyyy-MM}/{asset}.mva. The directory is the movement.archive.directory setting. It must
+ * exist on storage shared by all nodes, and nothing is archived until it is set. Changing it hides the movements archived before. Files are read
+ * through memory mapping.
+ */
+@ApplicationScoped
+public class MovementArchive {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MovementArchive.class);
+
+    static final String FILE_SUFFIX = ".mva";
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final long DIRECTORY_REFRESH_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * The order of movement.movement: timestamp, then id compared the way PostgreSQL compares uuids.
+     */
+    public static final Comparator<MovementDto> TIME_ORDER = Comparator.comparing(MovementDto::getTimestamp)
+            .thenComparing(MovementDto::getId, MovementArchive::compareIds);
+
+    @EJB
+    private ParameterService parameterService;
+
+    private volatile Path directory;
+    private volatile long directoryReadAt;
+
+    /**
+     * The archived movements with a timestamp from from to to, both inclusive and null for no bound, of the given
+     * assets or of all assets when assets is null. The movements are sorted in TIME_ORDER and at most limit of the
+     * first ones matching the filter are returned.
+     */
+    public List<MovementDto> read(Collection<UUID> assets, Instant from, Instant to, Predicate<MovementDto> filter, int limit) {
+        List<MovementDto> movements = new ArrayList<>();
+        for (Map.Entry<YearMonth, Path> month : getMonths(from, to).entrySet()) {
+            List<MovementDto> monthMovements = new ArrayList<>();
+            for (Path file : getFiles(month.getValue(), assets)) {
+                for (MovementDto movement : readFile(file, from, to)) {
+                    if (filter.test(movement)) {
+                        monthMovements.add(movement);
+                    }
+                }
+            }
+            monthMovements.sort(TIME_ORDER);
+            movements.addAll(monthMovements);
+            // Later months only hold later movements
+            if (movements.size() >= limit) {
+                return new ArrayList<>(movements.subList(0, limit));
+            }
+        }
+        return movements;
+    }
+
+    /**
+     * Adds the movements of one asset and month to its archive file. Movements already in the file are replaced by
+     * the ones with the same id, so that writing the same movements again does no harm. The file is replaced
+     * atomically, readers see the old or the new file. The file and the directory entry are on disk when this
+     * returns, so the movements can be deleted from the database.
+     */
+    public void write(UUID asset, YearMonth month, Collection<MovementDto> movements) {
+        if (!isWritable()) {
+            throw new IllegalStateException("The movement archive directory " + getDirectory() + " is not set or not writable");
+        }
+        Path monthDirectory = getDirectory().resolve(month.format(MONTH_FORMAT));
+        Path file = monthDirectory.resolve(asset + FILE_SUFFIX);
+        try {
+            boolean newMonth = !Files.isDirectory(monthDirectory);
+            Files.createDirectories(monthDirectory);
+            Map<UUID, MovementDto> merged = new LinkedHashMap<>();
+            if (Files.exists(file)) {
+                for (MovementDto existing : readFile(file, null, null)) {
+                    merged.put(existing.getId(), existing);
+                }
+            }
+            for (MovementDto movement : movements) {
+                merged.put(movement.getId(), movement);
+            }
+            List<MovementDto> sorted = new ArrayList<>(merged.values());
+            sorted.sort(TIME_ORDER);
+
+            Path temporary = monthDirectory.resolve(asset + FILE_SUFFIX + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer encoded = ByteBuffer.wrap(MovementArchiveCodec.encode(asset, sorted));
+                while (encoded.hasRemaining()) {
+                    channel.write(encoded);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // The rename is only durable once the directory is, and a new month directory only once its parent is
+            forceDirectory(monthDirectory);
+            if (newMonth) {
+                forceDirectory(monthDirectory.getParent());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write movement archive " + file, e);
+        }
+    }
+
+    /**
+     * Whether movement.archive.directory is set to an existing, writable directory.
+     */
+    public boolean isWritable() {
+        Path archiveDirectory = getDirectory();
+        return archiveDirectory != null && Files.isDirectory(archiveDirectory) && Files.isWritable(archiveDirectory);
+    }
+
+    private static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private List<MovementDto> readFile(Path file, Instant from, Instant to) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return MovementArchiveCodec.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), from, to);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read movement archive " + file, e);
+        }
+    }
+
+    private Map<YearMonth, Path> getMonths(Instant from, Instant to) {
+        Map<YearMonth, Path> months = new TreeMap<>();
+        Path archiveDirectory = getDirectory();
+        if (archiveDirectory == null || !Files.isDirectory(archiveDirectory)) {
+            return months;
+        }
+        YearMonth first = from == null ? null : YearMonth.from(from.atOffset(ZoneOffset.UTC));
+        YearMonth last = to == null ? null : YearMonth.from(to.atOffset(ZoneOffset.UTC));
+        try (DirectoryStream<Path> directories = Files.newDirectoryStream(archiveDirectory, Files::isDirectory)) {
+            for (Path monthDirectory : directories) {
+                YearMonth month = parseMonth(monthDirectory.getFileName().toString());
+                if (month != null && (first == null || !month.isBefore(first)) && (last == null || !month.isAfter(last))) {
+                    months.put(month, monthDirectory);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list movement archive " + archiveDirectory, e);
+        }
+        return months;
+    }
+
+    private List<Path> getFiles(Path monthDirectory, Collection<UUID> assets) {
+        List<Path> files = new ArrayList<>();
+        if (assets != null) {
+            for (UUID asset : assets) {
+                Path file = monthDirectory.resolve(asset + FILE_SUFFIX);
+                if (Files.exists(file)) {
+                    files.add(file);
+                }
+            }
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(monthDirectory, "*" + FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list movement archive " + monthDirectory, e);
+        }
+        return files;
+    }
+
+    private static YearMonth parseMonth(String name) {
+        try {
+            return YearMonth.parse(name, MONTH_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The movement.archive.directory setting, or null when it is not set. Only a set directory is kept for a while,
+     * so that setting it takes effect at once.
+     */
+    Path getDirectory() {
+        long now = System.currentTimeMillis();
+        Path current = directory;
+        if (current != null && now - directoryReadAt < DIRECTORY_REFRESH_MILLIS) {
+            return current;
+        }
+        String value = null;
+        try {
+            value = parameterService.getStringValue(ParameterKey.ARCHIVE_DIRECTORY.getKey());
+        } catch (Exception e) {
+            LOG.debug("No {} setting, there is no movement archive", ParameterKey.ARCHIVE_DIRECTORY.getKey());
+        }
+        current = value == null || value.trim().isEmpty() ? null : Paths.get(value.trim());
+        directory = current;
+        directoryReadAt = now;
+        return current;
+    }
+
+    public static int compareIds(UUID first, UUID second) {
+        int compared = Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits());
+        return compared != 0 ? compared : Long.compareUnsigned(first.getLeastSignificantBits(), second.getLeastSignificantBits());
+    }
+}
@@ -0,0 +1,422 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.archive;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementPoint;
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.schema.movement.v1.MovementTypeType;
+import eu.europa.ec.fisheries.uvms.movement.model.constants.SatId;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The file format of the movement archive, one file per asset and month. The movements are sorted on timestamp and
+ * stored column by column, each column encoded for what it holds: timestamps and positions as zigzag varint deltas
+ * from the previous movement, speeds and headings as the XOR of their bits with the previous value, strings through
+ * a dictionary and nullable columns behind a presence bitmap. Timestamps keep their microseconds, positions are kept
+ * with seven decimals. Files are decoded straight from a (memory mapped) ByteBuffer.
+ *
+ * Version 2 stores the source and movement type by their value through a dictionary, so that the files stay readable
+ * when the enums change. Version 1 files, which store their ordinals, can still be read.
+ */
+public class MovementArchiveCodec {
+
+    static final int MAGIC = 0x55564d41;
+    static final short VERSION = 2;
+    private static final short ORDINAL_ENUMS_VERSION = 1;
+
+    private static final double COORDINATE_FACTOR = 1e7;
+
+    private static final int TIMESTAMP = 0;
+    private static final int ID = 1;
+    private static final int LATITUDE = 2;
+    private static final int LONGITUDE = 3;
+    private static final int SPEED = 4;
+    private static final int HEADING = 5;
+    private static final int CALCULATED_SPEED = 6;
+    private static final int STATUS = 7;
+    private static final int SOURCE = 8;
+    private static final int MOVEMENT_TYPE = 9;
+    private static final int LES_REPORT_TIME = 10;
+    private static final int SATELLITE = 11;
+    private static final int UPDATED = 12;
+    private static final int UPDATED_BY = 13;
+    private static final int AIS_POSITION_ACCURACY = 14;
+    private static final int COLUMNS = 15;
+
+    // magic, version, asset, count, first and last timestamp and the length of each column
+    static final int HEADER_SIZE = 4 + 2 + 16 + 4 + 8 + 8 + 4 * COLUMNS;
+
+    private MovementArchiveCodec() {}
+
+    /**
+     * Encodes the movements of one asset, which have to be sorted on timestamp.
+     */
+    public static byte[] encode(UUID asset, List<MovementDto> movements) {
+        int count = movements.size();
+        ColumnWriter[] columns = new ColumnWriter[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = new ColumnWriter(count);
+        }
+        Dictionary statuses = new Dictionary();
+        Dictionary users = new Dictionary();
+        Dictionary sources = new Dictionary();
+        Dictionary movementTypes = new Dictionary();
+
+        long previousTimestamp = 0;
+        long previousLatitude = 0;
+        long previousLongitude = 0;
+        int previousSpeed = 0;
+        int previousHeading = 0;
+        long previousCalculatedSpeed = 0;
+
+        for (int row = 0; row < count; row++) {
+            MovementDto movement = movements.get(row);
+            long timestamp = toMicros(movement.getTimestamp());
+            columns[TIMESTAMP].writeSigned(timestamp - previousTimestamp);
+            previousTimestamp = timestamp;
+
+            columns[ID].writeLong(movement.getId().getMostSignificantBits());
+            columns[ID].writeLong(movement.getId().getLeastSignificantBits());
+
+            long latitude = Math.round(movement.getLocation().getLatitude() * COORDINATE_FACTOR);
+            long longitude = Math.round(movement.getLocation().getLongitude() * COORDINATE_FACTOR);
+            columns[LATITUDE].writeSigned(latitude - previousLatitude);
+            columns[LONGITUDE].writeSigned(longitude - previousLongitude);
+            previousLatitude = latitude;
+            previousLongitude = longitude;
+
+            if (columns[SPEED].present(row, movement.getSpeed() != null)) {
+                int bits = Float.floatToIntBits(movement.getSpeed());
+                columns[SPEED].writeUnsigned((bits ^ previousSpeed) & 0xffffffffL);
+                previousSpeed = bits;
+            }
+            if (columns[HEADING].present(row, movement.getHeading() != null)) {
+                int bits = Float.floatToIntBits(movement.getHeading());
+                columns[HEADING].writeUnsigned((bits ^ previousHeading) & 0xffffffffL);
+                previousHeading = bits;
+            }
+            if (columns[CALCULATED_SPEED].present(row, movement.getCalculatedSpeed() != null)) {
+                long bits = Double.doubleToLongBits(movement.getCalculatedSpeed());
+                columns[CALCULATED_SPEED].writeUnsigned(bits ^ previousCalculatedSpeed);
+                previousCalculatedSpeed = bits;
+            }
+
+            columns[STATUS].writeUnsigned(statuses.indexOf(movement.getStatus()));
+            columns[SOURCE].writeUnsigned(sources.indexOf(movement.getSource() == null ? null : movement.getSource().value()));
+            columns[MOVEMENT_TYPE].writeUnsigned(movementTypes.indexOf(movement.getMovementType() == null ? null : movement.getMovementType().value()));
+            columns[SATELLITE].writeUnsigned(movement.getSourceSatelliteId() == null ? 0 : movement.getSourceSatelliteId().getValue() + 1);
+
+            if (columns[LES_REPORT_TIME].present(row, movement.getLesReportTime() != null)) {
+                columns[LES_REPORT_TIME].writeSigned(toMicros(movement.getLesReportTime()) - timestamp);
+            }
+            if (columns[UPDATED].present(row, movement.getUpdated() != null)) {
+                columns[UPDATED].writeSigned(toMicros(movement.getUpdated()) - timestamp);
+            }
+            columns[UPDATED_BY].writeUnsigned(users.indexOf(movement.getUpdatedBy()));
+            if (columns[AIS_POSITION_ACCURACY].present(row, movement.getAisPositionAccuracy() != null)) {
+                columns[AIS_POSITION_ACCURACY].writeSigned(movement.getAisPositionAccuracy());
+            }
+        }
+
+        byte[][] encoded = new byte[COLUMNS][];
+        int size = HEADER_SIZE;
+        for (int i = 0; i < COLUMNS; i++) {
+            ColumnWriter dictionary = i == STATUS ? statuses.toColumn() : i == UPDATED_BY ? users.toColumn()
+                    : i == SOURCE ? sources.toColumn() : i == MOVEMENT_TYPE ? movementTypes.toColumn() : null;
+            encoded[i] = columns[i].toByteArray(dictionary);
+            size += encoded[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putLong(asset.getMostSignificantBits());
+        buffer.putLong(asset.getLeastSignificantBits());
+        buffer.putInt(count);
+        buffer.putLong(count == 0 ? 0 : toMicros(movements.get(0).getTimestamp()));
+        buffer.putLong(count == 0 ? 0 : toMicros(movements.get(count - 1).getTimestamp()));
+        for (byte[] column : encoded) {
+            buffer.putInt(column.length);
+        }
+        for (byte[] column : encoded) {
+            buffer.put(column);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes the movements with a timestamp from from to to, both inclusive. The movements outside the range are
+     * skipped without being built.
+     */
+    public static List<MovementDto> decode(ByteBuffer file, Instant from, Instant to) {
+        ByteBuffer buffer = file.duplicate();
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a movement archive file");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION && version != ORDINAL_ENUMS_VERSION) {
+            throw new IllegalArgumentException("Unsupported movement archive version " + version);
+        }
+        String asset = new UUID(buffer.getLong(), buffer.getLong()).toString();
+        int count = buffer.getInt();
+        long first = buffer.getLong();
+        long last = buffer.getLong();
+        long fromMicros = from == null ? Long.MIN_VALUE : toMicros(from);
+        long toMicros = to == null ? Long.MAX_VALUE : toMicros(to);
+        if (count == 0 || last < fromMicros || first > toMicros) {
+            return new ArrayList<>();
+        }
+
+        ColumnReader[] columns = new ColumnReader[COLUMNS];
+        int offset = HEADER_SIZE;
+        for (int i = 0; i < COLUMNS; i++) {
+            int length = buffer.getInt();
+            ByteBuffer column = file.duplicate();
+            column.position(file.position() + offset);
+            column.limit(file.position() + offset + length);
+            columns[i] = new ColumnReader(column.slice(), count, i == SPEED || i == HEADING || i == CALCULATED_SPEED
+                    || i == LES_REPORT_TIME || i == UPDATED || i == AIS_POSITION_ACCURACY);
+            offset += length;
+        }
+        String[] statuses = columns[STATUS].readDictionary();
+        String[] users = columns[UPDATED_BY].readDictionary();
+        MovementSourceType[] sources;
+        MovementTypeType[] movementTypes;
+        if (version == ORDINAL_ENUMS_VERSION) {
+            sources = MovementSourceType.values();
+            movementTypes = MovementTypeType.values();
+        } else {
+            String[] sourceValues = columns[SOURCE].readDictionary();
+            sources = new MovementSourceType[sourceValues.length];
+            for (int i = 0; i < sourceValues.length; i++) {
+                sources[i] = MovementSourceType.fromValue(sourceValues[i]);
+            }
+            String[] movementTypeValues = columns[MOVEMENT_TYPE].readDictionary();
+            movementTypes = new MovementTypeType[movementTypeValues.length];
+            for (int i = 0; i < movementTypeValues.length; i++) {
+                movementTypes[i] = MovementTypeType.fromValue(movementTypeValues[i]);
+            }
+        }
+
+        List<MovementDto> movements = new ArrayList<>();
+        long timestamp = 0;
+        long latitude = 0;
+        long longitude = 0;
+        int speed = 0;
+        int heading = 0;
+        long calculatedSpeed = 0;
+
+        for (int row = 0; row < count; row++) {
+            // Every column has to be read to keep the deltas and cursors in step, even for skipped movements
+            timestamp += columns[TIMESTAMP].readSigned();
+            long mostSignificant = columns[ID].readLong();
+            long leastSignificant = columns[ID].readLong();
+            latitude += columns[LATITUDE].readSigned();
+            longitude += columns[LONGITUDE].readSigned();
+            boolean hasSpeed = columns[SPEED].isPresent(row);
+            if (hasSpeed) {
+                speed ^= (int) columns[SPEED].readUnsigned();
+            }
+            boolean hasHeading = columns[HEADING].isPresent(row);
+            if (hasHeading) {
+                heading ^= (int) columns[HEADING].readUnsigned();
+            }
+            boolean hasCalculatedSpeed = columns[CALCULATED_SPEED].isPresent(row);
+            if (hasCalculatedSpeed) {
+                calculatedSpeed ^= columns[CALCULATED_SPEED].readUnsigned();
+            }
+            int status = (int) columns[STATUS].readUnsigned();
+            int source = (int) columns[SOURCE].readUnsigned();
+            int movementType = (int) columns[MOVEMENT_TYPE].readUnsigned();
+            int satellite = (int) columns[SATELLITE].readUnsigned();
+            Long lesReportTime = columns[LES_REPORT_TIME].isPresent(row) ? columns[LES_REPORT_TIME].readSigned() : null;
+            Long updated = columns[UPDATED].isPresent(row) ? columns[UPDATED].readSigned() : null;
+            int user = (int) columns[UPDATED_BY].readUnsigned();
+            Long aisPositionAccuracy = columns[AIS_POSITION_ACCURACY].isPresent(row) ? columns[AIS_POSITION_ACCURACY].readSigned() : null;
+
+            if (timestamp < fromMicros) {
+                continue;
+            }
+            if (timestamp > toMicros) {
+                break;
+            }
+            MovementDto movement = new MovementDto();
+            movement.setId(new UUID(mostSignificant, leastSignificant));
+            movement.setAsset(asset);
+            movement.setTimestamp(fromMicros(timestamp));
+            MovementPoint location = new MovementPoint();
+            location.setLatitude(latitude / COORDINATE_FACTOR);
+            location.setLongitude(longitude / COORDINATE_FACTOR);
+            movement.setLocation(location);
+            movement.setSpeed(hasSpeed ? Float.intBitsToFloat(speed) : null);
+            movement.setHeading(hasHeading ? Float.intBitsToFloat(heading) : null);
+            movement.setCalculatedSpeed(hasCalculatedSpeed ? Double.longBitsToDouble(calculatedSpeed) : null);
+            movement.setStatus(status == 0 ? null : statuses[status - 1]);
+            movement.setSource(source == 0 ? null : sources[source - 1]);
+            movement.setMovementType(movementType == 0 ? null : movementTypes[movementType - 1]);
+            movement.setSourceSatelliteId(satellite == 0 ? null : SatId.fromInt(satellite - 1));
+            movement.setLesReportTime(lesReportTime == null ? null : fromMicros(timestamp + lesReportTime));
+            movement.setUpdated(updated == null ? null : fromMicros(timestamp + updated));
+            movement.setUpdatedBy(user == 0 ? null : users[user - 1]);
+            movement.setAisPositionAccuracy(aisPositionAccuracy == null ? null : aisPositionAccuracy.shortValue());
+            movements.add(movement);
+        }
+        return movements;
+    }
+
+    static long toMicros(Instant instant) {
+        return TimeUnit.SECONDS.toMicros(instant.getEpochSecond()) + instant.getNano() / 1000;
+    }
+
+    static Instant fromMicros(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1000);
+    }
+
+    private static final class ColumnWriter extends ByteArrayOutputStream {
+
+        private final byte[] presence;
+        private boolean nullable;
+
+        private ColumnWriter(int rows) {
+            super(rows * 2);
+            presence = new byte[(rows + 7) / 8];
+        }
+
+        private boolean present(int row, boolean present) {
+            nullable = true;
+            if (present) {
+                presence[row >>> 3] |= 1 << (row & 7);
+            }
+            return present;
+        }
+
+        private void writeUnsigned(long value) {
+            while ((value & ~0x7fL) != 0) {
+                write((int) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeSigned(long value) {
+            writeUnsigned((value << 1) ^ (value >> 63));
+        }
+
+        private void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        private byte[] toByteArray(ColumnWriter dictionary) {
+            ByteArrayOutputStream column = new ByteArrayOutputStream(size() + presence.length);
+            if (dictionary != null) {
+                column.write(dictionary.buf, 0, dictionary.size());
+            }
+            if (nullable) {
+                column.write(presence, 0, presence.length);
+            }
+            column.write(buf, 0, count);
+            return column.toByteArray();
+        }
+    }
+
+    private static final class ColumnReader {
+
+        private final ByteBuffer buffer;
+        private final int presenceStart;
+
+        private ColumnReader(ByteBuffer buffer, int rows, boolean nullable) {
+            this.buffer = buffer;
+            this.presenceStart = nullable ? 0 : -1;
+            if (nullable) {
+                buffer.position((rows + 7) / 8);
+            }
+        }
+
+        private boolean isPresent(int row) {
+            return (buffer.get(presenceStart + (row >>> 3)) & (1 << (row & 7))) != 0;
+        }
+
+        private long readUnsigned() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                value |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        private long readSigned() {
+            long value = readUnsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readLong() {
+            return buffer.getLong();
+        }
+
+        private String[] readDictionary() {
+            String[] entries = new String[(int) readUnsigned()];
+            for (int i = 0; i < entries.length; i++) {
+                byte[] bytes = new byte[(int) readUnsigned()];
+                buffer.get(bytes);
+                entries[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return entries;
+        }
+    }
+
+    private static final class Dictionary {
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> entries = new ArrayList<>();
+
+        /**
+         * The index of the value counted from one, zero for null.
+         */
+        private int indexOf(String value) {
+            if (value == null) {
+                return 0;
+            }
+            return indexes.computeIfAbsent(value, v -> {
+                entries.add(v);
+                return entries.size();
+            });
+        }
+
+        private ColumnWriter toColumn() {
+            ColumnWriter column = new ColumnWriter(0);
+            column.writeUnsigned(entries.size());
+            for (String entry : entries) {
+                byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+                column.writeUnsigned(bytes.length);
+                column.write(bytes, 0, bytes.length);
+            }
+            return column;
+        }
+    }
+}
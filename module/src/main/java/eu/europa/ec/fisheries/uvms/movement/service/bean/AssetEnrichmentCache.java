@@ -0,0 +1,133 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.uvms.asset.client.model.AssetMTEnrichmentResponse;
+import eu.europa.ec.fisheries.uvms.movement.service.dto.AssetMTEnrichmentKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of asset and mobile terminal enrichment responses, keyed on the identifiers sent to Asset.
+ * Entries expire after a fixed TTL and the whole cache is cleared when Asset reports a change.
+ */
+@ApplicationScoped
+public class AssetEnrichmentCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AssetEnrichmentCache.class);
+
+    static final Duration TIME_TO_LIVE = Duration.ofMinutes(10);
+    static final int MAX_SIZE = 10_000;
+
+    private final Map<AssetMTEnrichmentKey, CachedResponse> cache = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public AssetMTEnrichmentResponse get(AssetMTEnrichmentKey key) {
+        CachedResponse cached = cache.get(key);
+        if (cached == null || cached.isExpired(System.currentTimeMillis())) {
+            if (cached != null) {
+                cache.remove(key, cached);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cached.response;
+    }
+
+    /**
+     * Only responses that resolved to an asset are cached, so a vessel registered later is found on its next position.
+     */
+    public void put(AssetMTEnrichmentKey key, AssetMTEnrichmentResponse response) {
+        if (response == null || response.getAssetUUID() == null) {
+            return;
+        }
+        if (cache.size() >= MAX_SIZE) {
+            evict();
+        }
+        cache.put(key, new CachedResponse(response, System.currentTimeMillis() + TIME_TO_LIVE.toMillis()));
+    }
+
+    public void invalidateAll() {
+        int size = cache.size();
+        cache.clear();
+        invalidations.incrementAndGet();
+        LOG.debug("Asset enrichment cache cleared, {} entries removed. Hits: {}, misses: {}", size, hits.get(), misses.get());
+    }
+
+    /**
+     * Removes expired entries and, if that is not enough, the entries closest to expiry until a tenth of the cache is free.
+     */
+    private synchronized void evict() {
+        if (cache.size() < MAX_SIZE) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int before = cache.size();
+        cache.values().removeIf(cached -> cached.isExpired(now));
+        int overflow = cache.size() - MAX_SIZE * 9 / 10;
+        if (overflow > 0) {
+            cache.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().expires))
+                    .limit(overflow)
+                    .map(Map.Entry::getKey)
+                    .forEach(cache::remove);
+        }
+        evictions.addAndGet(before - cache.size());
+    }
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    private static class CachedResponse {
+
+        private final AssetMTEnrichmentResponse response;
+        private final long expires;
+
+        CachedResponse(AssetMTEnrichmentResponse response, long expires) {
+            this.response = response;
+            this.expires = expires;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expires;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.uvms.config.service.ParameterService;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.service.constant.ParameterKey;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovement;
+import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovementBatch;
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementMapper;
+import eu.europa.ec.fisheries.uvms.movement.service.util.JsonBConfiguratorMovement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.json.bind.Jsonb;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the created movements for the real time clients and sends them on as one CreatedMovementBatch per
+ * window, keeping only the latest movement per asset. The window is the movement.event.batch.window.ms setting,
+ * 250 ms by default.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class CreatedMovementCoalescer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CreatedMovementCoalescer.class);
+
+    static final long DEFAULT_WINDOW_MILLIS = 250;
+    static final long MIN_WINDOW_MILLIS = 50;
+    private static final long WINDOW_REFRESH_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Resource
+    private TimerService timerService;
+
+    @EJB
+    private ParameterService parameterService;
+
+    @Inject
+    private Event<CreatedMovementBatch> batchEvent;
+
+    private final Jsonb jsonb = new JsonBConfiguratorMovement().getContext(null);
+
+    private final Map<String, MovementDto> pending = new ConcurrentHashMap<>();
+
+    // Ids of other nodes and of earlier starts have another epoch, so their clients get a reload instead of a
+    // replay of batches that are not theirs
+    private final AtomicLong lastId = new AtomicLong(newEpoch() << CreatedMovementBatch.SEQUENCE_BITS);
+
+    private volatile long windowMillis = DEFAULT_WINDOW_MILLIS;
+    private volatile long windowReadAt;
+
+    @PostConstruct
+    public void init() {
+        timerService.createSingleActionTimer(DEFAULT_WINDOW_MILLIS, new TimerConfig(null, false));
+    }
+
+    public void createdMovement(@Observes(during = TransactionPhase.AFTER_SUCCESS) @CreatedMovement Movement movement) {
+        if (movement == null || movement.getMovementConnect() == null || movement.getTimestamp() == null) {
+            return;
+        }
+        MovementDto dto = MovementMapper.mapToMovementDto(movement);
+        pending.merge(dto.getAsset(), dto,
+                (existing, created) -> created.getTimestamp().isBefore(existing.getTimestamp()) ? existing : created);
+    }
+
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void flush() {
+        try {
+            CreatedMovementBatch batch = takeBatch();
+            if (batch != null) {
+                batchEvent.fire(batch);
+            }
+        } catch (Exception e) {
+            LOG.error("Could not send created movements to the real time clients", e);
+        } finally {
+            timerService.createSingleActionTimer(getWindowMillis(), new TimerConfig(null, false));
+        }
+    }
+
+    CreatedMovementBatch takeBatch() {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        List<MovementDto> movements = new ArrayList<>(pending.size());
+        // Movements merged in while taking the batch end up in this batch or in the next one
+        for (String asset : pending.keySet()) {
+            MovementDto movement = pending.remove(asset);
+            if (movement != null) {
+                movements.add(movement);
+            }
+        }
+        List<String> json = new ArrayList<>(movements.size());
+        for (MovementDto movement : movements) {
+            json.add(jsonb.toJson(movement));
+        }
+        return new CreatedMovementBatch(lastId.incrementAndGet(), movements, json);
+    }
+
+    private static long newEpoch() {
+        // Kept below 2^23 so that the ids stay positive
+        return new SecureRandom().nextInt(1 << (Long.SIZE - 1 - CreatedMovementBatch.SEQUENCE_BITS));
+    }
+
+    long getWindowMillis() {
+        long now = System.currentTimeMillis();
+        if (now - windowReadAt < WINDOW_REFRESH_MILLIS) {
+            return windowMillis;
+        }
+        windowReadAt = now;
+        try {
+            String value = parameterService.getStringValue(ParameterKey.EVENT_BATCH_WINDOW.getKey());
+            windowMillis = value == null ? DEFAULT_WINDOW_MILLIS : Math.max(MIN_WINDOW_MILLIS, Long.parseLong(value.trim()));
+        } catch (Exception e) {
+            LOG.debug("No valid {} setting, using {} ms", ParameterKey.EVENT_BATCH_WINDOW.getKey(), DEFAULT_WINDOW_MILLIS);
+            windowMillis = DEFAULT_WINDOW_MILLIS;
+        }
+        return windowMillis;
+    }
+
+    public int getPending() {
+        return pending.size();
+    }
+}
@@ -25,6 +25,9 @@ public class IncomingMovementBean {
     @Inject
     private MovementDao dao;
 
+    @Inject
+    private MovementConnectStateCache movementConnectStateCache;
+
     public void processMovement(Movement currentMovement) {
         if (currentMovement == null) {
             throw new IllegalArgumentException("Movement to process is null!");
@@ -32,6 +35,7 @@ public class IncomingMovementBean {
         UUID connectId = currentMovement.getMovementConnect().getId();
         Instant timeStamp = currentMovement.getTimestamp();
 
+        MovementConnectStateCache.State connectState = movementConnectStateCache.get(currentMovement.getMovementConnect());
         Movement latestMovement = currentMovement.getMovementConnect().getLatestMovement();
         if (latestMovement == null) { // First position
             currentMovement.getMovementConnect().setLatestMovement(currentMovement);
@@ -58,13 +62,20 @@ public class IncomingMovementBean {
                 }
             }
         }
-        updateLatestVMS(currentMovement);
+        updateLatestVMS(currentMovement, connectState);
     }
 
-    private void updateLatestVMS(Movement currentMovement) {
+    private void updateLatestVMS(Movement currentMovement, MovementConnectStateCache.State connectState) {
         if (currentMovement.getSource().equals(MovementSourceType.AIS)) {
             return;
         }
+        if (connectState != null && connectState.isLatestVmsKnown()) {
+            // Avoids loading the latest VMS movement just to compare timestamps
+            if (currentMovement.getTimestamp().isAfter(connectState.getLatestVmsTimestamp())) {
+                currentMovement.getMovementConnect().setLatestVMS(currentMovement);
+            }
+            return;
+        }
         Movement latestVMS = currentMovement.getMovementConnect().getLatestVMS();
         if (latestVMS == null || currentMovement.getTimestamp().isAfter(latestVMS.getTimestamp())) {
             currentMovement.getMovementConnect().setLatestVMS(currentMovement);
@@ -79,7 +90,18 @@ public class IncomingMovementBean {
         Instant timeStamp = movement.getPositionTime();
 
         List<Movement> duplicateMovements = dao.isDateAlreadyInserted(connectId, timeStamp);
+        return checkAndSetDuplicate(movement, duplicateMovements);
+    }
+
+    /**
+     * Same as {@link #checkAndSetDuplicate(IncomingMovement)} but with the already persisted
+     * movements for the position time supplied by the caller, used when processing batches.
+     */
+    public boolean checkAndSetDuplicate(IncomingMovement movement, List<Movement> duplicateMovements) {
+        Instant timeStamp = movement.getPositionTime();
         if (!duplicateMovements.isEmpty()) {
+            // Timestamps may be shifted below, the cached state can no longer tell free timestamps
+            movementConnectStateCache.invalidate(UUID.fromString(movement.getAssetGuid()));
             // If they have different movement types or different source
             if (!Objects.equals(movement.getMovementType(), duplicateMovements.get(0).getMovementType().value())) {
                 Instant newDate = timeStamp.plusSeconds(1);
@@ -96,4 +118,4 @@ public class IncomingMovementBean {
         }
         return false;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,214 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.uvms.asset.client.AssetClient;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.service.dao.MovementDao;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovement;
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latest movement per asset for the real time map, loaded from the database once and then kept up to date from
+ * the movements created on this node. Movements stored by other nodes are picked up from the database once per
+ * version interval. The version only changes at the start of an interval, so clients polling within the same
+ * interval get the same response. The micro asset info for the map is cached alongside it.
+ */
+@ApplicationScoped
+public class LatestMovementsSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LatestMovementsSnapshot.class);
+
+    static final Duration WINDOW = Duration.ofHours(8);
+    static final Duration VERSION_INTERVAL = Duration.ofSeconds(10);
+    static final Duration ASSET_INFO_TIME_TO_LIVE = Duration.ofMinutes(10);
+    static final int MAX_ASSET_INFO_ENTRIES = 16;
+
+    @Inject
+    private MovementDao movementDao;
+
+    @Inject
+    private AssetClient assetClient;
+
+    private final Map<String, MovementDto> latest = new ConcurrentHashMap<>();
+    private final Map<Set<String>, AssetInfo> assetInfos = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private volatile long versionInterval;
+    // Movements connected to a MovementConnect updated after this have not been read from the database yet
+    private volatile Instant readUntil;
+
+    // Set before loading so that movements created during the load are not lost
+    private volatile boolean active;
+    private volatile boolean loaded;
+
+    public List<MovementDto> getLatest(Collection<MovementSourceType> sources) {
+        ensureLoaded();
+        Instant cutoff = Instant.now().minus(WINDOW);
+        List<MovementDto> movements = new ArrayList<>();
+        for (MovementDto movement : latest.values()) {
+            if (sources.contains(movement.getSource()) && getUpdated(movement).isAfter(cutoff)) {
+                movements.add(movement);
+            }
+        }
+        return movements;
+    }
+
+    /**
+     * Changes at most once per version interval, when the snapshot has changed.
+     */
+    public long getVersion() {
+        return getVersion(System.currentTimeMillis());
+    }
+
+    long getVersion(long now) {
+        nextVersion(now);
+        return version.get();
+    }
+
+    public void createdMovement(@Observes(during = TransactionPhase.AFTER_SUCCESS) @CreatedMovement Movement movement) {
+        if (!active || movement == null || movement.getMovementConnect() == null || movement.getTimestamp() == null) {
+            return;
+        }
+        put(MovementMapper.mapToMovementDto(movement));
+    }
+
+    public void invalidate() {
+        synchronized (this) {
+            active = false;
+            loaded = false;
+            latest.clear();
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * The micro asset list from Asset for these assets. A cached list is reused if it covers all of them.
+     */
+    public String getMicroAssets(List<String> assetIds) {
+        Set<String> requested = new HashSet<>(assetIds);
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Set<String>, AssetInfo> entry : assetInfos.entrySet()) {
+            if (entry.getValue().expires > now && entry.getKey().containsAll(requested)) {
+                return entry.getValue().json;
+            }
+        }
+        String json = assetClient.getMicroAssetList(assetIds);
+        if (assetInfos.size() >= MAX_ASSET_INFO_ENTRIES) {
+            assetInfos.clear();
+        }
+        assetInfos.put(requested, new AssetInfo(json, now + ASSET_INFO_TIME_TO_LIVE.toMillis()));
+        return json;
+    }
+
+    public void invalidateAssetInfo() {
+        assetInfos.clear();
+        version.incrementAndGet();
+    }
+
+    public int getSize() {
+        return latest.size();
+    }
+
+    private void nextVersion(long now) {
+        long interval = now / VERSION_INTERVAL.toMillis();
+        if (interval == versionInterval) {
+            return;
+        }
+        synchronized (this) {
+            if (interval == versionInterval) {
+                return;
+            }
+            versionInterval = interval;
+            if (loaded) {
+                readFromDatabase();
+            }
+            if (changed.getAndSet(false)) {
+                version.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Reads the latest movements stored since the last read, including those stored by other nodes. The reads
+     * overlap by one interval so that movements committed late are not missed.
+     */
+    private void readFromDatabase() {
+        Instant start = Instant.now();
+        List<MovementDto> movements = movementDao.getLatestWithLimit(readUntil, Arrays.asList(MovementSourceType.values()));
+        movements.forEach(this::put);
+        readUntil = start.minus(VERSION_INTERVAL);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            active = true;
+            Instant start = Instant.now();
+            List<MovementDto> movements = movementDao.getLatestWithLimit(start.minus(WINDOW), Arrays.asList(MovementSourceType.values()));
+            movements.forEach(this::put);
+            readUntil = start.minus(VERSION_INTERVAL);
+            versionInterval = start.toEpochMilli() / VERSION_INTERVAL.toMillis();
+            loaded = true;
+            LOG.info("Loaded latest movements for {} assets", movements.size());
+        }
+    }
+
+    private void put(MovementDto movement) {
+        MovementDto stored = latest.merge(movement.getAsset(), movement,
+                (existing, created) -> created.getTimestamp().isBefore(existing.getTimestamp())
+                        || created.getId().equals(existing.getId()) ? existing : created);
+        if (stored == movement) {
+            changed.set(true);
+        }
+    }
+
+    private static Instant getUpdated(MovementDto movement) {
+        return movement.getUpdated() != null ? movement.getUpdated() : movement.getTimestamp();
+    }
+
+    private static final class AssetInfo {
+        private final String json;
+        private final long expires;
+
+        private AssetInfo(String json, long expires) {
+            this.json = json;
+            this.expires = expires;
+        }
+    }
+}
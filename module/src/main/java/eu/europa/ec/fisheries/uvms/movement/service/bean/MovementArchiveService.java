@@ -0,0 +1,73 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.service.archive.MovementArchive;
+import eu.europa.ec.fisheries.uvms.movement.service.dao.MovementDao;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Stateless
+public class MovementArchiveService {
+
+    @Inject
+    private MovementDao movementDao;
+
+    @Inject
+    private MovementArchive movementArchive;
+
+    /**
+     * The month of the oldest movement in the database, or null if there are none.
+     */
+    public YearMonth getOldestMonth() {
+        Instant oldest = movementDao.getOldestMovementTimestamp();
+        return oldest == null ? null : YearMonth.from(oldest.atOffset(ZoneOffset.UTC));
+    }
+
+    public List<UUID> getAssets(Instant from, Instant to) {
+        return movementDao.getMovementConnectIdsBetweenDates(from, to);
+    }
+
+    /**
+     * Moves up to maxMovements of the oldest movements of the asset from from to to, to excluded and within one
+     * month, from the database to the archive file of that month. Returns how many were moved, or -1 if another
+     * node is archiving. The archive file is written before the movements are deleted, a movement that ends up in
+     * both is only returned once by MovementDao.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int archiveBatch(UUID asset, Instant from, Instant to, int maxMovements) {
+        if (!movementDao.tryArchiveLock()) {
+            return -1;
+        }
+        List<MovementDto> movements = movementDao.getArchivableMovements(asset, from, to, maxMovements);
+        if (movements.isEmpty()) {
+            return 0;
+        }
+        List<UUID> ids = new ArrayList<>(movements.size());
+        for (MovementDto movement : movements) {
+            ids.add(movement.getId());
+        }
+        movementArchive.write(asset, YearMonth.from(from.atOffset(ZoneOffset.UTC)), movements);
+        movementDao.deleteArchivedMovements(ids, to);
+        return movements.size();
+    }
+}
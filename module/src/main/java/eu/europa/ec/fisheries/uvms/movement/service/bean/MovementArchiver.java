@@ -0,0 +1,156 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.uvms.config.service.ParameterService;
+import eu.europa.ec.fisheries.uvms.movement.service.archive.MovementArchive;
+import eu.europa.ec.fisheries.uvms.movement.service.constant.ParameterKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves movements older than movement.archive.after.days from movement.movement to the MovementArchive, in batches
+ * of their own transaction. It goes through the months from the oldest movement on, and within a month through
+ * the assets, oldest movements first. Nothing is archived while the setting is missing, or while movement.archive.directory
+ * is not set to a writable directory. Only the latest movements of the assets are kept in the database regardless
+ * of their age.
+ * <p>
+ * Every node runs the archiver, but a batch is only archived under a database advisory lock. A node that finds the
+ * lock taken stops and leaves the work to the node holding it. The directory must therefore be on storage shared by
+ * all nodes, otherwise each node only reads back the movements it archived itself.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MovementArchiver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MovementArchiver.class);
+
+    static final int BATCH_SIZE = 10_000;
+    private static final long ARCHIVE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // Leaves the database alone for the rest of the hour when there is a large backlog
+    private static final long MAX_RUN_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    @Resource
+    private TimerService timerService;
+
+    @EJB
+    private ParameterService parameterService;
+
+    @Inject
+    private MovementArchiveService archiveService;
+
+    @Inject
+    private MovementArchive movementArchive;
+
+    @PostConstruct
+    public void init() {
+        timerService.createIntervalTimer(TimeUnit.MINUTES.toMillis(5), ARCHIVE_INTERVAL_MILLIS, new TimerConfig(null, false));
+    }
+
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void archive() {
+        try {
+            Integer days = getArchiveAfterDays();
+            if (days == null) {
+                return;
+            }
+            if (!movementArchive.isWritable()) {
+                LOG.warn("{} is set but {} is not a writable directory, no movements are archived",
+                        ParameterKey.ARCHIVE_AFTER_DAYS.getKey(), ParameterKey.ARCHIVE_DIRECTORY.getKey());
+                return;
+            }
+            Instant date = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(days, ChronoUnit.DAYS);
+            long started = System.currentTimeMillis();
+            int archived = 0;
+            YearMonth month = archiveService.getOldestMonth();
+            while (month != null && getStart(month).isBefore(date) && System.currentTimeMillis() - started < MAX_RUN_MILLIS) {
+                int monthArchived = archiveMonth(month, date, started);
+                if (monthArchived < 0) {
+                    LOG.debug("Movements are archived by another node");
+                    break;
+                }
+                archived += monthArchived;
+                month = month.plusMonths(1);
+            }
+            if (archived > 0) {
+                LOG.info("Archived {} movements older than {} in {} ms", archived, date, System.currentTimeMillis() - started);
+            }
+        } catch (Exception e) {
+            LOG.error("Could not archive old movements", e);
+        }
+    }
+
+    /**
+     * Archives the movements of the month older than date, one asset after the other so that each archive file is
+     * written once per batch. Returns how many were archived, or -1 if another node is archiving.
+     */
+    private int archiveMonth(YearMonth month, Instant date, long started) {
+        Instant from = getStart(month);
+        Instant end = getStart(month.plusMonths(1));
+        Instant to = end.isBefore(date) ? end : date;
+        int archived = 0;
+        for (UUID asset : archiveService.getAssets(from, to)) {
+            int batch;
+            do {
+                if (System.currentTimeMillis() - started >= MAX_RUN_MILLIS) {
+                    return archived;
+                }
+                batch = archiveService.archiveBatch(asset, from, to, BATCH_SIZE);
+                if (batch < 0) {
+                    return -1;
+                }
+                archived += batch;
+            } while (batch == BATCH_SIZE);
+        }
+        return archived;
+    }
+
+    private static Instant getStart(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private Integer getArchiveAfterDays() {
+        try {
+            String value = parameterService.getStringValue(ParameterKey.ARCHIVE_AFTER_DAYS.getKey());
+            if (value == null || value.trim().isEmpty()) {
+                return null;
+            }
+            int days = Integer.parseInt(value.trim());
+            return days > 0 ? days : null;
+        } catch (Exception e) {
+            LOG.debug("No valid {} setting, no movements are archived", ParameterKey.ARCHIVE_AFTER_DAYS.getKey());
+            return null;
+        }
+    }
+}
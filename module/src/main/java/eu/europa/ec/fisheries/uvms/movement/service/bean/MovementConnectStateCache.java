@@ -0,0 +1,191 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.MovementConnect;
+import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovement;
+import org.locationtech.jts.geom.Point;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latest known state per MovementConnect, updated after each committed movement. A state is only used while the
+ * latest movement of the MovementConnect is the one the state was built from, so newer positions stored by another
+ * node make the state fall back to the database. Out of order positions can be stored by any node, so only
+ * timestamps after the latest movement are known to be free. The least recently used states are evicted first.
+ */
+@ApplicationScoped
+public class MovementConnectStateCache {
+
+    static final int MAX_SIZE = 50_000;
+
+    private final Map<UUID, State> states = Collections.synchronizedMap(new LinkedHashMap<UUID, State>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, State> eldest) {
+            return size() > MAX_SIZE;
+        }
+    });
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public State get(MovementConnect movementConnect) {
+        if (movementConnect == null || movementConnect.getId() == null) {
+            return null;
+        }
+        State state = states.get(movementConnect.getId());
+        if (state == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (!state.isCurrent(movementConnect.getLatestMovement())) {
+            states.remove(movementConnect.getId(), state);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return state;
+    }
+
+    public void invalidate(UUID connectId) {
+        if (connectId != null) {
+            states.remove(connectId);
+        }
+    }
+
+    public void createdMovement(@Observes(during = TransactionPhase.AFTER_SUCCESS) @CreatedMovement Movement movement) {
+        if (movement == null || movement.getMovementConnect() == null || movement.getTimestamp() == null) {
+            return;
+        }
+        MovementConnect movementConnect = movement.getMovementConnect();
+        boolean latest = movementConnect.getLatestMovement() != null
+                && movement.getId().equals(movementConnect.getLatestMovement().getId());
+        states.compute(movementConnect.getId(), (id, state) -> {
+            if (state == null) {
+                return latest ? new State(movement) : null;
+            }
+            return state.with(movement, latest, movementConnect.getLatestMovement());
+        });
+    }
+
+    public int getSize() {
+        return states.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public static final class State {
+
+        private final UUID latestMovementId;
+        private final Instant latestTimestamp;
+
+        // Only known once a VMS position has been the latest movement
+        private final UUID latestVmsId;
+        private final Instant latestVmsTimestamp;
+        private final Point latestVmsLocation;
+
+        private State(Movement movement) {
+            latestMovementId = movement.getId();
+            latestTimestamp = movement.getTimestamp();
+            boolean vms = !MovementSourceType.AIS.equals(movement.getSource());
+            latestVmsId = vms ? movement.getId() : null;
+            latestVmsTimestamp = vms ? movement.getTimestamp() : null;
+            latestVmsLocation = vms ? movement.getLocation() : null;
+        }
+
+        private State(UUID latestMovementId, Instant latestTimestamp,
+                      UUID latestVmsId, Instant latestVmsTimestamp, Point latestVmsLocation) {
+            this.latestMovementId = latestMovementId;
+            this.latestTimestamp = latestTimestamp;
+            this.latestVmsId = latestVmsId;
+            this.latestVmsTimestamp = latestVmsTimestamp;
+            this.latestVmsLocation = latestVmsLocation;
+        }
+
+        private State with(Movement movement, boolean latest, Movement currentLatest) {
+            if (latest && !isCurrent(movement.getPreviousMovement())) {
+                return new State(movement);
+            }
+            if (!latest && !isCurrent(currentLatest)) {
+                return null;
+            }
+            Instant timestamp = movement.getTimestamp();
+
+            UUID vmsId = latestVmsId;
+            Instant vmsTimestamp = latestVmsTimestamp;
+            Point vmsLocation = latestVmsLocation;
+            boolean vms = !MovementSourceType.AIS.equals(movement.getSource());
+            if (vms && (latest || (isLatestVmsKnown() && timestamp.isAfter(latestVmsTimestamp)))) {
+                vmsId = movement.getId();
+                vmsTimestamp = timestamp;
+                vmsLocation = movement.getLocation();
+            }
+
+            return new State(latest ? movement.getId() : latestMovementId, latest ? timestamp : latestTimestamp,
+                    vmsId, vmsTimestamp, vmsLocation);
+        }
+
+        private boolean isCurrent(Movement currentLatest) {
+            return currentLatest != null && latestMovementId.equals(currentLatest.getId());
+        }
+
+        /**
+         * True when it is known that no movement is stored with this timestamp, false when it has to be checked
+         * in the database.
+         */
+        public boolean isFreeTimestamp(Instant timestamp) {
+            return timestamp.isAfter(latestTimestamp);
+        }
+
+        public boolean isLatestVmsKnown() {
+            return latestVmsId != null;
+        }
+
+        public Instant getLatestVmsTimestamp() {
+            return latestVmsTimestamp;
+        }
+
+        /**
+         * A detached copy of the latest VMS movement holding its id, timestamp and location.
+         */
+        public Movement getLatestVms() {
+            if (!isLatestVmsKnown()) {
+                return null;
+            }
+            Movement latestVms = new Movement();
+            latestVms.setId(latestVmsId);
+            latestVms.setTimestamp(latestVmsTimestamp);
+            latestVms.setLocation(latestVmsLocation);
+            return latestVms;
+        }
+
+        public Instant getLatestTimestamp() {
+            return latestTimestamp;
+        }
+    }
+}
@@ -17,12 +17,14 @@ import eu.europa.ec.fisheries.schema.movement.v1.MovementTypeType;
 import eu.europa.ec.fisheries.uvms.asset.client.AssetClient;
 import eu.europa.ec.fisheries.uvms.asset.client.model.AssetMTEnrichmentRequest;
 import eu.europa.ec.fisheries.uvms.asset.client.model.AssetMTEnrichmentResponse;
+import eu.europa.ec.fisheries.uvms.movement.service.dto.AssetMTEnrichmentKey;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.IncomingMovement;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.MovementConnect;
 import eu.europa.ec.fisheries.uvms.movement.service.mapper.IncomingMovementMapper;
 import eu.europa.ec.fisheries.uvms.movement.service.message.ExchangeBean;
-import eu.europa.ec.fisheries.uvms.movement.service.message.MovementRulesBean;
+import eu.europa.ec.fisheries.uvms.movement.service.message.OutgoingMessageDispatcher;
+import eu.europa.ec.fisheries.uvms.movement.service.message.OutgoingMessages;
 import eu.europa.ec.fisheries.uvms.movement.service.util.CalculationUtil;
 import eu.europa.ec.fisheries.uvms.movement.service.validation.MovementSanityValidatorBean;
 import eu.europa.ec.fisheries.uvms.movementrules.model.dto.MovementDetails;
@@ -30,11 +32,21 @@ import eu.europa.ec.fisheries.uvms.movementrules.model.dto.VicinityInfoDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 
 @Stateless
@@ -54,79 +66,360 @@ public class MovementCreateBean {
     @Inject
     private AssetClient assetClient;
 
-    @EJB
-    private MovementRulesBean movementRulesBean;
+    @Inject
+    private AssetEnrichmentCache assetEnrichmentCache;
+
+    @Inject
+    private MovementConnectStateCache movementConnectStateCache;
 
-    @EJB
-    private ExchangeBean exchangeBean;
+    @Inject
+    private OutgoingMessageDispatcher outgoingMessageDispatcher;
 
     public UUID processIncomingMovement(IncomingMovement incomingMovement) {
         try {
-            if (incomingMovement.getUpdated() == null) {
-                incomingMovement.setUpdated(Instant.now());
+            AssetMTEnrichmentResponse assetResponse = enrich(incomingMovement);
+            OutgoingMessages outgoingMessages = new OutgoingMessages();
+            UUID reportId = processEnrichedMovement(incomingMovement, assetResponse, outgoingMessages);
+            outgoingMessageDispatcher.dispatch(outgoingMessages);
+            return reportId;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not process incoming movement", e);
+        }
+    }
+
+    /**
+     * Processes a whole batch in one transaction. Positions are grouped per asset and sorted on position time
+     * so that duplicate detection, previous VMS and the position report count can be resolved with a few
+     * queries per asset instead of several queries per position. Rules and Exchange messages are sent
+     * when all positions in the batch have been stored.
+     */
+    public void processIncomingMovementBatch(List<IncomingMovement> incomingMovements) {
+        try {
+            long start = System.currentTimeMillis();
+            Map<IncomingMovement, AssetMTEnrichmentResponse> assetResponses = enrich(incomingMovements);
+            Map<String, List<IncomingMovement>> movementsByAsset = new LinkedHashMap<>();
+            OutgoingMessages outgoingMessages = new OutgoingMessages();
+            for (IncomingMovement incomingMovement : incomingMovements) {
+                if (incomingMovement.getAssetGuid() == null || incomingMovement.getAssetGuid().isEmpty()
+                        || incomingMovement.getPositionTime() == null) {
+                    // Can not be grouped, let the sanity rules handle it
+                    processEnrichedMovement(incomingMovement, assetResponses.get(incomingMovement), outgoingMessages);
+                    continue;
+                }
+                movementsByAsset.computeIfAbsent(incomingMovement.getAssetGuid(), k -> new ArrayList<>()).add(incomingMovement);
             }
 
-            AssetMTEnrichmentRequest assetRequest = createAssetRequest(incomingMovement);
-            AssetMTEnrichmentResponse assetResponse = assetClient.collectAssetMT(assetRequest);
-            enrichIncomingMovement(incomingMovement, assetResponse);
+            for (List<IncomingMovement> assetMovements : movementsByAsset.values()) {
+                assetMovements.sort(Comparator.comparing(IncomingMovement::getPositionTime));
+                processAssetMovements(assetMovements, assetResponses, outgoingMessages);
+            }
+            outgoingMessageDispatcher.dispatch(outgoingMessages);
 
-            incomingMovementBean.checkAndSetDuplicate(incomingMovement);
-            if (incomingMovement.isDuplicate() && 
-                    incomingMovement.getMovementSourceType().equals(MovementSourceType.AIS.value())) {
-                LOG.warn("Ignoring duplicate AIS position for {} ({}) with timestamp {}",
-                        incomingMovement.getAssetName(), incomingMovement.getAssetMMSI(), incomingMovement.getPositionTime());
-                return null;
+            long duration = Math.max(System.currentTimeMillis() - start, 1);
+            LOG.info("Processed batch of {} positions for {} assets in {} ms ({} positions/s)",
+                    incomingMovements.size(), movementsByAsset.size(), duration, incomingMovements.size() * 1000L / duration);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not process incoming movement batch", e);
+        }
+    }
+
+    private void processAssetMovements(List<IncomingMovement> assetMovements, Map<IncomingMovement, AssetMTEnrichmentResponse> assetResponses,
+                                       OutgoingMessages outgoingMessages) {
+        IncomingMovement firstMovement = assetMovements.get(0);
+        Instant firstPositionTime = firstMovement.getPositionTime();
+        Instant lastPositionTime = assetMovements.get(assetMovements.size() - 1).getPositionTime();
+
+        MovementConnect newMovementConnect = IncomingMovementMapper.mapNewMovementConnect(firstMovement, firstMovement.getUpdatedBy());
+        MovementConnect movementConnect = movementService.getOrCreateMovementConnectByConnectId(newMovementConnect);
+        UUID connectId = movementConnect.getId();
+
+        // Duplicates are moved one second, so the second after each position time is loaded as well
+        Set<Instant> positionTimes = new HashSet<>();
+        for (IncomingMovement incomingMovement : assetMovements) {
+            positionTimes.add(incomingMovement.getPositionTime());
+            positionTimes.add(incomingMovement.getPositionTime().plusSeconds(1));
+        }
+        Map<Instant, List<Movement>> movementsByTimestamp = new HashMap<>();
+        for (Movement existing : movementService.getMovementsForAssetAtDates(connectId, positionTimes)) {
+            movementsByTimestamp.computeIfAbsent(existing.getTimestamp(), k -> new ArrayList<>()).add(existing);
+        }
+
+        List<Instant> timestamps = new ArrayList<>(movementService.getMovementTimestampsForAssetBetween(connectId,
+                firstPositionTime.minus(1, ChronoUnit.DAYS), lastPositionTime));
+
+        TreeMap<Instant, Movement> vmsByTimestamp = new TreeMap<>();
+        assetMovements.stream()
+                .filter(m -> !MovementSourceType.AIS.value().equals(m.getMovementSourceType()))
+                .findFirst()
+                .ifPresent(firstVms -> {
+                    Movement previousVms = getPreviousVms(firstVms, movementConnect);
+                    if (previousVms != null) {
+                        vmsByTimestamp.put(previousVms.getTimestamp(), previousVms);
+                    }
+                    for (Movement vms : movementService.getVMSMovementsBetween(connectId,
+                            firstVms.getPositionTime().minusMillis(1), lastPositionTime)) {
+                        vmsByTimestamp.put(vms.getTimestamp(), vms);
+                    }
+                });
+
+        // Everything is resolved against the maps first, nothing is written until the whole asset is done
+        Movement latestMovement = movementConnect.getLatestMovement();
+        List<NewMovement> newMovements = new ArrayList<>();
+        List<Movement> batch = new ArrayList<>();
+        for (IncomingMovement incomingMovement : assetMovements) {
+            checkAndSetDuplicate(incomingMovement, connectId, positionTimes, movementsByTimestamp, vmsByTimestamp, timestamps);
+            if (isIgnoredDuplicate(incomingMovement)) {
+                continue;
             }
 
             Movement previousVms = null;
-            MovementConnect movementConnect = null;
-            if(incomingMovement.getAssetGuid() != null && !incomingMovement.getAssetGuid().isEmpty()) {
-                MovementConnect newMovementConnect = IncomingMovementMapper.mapNewMovementConnect(incomingMovement, incomingMovement.getUpdatedBy());
-                movementConnect = movementService.getOrCreateMovementConnectByConnectId(newMovementConnect);
-                previousVms = getPreviousVms(incomingMovement, movementConnect);
+            if (!MovementSourceType.AIS.value().equals(incomingMovement.getMovementSourceType())) {
+                Map.Entry<Instant, Movement> previousVmsEntry = vmsByTimestamp.lowerEntry(incomingMovement.getPositionTime());
+                previousVms = previousVmsEntry != null ? previousVmsEntry.getValue() : null;
             }
 
-            if(MovementTypeType.EXI.value().equals(incomingMovement.getMovementType()) && previousVms != null){
+            if (MovementTypeType.EXI.value().equals(incomingMovement.getMovementType()) && previousVms != null) {
                 incomingMovement.setLongitude(previousVms.getLocation().getX());
                 incomingMovement.setLatitude(previousVms.getLocation().getY());
             }
 
             UUID reportId = movementSanityValidatorBean.evaluateSanity(incomingMovement);
             if (reportId != null) {
-                exchangeBean.sendAckToExchange(MovementRefTypeType.ALARM, reportId, incomingMovement.getAckResponseMessageId());
-                return reportId;
+                outgoingMessages.addMovementRef(ExchangeBean.createMovementRef(MovementRefTypeType.ALARM, reportId, incomingMovement.getAckResponseMessageId()));
+                continue;
             }
 
-            Movement movement = IncomingMovementMapper.mapNewMovementEntity(incomingMovement, incomingMovement.getUpdatedBy());
-            movement.setMovementConnect(movementConnect);
-            
-            if (previousVms != null && !MovementSourceType.AIS.value().equals(movement.getSource().value()) ) {
-                movement.setCalculatedSpeed(CalculationUtil.getPositionCalculations(previousVms, movement).getAvgSpeed());
+            Movement movement = mapMovement(incomingMovement, movementConnect, previousVms);
+            Instant timestamp = movement.getTimestamp();
+            if (latestMovement == null || timestamp.isAfter(latestMovement.getTimestamp())) {
+                batch.add(movement);
+            } else {
+                // Older than the latest position, has to be linked in between existing movements one at a time
+                movementService.createAndProcessMovement(movement);
+            }
+            movementsByTimestamp.computeIfAbsent(timestamp, k -> new ArrayList<>()).add(movement);
+            if (!MovementSourceType.AIS.equals(movement.getSource())) {
+                vmsByTimestamp.put(timestamp, movement);
             }
+            insertSorted(timestamps, timestamp);
+            newMovements.add(new NewMovement(incomingMovement, movement, previousVms,
+                    countBetween(timestamps, timestamp.minus(1, ChronoUnit.DAYS), timestamp)));
+        }
 
-            Movement createdMovement = movementService.createAndProcessMovement(movement);
+        // A moved duplicate can end up after the next position
+        batch.sort(Comparator.comparing(Movement::getTimestamp));
+        movementService.createAndProcessMovementBatch(batch);
+
+        for (NewMovement newMovement : newMovements) {
+            MovementDetails movementDetails = createMovementDetails(newMovement.incomingMovement, newMovement.movement,
+                    assetResponses.get(newMovement.incomingMovement), newMovement.previousVms);
+            movementDetails.setSumPositionReport(newMovement.sumPositionReport);
+            outgoingMessages.addMovementDetails(movementDetails);
+            outgoingMessages.addMovementRef(ExchangeBean.createMovementRef(MovementRefTypeType.MOVEMENT, newMovement.movement.getId(),
+                    newMovement.incomingMovement.getAckResponseMessageId()));
+        }
+    }
+
+    /**
+     * Duplicate check against the movements of the batch and the database. A duplicate can move the incoming
+     * position or the stored movement one second, the moved timestamp is checked again and the maps are kept
+     * in step with the stored movement.
+     */
+    private void checkAndSetDuplicate(IncomingMovement incomingMovement, UUID connectId, Set<Instant> loadedTimes,
+                                      Map<Instant, List<Movement>> movementsByTimestamp, TreeMap<Instant, Movement> vmsByTimestamp,
+                                      List<Instant> timestamps) {
+        Instant positionTime;
+        do {
+            positionTime = incomingMovement.getPositionTime();
+            if (loadedTimes.add(positionTime)) {
+                for (Movement existing : movementService.getMovementsForAssetAtDates(connectId, Collections.singleton(positionTime))) {
+                    movementsByTimestamp.computeIfAbsent(existing.getTimestamp(), k -> new ArrayList<>()).add(existing);
+                }
+            }
+            List<Movement> duplicateMovements = movementsByTimestamp.getOrDefault(positionTime, Collections.emptyList());
+            if (duplicateMovements.isEmpty()) {
+                return;
+            }
+            Movement duplicate = duplicateMovements.get(0);
+            incomingMovementBean.checkAndSetDuplicate(incomingMovement, duplicateMovements);
+            if (!positionTime.equals(duplicate.getTimestamp())) {
+                duplicateMovements.remove(duplicate);
+                movementsByTimestamp.computeIfAbsent(duplicate.getTimestamp(), k -> new ArrayList<>()).add(duplicate);
+                if (vmsByTimestamp.get(positionTime) == duplicate) {
+                    vmsByTimestamp.remove(positionTime);
+                    vmsByTimestamp.put(duplicate.getTimestamp(), duplicate);
+                }
+                int index = Collections.binarySearch(timestamps, positionTime);
+                if (index >= 0) {
+                    timestamps.remove(index);
+                    insertSorted(timestamps, duplicate.getTimestamp());
+                }
+            }
+        } while (!incomingMovement.isDuplicate() && !positionTime.equals(incomingMovement.getPositionTime()));
+    }
 
-            // send to MovementRules
-            MovementDetails movementDetails = IncomingMovementMapper.mapMovementDetails(incomingMovement, createdMovement, assetResponse);
-            int sumPositionReport = movementService.countNrOfMovementsLastDayForAsset(incomingMovement.getAssetGuid(), incomingMovement.getPositionTime());
-            movementDetails.setSumPositionReport(sumPositionReport);
-            List<VicinityInfoDTO> vicinityOf = movementService.getVicinityOf(createdMovement);
-            movementDetails.setVicinityOf(vicinityOf);
+    private UUID processEnrichedMovement(IncomingMovement incomingMovement, AssetMTEnrichmentResponse assetResponse,
+                                         OutgoingMessages outgoingMessages) {
+        MovementConnect movementConnect = null;
+        if(incomingMovement.getAssetGuid() != null && !incomingMovement.getAssetGuid().isEmpty()) {
+            MovementConnect newMovementConnect = IncomingMovementMapper.mapNewMovementConnect(incomingMovement, incomingMovement.getUpdatedBy());
+            movementConnect = movementService.getOrCreateMovementConnectByConnectId(newMovementConnect);
+        }
 
-            if (previousVms != null) {
-                movementDetails.setPreviousVMSLatitude(previousVms.getLocation().getY());
-                movementDetails.setPreviousVMSLongitude(previousVms.getLocation().getX());
+        MovementConnectStateCache.State connectState = movementConnectStateCache.get(movementConnect);
+        if (connectState == null || incomingMovement.getPositionTime() == null
+                || !connectState.isFreeTimestamp(incomingMovement.getPositionTime())) {
+            incomingMovementBean.checkAndSetDuplicate(incomingMovement);
+            if (isIgnoredDuplicate(incomingMovement)) {
+                return null;
             }
+        }
 
-            movementRulesBean.send(movementDetails);
-            // report ok to Exchange...
-            // Tracer Id
-            exchangeBean.sendAckToExchange(MovementRefTypeType.MOVEMENT, createdMovement.getId(), incomingMovement.getAckResponseMessageId());
+        Movement previousVms = null;
+        if (movementConnect != null) {
+            previousVms = getPreviousVms(incomingMovement, movementConnect);
+        }
 
-            return null;
-        } catch (Exception e) {
-            throw new IllegalStateException("Could not process incoming movement", e);
+        if(MovementTypeType.EXI.value().equals(incomingMovement.getMovementType()) && previousVms != null){
+            incomingMovement.setLongitude(previousVms.getLocation().getX());
+            incomingMovement.setLatitude(previousVms.getLocation().getY());
+        }
+
+        UUID reportId = movementSanityValidatorBean.evaluateSanity(incomingMovement);
+        if (reportId != null) {
+            outgoingMessages.addMovementRef(ExchangeBean.createMovementRef(MovementRefTypeType.ALARM, reportId, incomingMovement.getAckResponseMessageId()));
+            return reportId;
         }
+
+        Movement createdMovement = createMovement(incomingMovement, movementConnect, previousVms);
+
+        // send to MovementRules
+        MovementDetails movementDetails = createMovementDetails(incomingMovement, createdMovement, assetResponse, previousVms);
+        int sumPositionReport = movementService.countNrOfMovementsLastDayForAsset(incomingMovement.getAssetGuid(), incomingMovement.getPositionTime());
+        movementDetails.setSumPositionReport(sumPositionReport);
+
+        // send to MovementRules and report ok to Exchange once all movements are stored
+        outgoingMessages.addMovementDetails(movementDetails);
+        outgoingMessages.addMovementRef(ExchangeBean.createMovementRef(MovementRefTypeType.MOVEMENT, createdMovement.getId(), incomingMovement.getAckResponseMessageId()));
+
+        return null;
+    }
+
+    private AssetMTEnrichmentResponse enrich(IncomingMovement incomingMovement) {
+        if (incomingMovement.getUpdated() == null) {
+            incomingMovement.setUpdated(Instant.now());
+        }
+        AssetMTEnrichmentRequest assetRequest = createAssetRequest(incomingMovement);
+        AssetMTEnrichmentResponse assetResponse = collectAssetMT(AssetMTEnrichmentKey.of(assetRequest), assetRequest);
+        enrichIncomingMovement(incomingMovement, assetResponse);
+        return assetResponse;
+    }
+
+    private AssetMTEnrichmentResponse collectAssetMT(AssetMTEnrichmentKey key, AssetMTEnrichmentRequest assetRequest) {
+        AssetMTEnrichmentResponse assetResponse = assetEnrichmentCache.get(key);
+        if (assetResponse == null) {
+            assetResponse = assetClient.collectAssetMT(assetRequest);
+            assetEnrichmentCache.put(key, assetResponse);
+        }
+        return assetResponse;
+    }
+
+    /**
+     * Enriches all movements with one asset lookup per distinct set of identifiers,
+     * positions from the same vessel and terminal in a batch share the response.
+     */
+    private Map<IncomingMovement, AssetMTEnrichmentResponse> enrich(List<IncomingMovement> incomingMovements) {
+        Map<IncomingMovement, AssetMTEnrichmentResponse> assetResponses = new IdentityHashMap<>();
+        Map<AssetMTEnrichmentKey, AssetMTEnrichmentResponse> resolved = new HashMap<>();
+        for (IncomingMovement incomingMovement : incomingMovements) {
+            if (incomingMovement.getUpdated() == null) {
+                incomingMovement.setUpdated(Instant.now());
+            }
+            AssetMTEnrichmentRequest assetRequest = createAssetRequest(incomingMovement);
+            AssetMTEnrichmentResponse assetResponse = resolved.computeIfAbsent(AssetMTEnrichmentKey.of(assetRequest),
+                    key -> collectAssetMT(key, assetRequest));
+            enrichIncomingMovement(incomingMovement, assetResponse);
+            assetResponses.put(incomingMovement, assetResponse);
+        }
+        LOG.debug("Enriched {} positions with {} asset lookups", incomingMovements.size(), resolved.size());
+        return assetResponses;
+    }
+
+    private boolean isIgnoredDuplicate(IncomingMovement incomingMovement) {
+        if (incomingMovement.isDuplicate() &&
+                MovementSourceType.AIS.value().equals(incomingMovement.getMovementSourceType())) {
+            LOG.warn("Ignoring duplicate AIS position for {} ({}) with timestamp {}",
+                    incomingMovement.getAssetName(), incomingMovement.getAssetMMSI(), incomingMovement.getPositionTime());
+            return true;
+        }
+        return false;
+    }
+
+    private Movement createMovement(IncomingMovement incomingMovement, MovementConnect movementConnect, Movement previousVms) {
+        return movementService.createAndProcessMovement(mapMovement(incomingMovement, movementConnect, previousVms));
+    }
+
+    private Movement mapMovement(IncomingMovement incomingMovement, MovementConnect movementConnect, Movement previousVms) {
+        Movement movement = IncomingMovementMapper.mapNewMovementEntity(incomingMovement, incomingMovement.getUpdatedBy());
+        movement.setMovementConnect(movementConnect);
+
+        if (previousVms != null && !MovementSourceType.AIS.value().equals(movement.getSource().value()) ) {
+            movement.setCalculatedSpeed(CalculationUtil.getAvgSpeed(previousVms, movement));
+        }
+        return movement;
+    }
+
+    private MovementDetails createMovementDetails(IncomingMovement incomingMovement, Movement createdMovement,
+                                                  AssetMTEnrichmentResponse assetResponse, Movement previousVms) {
+        MovementDetails movementDetails = IncomingMovementMapper.mapMovementDetails(incomingMovement, createdMovement, assetResponse);
+        List<VicinityInfoDTO> vicinityOf = movementService.getVicinityOf(createdMovement);
+        movementDetails.setVicinityOf(vicinityOf);
+
+        if (previousVms != null) {
+            movementDetails.setPreviousVMSLatitude(previousVms.getLocation().getY());
+            movementDetails.setPreviousVMSLongitude(previousVms.getLocation().getX());
+        }
+        return movementDetails;
+    }
+
+    private static void insertSorted(List<Instant> sortedTimestamps, Instant timestamp) {
+        int index = Collections.binarySearch(sortedTimestamps, timestamp);
+        sortedTimestamps.add(index < 0 ? -index - 1 : index, timestamp);
+    }
+
+    /**
+     * Counts the timestamps within [from, to] in a sorted list.
+     */
+    private static int countBetween(List<Instant> sortedTimestamps, Instant from, Instant to) {
+        return firstIndexAfter(sortedTimestamps, to) - firstIndexNotBefore(sortedTimestamps, from);
+    }
+
+    private static int firstIndexNotBefore(List<Instant> sortedTimestamps, Instant instant) {
+        int low = 0;
+        int high = sortedTimestamps.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedTimestamps.get(mid).isBefore(instant)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int firstIndexAfter(List<Instant> sortedTimestamps, Instant instant) {
+        int low = 0;
+        int high = sortedTimestamps.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedTimestamps.get(mid).isAfter(instant)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
     }
 
     private Movement getPreviousVms(IncomingMovement movement, MovementConnect movementConnect) {
@@ -134,6 +427,11 @@ public class MovementCreateBean {
                 || movement.getPositionTime() == null) {
             return null;
         }
+        MovementConnectStateCache.State connectState = movementConnectStateCache.get(movementConnect);
+        if (connectState != null && connectState.isLatestVmsKnown()
+                && connectState.getLatestVmsTimestamp().isBefore(movement.getPositionTime())) {
+            return connectState.getLatestVms();
+        }
         Movement currentLatestVMS = movementConnect.getLatestVMS();
         if (currentLatestVMS != null &&
                 currentLatestVMS.getTimestamp().isBefore(movement.getPositionTime())) {
@@ -162,6 +460,20 @@ public class MovementCreateBean {
                 ? im.getExternalMarking() : response.getExternalMarking());
     }
 
+    private static class NewMovement {
+        private final IncomingMovement incomingMovement;
+        private final Movement movement;
+        private final Movement previousVms;
+        private final int sumPositionReport;
+
+        private NewMovement(IncomingMovement incomingMovement, Movement movement, Movement previousVms, int sumPositionReport) {
+            this.incomingMovement = incomingMovement;
+            this.movement = movement;
+            this.previousVms = previousVms;
+            this.sumPositionReport = sumPositionReport;
+        }
+    }
+
     private AssetMTEnrichmentRequest createAssetRequest(IncomingMovement ic) {
         AssetMTEnrichmentRequest req = new AssetMTEnrichmentRequest();
         req.setAssetName(ic.getAssetName());
@@ -16,7 +16,7 @@ import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementResponseMappe
 import eu.europa.ec.fisheries.uvms.movement.service.mapper.search.SearchField;
 import eu.europa.ec.fisheries.uvms.movement.service.mapper.search.SearchFieldMapper;
 import eu.europa.ec.fisheries.uvms.movement.service.mapper.search.SearchValue;
-import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
@@ -29,7 +29,17 @@ public class MovementMapResponseHelper {
     @Inject
     private MovementDao movementDao;
 
+    @Inject
+    private TrackLineCache trackLineCache;
+
     public GetMovementMapByQueryResponse getMapByQuery(MovementQuery query) {
+        return getMapByQuery(query, 0);
+    }
+
+    /**
+     * @param tolerance the distance in degrees within which the track lines are simplified, 0 for the full lines
+     */
+    public GetMovementMapByQueryResponse getMapByQuery(MovementQuery query, double tolerance) {
 
         validateQuery(query);
 
@@ -53,8 +63,11 @@ public class MovementMapResponseHelper {
             List<Movement> movementEntityList = new ArrayList<>();
 
             if ( numberOfLatestReports > 0) {
+                String latestReportsSql = SearchFieldMapper.createLatestReportsSearchSql(searchKeys);
                 List<SearchValue> connectedIdsFromSearchKeyValues = getConnectedIdsFromSearchKeyValues(searchKeyValuesList);
-                if(!connectedIdsFromSearchKeyValues.isEmpty() && connectedIdsFromSearchKeyValues.size()>1) {
+                if (latestReportsSql != null) {
+                    movementEntityList = movementDao.getLatestMovementsPerConnect(latestReportsSql, searchKeys, numberOfLatestReports);
+                } else if(!connectedIdsFromSearchKeyValues.isEmpty() && connectedIdsFromSearchKeyValues.size()>1) {
                     getMovementsByConnectedIds(numberOfLatestReports, searchKeys, movementEntityList, connectedIdsFromSearchKeyValues);
                 }else{
                     movementEntityList = movementDao.getMovementList(sql, searchKeys, numberOfLatestReports);
@@ -65,6 +78,8 @@ public class MovementMapResponseHelper {
 
             Map<UUID, List<Movement>> orderMovementsByConnectId = MovementEntityToModelMapper.orderMovementsByConnectId(movementEntityList);
 
+            Map<UUID, LineString> trackLines = trackLineCache.getLines(MovementEntityToModelMapper.extractTracks(movementEntityList), tolerance);
+
             for (Map.Entry<UUID, List<Movement>> entries : orderMovementsByConnectId.entrySet()) {
 
                 MovementMapResponseType responseType = new MovementMapResponseType();
@@ -82,8 +97,7 @@ public class MovementMapResponseHelper {
                 List<Track> tracks = MovementEntityToModelMapper.extractTracks(entries.getValue());
                 List<MovementTrack> extractTracks = new ArrayList<>();
                 for (Track track : tracks) {
-                    List<Geometry> points = movementDao.getPointsFromTrack(track,2000); //2k is a magical int that looks good........
-                    extractTracks.add(MovementEntityToModelMapper.mapToMovementTrack(track, points));
+                    extractTracks.add(MovementEntityToModelMapper.mapToMovementTrack(track, track != null ? trackLines.get(track.getId()) : null));
                 }
 
                 // In the rare event of segments that are attached to two different tracks, the track that is not
@@ -140,7 +154,7 @@ public class MovementMapResponseHelper {
             List<SearchValue> searchValues = new ArrayList<>(searchValuesWithoutConnectedIds);
             searchValues.add(connectedId);
             sql = SearchFieldMapper.createSelectSearchSql(searchValues, true);
-            movementEntityList.addAll(movementDao.getMovementList(sql, searchKeys, numberOfLatestReports));
+            movementEntityList.addAll(movementDao.getMovementList(sql, searchValues, numberOfLatestReports));
         }
     }
 
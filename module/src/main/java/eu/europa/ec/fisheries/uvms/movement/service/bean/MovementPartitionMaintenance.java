@@ -0,0 +1,158 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.uvms.config.service.ParameterService;
+import eu.europa.ec.fisheries.uvms.movement.service.constant.ParameterKey;
+import eu.europa.ec.fisheries.uvms.movement.service.dao.MovementPartitionDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of movement.movement in shape: the partitions for the coming months are created
+ * before positions arrive for them, and partitions older than movement.partition.retention.months are detached. No
+ * partitions are detached while the setting is missing. The latest movements of the assets stay in movement.movement,
+ * in the default partition. Does nothing on a database where movement is not partitioned.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MovementPartitionMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MovementPartitionMaintenance.class);
+
+    static final int MONTHS_AHEAD = 3;
+    private static final long MAINTENANCE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(12);
+    private static final Pattern PARTITION_NAME = Pattern.compile("movement_y(\\d{4})m(\\d{2})");
+
+    @Resource
+    private TimerService timerService;
+
+    @EJB
+    private ParameterService parameterService;
+
+    @Inject
+    private MovementPartitionDao partitionDao;
+
+    @PostConstruct
+    public void init() {
+        timerService.createIntervalTimer(TimeUnit.MINUTES.toMillis(1), MAINTENANCE_INTERVAL_MILLIS, new TimerConfig(null, false));
+    }
+
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void maintain() {
+        try {
+            if (!partitionDao.isPartitioned()) {
+                LOG.debug("movement.movement is not partitioned, nothing to maintain");
+                return;
+            }
+            YearMonth current = YearMonth.now(ZoneOffset.UTC);
+            createUpcomingPartitions(current);
+            detachExpiredPartitions(current);
+            YearMonth oldest = getOldestMonth(partitionDao.getPartitionNames());
+            long unpartitioned = oldest == null ? 0 : partitionDao.countInDefaultPartition(oldest);
+            if (unpartitioned > 0) {
+                LOG.warn("{} movements are in the default partition of movement.movement", unpartitioned);
+            }
+        } catch (Exception e) {
+            LOG.error("Could not maintain the partitions of movement.movement", e);
+        }
+    }
+
+    void createUpcomingPartitions(YearMonth current) {
+        for (int i = 0; i <= MONTHS_AHEAD; i++) {
+            partitionDao.createPartition(current.plusMonths(i));
+        }
+    }
+
+    void detachExpiredPartitions(YearMonth current) {
+        Integer retentionMonths = getRetentionMonths();
+        if (retentionMonths == null) {
+            return;
+        }
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (String partition : getExpiredPartitions(partitionDao.getPartitionNames(), oldestKept)) {
+            partitionDao.detachPartition(partition);
+            LOG.info("Detached partition {} from movement.movement", partition);
+        }
+    }
+
+    static List<String> getExpiredPartitions(List<String> partitionNames, YearMonth oldestKept) {
+        List<String> expired = new ArrayList<>();
+        for (String partitionName : partitionNames) {
+            YearMonth month = getMonth(partitionName);
+            if (month != null && month.isBefore(oldestKept)) {
+                expired.add(partitionName);
+            }
+        }
+        return expired;
+    }
+
+    static YearMonth getOldestMonth(List<String> partitionNames) {
+        YearMonth oldest = null;
+        for (String partitionName : partitionNames) {
+            YearMonth month = getMonth(partitionName);
+            if (month != null && (oldest == null || month.isBefore(oldest))) {
+                oldest = month;
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * The month of a monthly partition, or null for the default partition and anything else.
+     */
+    static YearMonth getMonth(String partitionName) {
+        Matcher matcher = PARTITION_NAME.matcher(partitionName);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+
+    private Integer getRetentionMonths() {
+        try {
+            String value = parameterService.getStringValue(ParameterKey.PARTITION_RETENTION_MONTHS.getKey());
+            if (value == null || value.trim().isEmpty()) {
+                return null;
+            }
+            int months = Integer.parseInt(value.trim());
+            // The current month is never detached
+            return months > 0 ? months : null;
+        } catch (Exception e) {
+            LOG.debug("No valid {} setting, no partitions are detached", ParameterKey.PARTITION_RETENTION_MONTHS.getKey());
+            return null;
+        }
+    }
+}
@@ -24,6 +24,8 @@ import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
 import eu.europa.ec.fisheries.uvms.movement.service.constant.ParameterKey;
 import eu.europa.ec.fisheries.uvms.movement.service.dao.MovementDao;
 import eu.europa.ec.fisheries.uvms.movement.service.dto.CursorPagination;
+import eu.europa.ec.fisheries.uvms.movement.service.dto.ListCountType;
+import eu.europa.ec.fisheries.uvms.movement.service.dto.MovementKeysetListResponseDto;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.MovementConnect;
 import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovement;
@@ -46,14 +48,19 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Stateless
 public class MovementService {
 
     private static final Logger LOG = LoggerFactory.getLogger(MovementService.class);
+
+    static final int CAPPED_COUNT_LIMIT = 10_000;
     
     @Inject
     private IncomingMovementBean incomingMovementBean;
@@ -70,6 +77,12 @@ public class MovementService {
     @Inject
     private AssetClient assetClient;
 
+    @Inject
+    private MovementConnectStateCache movementConnectStateCache;
+
+    @Inject
+    private LatestMovementsSnapshot latestMovementsSnapshot;
+
     @EJB
     private ParameterService parameterService;
 
@@ -87,6 +100,29 @@ public class MovementService {
         return movement;
     }
 
+    /**
+     * Persists the movements of one asset and flushes once, so that the inserts are sent as JDBC batches, before
+     * linking them to their previous movements and tracks. The movements must be sorted on timestamp and newer
+     * than the latest movement of the asset.
+     */
+    public List<Movement> createAndProcessMovementBatch(List<Movement> movements) {
+        for (Movement movement : movements) {
+            if (movement.getMovementConnect() == null || movement.getMovementConnect().getId() == null) {
+                throw new IllegalArgumentException("No movementConnect ID");
+            }
+            movementDao.createMovement(movement);
+        }
+        movementDao.flush();
+        for (Movement movement : movements) {
+            incomingMovementBean.processMovement(movement);
+            fireMovementEvent(movement);
+            if (!movement.getSource().equals(MovementSourceType.AIS)) {
+                auditService.sendMovementCreatedAudit(movement, movement.getUpdatedBy());
+            }
+        }
+        return movements;
+    }
+
     public List<Movement> createMovementBatch(List<Movement> movements) {
         for (Movement movement : movements) {
             createMovement(movement);
@@ -138,18 +174,14 @@ public class MovementService {
         return movementMapResponseHelper.getMapByQuery(query);
     }
 
+    public GetMovementMapByQueryResponse getMapByQuery(MovementQuery query, double tolerance) {
+        return movementMapResponseHelper.getMapByQuery(query, tolerance);
+    }
+
 
 
     public GetMovementListByQueryResponse getList(MovementQuery query){
-        if (query == null) {
-            throw new IllegalArgumentException("Movement list query is null");
-        }
-        if (query.getPagination() == null || query.getPagination().getListSize() == null || query.getPagination().getPage() == null) {
-            throw new IllegalArgumentException("Pagination in movementlist query is null");
-        }
-        if (query.getMovementSearchCriteria().isEmpty() && query.getMovementRangeSearchCriteria().isEmpty()) {
-            throw new IllegalArgumentException("No search criterias in MovementList query");
-        }
+        validateListQuery(query);
         try {
             ListResponseDto response = new ListResponseDto();
             List<MovementType> movementList = new ArrayList<>();
@@ -157,12 +189,7 @@ public class MovementService {
             int page = query.getPagination().getPage().intValue();
             int listSize = query.getPagination().getListSize().intValue();
 
-            List<SearchValue> searchKeyValues = new ArrayList<>();
-            List<SearchValue> searchKeyValuesList = SearchFieldMapper.mapListCriteriaToSearchValue(query.getMovementSearchCriteria());
-            List<SearchValue> searchKeyValuesRange = SearchFieldMapper.mapRangeCriteriaToSearchField(query.getMovementRangeSearchCriteria());
-
-            searchKeyValues.addAll(searchKeyValuesList);
-            searchKeyValues.addAll(searchKeyValuesRange);
+            List<SearchValue> searchKeyValues = getListSearchValues(query);
 
             String countSql = SearchFieldMapper.createCountSearchSql(searchKeyValues, true);
             String sql = SearchFieldMapper.createSelectSearchSql(searchKeyValues, true);
@@ -181,7 +208,130 @@ public class MovementService {
             throw new IllegalArgumentException("Error when getting movement list by query: ParseException", e);
         }
     }
+
+    /**
+     * The number of chunks of at most chunkSize movements that the page of the movement list query is fetched in
+     * with getListChunk, at least one.
+     */
+    public int getListChunkCount(MovementQuery query, int chunkSize) {
+        validateListQuery(query);
+        try {
+            int page = query.getPagination().getPage().intValue();
+            int listSize = query.getPagination().getListSize().intValue();
+            List<SearchValue> searchKeyValues = getListSearchValues(query);
+            long numberMatches = movementDao.getMovementListSearchCount(SearchFieldMapper.createCountSearchSql(searchKeyValues, true), searchKeyValues);
+            long pageSize = Math.max(0, Math.min(listSize, numberMatches - (long) listSize * (page - 1)));
+            return (int) Math.max(1, (pageSize + chunkSize - 1) / chunkSize);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Error when counting movement list by query: ParseException", e);
+        }
+    }
+
+    /**
+     * One chunk of the page of the movement list query. Only the movements of the chunk are loaded, and they are
+     * detached again once mapped, so the page is never held in memory as a whole.
+     */
+    public List<MovementType> getListChunk(MovementQuery query, int chunkIndex, int chunkSize) {
+        validateListQuery(query);
+        try {
+            int page = query.getPagination().getPage().intValue();
+            int listSize = query.getPagination().getListSize().intValue();
+            int maxResults = Math.min(chunkSize, listSize - chunkIndex * chunkSize);
+            List<MovementType> movementList = new ArrayList<>();
+            if (maxResults <= 0) {
+                return movementList;
+            }
+            List<SearchValue> searchKeyValues = getListSearchValues(query);
+            String sql = SearchFieldMapper.createSelectSearchSql(searchKeyValues, true);
+            List<Movement> movementEntityList = movementDao.getMovementList(sql, searchKeyValues,
+                    listSize * (page - 1) + chunkIndex * chunkSize, maxResults);
+            movementEntityList.forEach(movement -> movementList.add(MovementEntityToModelMapper.mapToMovementType(movement)));
+            movementDao.detach(movementEntityList);
+            return movementList;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Error when getting movement list by query: ParseException", e);
+        }
+    }
+
+    private void validateListQuery(MovementQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Movement list query is null");
+        }
+        if (query.getPagination() == null || query.getPagination().getListSize() == null || query.getPagination().getPage() == null) {
+            throw new IllegalArgumentException("Pagination in movementlist query is null");
+        }
+        if (query.getMovementSearchCriteria().isEmpty() && query.getMovementRangeSearchCriteria().isEmpty()) {
+            throw new IllegalArgumentException("No search criterias in MovementList query");
+        }
+    }
+
+    private List<SearchValue> getListSearchValues(MovementQuery query) {
+        List<SearchValue> searchKeyValues = new ArrayList<>();
+        searchKeyValues.addAll(SearchFieldMapper.mapListCriteriaToSearchValue(query.getMovementSearchCriteria()));
+        searchKeyValues.addAll(SearchFieldMapper.mapRangeCriteriaToSearchField(query.getMovementRangeSearchCriteria()));
+        return searchKeyValues;
+    }
     
+    /**
+     * Like getList, but pages on (timestamp, id) instead of an offset. The cursor is the nextCursor of the previous
+     * page, or null for the first page.
+     */
+    public MovementKeysetListResponseDto getKeysetList(MovementQuery query, String cursor, ListCountType countType) {
+        if (query == null) {
+            throw new IllegalArgumentException("Movement list query is null");
+        }
+        if (query.getPagination() == null || query.getPagination().getListSize() == null) {
+            throw new IllegalArgumentException("List size in movementlist query is null");
+        }
+        Instant timestampCursor = null;
+        UUID idCursor = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                int separator = cursor.lastIndexOf('_');
+                timestampCursor = Instant.parse(cursor.substring(0, separator));
+                idCursor = UUID.fromString(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid list cursor: " + cursor, e);
+            }
+        }
+        int listSize = query.getPagination().getListSize().intValue();
+
+        List<SearchValue> searchKeyValues = new ArrayList<>();
+        searchKeyValues.addAll(SearchFieldMapper.mapListCriteriaToSearchValue(query.getMovementSearchCriteria()));
+        searchKeyValues.addAll(SearchFieldMapper.mapRangeCriteriaToSearchField(query.getMovementRangeSearchCriteria()));
+
+        String sql = SearchFieldMapper.createKeysetSelectSearchSql(searchKeyValues, true, timestampCursor != null);
+        List<Movement> movementEntityList = movementDao.getMovementListAfterCursor(sql, searchKeyValues, timestampCursor, idCursor, listSize + 1);
+
+        MovementKeysetListResponseDto response = new MovementKeysetListResponseDto();
+        if (movementEntityList.size() > listSize) {
+            movementEntityList = movementEntityList.subList(0, listSize);
+            Movement last = movementEntityList.get(listSize - 1);
+            response.setNextCursor(last.getTimestamp() + "_" + last.getId());
+        }
+        List<MovementType> movementList = new ArrayList<>(movementEntityList.size());
+        movementEntityList.forEach(movement -> movementList.add(MovementEntityToModelMapper.mapToMovementType(movement)));
+        response.setMovement(movementList);
+
+        switch (countType != null ? countType : ListCountType.CAPPED) {
+            case EXACT:
+                response.setTotalNumberOfMovements(movementDao.getMovementListSearchCount(SearchFieldMapper.createCountSearchSql(searchKeyValues, true), searchKeyValues));
+                response.setTotalNumberExact(true);
+                break;
+            case CAPPED:
+                String countSql = SearchFieldMapper.createCappedCountSearchSql(searchKeyValues);
+                long count = countSql != null
+                        ? movementDao.getMovementListSearchCount(countSql, searchKeyValues, CAPPED_COUNT_LIMIT)
+                        : movementDao.getCappedMovementIdCount(SearchFieldMapper.createCappedIdSearchSql(searchKeyValues, true), searchKeyValues, CAPPED_COUNT_LIMIT);
+                response.setTotalNumberOfMovements(count);
+                response.setTotalNumberExact(count < CAPPED_COUNT_LIMIT);
+                break;
+            default:
+                break;
+        }
+        return response;
+    }
+
     public List<MovementDto> getCursorBasedList(CursorPagination cursorPagination) {
         List<Movement> movementEntityList = movementDao.getCursorBasedList(cursorPagination);
 
@@ -214,10 +364,25 @@ public class MovementService {
     }
 
     public Movement getPreviousVMS(UUID connectId, Instant timestamp) {
-        List<MovementSourceType> sources = Arrays.stream(MovementSourceType.values())
+        return movementDao.getPreviousMovement(connectId, timestamp, getVMSSources());
+    }
+
+    public List<Movement> getVMSMovementsBetween(UUID connectId, Instant from, Instant to) {
+        return movementDao.getMicroMovementsForAssetAfterDate(connectId, from, to, getVMSSources());
+    }
+
+    public List<Movement> getMovementsForAssetAtDates(UUID connectId, Collection<Instant> dates) {
+        return movementDao.getMovementsForAssetAtDates(connectId, dates);
+    }
+
+    public List<Instant> getMovementTimestampsForAssetBetween(UUID connectId, Instant from, Instant to) {
+        return movementDao.getTimestampsForAssetBetween(connectId, from, to);
+    }
+
+    private List<MovementSourceType> getVMSSources() {
+        return Arrays.stream(MovementSourceType.values())
             .filter(source -> !source.equals(MovementSourceType.AIS))
             .collect(Collectors.toList());
-        return movementDao.getPreviousMovement(connectId, timestamp, sources);
     }
 
 	private int getNumberOfPages(Long numberOfMovements, int listSize){
@@ -282,6 +447,9 @@ public class MovementService {
         }
 
         int numberOfChanged = movementDao.updateToNewMovementConnect(oldMovementConnect.getId(), newMovementConnect.getId(), 10000);
+        movementConnectStateCache.invalidate(oldMovementConnect.getId());
+        movementConnectStateCache.invalidate(newMovementConnect.getId());
+        latestMovementsSnapshot.invalidate();
 
         return numberOfChanged;
     }
@@ -290,6 +458,18 @@ public class MovementService {
         MovementConnect toBeDeleted = movementDao.getMovementConnectByConnectId(UUID.fromString(movementConnectId));
         if(toBeDeleted != null) {
             movementDao.deleteMovementConnect(toBeDeleted);
+            latestMovementsSnapshot.invalidate();
+        }
+    }
+
+    /**
+     * Hands each movement to the consumer as it is read from the database, newest first, without holding them all
+     * in memory.
+     */
+    public void streamMicroMovementsForConnectIdsBetweenDates(List<UUID> connectIds, Instant fromDate, Instant toDate,
+                                                              List<MovementSourceType> sources, Consumer<MovementDto> consumer) {
+        try (Stream<MovementDto> movements = movementDao.streamMicroMovementsForConnectIdsBetweenDates(connectIds, fromDate, toDate, sources)) {
+            movements.forEach(consumer);
         }
     }
 
@@ -0,0 +1,176 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.schema.movement.v1.SegmentCategoryType;
+import eu.europa.ec.fisheries.uvms.config.service.ParameterService;
+import eu.europa.ec.fisheries.uvms.movement.service.constant.ParameterKey;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.util.WKTUtil;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Classifies segments against cached port areas, so that ingestion does not have to call Spatial for every segment.
+ * Only port transitions are classified since that is all TrackService acts on, segments at sea are OTHER.
+ * <p>
+ * Spatial has no endpoint that lists its port areas, so they are read from the file in the movement.port.areas.file
+ * setting, with one WKT geometry in WGS 84 per line. Empty lines and lines starting with # are skipped. The file is
+ * exported from the port area layer of Spatial and read again every hour. Without the file the classifier is cold
+ * and callers have to ask Spatial themselves.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SegmentCategoryClassifier {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentCategoryClassifier.class);
+
+    private static final long REFRESH_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Resource
+    private TimerService timerService;
+
+    @EJB
+    private ParameterService parameterService;
+
+    private volatile STRtree portAreas;
+
+    private final AtomicLong localClassifications = new AtomicLong();
+    private final AtomicLong coldClassifications = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        // Loaded in a timer so that deployment does not wait for the port areas
+        timerService.createIntervalTimer(0, REFRESH_INTERVAL_MILLIS, new TimerConfig(null, false));
+    }
+
+    @Timeout
+    public void refresh() {
+        String file = getPortAreasFile();
+        if (file == null) {
+            LOG.debug("No {} setting, segments are classified by Spatial", ParameterKey.PORT_AREAS_FILE.getKey());
+            return;
+        }
+        try {
+            List<Geometry> geometries = readPortAreas(Paths.get(file));
+            setPortAreas(geometries);
+            LOG.info("Loaded {} port areas from {}", geometries.size(), file);
+        } catch (Exception e) {
+            LOG.warn("Could not load port areas from {}, keeping {} port areas", file, portAreas == null ? "no" : "the previous", e);
+        }
+    }
+
+    private static List<Geometry> readPortAreas(Path file) throws IOException {
+        List<Geometry> geometries = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String wkt = line.trim();
+            if (!wkt.isEmpty() && !wkt.startsWith("#")) {
+                geometries.add(WKTUtil.getGeometryFromWKTSrring(wkt));
+            }
+        }
+        return geometries;
+    }
+
+    private String getPortAreasFile() {
+        try {
+            String value = parameterService.getStringValue(ParameterKey.PORT_AREAS_FILE.getKey());
+            return value == null || value.trim().isEmpty() ? null : value.trim();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    void setPortAreas(List<Geometry> geometries) {
+        if (geometries.isEmpty()) {
+            portAreas = null;
+            return;
+        }
+        STRtree index = new STRtree();
+        for (Geometry geometry : geometries) {
+            index.insert(geometry.getEnvelopeInternal(), PreparedGeometryFactory.prepare(geometry));
+        }
+        index.build();
+        portAreas = index;
+    }
+
+    public boolean isCold() {
+        return portAreas == null;
+    }
+
+    /**
+     * The category of the segment between previous and current, or null when the classifier is cold or the
+     * segment can not be classified locally.
+     */
+    public SegmentCategoryType classify(Movement previous, Movement current) {
+        STRtree index = portAreas;
+        if (index == null || previous.getLocation() == null || current.getLocation() == null) {
+            coldClassifications.incrementAndGet();
+            return null;
+        }
+        localClassifications.incrementAndGet();
+        boolean previousInPort = isInPort(index, previous.getLocation());
+        boolean currentInPort = isInPort(index, current.getLocation());
+        if (previousInPort && currentInPort) {
+            return SegmentCategoryType.IN_PORT;
+        }
+        if (previousInPort) {
+            return SegmentCategoryType.EXIT_PORT;
+        }
+        if (currentInPort) {
+            return SegmentCategoryType.ENTER_PORT;
+        }
+        return SegmentCategoryType.OTHER;
+    }
+
+    private boolean isInPort(STRtree index, Point location) {
+        for (Object candidate : index.query(location.getEnvelopeInternal())) {
+            if (((PreparedGeometry) candidate).covers(location)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getLocalClassifications() {
+        return localClassifications.get();
+    }
+
+    public long getColdClassifications() {
+        return coldClassifications.get();
+    }
+}
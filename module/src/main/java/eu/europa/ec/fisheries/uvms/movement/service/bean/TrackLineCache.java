@@ -0,0 +1,133 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.uvms.movement.service.dao.MovementDao;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Track;
+import eu.europa.ec.fisheries.uvms.movement.service.util.GeometryUtil;
+import org.locationtech.jts.geom.LineString;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Simplified track lines for the movement map, cached per track and tolerance. A cached line is used as long as the
+ * track has not been updated since it was built.
+ */
+@ApplicationScoped
+public class TrackLineCache {
+
+    static final int MAX_POINTS_PER_TRACK = 2000; //2k is a magical int that looks good........
+    static final Duration TIME_TO_LIVE = Duration.ofMinutes(10);
+    static final int MAX_SIZE = 10_000;
+
+    @Inject
+    private MovementDao movementDao;
+
+    private final Map<Key, CachedLine> cache = new ConcurrentHashMap<>();
+
+    /**
+     * The line of each track that has at least two positions, simplified with the tolerance in degrees.
+     */
+    public Map<UUID, LineString> getLines(Collection<Track> tracks, double tolerance) {
+        long now = System.currentTimeMillis();
+        Map<UUID, LineString> lines = new HashMap<>();
+        Map<UUID, Track> missing = new HashMap<>();
+        for (Track track : tracks) {
+            if (track == null) {
+                continue;
+            }
+            CachedLine cached = cache.get(new Key(track.getId(), tolerance));
+            if (cached != null && cached.isValid(track, now)) {
+                if (cached.line != null) {
+                    lines.put(track.getId(), cached.line);
+                }
+            } else {
+                missing.put(track.getId(), track);
+            }
+        }
+        if (missing.isEmpty()) {
+            return lines;
+        }
+
+        Map<UUID, LineString> loaded = movementDao.getLinesFromTracks(missing.keySet(), MAX_POINTS_PER_TRACK);
+        if (cache.size() + missing.size() > MAX_SIZE) {
+            cache.clear();
+        }
+        for (Track track : missing.values()) {
+            LineString line = loaded.get(track.getId());
+            if (line != null) {
+                line = GeometryUtil.simplify(line, tolerance);
+                lines.put(track.getId(), line);
+            }
+            cache.put(new Key(track.getId(), tolerance), new CachedLine(line, track.getUpdated(), now + TIME_TO_LIVE.toMillis()));
+        }
+        return lines;
+    }
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    private static final class CachedLine {
+
+        private final LineString line;
+        private final Instant trackUpdated;
+        private final long expires;
+
+        private CachedLine(LineString line, Instant trackUpdated, long expires) {
+            this.line = line;
+            this.trackUpdated = trackUpdated;
+            this.expires = expires;
+        }
+
+        private boolean isValid(Track track, long now) {
+            return now < expires && Objects.equals(trackUpdated, track.getUpdated());
+        }
+    }
+
+    private static final class Key {
+
+        private final UUID trackId;
+        private final double tolerance;
+
+        private Key(UUID trackId, double tolerance) {
+            this.trackId = trackId;
+            this.tolerance = tolerance;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Double.compare(tolerance, key.tolerance) == 0 && trackId.equals(key.trackId);
+        }
+
+        @Override
+        public int hashCode() {
+            return trackId.hashCode() * 31 + Double.hashCode(tolerance);
+        }
+    }
+}
@@ -27,6 +27,9 @@ public class TrackService {
 
     @Inject
     private SpatialRestClient spatialClient;
+
+    @Inject
+    private SegmentCategoryClassifier segmentCategoryClassifier;
     
     public void upsertTrack(Movement previous, Movement current) {
         SegmentCalculations positionCalculations = CalculationUtil.getPositionCalculations(previous, current);
@@ -36,7 +39,10 @@ public class TrackService {
             previous.setTrack(track);
             current.setTrack(track);
         } else {
-            SegmentCategoryType segCat = spatialClient.getSegmentCategoryType(previous, current);
+            SegmentCategoryType segCat = segmentCategoryClassifier.classify(previous, current);
+            if (segCat == null) {       //port areas not loaded yet, ask Spatial
+                segCat = spatialClient.getSegmentCategoryType(previous, current);
+            }
             switch (segCat) {     //if a segment is is an area transition out of a port, then create a new track, else add to the old one
                 case EXIT_PORT:
                     Track track = createNewTrack(positionCalculations);
@@ -74,6 +80,7 @@ public class TrackService {
         track.setDistance(calculatedDistance);
         double calculatedDurationInSeconds = track.getDuration() + positionCalculations.getDurationBetweenPoints();
         track.setDuration(calculatedDurationInSeconds);
+        track.setUpdated(Instant.now());
 
         if (!segCat.equals(SegmentCategoryType.ENTER_PORT) || !segCat.equals(SegmentCategoryType.IN_PORT)) {     //if we have not entered a port or are in a port, add to the total amount of time
             double totalTimeAtSea = track.getTotalTimeAtSea();                                                                                               //this makes it so that the last segment of a track is not counted towards the total time of a track
@@ -15,7 +15,19 @@ public enum ParameterKey {
 
     USE_NATIONAL("mobileterminal.national.use"),
 
-    MAX_DISTANCE("maxDistance");
+    MAX_DISTANCE("maxDistance"),
+
+    EVENT_BATCH_WINDOW("movement.event.batch.window.ms"),
+
+    EVENT_STREAM_BATCHED("movement.event.stream.batched"),
+
+    PARTITION_RETENTION_MONTHS("movement.partition.retention.months"),
+
+    ARCHIVE_AFTER_DAYS("movement.archive.after.days"),
+
+    ARCHIVE_DIRECTORY("movement.archive.directory"),
+
+    PORT_AREAS_FILE("movement.port.areas.file");
 
     private final String key;
 
@@ -11,42 +11,80 @@ copy of the GNU General Public License along with the IFDM Suite. If not, see <h
 package eu.europa.ec.fisheries.uvms.movement.service.dao;
 
 import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
-import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
 import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.service.archive.MovementArchive;
 import eu.europa.ec.fisheries.uvms.movement.service.dto.CursorPagination;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.MovementConnect;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.Track;
-import eu.europa.ec.fisheries.uvms.movement.service.mapper.search.SearchField;
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementMapper;
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.search.SearchFieldMapper;
 import eu.europa.ec.fisheries.uvms.movement.service.mapper.search.SearchValue;
-import eu.europa.ec.fisheries.uvms.movement.service.util.WKTUtil;
+import eu.europa.ec.fisheries.uvms.movement.service.util.GeometryUtil;
 import eu.europa.ec.fisheries.uvms.movementrules.model.dto.VicinityInfoDTO;
 import org.hibernate.HibernateException;
-import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ejb.Stateless;
+import javax.inject.Inject;
 import javax.persistence.*;
 import javax.persistence.criteria.*;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.stream.Stream;
 
 @Stateless
 public class MovementDao {
 
     private static final Logger LOG = LoggerFactory.getLogger(MovementDao.class);
     private static final String CONNECT_ID = "connectId";
+    private static final int STREAM_FETCH_SIZE = 1000;
+    // Keeps the IN list of the follow-up query well below the bind parameter limit of the driver
+    private static final int ID_LIST_CHUNK_SIZE = 5000;
+    // Any number, it only has to be the same on all nodes and not used for other advisory locks
+    private static final long ARCHIVE_LOCK_KEY = 4_611_201_907_281_052_521L;
+    // Previous and next movements are first looked for this close to the date, so that only one or two monthly
+    // partitions of movement are searched, and only further away when there is none
+    static final Duration NEIGHBOUR_SEARCH_WINDOW = Duration.ofDays(31);
+    private static final Instant FIRST_TIMESTAMP = Instant.EPOCH;
+    private static final Instant LAST_TIMESTAMP = Instant.parse("9999-12-31T23:59:59Z");
 
     @PersistenceContext
     private EntityManager em;
 
-    public List<Geometry> getPointsFromTrack(Track track, int maxResults) {
-        TypedQuery<Geometry> query = em.createNamedQuery(Movement.FIND_ALL_LOCATIONS_BY_TRACK, Geometry.class);
-        query.setMaxResults(maxResults);
-        query.setParameter("track", track);
-        return query.getResultList();
+    @Inject
+    private MovementArchive movementArchive;
+
+    /**
+     * The lines of the latest maxPointsPerTrack positions of each track, newest first, built by PostGIS. Tracks with
+     * fewer than two positions have no line.
+     */
+    public Map<UUID, LineString> getLinesFromTracks(Collection<UUID> trackIds, int maxPointsPerTrack) {
+        Map<UUID, LineString> lines = new HashMap<>();
+        List<UUID> ids = new ArrayList<>(trackIds);
+        WKBReader reader = new WKBReader();
+        for (int i = 0; i < ids.size(); i += ID_LIST_CHUNK_SIZE) {
+            Query query = em.createNamedQuery(Movement.FIND_LINES_FOR_TRACKS);
+            query.setParameter("trackIds", ids.subList(i, Math.min(ids.size(), i + ID_LIST_CHUNK_SIZE)));
+            query.setParameter("maxPoints", maxPointsPerTrack);
+            for (Object row : query.getResultList()) {
+                Object[] columns = (Object[]) row;
+                try {
+                    LineString line = (LineString) reader.read((byte[]) columns[1]);
+                    line.setSRID(GeometryUtil.SRID);
+                    lines.put(UUID.fromString(columns[0].toString()), line);
+                } catch (ParseException e) {
+                    throw new IllegalStateException("Could not read line for track " + columns[0], e);
+                }
+            }
+        }
+        return lines;
     }
 
     public List<Movement> getMovementListByMovementConnect(MovementConnect movementConnect) {
@@ -112,6 +150,16 @@ public class MovementDao {
         return query.getResultList();
     }
 
+    public List<Movement> getMovementsForAssetAtDates(UUID id, Collection<Instant> dates) {
+        if (dates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        TypedQuery<Movement> query = em.createNamedQuery(Movement.FIND_EXISTING_DATES, Movement.class);
+        query.setParameter("dates", dates);
+        query.setParameter("id", id);
+        return query.getResultList();
+    }
+
     public List<Movement> getLatestMovements(Integer numberOfMovements) {
         TypedQuery<Movement> latestMovementQuery = em.createNamedQuery(Movement.FIND_LATEST, Movement.class);
         latestMovementQuery.setMaxResults(numberOfMovements);
@@ -146,10 +194,17 @@ public class MovementDao {
     }
 
     public Movement getPreviousMovement(UUID id, Instant date, List<MovementSourceType> sources) {
+        Instant windowStart = date.minus(NEIGHBOUR_SEARCH_WINDOW);
+        Movement previous = getPreviousMovement(id, windowStart, date, sources);
+        return previous != null ? previous : getPreviousMovement(id, FIRST_TIMESTAMP, windowStart, sources);
+    }
+
+    private Movement getPreviousMovement(UUID id, Instant fromDate, Instant date, List<MovementSourceType> sources) {
         Movement singleResult = null;
         try {
             TypedQuery<Movement> query = em.createNamedQuery(Movement.FIND_PREVIOUS, Movement.class);
             query.setParameter("id", id);
+            query.setParameter("fromDate", fromDate);
             query.setParameter("date", date);
             query.setParameter("sources", sources);
             query.setMaxResults(1);
@@ -165,11 +220,18 @@ public class MovementDao {
     }
 
     public Movement getNextMovementByMcAndDate(UUID id, Instant date, List<MovementSourceType> sources) {
+        Instant windowEnd = date.plus(NEIGHBOUR_SEARCH_WINDOW);
+        Movement next = getNextMovementByMcAndDate(id, date, windowEnd, sources);
+        return next != null ? next : getNextMovementByMcAndDate(id, windowEnd, LAST_TIMESTAMP, sources);
+    }
+
+    private Movement getNextMovementByMcAndDate(UUID id, Instant date, Instant toDate, List<MovementSourceType> sources) {
         Movement singleResult = null;
         try {
             TypedQuery<Movement> query = em.createNamedQuery(Movement.FIND_NEXT, Movement.class);
             query.setParameter("id", id);
             query.setParameter("date", date);
+            query.setParameter("toDate", toDate);
             query.setParameter("sources", sources);
             singleResult = query.getSingleResult();
         } catch (NoResultException e) {
@@ -210,6 +272,14 @@ public class MovementDao {
         }
     }
 
+    public List<Instant> getTimestampsForAssetBetween(UUID asset, Instant from, Instant to) {
+        TypedQuery<Instant> query = em.createNamedQuery(Movement.FIND_TIMESTAMPS_FOR_ASSET_IN_TIMESPAN, Instant.class);
+        query.setParameter("asset", asset);
+        query.setParameter("fromDate", from);
+        query.setParameter("toDate", to);
+        return query.getResultList();
+    }
+
     public long countNrOfMovementsForAssetBetween(UUID asset, Instant from, Instant to){
         try{
             Query query = em.createNamedQuery(Movement.NR_OF_MOVEMENTS_FOR_ASSET_IN_TIMESPAN);
@@ -245,19 +315,50 @@ public class MovementDao {
     }
 
 
-    private void setTypedQueryMovementParams(List<SearchValue> searchKeyValues, Query query) {
-        for (SearchValue searchValue : searchKeyValues) {
-            if (searchValue.isRange()) {
-                if (searchValue.getField().equals(SearchField.DATE)) {
-                    query.setParameter("fromDate", DateUtils.stringToDate(searchValue.getFromValue()));
-                    query.setParameter("toDate", DateUtils.stringToDate(searchValue.getToValue()));
-                }
-            } else {
-                if (searchValue.getField().equals(SearchField.AREA)) {
-                    query.setParameter("wkt", WKTUtil.getGeometryFromWKTSrring(searchValue.getValue()));
-                }
-            }
+    public List<Movement> getMovementList(String sql, List<SearchValue> searchKeyValues, int firstResult, int maxResults) {
+        TypedQuery<Movement> query = getMovementQuery(sql, searchKeyValues);
+        query.setFirstResult(firstResult);
+        query.setMaxResults(maxResults);
+        return query.getResultList();
+    }
+
+    /**
+     * Detaches movements that were only read, so that they can be garbage collected before the transaction ends.
+     */
+    public void detach(List<Movement> movements) {
+        movements.forEach(em::detach);
+    }
+
+    public List<Movement> getMovementListAfterCursor(String sql, List<SearchValue> searchKeyValues, Instant timestampCursor, UUID idCursor, int maxResults) {
+        TypedQuery<Movement> query = getMovementQuery(sql, searchKeyValues);
+        if (timestampCursor != null) {
+            query.setParameter(SearchFieldMapper.CURSOR_TIMESTAMP, timestampCursor);
+            query.setParameter(SearchFieldMapper.CURSOR_ID, idCursor);
         }
+        query.setMaxResults(maxResults);
+        return query.getResultList();
+    }
+
+    /**
+     * Counts the matching movements up to cap with the native query from SearchFieldMapper.createCappedCountSearchSql,
+     * so that the database stops reading after cap rows and only the count is returned.
+     */
+    public long getMovementListSearchCount(String cappedCountSql, List<SearchValue> searchKeyValues, int cap) {
+        Query query = em.createNativeQuery(cappedCountSql);
+        SearchFieldMapper.createNativeSearchParameters(searchKeyValues).forEach(query::setParameter);
+        query.setParameter(SearchFieldMapper.COUNT_CAP, cap);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    public long getCappedMovementIdCount(String cappedIdSql, List<SearchValue> searchKeyValues, int cap) {
+        TypedQuery<UUID> query = em.createQuery(cappedIdSql, UUID.class);
+        setTypedQueryMovementParams(searchKeyValues, query);
+        query.setMaxResults(cap);
+        return query.getResultList().size();
+    }
+
+    private void setTypedQueryMovementParams(List<SearchValue> searchKeyValues, Query query) {
+        SearchFieldMapper.createSearchParameters(searchKeyValues).forEach(query::setParameter);
     }
 
     public List<Movement> getMovementList(String sql, List<SearchValue> searchKeyValues){
@@ -290,6 +391,29 @@ public class MovementDao {
         return movements;
     }
 
+    /**
+     * The latest numberOfReports movements per movement connect that match the search values, using the native query
+     * from SearchFieldMapper.createLatestReportsSearchSql. The ids are found in one query and the movements are then
+     * loaded in chunks, regardless of how many assets there are.
+     */
+    public List<Movement> getLatestMovementsPerConnect(String latestReportsSql, List<SearchValue> searchKeyValues, int numberOfReports) {
+        Query idQuery = em.createNativeQuery(latestReportsSql);
+        SearchFieldMapper.createNativeSearchParameters(searchKeyValues).forEach(idQuery::setParameter);
+        idQuery.setParameter(SearchFieldMapper.NUMBER_OF_REPORTS, numberOfReports);
+        List<UUID> ids = new ArrayList<>();
+        for (Object id : idQuery.getResultList()) {
+            ids.add(UUID.fromString(id.toString()));
+        }
+
+        List<Movement> movements = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i += ID_LIST_CHUNK_SIZE) {
+            TypedQuery<Movement> query = em.createNamedQuery(Movement.FIND_WITH_TRACK_BY_ID_LIST, Movement.class);
+            query.setParameter("moveIds", ids.subList(i, Math.min(ids.size(), i + ID_LIST_CHUNK_SIZE)));
+            movements.addAll(query.getResultList());
+        }
+        return movements;
+    }
+
     public List<Movement> getCursorBasedList(CursorPagination cursorPagination) {
         CriteriaBuilder criteriaBuilder = em.getCriteriaBuilder();
         CriteriaQuery<Movement> cq = criteriaBuilder.createQuery(Movement.class);
@@ -328,7 +452,20 @@ public class MovementDao {
             query.setMaxResults(cursorPagination.getLimit()); // limit
         }
 
-        return query.getResultList();
+        boolean afterCursor = cursorPagination.getTimestampCursor() != null && cursorPagination.getIdCursor() != null;
+        List<MovementDto> archived = movementArchive.read(cursorPagination.getConnectIds(),
+                afterCursor ? cursorPagination.getTimestampCursor() : cursorPagination.getFrom(), cursorPagination.getTo(),
+                movement -> (cursorPagination.getSources() == null || cursorPagination.getSources().contains(movement.getSource()))
+                        && !(afterCursor && movement.getTimestamp().equals(cursorPagination.getTimestampCursor())
+                                && MovementArchive.compareIds(movement.getId(), cursorPagination.getIdCursor()) < 0),
+                cursorPagination.getLimit() != null ? cursorPagination.getLimit() : Integer.MAX_VALUE);
+
+        List<Movement> movements = mergeArchived(query.getResultList(), archived,
+                Comparator.comparing(Movement::getTimestamp).thenComparing(Movement::getId, MovementArchive::compareIds));
+        if (cursorPagination.getLimit() != null && movements.size() > cursorPagination.getLimit()) {
+            return new ArrayList<>(movements.subList(0, cursorPagination.getLimit()));
+        }
+        return movements;
     }
 
     public MovementConnect getMovementConnectByConnectId(UUID id) {
@@ -355,22 +492,125 @@ public class MovementDao {
 
 
     public List<Movement> getMicroMovementsForAssetAfterDate(UUID id, Instant startDate, Instant endDate, List<MovementSourceType> sources){
+        List<Movement> movements;
         try {
             TypedQuery<Movement> query = em.createNamedQuery(Movement.FIND_ALL_FOR_ASSET_BETWEEN_DATES, Movement.class);
             query.setParameter("id", id);
             query.setParameter("startDate", startDate);
             query.setParameter("endDate", endDate);
             query.setParameter("sources", sources);
-            return query.getResultList();
+            movements = query.getResultList();
         } catch (NoResultException e) {
             LOG.debug("No positions found for asset after date: {}", startDate);
-            return new ArrayList<>();
+            movements = new ArrayList<>();
+        }
+        return mergeArchived(movements, getArchivedForAssetBetweenDates(id, startDate, endDate, sources),
+                Comparator.comparing(Movement::getTimestamp).reversed());
+    }
+
+    public List<MovementDto> getMicroMovementDtosForAssetAfterDate(UUID id, Instant startDate, Instant endDate, List<MovementSourceType> sources){
+        TypedQuery<MovementDto> query = em.createNamedQuery(Movement.FIND_MICRO_FOR_ASSET_BETWEEN_DATES, MovementDto.class);
+        query.setParameter("id", id);
+        query.setParameter("startDate", startDate);
+        query.setParameter("endDate", endDate);
+        query.setParameter("sources", sources);
+        List<MovementDto> movements = query.getResultList();
+        List<MovementDto> archived = getArchivedForAssetBetweenDates(id, startDate, endDate, sources);
+        if (archived.isEmpty()) {
+            return movements;
+        }
+        Set<UUID> ids = new HashSet<>();
+        movements.forEach(movement -> ids.add(movement.getId()));
+        List<MovementDto> merged = new ArrayList<>(movements);
+        archived.stream().filter(movement -> !ids.contains(movement.getId())).forEach(merged::add);
+        merged.sort(Comparator.comparing(MovementDto::getTimestamp).reversed());
+        return merged;
+    }
+
+    private List<MovementDto> getArchivedForAssetBetweenDates(UUID id, Instant startDate, Instant endDate, List<MovementSourceType> sources) {
+        return movementArchive.read(Collections.singletonList(id), startDate, endDate,
+                movement -> movement.getTimestamp().isAfter(startDate) && movement.getTimestamp().isBefore(endDate)
+                        && sources.contains(movement.getSource()),
+                Integer.MAX_VALUE);
+    }
+
+    /**
+     * Adds the archived movements that are not also in the database, which happens while they are being archived.
+     */
+    private List<Movement> mergeArchived(List<Movement> movements, List<MovementDto> archived, Comparator<Movement> order) {
+        if (archived.isEmpty()) {
+            return movements;
+        }
+        Set<UUID> ids = new HashSet<>();
+        movements.forEach(movement -> ids.add(movement.getId()));
+        Map<String, MovementConnect> movementConnects = new HashMap<>();
+        List<Movement> merged = new ArrayList<>(movements);
+        for (MovementDto movement : archived) {
+            if (!ids.contains(movement.getId())) {
+                MovementConnect movementConnect = movementConnects.computeIfAbsent(movement.getAsset(),
+                        asset -> em.find(MovementConnect.class, UUID.fromString(asset)));
+                merged.add(MovementMapper.mapToMovement(movement, movementConnect));
+            }
+        }
+        merged.sort(order);
+        return merged;
+    }
+
+    /**
+     * Takes the PostgreSQL advisory lock of the archiving for the rest of the transaction. Returns false if another
+     * node holds it.
+     */
+    public boolean tryArchiveLock() {
+        return (Boolean) em.createNativeQuery("SELECT pg_try_advisory_xact_lock(:key)")
+                .setParameter("key", ARCHIVE_LOCK_KEY)
+                .getSingleResult();
+    }
+
+    public Instant getOldestMovementTimestamp() {
+        return em.createNamedQuery(Movement.FIND_OLDEST_TIMESTAMP, Instant.class).getSingleResult();
+    }
+
+    public List<UUID> getMovementConnectIdsBetweenDates(Instant from, Instant to) {
+        return em.createNamedQuery(Movement.FIND_CONNECT_IDS_BETWEEN_DATES, UUID.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+
+    /**
+     * The oldest movements of the asset from from to to, to excluded, that can be moved to the archive. That is all
+     * but the latest movements of the asset.
+     */
+    public List<MovementDto> getArchivableMovements(UUID connectId, Instant from, Instant to, int maxResults) {
+        TypedQuery<MovementDto> query = em.createNamedQuery(Movement.FIND_ARCHIVABLE, MovementDto.class);
+        query.setParameter("connectId", connectId);
+        query.setParameter("from", from);
+        query.setParameter("to", to);
+        query.setMaxResults(maxResults);
+        return query.getResultList();
+    }
+
+    /**
+     * Deletes archived movements, the movements that follow them lose their previous movement.
+     */
+    public int deleteArchivedMovements(List<UUID> ids, Instant date) {
+        int deleted = 0;
+        for (int i = 0; i < ids.size(); i += ID_LIST_CHUNK_SIZE) {
+            List<UUID> chunk = ids.subList(i, Math.min(ids.size(), i + ID_LIST_CHUNK_SIZE));
+            em.createNamedQuery(Movement.CLEAR_PREVIOUS_MOVEMENT)
+                    .setParameter("moveIds", chunk)
+                    .executeUpdate();
+            deleted += em.createNamedQuery(Movement.DELETE_ARCHIVED)
+                    .setParameter("moveIds", chunk)
+                    .setParameter("date", date)
+                    .executeUpdate();
         }
+        return deleted;
     }
 
-    public List<Movement> getLatestNumberOfMovementsForAsset(UUID id, int number, List<MovementSourceType> sources){
+    public List<MovementDto> getLatestNumberOfMovementsForAsset(UUID id, int number, List<MovementSourceType> sources){
         try {
-            TypedQuery<Movement> query = em.createNamedQuery(Movement.FIND_LATEST_X_NUMBER_FOR_ASSET, Movement.class);
+            TypedQuery<MovementDto> query = em.createNamedQuery(Movement.FIND_LATEST_X_NUMBER_FOR_ASSET, MovementDto.class);
             query.setParameter("id", id);
             query.setParameter("sources", sources);
             query.setMaxResults(number);
@@ -388,14 +628,28 @@ public class MovementDao {
         return query.getResultList();
     }
 
-    public List<Movement> getMicroMovementsForConnectIdsBetweenDates(List<UUID> connectIds, Instant fromDate, Instant toDate, List<MovementSourceType> sources) {
-        TypedQuery<Movement> query = em.createNamedQuery(Movement.FIND_ALL_FOR_CONNECT_IDS_BETWEEN_DATES, Movement.class);
+    public List<MovementDto> getMicroMovementsForConnectIdsBetweenDates(List<UUID> connectIds, Instant fromDate, Instant toDate, List<MovementSourceType> sources) {
+        TypedQuery<MovementDto> query = em.createNamedQuery(Movement.FIND_ALL_FOR_CONNECT_IDS_BETWEEN_DATES, MovementDto.class);
         query.setParameter("connectIds", connectIds);
         query.setParameter("fromDate", fromDate);
         query.setParameter("toDate", toDate);
         query.setParameter("sources", sources);
         return query.getResultList();
     }
+
+    /**
+     * Same as getMicroMovementsForConnectIdsBetweenDates but read through a forward only cursor. Must be consumed
+     * within the transaction.
+     */
+    public Stream<MovementDto> streamMicroMovementsForConnectIdsBetweenDates(List<UUID> connectIds, Instant fromDate, Instant toDate, List<MovementSourceType> sources) {
+        TypedQuery<MovementDto> query = em.createNamedQuery(Movement.FIND_ALL_FOR_CONNECT_IDS_BETWEEN_DATES, MovementDto.class);
+        query.setParameter("connectIds", connectIds);
+        query.setParameter("fromDate", fromDate);
+        query.setParameter("toDate", toDate);
+        query.setParameter("sources", sources);
+        query.setHint("org.hibernate.fetchSize", STREAM_FETCH_SIZE);
+        return query.getResultStream();
+    }
     
     public List<Movement> getMovementsByMoveIdList(List<UUID> moveIds) {
         if (moveIds == null || moveIds.isEmpty()) {
@@ -0,0 +1,98 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.dao;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The monthly partitions of movement.movement, see the v5.6.4 partitioning changelog. Partition DDL runs in a
+ * transaction of its own so that one failing month does not undo the others.
+ */
+@Stateless
+public class MovementPartitionDao {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    public boolean isPartitioned() {
+        Number count = (Number) em.createNativeQuery("SELECT count(*) FROM pg_partitioned_table " +
+                "WHERE partrelid = to_regclass('movement.movement')")
+                .getSingleResult();
+        return count.longValue() > 0;
+    }
+
+    public List<String> getPartitionNames() {
+        List<?> names = em.createNativeQuery("SELECT CAST(c.relname AS text) FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = to_regclass('movement.movement') ORDER BY c.relname")
+                .getResultList();
+        List<String> partitionNames = new ArrayList<>(names.size());
+        for (Object name : names) {
+            partitionNames.add((String) name);
+        }
+        return partitionNames;
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public String createPartition(YearMonth month) {
+        return (String) em.createNativeQuery("SELECT movement.create_movement_partition(:month)")
+                .setParameter("month", Date.valueOf(month.atDay(1)))
+                .getSingleResult();
+    }
+
+    /**
+     * Detaches the partition from movement.movement. The table itself is kept with all its positions, to be
+     * archived or dropped by the operator. Nothing left in movement.movement may point into it:
+     * <ul>
+     * <li>The latest movements of the assets are moved out of it and end up in the default partition.</li>
+     * <li>The movements whose previous movement is in it lose their previous movement.</li>
+     * </ul>
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void detachPartition(String partitionName) {
+        if (!partitionName.matches("movement_y\\d{4}m\\d{2}")) {
+            throw new IllegalArgumentException("Not a monthly movement partition: " + partitionName);
+        }
+        String partition = "movement." + partitionName;
+        String latestMovements = "SELECT moveconn_latest_move FROM movement.movementconnect " +
+                "UNION SELECT moveconn_latest_vms FROM movement.movementconnect";
+        em.createNativeQuery("ALTER TABLE movement.movement DETACH PARTITION " + partition)
+                .executeUpdate();
+        em.createNativeQuery("INSERT INTO movement.movement SELECT * FROM " + partition +
+                " WHERE id IN (" + latestMovements + ")")
+                .executeUpdate();
+        em.createNativeQuery("DELETE FROM " + partition + " WHERE id IN (" + latestMovements + ")")
+                .executeUpdate();
+        em.createNativeQuery("UPDATE movement.movement SET prev_movement_id = NULL " +
+                "WHERE prev_movement_id IN (SELECT id FROM " + partition + ")")
+                .executeUpdate();
+    }
+
+    /**
+     * The movements in the default partition from the given month on. Older ones are the latest movements kept
+     * from detached partitions.
+     */
+    public long countInDefaultPartition(YearMonth from) {
+        Number count = (Number) em.createNativeQuery("SELECT count(*) FROM movement.movement_default WHERE \"timestamp\" >= :from")
+                .setParameter("from", Date.valueOf(from.atDay(1)))
+                .getSingleResult();
+        return count.longValue();
+    }
+}
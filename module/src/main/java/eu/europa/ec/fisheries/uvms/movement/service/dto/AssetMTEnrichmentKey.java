@@ -0,0 +1,69 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.dto;
+
+import eu.europa.ec.fisheries.uvms.asset.client.model.AssetMTEnrichmentRequest;
+
+import java.util.Arrays;
+
+/**
+ * The asset and mobile terminal identifiers of an {@link AssetMTEnrichmentRequest}. Two requests with the same key
+ * resolve to the same asset, the requesting user is therefore not part of the key.
+ */
+public final class AssetMTEnrichmentKey {
+
+    private final Object[] identifiers;
+
+    private AssetMTEnrichmentKey(Object[] identifiers) {
+        this.identifiers = identifiers;
+    }
+
+    public static AssetMTEnrichmentKey of(AssetMTEnrichmentRequest request) {
+        return new AssetMTEnrichmentKey(new Object[] {
+                request.getIdValue(),
+                request.getIrcsValue(),
+                request.getCfrValue(),
+                request.getImoValue(),
+                request.getMmsiValue(),
+                request.getAssetName(),
+                request.getExternalMarking(),
+                request.getFlagState(),
+                request.getDnidValue(),
+                request.getMemberNumberValue(),
+                request.getSerialNumberValue(),
+                request.getLesValue(),
+                request.getTranspondertypeValue(),
+                request.getPluginType()
+        });
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return Arrays.equals(identifiers, ((AssetMTEnrichmentKey) o).identifiers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(identifiers);
+    }
+
+    @Override
+    public String toString() {
+        return "AssetMTEnrichmentKey" + Arrays.toString(identifiers);
+    }
+}
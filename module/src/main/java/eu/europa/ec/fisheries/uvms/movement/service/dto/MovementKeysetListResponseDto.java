@@ -0,0 +1,68 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.dto;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementType;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.List;
+
+/**
+ * One page of a keyset paginated movement list. nextCursor is passed back to
+ * get the following page and is null on the last page. totalNumberOfMovements
+ * is null when no count was asked for, and a lower bound when
+ * totalNumberExact is false.
+ **/
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "movementKeysetListDto")
+public class MovementKeysetListResponseDto {
+
+    private List<MovementType> movement;
+    private String nextCursor;
+    private Long totalNumberOfMovements;
+    private boolean totalNumberExact;
+
+    public List<MovementType> getMovement() {
+        return movement;
+    }
+
+    public void setMovement(List<MovementType> movement) {
+        this.movement = movement;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Long getTotalNumberOfMovements() {
+        return totalNumberOfMovements;
+    }
+
+    public void setTotalNumberOfMovements(Long totalNumberOfMovements) {
+        this.totalNumberOfMovements = totalNumberOfMovements;
+    }
+
+    public boolean isTotalNumberExact() {
+        return totalNumberExact;
+    }
+
+    public void setTotalNumberExact(boolean totalNumberExact) {
+        this.totalNumberExact = totalNumberExact;
+    }
+
+}
@@ -38,26 +38,34 @@ import java.util.UUID;
 })
 @NamedQueries({
     @NamedQuery(name = Movement.FIND_ALL_BY_TRACK, query = "SELECT m FROM Movement m WHERE m.track = :track ORDER BY m.timestamp DESC"),
-    @NamedQuery(name = Movement.FIND_ALL_LOCATIONS_BY_TRACK, query = "SELECT m.location FROM Movement m WHERE m.track = :track ORDER BY m.timestamp DESC"),
     @NamedQuery(name = Movement.FIND_ALL_BY_MOVEMENTCONNECT, query = "SELECT m FROM Movement m WHERE m.movementConnect = :movementConnect ORDER BY m.timestamp ASC"),
     @NamedQuery(name = Movement.FIND_LATEST_BY_MOVEMENT_CONNECT, query = "SELECT m FROM Movement m WHERE m.movementConnect.id = :connectId ORDER BY m.timestamp DESC"),
-    @NamedQuery(name = Movement.FIND_PREVIOUS, query = "SELECT m FROM Movement m  WHERE m.movementConnect.id = :id AND m.timestamp = (select max(mm.timestamp) from Movement mm where mm.movementConnect.id = :id and mm.source in :sources and mm.timestamp < :date) "),
-    @NamedQuery(name = Movement.FIND_NEXT, query = "SELECT m FROM Movement m  WHERE m.movementConnect.id = :id AND m.timestamp = (select min(mm.timestamp) from Movement mm where mm.movementConnect.id = :id and mm.source in :sources and mm.timestamp > :date) "),
+    @NamedQuery(name = Movement.FIND_PREVIOUS, query = "SELECT m FROM Movement m  WHERE m.movementConnect.id = :id AND m.timestamp >= :fromDate AND m.timestamp < :date AND m.timestamp = (select max(mm.timestamp) from Movement mm where mm.movementConnect.id = :id and mm.source in :sources and mm.timestamp >= :fromDate and mm.timestamp < :date) "),
+    @NamedQuery(name = Movement.FIND_NEXT, query = "SELECT m FROM Movement m  WHERE m.movementConnect.id = :id AND m.timestamp > :date AND m.timestamp <= :toDate AND m.timestamp = (select min(mm.timestamp) from Movement mm where mm.movementConnect.id = :id and mm.source in :sources and mm.timestamp > :date and mm.timestamp <= :toDate) "),
     @NamedQuery(name = Movement.FIND_FIRST, query = "SELECT m FROM Movement m  WHERE m.movementConnect.id = :id AND m.timestamp = (select min(mm.timestamp) from Movement mm  where mm.movementConnect.id = :id  AND mm.id <> :excludedMovement) "),
     @NamedQuery(name = Movement.FIND_EXISTING_DATE, query = "SELECT m FROM Movement m WHERE m.movementConnect.id = :id AND m.timestamp = :date "),
+    @NamedQuery(name = Movement.FIND_EXISTING_DATES, query = "SELECT m FROM Movement m WHERE m.movementConnect.id = :id AND m.timestamp IN :dates "),
     @NamedQuery(name = Movement.NR_OF_MOVEMENTS_FOR_ASSET_IN_TIMESPAN, query = "SELECT COUNT (m) FROM Movement m WHERE m.movementConnect.id = :asset AND m.timestamp BETWEEN :fromDate AND :toDate "),
+    @NamedQuery(name = Movement.FIND_TIMESTAMPS_FOR_ASSET_IN_TIMESPAN, query = "SELECT m.timestamp FROM Movement m WHERE m.movementConnect.id = :asset AND m.timestamp BETWEEN :fromDate AND :toDate ORDER BY m.timestamp ASC"),
 
     @NamedQuery(name = Movement.FIND_ALL_FOR_ASSET_BETWEEN_DATES, query = "SELECT m FROM Movement m WHERE m.movementConnect.id = :id AND m.timestamp > :startDate AND m.timestamp < :endDate AND m.source in :sources ORDER BY m.timestamp DESC"),
-    @NamedQuery(name = Movement.FIND_ALL_FOR_CONNECT_IDS_BETWEEN_DATES, query = "SELECT m FROM Movement m WHERE m.movementConnect.id in :connectIds AND m.timestamp >= :fromDate AND m.timestamp <= :toDate AND m.source in :sources ORDER BY m.timestamp DESC"),
+    @NamedQuery(name = Movement.FIND_MICRO_FOR_ASSET_BETWEEN_DATES, query = "SELECT new eu.europa.ec.fisheries.uvms.movement.service.dto.MovementProjection(m.id, m.location, m.speed, m.calculatedSpeed, m.heading, m.movementConnect.id, m.status, m.source, m.movementType, m.timestamp, m.lesReportTime, m.sourceSatelliteId, m.updated, m.updatedBy, m.aisPositionAccuracy) FROM Movement m WHERE m.movementConnect.id = :id AND m.timestamp > :startDate AND m.timestamp < :endDate AND m.source in :sources ORDER BY m.timestamp DESC"),
+    @NamedQuery(name = Movement.FIND_ALL_FOR_CONNECT_IDS_BETWEEN_DATES, query = "SELECT new eu.europa.ec.fisheries.uvms.movement.service.dto.MovementProjection(m.id, m.location, m.speed, m.calculatedSpeed, m.heading, m.movementConnect.id, m.status, m.source, m.movementType, m.timestamp, m.lesReportTime, m.sourceSatelliteId, m.updated, m.updatedBy, m.aisPositionAccuracy) FROM Movement m WHERE m.movementConnect.id in :connectIds AND m.timestamp >= :fromDate AND m.timestamp <= :toDate AND m.source in :sources ORDER BY m.timestamp DESC"),
     @NamedQuery(name = Movement.FIND_LATEST_SINCE, query = "SELECT new eu.europa.ec.fisheries.uvms.movement.service.dto.MovementProjection(m.id, m.location, m.speed, m.calculatedSpeed, m.heading, m.movementConnect.id, m.status, m.source, m.movementType, m.timestamp, m.lesReportTime, m.sourceSatelliteId, m.updated, m.updatedBy, m.aisPositionAccuracy) FROM Movement m JOIN MovementConnect mc ON m.id = mc.latestMovement.id WHERE mc.updated > :date AND m.source in :sources" ),
 
 
-    @NamedQuery(name = Movement.FIND_LATEST_X_NUMBER_FOR_ASSET, query = "SELECT m FROM Movement m WHERE m.movementConnect.id = :id AND m.source in :sources ORDER BY m.timestamp DESC"),
+    @NamedQuery(name = Movement.FIND_LATEST_X_NUMBER_FOR_ASSET, query = "SELECT new eu.europa.ec.fisheries.uvms.movement.service.dto.MovementProjection(m.id, m.location, m.speed, m.calculatedSpeed, m.heading, m.movementConnect.id, m.status, m.source, m.movementType, m.timestamp, m.lesReportTime, m.sourceSatelliteId, m.updated, m.updatedBy, m.aisPositionAccuracy) FROM Movement m WHERE m.movementConnect.id = :id AND m.source in :sources ORDER BY m.timestamp DESC"),
     @NamedQuery(name = Movement.FIND_LATESTMOVEMENT_BY_MOVEMENT_CONNECT, query = "SELECT m FROM Movement m JOIN MovementConnect mc ON m.id = mc.latestMovement.id WHERE m.movementConnect.id = :connectId"),
     @NamedQuery(name = Movement.FIND_LATESTMOVEMENT_BY_MOVEMENT_CONNECT_LIST, query = "SELECT m FROM Movement m JOIN MovementConnect mc ON m.id = mc.latestMovement.id WHERE m.movementConnect.id in :connectId"), 
     @NamedQuery(name = Movement.FIND_LATEST, query = "SELECT mc.latestMovement FROM MovementConnect mc ORDER BY mc.updated DESC"),
     @NamedQuery(name = Movement.FIND_BY_PREVIOUS_MOVEMENT, query = "SELECT m FROM Movement m WHERE m.previousMovement = :previousMovement"),
     @NamedQuery(name = Movement.FIND_MOVEMENT_BY_ID_LIST, query = "SELECT m FROM Movement m WHERE m.id in :moveIds"),
+    @NamedQuery(name = Movement.FIND_WITH_TRACK_BY_ID_LIST, query = "SELECT m FROM Movement m INNER JOIN FETCH m.movementConnect LEFT JOIN FETCH m.track WHERE m.id in :moveIds ORDER BY m.timestamp DESC"),
+    @NamedQuery(name = Movement.FIND_ARCHIVABLE, query = "SELECT new eu.europa.ec.fisheries.uvms.movement.service.dto.MovementProjection(m.id, m.location, m.speed, m.calculatedSpeed, m.heading, m.movementConnect.id, m.status, m.source, m.movementType, m.timestamp, m.lesReportTime, m.sourceSatelliteId, m.updated, m.updatedBy, m.aisPositionAccuracy) FROM Movement m WHERE m.movementConnect.id = :connectId AND m.timestamp >= :from AND m.timestamp < :to AND NOT EXISTS (SELECT mc.id FROM MovementConnect mc WHERE mc.id = :connectId AND (mc.latestMovement.id = m.id OR mc.latestVMS.id = m.id)) ORDER BY m.timestamp, m.id"),
+    @NamedQuery(name = Movement.FIND_OLDEST_TIMESTAMP, query = "SELECT min(m.timestamp) FROM Movement m"),
+    @NamedQuery(name = Movement.FIND_CONNECT_IDS_BETWEEN_DATES, query = "SELECT DISTINCT m.movementConnect.id FROM Movement m WHERE m.timestamp >= :from AND m.timestamp < :to"),
+    @NamedQuery(name = Movement.CLEAR_PREVIOUS_MOVEMENT, query = "UPDATE Movement m SET m.previousMovement = NULL WHERE m.previousMovement.id in :moveIds"),
+    @NamedQuery(name = Movement.DELETE_ARCHIVED, query = "DELETE FROM Movement m WHERE m.id in :moveIds AND m.timestamp < :date"),
 })
 @NamedNativeQueries({
         @NamedNativeQuery(name = Movement.UPDATE_TO_NEW_MOVEMENTCONNECT, query = "WITH subRequest as (" +
@@ -66,20 +74,27 @@ import java.util.UUID;
                                                                                         "SET movementconnect_id = :newMC " +
                                                                                         "FROM subRequest " +
                                                                                         "WHERE m.id = subRequest.id"),
+        @NamedNativeQuery(name = Movement.FIND_LINES_FOR_TRACKS, query = "SELECT CAST(t.track_id AS text), ST_AsBinary(ST_MakeLine(t.location ORDER BY t.timestamp DESC)) " +
+                                                                            "FROM (SELECT m.track_id, m.location, m.timestamp, " +
+                                                                                    "ROW_NUMBER() OVER (PARTITION BY m.track_id ORDER BY m.timestamp DESC) AS rn " +
+                                                                                    "FROM movement.movement m WHERE m.track_id IN (:trackIds)) t " +
+                                                                            "WHERE t.rn <= :maxPoints " +
+                                                                            "GROUP BY t.track_id HAVING COUNT(*) > 1"),
 })
 @DynamicUpdate
 @DynamicInsert
 public class Movement implements Serializable, Comparable<Movement> {
 
     public static final String FIND_ALL_BY_TRACK = "Movement.findAllByTrack";
-    public static final String FIND_ALL_LOCATIONS_BY_TRACK = "Movement.findAllPointsByTrack";
     public static final String FIND_ALL_BY_MOVEMENTCONNECT = "Movement.findAllByMovementConnect";
     public static final String FIND_LATEST_BY_MOVEMENT_CONNECT = "Movement.findLatestByMovementConnect";
     public static final String FIND_PREVIOUS = "Movement.findPrevious";
     public static final String FIND_NEXT = "Movement.findNext";
     public static final String FIND_FIRST = "Movement.findFirst";
     public static final String FIND_EXISTING_DATE = "Movement.findExistingDate";
+    public static final String FIND_EXISTING_DATES = "Movement.findExistingDates";
     public static final String NR_OF_MOVEMENTS_FOR_ASSET_IN_TIMESPAN = "Movement.nrOfMovementsForAssetInTimespan";
+    public static final String FIND_TIMESTAMPS_FOR_ASSET_IN_TIMESPAN = "Movement.findTimestampsForAssetInTimespan";
     public static final String FIND_LATEST_SINCE = "Movement.findLatestSince";
     public static final String FIND_LATESTMOVEMENT_BY_MOVEMENT_CONNECT = "Movement.findLatestMovementByMovementConnect";
     public static final String FIND_LATESTMOVEMENT_BY_MOVEMENT_CONNECT_LIST = "Movement.findLatestMovementByMovementConnectList";
@@ -87,10 +102,18 @@ public class Movement implements Serializable, Comparable<Movement> {
     public static final String FIND_BY_PREVIOUS_MOVEMENT = "Movement.findByPreviousMovement";
     public static final String FIND_LATEST_X_NUMBER_FOR_ASSET = "Movement.findLatestXNumberForAsset";
     public static final String FIND_MOVEMENT_BY_ID_LIST = "Movement.findMovementByMovementIdList";
+    public static final String FIND_WITH_TRACK_BY_ID_LIST = "Movement.findWithTrackByIdList";
     public static final String FIND_ALL_FOR_ASSET_BETWEEN_DATES = "Movement.findAllForAssetBetweenDates";
+    public static final String FIND_MICRO_FOR_ASSET_BETWEEN_DATES = "Movement.findMicroForAssetBetweenDates";
     public static final String FIND_ALL_FOR_CONNECT_IDS_BETWEEN_DATES = "Movement.findAllForConnectIdsBetweenDates";
+    public static final String FIND_ARCHIVABLE = "Movement.findArchivable";
+    public static final String FIND_OLDEST_TIMESTAMP = "Movement.findOldestTimestamp";
+    public static final String FIND_CONNECT_IDS_BETWEEN_DATES = "Movement.findConnectIdsBetweenDates";
+    public static final String CLEAR_PREVIOUS_MOVEMENT = "Movement.clearPreviousMovement";
+    public static final String DELETE_ARCHIVED = "Movement.deleteArchived";
 
     public static final String UPDATE_TO_NEW_MOVEMENTCONNECT = "Movement.updateToNewMovementConnect";
+    public static final String FIND_LINES_FOR_TRACKS = "Movement.findLinesForTracks";
     
     private static final long serialVersionUID = 1L;
     
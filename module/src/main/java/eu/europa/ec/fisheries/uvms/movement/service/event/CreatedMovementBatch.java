@@ -0,0 +1,69 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.event;
+
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * The latest created movement per asset during one batching window, with each movement serialised once. Ids
+ * increase by one with every batch. The bits above SEQUENCE_BITS hold the epoch, which is picked at random when a
+ * node starts, so ids are only comparable with ids of the same epoch. An id from another node or from before a
+ * restart has a different epoch.
+ */
+public class CreatedMovementBatch {
+
+    public static final int SEQUENCE_BITS = 40;
+
+    private final long id;
+    private final List<MovementDto> movements;
+    private final List<String> json;
+
+    public CreatedMovementBatch(long id, List<MovementDto> movements, List<String> json) {
+        this.id = id;
+        this.movements = movements;
+        this.json = json;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public static long getEpoch(long id) {
+        return id >>> SEQUENCE_BITS;
+    }
+
+    public List<MovementDto> getMovements() {
+        return movements;
+    }
+
+    /**
+     * The matching movements as a JSON array, or null if none of them match.
+     */
+    public String getJsonArray(Predicate<MovementDto> filter) {
+        StringBuilder array = null;
+        for (int i = 0; i < movements.size(); i++) {
+            if (!filter.test(movements.get(i))) {
+                continue;
+            }
+            if (array == null) {
+                array = new StringBuilder(json.get(i).length() * (movements.size() - i) + 2).append('[');
+            } else {
+                array.append(',');
+            }
+            array.append(json.get(i));
+        }
+        return array == null ? null : array.append(']').toString();
+    }
+}
@@ -12,13 +12,12 @@ copy of the GNU General Public License along with the IFDM Suite. If not, see <h
 package eu.europa.ec.fisheries.uvms.movement.service.mapper;
 
 import eu.europa.ec.fisheries.schema.movement.v1.*;
-import eu.europa.ec.fisheries.uvms.movement.service.dto.SegmentCalculations;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.MovementConnect;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.Track;
-import eu.europa.ec.fisheries.uvms.movement.service.util.CalculationUtil;
+import eu.europa.ec.fisheries.uvms.movement.service.util.SegmentEngine;
 import eu.europa.ec.fisheries.uvms.movement.service.util.WKTUtil;
-import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
 
 import java.util.*;
@@ -109,32 +108,43 @@ public class MovementEntityToModelMapper {
         return null;
     }
     
+    /**
+     * The segments between the movements of one asset. The first movement also gets a segment from its previous
+     * movement when it has one, the previous movements of the others are not loaded.
+     */
     public static List<MovementSegment> mapToMovementSegment(List<Movement> movements, boolean excludeFirstAndLast) {
-        List<MovementSegment> mappedSegments = new ArrayList<>();
         Collections.sort(movements, (m1, m2) -> m1.getTimestamp().compareTo(m2.getTimestamp()));
-        for (Movement movement : movements) {
-            Movement previousMovement = movement.getPreviousMovement();
-            if (previousMovement != null) {
-                SegmentCalculations positionCalculations = CalculationUtil.getPositionCalculations(previousMovement, movement);
-                MovementSegment movSegment = new MovementSegment();
-                movSegment.setId(movement.getId().toString());
+        if (movements.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Movement previousMovement = movements.get(0).getPreviousMovement();
+        SegmentEngine engine = SegmentEngine.fromMovements(previousMovement, movements);
+        // Segment i ends at movement i, or at movement i + 1 without a leading segment
+        int offset = previousMovement != null ? 0 : 1;
+
+        List<MovementSegment> mappedSegments = new ArrayList<>(engine.getSegmentCount());
+        for (int i = 0; i < engine.getSegmentCount(); i++) {
+            Movement movement = movements.get(i + offset);
+            MovementSegment movSegment = new MovementSegment();
+            movSegment.setId(movement.getId().toString());
 //                movSegment.setCategory(SegmentCategoryType.OTHER); // TODO
+            if (movement.getTrack() != null) {
                 movSegment.setTrackId(movement.getTrack().getId().toString());
-                movSegment.setWkt(WKTUtil.getWktLineStringFromMovements(previousMovement, movement));
-                movSegment.setCourseOverGround(positionCalculations.getCourse());
-                movSegment.setSpeedOverGround(positionCalculations.getAvgSpeed());
-                movSegment.setDuration(positionCalculations.getDurationBetweenPoints());
-                movSegment.setDistance(positionCalculations.getDistanceBetweenPoints());
-                mappedSegments.add(movSegment);
             }
+            movSegment.setWkt(engine.getWkt(i));
+            movSegment.setCourseOverGround(engine.getCourse(i));
+            movSegment.setSpeedOverGround(engine.getSpeed(i));
+            movSegment.setDuration(engine.getDuration(i));
+            movSegment.setDistance(engine.getDistance(i));
+            mappedSegments.add(movSegment);
         }
-        if (excludeFirstAndLast && mappedSegments.size() >= movements.size()) {
+        if (excludeFirstAndLast && previousMovement != null) {
             return mappedSegments.subList(1, mappedSegments.size());
         }
         return mappedSegments;
     }
 
-    public static MovementTrack mapToMovementTrack(Track track, List<Geometry> points) {
+    public static MovementTrack mapToMovementTrack(Track track, LineString line) {
         MovementTrack movementTrack = new MovementTrack();
         if(track == null){
             return movementTrack;
@@ -142,8 +152,8 @@ public class MovementEntityToModelMapper {
         movementTrack.setDistance(track.getDistance());
         movementTrack.setDuration(track.getDuration());
         movementTrack.setTotalTimeAtSea(track.getTotalTimeAtSea());
-        if (points.size() > 1) {
-            movementTrack.setWkt(WKTUtil.getWktLineString(points));
+        if (line != null) {
+            movementTrack.setWkt(WKTUtil.getWktLineString(line));
         }
         movementTrack.setId(track.getId().toString());
         return movementTrack;
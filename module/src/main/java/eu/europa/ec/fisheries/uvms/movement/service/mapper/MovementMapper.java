@@ -20,6 +20,9 @@ import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
 import eu.europa.ec.fisheries.uvms.movement.service.dto.ManualMovementDto;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.IncomingMovement;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.MovementConnect;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -88,6 +91,31 @@ public class MovementMapper {
         return dto;
     }
 
+    /**
+     * A detached Movement for a dto, as read from the movement archive. It has no track or previous movement.
+     */
+    public static Movement mapToMovement(MovementDto dto, MovementConnect movementConnect) {
+        Movement movement = new Movement();
+        movement.setId(dto.getId());
+        Point point = new GeometryFactory().createPoint(new Coordinate(dto.getLocation().getLongitude(), dto.getLocation().getLatitude()));
+        point.setSRID(4326);
+        movement.setLocation(point);
+        movement.setSpeed(dto.getSpeed());
+        movement.setCalculatedSpeed(dto.getCalculatedSpeed());
+        movement.setHeading(dto.getHeading());
+        movement.setMovementConnect(movementConnect);
+        movement.setStatus(dto.getStatus());
+        movement.setSource(dto.getSource());
+        movement.setMovementType(dto.getMovementType());
+        movement.setTimestamp(dto.getTimestamp());
+        movement.setLesReportTime(dto.getLesReportTime());
+        movement.setSourceSatelliteId(dto.getSourceSatelliteId());
+        movement.setUpdated(dto.getUpdated());
+        movement.setUpdatedBy(dto.getUpdatedBy());
+        movement.setAisPositionAccuracy(dto.getAisPositionAccuracy());
+        return movement;
+    }
+
     public static IncomingMovement manualMovementToIncomingMovement(ManualMovementDto movement, String username) {
 
         IncomingMovement report = new IncomingMovement();
@@ -37,7 +37,7 @@ public enum SearchField implements SearchFieldType {
     /**
      * The value of the connected Object in MovementConnect
      */
-    CONNECT_ID("movementConnect", SearchTables.MOVEMENT, String.class),
+    CONNECT_ID("movementConnect.id", SearchTables.MOVEMENT, String.class),
     /**
      * The Type of movement
      */
@@ -18,6 +18,8 @@ import eu.europa.ec.fisheries.schema.movement.v1.MovementActivityTypeType;
 import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
 import eu.europa.ec.fisheries.schema.movement.v1.MovementTypeType;
 import eu.europa.ec.fisheries.schema.movement.v1.SegmentCategoryType;
+import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
+import eu.europa.ec.fisheries.uvms.movement.service.util.WKTUtil;
 import org.locationtech.jts.geom.Geometry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,16 +28,34 @@ import java.text.ParseException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 public class SearchFieldMapper {
 
     private static final Logger LOG = LoggerFactory.getLogger(SearchFieldMapper.class);
 
+    private static final String FROM_DATE = "fromDate";
+    private static final String TO_DATE = "toDate";
+    private static final String WKT = "wkt";
+    public static final String CURSOR_TIMESTAMP = "cursorTimestamp";
+    public static final String CURSOR_ID = "cursorId";
+    public static final String NUMBER_OF_REPORTS = "numberOfReports";
+    public static final String COUNT_CAP = "countCap";
+
+    // All values are bind parameters, so the JPQL only depends on which criteria keys are used
+    private static final int MAX_CACHED_QUERIES = 512;
+    private static final Map<String, String> QUERY_CACHE = new ConcurrentHashMap<>();
+
     /**
-     * Creates a search SQL based on the search fields
+     * Creates a search SQL based on the search fields. The values are bound
+     * with createSearchParameters
      *
      * @param searchFields
      * @param isDynamic
@@ -43,6 +63,10 @@ public class SearchFieldMapper {
      * @throws ParseException
      */
     public static String createSelectSearchSql(List<SearchValue> searchFields, boolean isDynamic) {
+        return getCachedQuery("SELECT", searchFields, isDynamic, () -> buildSelectSearchSql(searchFields, isDynamic));
+    }
+
+    private static String buildSelectSearchSql(List<SearchValue> searchFields, boolean isDynamic) {
         StringBuilder selectBuffer = new StringBuilder();
 
         selectBuffer.append(createInitSearchSql(SearchTables.MOVEMENT));
@@ -52,17 +76,21 @@ public class SearchFieldMapper {
             selectBuffer.append(createSearchSql(searchFields, isDynamic, true, false));
         }
 
+        // The id breaks ties, so that pages and reply chunks fetched with separate queries do not overlap
         selectBuffer
                 .append(" ORDER BY ")
                 .append(SearchTables.MOVEMENT.getTableAlias())
                 .append(".")
                 .append(SearchField.DATE.getFieldName())
-                .append(" DESC ");
+                .append(" DESC, ")
+                .append(SearchTables.MOVEMENT.getTableAlias())
+                .append(".id DESC ");
         return selectBuffer.toString();
     }
 
     /**
-     * Creates a search SQL based on the search fields
+     * Creates a search SQL based on the search fields. The values are bound
+     * with createSearchParameters
      *
      * @param searchFields
      * @param isDynamic
@@ -70,6 +98,10 @@ public class SearchFieldMapper {
      * @throws ParseException
      */
     public static String createMinimalSelectSearchSql(List<SearchValue> searchFields, boolean isDynamic) {
+        return getCachedQuery("MINIMAL", searchFields, isDynamic, () -> buildMinimalSelectSearchSql(searchFields, isDynamic));
+    }
+
+    private static String buildMinimalSelectSearchSql(List<SearchValue> searchFields, boolean isDynamic) {
         StringBuilder selectBuffer = new StringBuilder();
 
         selectBuffer.append(createInitSearchSql(SearchTables.MINIMAL_MOVEMENT));
@@ -89,6 +121,155 @@ public class SearchFieldMapper {
         return selectBuffer.toString();
     }
 
+    /**
+     * Creates a search SQL for keyset pagination, ordered on timestamp and id.
+     * If afterCursor is set the query only returns the movements that come
+     * after :cursorTimestamp and :cursorId, so a deep page costs the same as
+     * the first one
+     *
+     * @param searchFields
+     * @param isDynamic
+     * @param afterCursor
+     * @return
+     */
+    public static String createKeysetSelectSearchSql(List<SearchValue> searchFields, boolean isDynamic, boolean afterCursor) {
+        return getCachedQuery(afterCursor ? "KEYSET_AFTER" : "KEYSET", searchFields, isDynamic, () -> buildKeysetSelectSearchSql(searchFields, isDynamic, afterCursor));
+    }
+
+    private static String buildKeysetSelectSearchSql(List<SearchValue> searchFields, boolean isDynamic, boolean afterCursor) {
+        String alias = SearchTables.MOVEMENT.getTableAlias();
+        StringBuilder selectBuffer = new StringBuilder();
+
+        selectBuffer.append(createInitSearchSql(SearchTables.MOVEMENT));
+        selectBuffer.append(createInitFromSearchSql(SearchTables.MOVEMENT));
+
+        String keysetCondition = null;
+        if (afterCursor) {
+            keysetCondition = " ( " + alias + ".timestamp < :" + CURSOR_TIMESTAMP
+                    + " OR ( " + alias + ".timestamp = :" + CURSOR_TIMESTAMP + " AND " + alias + ".id < :" + CURSOR_ID + " ) ) ";
+        }
+        selectBuffer.append(createSearchSql(searchFields != null ? searchFields : Collections.emptyList(), isDynamic, true, false, keysetCondition));
+
+        selectBuffer
+                .append(" ORDER BY ")
+                .append(alias).append(".").append(SearchField.DATE.getFieldName()).append(" DESC, ")
+                .append(alias).append(".id DESC ");
+        LOG.debug("[ KEYSET SQL: ] " + selectBuffer.toString());
+        return selectBuffer.toString();
+    }
+
+    /**
+     * Creates a native SQL that returns the ids of the latest :numberOfReports
+     * movements per movement connect that match the search fields, in one
+     * query for the whole fleet. Each connect is looked up with a LATERAL join
+     * on the ( movementconnect_id, timestamp ) index
+     *
+     * Returns null if a search field has no column in the movement table, the
+     * caller then has to use the JPQL search instead. The values are bound
+     * with createNativeSearchParameters
+     *
+     * @param searchFields
+     * @return
+     */
+    public static String createLatestReportsSearchSql(List<SearchValue> searchFields) {
+        Map<SearchField, List<SearchValue>> orderedValues = combineSearchFields(searchFields != null ? searchFields : Collections.emptyList());
+        if (!hasNativeColumns(orderedValues)) {
+            return null;
+        }
+        return getCachedQuery("LATEST_REPORTS", searchFields, true, () -> buildLatestReportsSearchSql(orderedValues));
+    }
+
+    private static String buildLatestReportsSearchSql(Map<SearchField, List<SearchValue>> orderedValues) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SELECT CAST(latest.id AS text) FROM movement.movementconnect mc CROSS JOIN LATERAL ( ")
+                .append("SELECT m.id FROM movement.movement m WHERE m.movementconnect_id = mc.moveconn_id");
+        appendNativeConditions(builder, orderedValues, false);
+        builder.append(" ORDER BY m.timestamp DESC LIMIT :").append(NUMBER_OF_REPORTS).append(" ) latest");
+        if (orderedValues.containsKey(SearchField.CONNECT_ID)) {
+            builder.append(" WHERE mc.moveconn_id IN ( :").append(getParameterName(SearchField.CONNECT_ID)).append(" )");
+        }
+        LOG.debug("[ LATEST REPORTS SQL: ] " + builder.toString());
+        return builder.toString();
+    }
+
+    /**
+     * Creates a native SQL that counts the movements matching the search
+     * fields, reading no more than :countCap rows of the movement table
+     *
+     * Returns null if a search field has no column in the movement table, the
+     * caller then has to use createCappedIdSearchSql instead. The values are
+     * bound with createNativeSearchParameters
+     *
+     * @param searchFields
+     * @return
+     */
+    public static String createCappedCountSearchSql(List<SearchValue> searchFields) {
+        Map<SearchField, List<SearchValue>> orderedValues = combineSearchFields(searchFields != null ? searchFields : Collections.emptyList());
+        if (!hasNativeColumns(orderedValues)) {
+            return null;
+        }
+        return getCachedQuery("CAPPED_COUNT", searchFields, true, () -> buildCappedCountSearchSql(orderedValues));
+    }
+
+    private static String buildCappedCountSearchSql(Map<SearchField, List<SearchValue>> orderedValues) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SELECT count(*) FROM ( SELECT 1 FROM movement.movement m WHERE true");
+        appendNativeConditions(builder, orderedValues, true);
+        builder.append(" LIMIT :").append(COUNT_CAP).append(" ) capped");
+        LOG.debug("[ CAPPED COUNT SQL: ] " + builder.toString());
+        return builder.toString();
+    }
+
+    private static boolean hasNativeColumns(Map<SearchField, List<SearchValue>> orderedValues) {
+        for (Entry<SearchField, List<SearchValue>> criteria : orderedValues.entrySet()) {
+            if (getColumnName(criteria.getKey()) == null || (criteria.getValue().size() > 1 && criteria.getValue().get(0).isRange())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendNativeConditions(StringBuilder builder, Map<SearchField, List<SearchValue>> orderedValues, boolean withConnectId) {
+        for (Entry<SearchField, List<SearchValue>> criteria : orderedValues.entrySet()) {
+            if (!withConnectId && criteria.getKey().equals(SearchField.CONNECT_ID)) {
+                continue;
+            }
+            String column = "m." + getColumnName(criteria.getKey());
+            builder.append(" AND ");
+            if (criteria.getValue().size() > 1) {
+                builder.append(column).append(" IN ( :").append(getParameterName(criteria.getKey())).append(" )");
+            } else if (criteria.getValue().get(0).isRange()) {
+                builder.append(column).append(" BETWEEN :").append(getFromParameterName(criteria.getKey()))
+                        .append(" AND :").append(getToParameterName(criteria.getKey()));
+            } else {
+                builder.append(column).append(" = :").append(getParameterName(criteria.getKey()));
+            }
+        }
+    }
+
+    private static String getColumnName(SearchField field) {
+        switch (field) {
+            case MOVEMENT_ID:
+                return "id";
+            case CONNECT_ID:
+                return "movementconnect_id";
+            case TRACK_ID:
+                return "track_id";
+            case MOVMENT_TYPE:
+                return "movetype_id";
+            case SOURCE:
+                return "source_id";
+            case STATUS:
+                return "status";
+            case DATE:
+                return "timestamp";
+            case MOVEMENT_SPEED:
+                return "speed";
+            default:
+                return null;
+        }
+    }
+
     /**
      * Helper method that returns the initial select with the table aliases
      *
@@ -114,7 +295,7 @@ public class SearchFieldMapper {
     /**
      *
      * Creates a JPQL count query based on the search fields. This is used for
-     * when paginating lists
+     * when paginating lists. The values are bound with createSearchParameters
      *
      * @param searchFields
      * @param isDynamic
@@ -122,6 +303,38 @@ public class SearchFieldMapper {
      * @throws ParseException
      */
     public static String createCountSearchSql(List<SearchValue> searchFields, boolean isDynamic) {
+        return getCachedQuery("COUNT", searchFields, isDynamic, () -> buildCountSearchSql(searchFields, isDynamic));
+    }
+
+    /**
+     *
+     * Creates a JPQL query for the ids of the matching movements. Run with a
+     * max result it gives a count that never reads more than that many rows.
+     * Used for the searches createCappedCountSearchSql can not express
+     *
+     * @param searchFields
+     * @param isDynamic
+     * @return
+     */
+    public static String createCappedIdSearchSql(List<SearchValue> searchFields, boolean isDynamic) {
+        return getCachedQuery("CAPPED_IDS", searchFields, isDynamic, () -> buildCappedIdSearchSql(searchFields, isDynamic));
+    }
+
+    private static String buildCappedIdSearchSql(List<SearchValue> searchFields, boolean isDynamic) {
+        StringBuilder countBuffer = new StringBuilder();
+        countBuffer.append("SELECT ").append(SearchTables.MOVEMENT.getTableAlias()).append(".id FROM ")
+                .append(SearchTables.MOVEMENT.getTableName())
+                .append(" ")
+                .append(SearchTables.MOVEMENT.getTableAlias())
+                .append(" ");
+        if (searchFields != null && !searchFields.isEmpty()) {
+            countBuffer.append(createSearchSql(searchFields, isDynamic, false, false));
+        }
+        LOG.debug("[ CAPPED ID SQL: ] " + countBuffer.toString());
+        return countBuffer.toString();
+    }
+
+    private static String buildCountSearchSql(List<SearchValue> searchFields, boolean isDynamic) {
         StringBuilder countBuffer = new StringBuilder();
         countBuffer.append("SELECT COUNT( ").append(SearchTables.MOVEMENT.getTableAlias()).append(") FROM ")
                 .append(SearchTables.MOVEMENT.getTableName())
@@ -135,6 +348,156 @@ public class SearchFieldMapper {
         return countBuffer.toString();
     }
 
+    /**
+     *
+     * Returns the query for this combination of criteria keys, building it the
+     * first time it is asked for. The same query string lets Hibernate and the
+     * database reuse the query plan for every search of the same shape
+     *
+     * @param type
+     * @param searchFields
+     * @param isDynamic
+     * @param builder
+     * @return
+     */
+    private static String getCachedQuery(String type, List<SearchValue> searchFields, boolean isDynamic, Supplier<String> builder) {
+        String key = createQueryShapeKey(type, searchFields, isDynamic);
+        String query = QUERY_CACHE.get(key);
+        if (query == null) {
+            if (QUERY_CACHE.size() >= MAX_CACHED_QUERIES) {
+                QUERY_CACHE.clear();
+            }
+            query = QUERY_CACHE.computeIfAbsent(key, k -> builder.get());
+        }
+        return query;
+    }
+
+    /**
+     *
+     * The shape of a search is the set of criteria keys and whether each key
+     * has one value, several values or a range
+     *
+     * The resulting String = [ SELECT:AND:CONNECT_ID=N,DATE=R ]
+     *
+     * @param type
+     * @param searchFields
+     * @param isDynamic
+     * @return
+     */
+    private static String createQueryShapeKey(String type, List<SearchValue> searchFields, boolean isDynamic) {
+        StringBuilder key = new StringBuilder(type).append(isDynamic ? ":AND:" : ":OR:");
+        if (searchFields != null) {
+            for (Entry<SearchField, List<SearchValue>> entry : combineSearchFields(searchFields).entrySet()) {
+                key.append(entry.getKey().name()).append('=');
+                if (entry.getValue().size() > 1) {
+                    key.append('N');
+                } else {
+                    key.append(entry.getValue().get(0).isRange() ? 'R' : '1');
+                }
+                key.append(',');
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     *
+     * Creates the values for the named parameters in the queries from
+     * createSelectSearchSql, createMinimalSelectSearchSql and
+     * createCountSearchSql, converted to the type of the entity field
+     *
+     * @param searchFields
+     * @return
+     */
+    public static Map<String, Object> createSearchParameters(List<SearchValue> searchFields) {
+        Map<String, Object> parameters = new HashMap<>();
+        for (Entry<SearchField, List<SearchValue>> entry : combineSearchFields(searchFields).entrySet()) {
+            SearchField field = entry.getKey();
+            List<SearchValue> values = entry.getValue();
+            if (values.size() > 1) {
+                List<Object> parameterValues = new ArrayList<>(values.size());
+                for (SearchValue value : values) {
+                    if (value.getValue() != null) {
+                        parameterValues.add(getParameterValue(field, value.getValue()));
+                    }
+                }
+                parameters.put(getParameterName(field), parameterValues);
+            } else if (values.get(0).isRange()) {
+                parameters.put(getFromParameterName(field), getParameterValue(field, values.get(0).getFromValue()));
+                parameters.put(getToParameterName(field), getParameterValue(field, values.get(0).getToValue()));
+            } else {
+                parameters.put(getParameterName(field), getParameterValue(field, values.get(0).getValue()));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     *
+     * Creates the values for the named parameters in the native queries from
+     * createLatestReportsSearchSql and createCappedCountSearchSql. Enums are
+     * stored as ordinals
+     *
+     * @param searchFields
+     * @return
+     */
+    public static Map<String, Object> createNativeSearchParameters(List<SearchValue> searchFields) {
+        Map<String, Object> parameters = createSearchParameters(searchFields);
+        parameters.replaceAll((name, value) -> {
+            if (value instanceof Enum) {
+                return ((Enum<?>) value).ordinal();
+            } else if (value instanceof List) {
+                List<Object> values = new ArrayList<>();
+                for (Object listValue : (List<?>) value) {
+                    values.add(listValue instanceof Enum ? ((Enum<?>) listValue).ordinal() : listValue);
+                }
+                return values;
+            }
+            return value;
+        });
+        return parameters;
+    }
+
+    private static Object getParameterValue(SearchField field, String value) {
+        switch (field) {
+            case MOVEMENT_ID:
+            case TRACK_ID:
+            case CONNECT_ID:
+                return UUID.fromString(value);
+            case MOVMENT_TYPE:
+                return MovementTypeType.fromValue(value);
+            case SOURCE:
+                return MovementSourceType.fromValue(value);
+            case CATEGORY:
+                return SegmentCategoryType.fromValue(value);
+            case DATE:
+                return DateUtils.stringToDate(value);
+            case AREA:
+                return WKTUtil.getGeometryFromWKTSrring(value);
+            case MOVEMENT_SPEED:
+                return Float.valueOf(value);
+            default:
+                if (field.getClazz().isAssignableFrom(Double.class)) {
+                    return Double.valueOf(value);
+                } else if (field.getClazz().isAssignableFrom(Integer.class)) {
+                    return Integer.valueOf(value);
+                }
+                return value;
+        }
+    }
+
+    private static String getParameterName(SearchField field) {
+        return field.equals(SearchField.AREA) ? WKT : field.name().toLowerCase();
+    }
+
+    private static String getFromParameterName(SearchField field) {
+        return field.equals(SearchField.DATE) ? FROM_DATE : field.name().toLowerCase() + "_from";
+    }
+
+    private static String getToParameterName(SearchField field) {
+        return field.equals(SearchField.DATE) ? TO_DATE : field.name().toLowerCase() + "_to";
+    }
+
     /**
      *
      * Creates the complete search SQL with joins and sets the values based on
@@ -146,6 +509,22 @@ public class SearchFieldMapper {
      * @throws ParseException
      */
     private static String createSearchSql(List<SearchValue> criterias, boolean dynamic, boolean joinFetch, boolean minimal) {
+        return createSearchSql(criterias, dynamic, joinFetch, minimal, null);
+    }
+
+    /**
+     *
+     * Creates the complete search SQL like above, with an extra condition
+     * that must hold regardless of the operator between the criterias
+     *
+     * @param criterias
+     * @param dynamic
+     * @param joinFetch
+     * @param minimal
+     * @param extraCondition
+     * @return
+     */
+    private static String createSearchSql(List<SearchValue> criterias, boolean dynamic, boolean joinFetch, boolean minimal, String extraCondition) {
 
         String OPERATOR = " OR ";
         if (dynamic) {
@@ -154,7 +533,7 @@ public class SearchFieldMapper {
 
         StringBuilder builder = new StringBuilder();
 
-        HashMap<SearchField, List<SearchValue>> orderedValues = combineSearchFields(criterias);
+        Map<SearchField, List<SearchValue>> orderedValues = combineSearchFields(criterias);
 
         String joinStr = minimal ? buildMinimalJoin(orderedValues, joinFetch) : buildJoin(orderedValues, joinFetch);
         builder.append(joinStr);
@@ -162,6 +541,9 @@ public class SearchFieldMapper {
         if (!orderedValues.isEmpty()) {
 
             builder.append(" WHERE ");
+            if (extraCondition != null) {
+                builder.append(" ( ");
+            }
 
             boolean first = true;
             boolean containsSpecialConditions = checkValidSingleAttributes(orderedValues);
@@ -176,6 +558,11 @@ public class SearchFieldMapper {
             if (containsSpecialConditions) {
                 builder.append(buildSpecialConditionSql(orderedValues, first, OPERATOR));
             }
+            if (extraCondition != null) {
+                builder.append(" ) AND ").append(extraCondition);
+            }
+        } else if (extraCondition != null) {
+            builder.append(" WHERE ").append(extraCondition);
         }
         return builder.toString();
     }
@@ -232,7 +619,7 @@ public class SearchFieldMapper {
     /**
      * Build special occasion WHERE String
      */
-    private static String buildSpecialConditionSql(HashMap<SearchField, List<SearchValue>> orderedValues, boolean first, String operator) {
+    private static String buildSpecialConditionSql(Map<SearchField, List<SearchValue>> orderedValues, boolean first, String operator) {
 
         StringBuilder builder = new StringBuilder();
 
@@ -294,7 +681,7 @@ public class SearchFieldMapper {
      * Helper method to check search fields that must be handled specially
      * exists in the search criteria
      */
-    private static boolean checkValidSingleAttributes(HashMap<SearchField, List<SearchValue>> orderedValues) {
+    private static boolean checkValidSingleAttributes(Map<SearchField, List<SearchValue>> orderedValues) {
         return orderedValues.containsKey(SearchField.CATEGORY)
                 || orderedValues.containsKey(SearchField.SEGMENT_ID)
                 || orderedValues.containsKey(SearchField.SEGMENT_LENGTH)
@@ -339,7 +726,7 @@ public class SearchFieldMapper {
      * @return
      */
     // TODO: There are some typos in the return value. Check if these has impact on expected result.
-    private static String buildJoin(HashMap<SearchField, List<SearchValue>> orderedValues, boolean fetch) {
+    private static String buildJoin(Map<SearchField, List<SearchValue>> orderedValues, boolean fetch) {
         return getJoin(fetch, JoinType.INNER) + SearchTables.MOVEMENT.getTableAlias() + "." + "movementConnect " + SearchTables.MOVEMENT_CONNECT.getTableAlias() + " " +
                 getJoin(fetch, JoinType.LEFT) + SearchTables.MOVEMENT.getTableAlias() + "." + "track " + SearchTables.TRACK.getTableAlias() + " ";
     }
@@ -352,7 +739,7 @@ public class SearchFieldMapper {
      * @param fetch
      * @return
      */
-    private static String buildMinimalJoin(HashMap<SearchField, List<SearchValue>> orderedValues, boolean fetch) {
+    private static String buildMinimalJoin(Map<SearchField, List<SearchValue>> orderedValues, boolean fetch) {
         return getJoin(fetch, JoinType.INNER) + SearchTables.MOVEMENT.getTableAlias() + "." + "movementConnect " + SearchTables.MOVEMENT_CONNECT.getTableAlias() + " ";
     }
 
@@ -376,25 +763,23 @@ public class SearchFieldMapper {
 
         if (entry.isRange()) {
             if (clazz.isAssignableFrom(Instant.class)) {
-                builder.append(" BETWEEN ").append(":fromDate ").append(" AND ").append(":toDate ");
+                builder.append(" BETWEEN ").append(":").append(FROM_DATE).append(" ").append(" AND ").append(":").append(TO_DATE).append(" ");
             } else if (clazz.isAssignableFrom(Double.class) || clazz.isAssignableFrom(Integer.class)) {
                 builder.append(" ( ").append(buildTableAliasname(entry.getField()));
-                builder.append(" >= ").append(entry.getFromValue());
+                builder.append(" >= :").append(getFromParameterName(entry.getField()));
                 builder.append(" AND ");
                 builder.append(buildTableAliasname(entry.getField()));
-                builder.append(" <= ").append(entry.getToValue()).append(" ) ");
+                builder.append(" <= :").append(getToParameterName(entry.getField())).append(" ) ");
             } else {
                 throw new IllegalArgumentException("Error when setting value as type: Only Date, Integer and Double are supported when the entry is a range query ( setValueAsType )");
             }
         } else {
-            if (clazz.isEnum()) {
-                builder.append(" = ").append(getOrdinalValueFromEnum(entry));
-            } else if (clazz.isAssignableFrom(Geometry.class)) {
+            if (clazz.isAssignableFrom(Geometry.class)) {
                 builder.append(" WITHIN( ")
                         .append("geometry(").append(buildTableAliasname(entry.getField())).append(")")
-                        .append(", ").append(":wkt").append(" ) = true ");
+                        .append(", :").append(WKT).append(" ) = true ");
             } else {
-                builder.append(" = ").append(buildValueFromClassType(entry));
+                builder.append(" = :").append(getParameterName(entry.getField()));
             }
         }
         return builder.toString();
@@ -421,31 +806,27 @@ public class SearchFieldMapper {
 
         if (entry.isRange()) {
             if (clazz.isAssignableFrom(Instant.class)) {
-                builder.append(" BETWEEN ").append(":fromDate ").append(" AND ").append(":toDate ");
+                builder.append(" BETWEEN ").append(":").append(FROM_DATE).append(" ").append(" AND ").append(":").append(TO_DATE).append(" ");
             } else if (clazz.isAssignableFrom(Double.class) || clazz.isAssignableFrom(Integer.class)) {
                 builder
                         .append(" ( ").append(buildTableAliasname(type))
-                        .append(" >= ").append(entry.getFromValue())
+                        .append(" >= :").append(getFromParameterName(entry.getField()))
                         .append(" AND ")
                         .append(buildTableAliasname(type))
-                        .append(" <= ").append(entry.getToValue()).append(" ) ");
+                        .append(" <= :").append(getToParameterName(entry.getField())).append(" ) ");
             } else {
                 throw new IllegalArgumentException("Error when setting value as type: Only Date, " +
                         "Integer and Double are supported when the entry is a range query ( setValueAsType )");
             }
         } else {
 
-            if (entry.getField().getClazz().isEnum()) {
-                builder.append(" = ").append(getOrdinalValueFromEnum(entry));
-            }
-
             if (clazz.isAssignableFrom(Geometry.class)) {
                 builder.append(" WITHIN( ")
                         .append(buildTableAliasname(entry.getField()))
-                        .append(", ").append(":wkt").append(" ) = true ");
+                        .append(", :").append(WKT).append(" ) = true ");
+            } else {
+                builder.append(" = :").append(getParameterName(entry.getField()));
             }
-
-            builder.append(" = ").append(buildValueFromClassType(entry));
         }
 
         return builder.toString();
@@ -486,33 +867,10 @@ public class SearchFieldMapper {
 
     /**
      *
-     * Returns the representation of the value
-     *
-     * if Integer [ value ] else [ 'value' ]
-     *
-     *
-     * @param entry
-     * @return
-     */
-    private static String buildValueFromClassType(SearchValue entry) {
-        StringBuilder builder = new StringBuilder();
-        if (entry.getField().getClazz().isAssignableFrom(Integer.class)) {
-            builder.append(entry.getValue());
-        } else if (entry.getField().getClazz().isAssignableFrom(Double.class)) {
-            builder.append(entry.getValue());
-        } else if (entry.getField().getClazz().isEnum()) {
-            builder.append(getOrdinalValueFromEnum(entry));
-        } else {
-            builder.append("'").append(entry.getValue()).append("'");
-        }
-        return builder.toString();
-    }
-
-    /**
-     *
-     * Builds an IN JPQL representation for lists of values
+     * Builds an IN JPQL representation for lists of values. The values are
+     * bound as one collection parameter
      *
-     * The resulting String = [ mc.in IN ( 'ABC123', 'ABC321' ) ]
+     * The resulting String = [ m.status IN ( :status ) ]
      *
      *
      * @param searchValues
@@ -524,30 +882,20 @@ public class SearchFieldMapper {
 
         builder.append(buildTableAliasname(field));
 
-        builder.append(" IN ( ");
-        boolean first = true;
-        for (SearchValue searchValue : searchValues) {
-            if (first) {
-                first = false;
-                builder.append(buildValueFromClassType(searchValue));
-            } else {
-                builder.append(", ").append(buildValueFromClassType(searchValue));
-            }
-        }
-        builder.append(" )");
+        builder.append(" IN ( :").append(getParameterName(searchValues.get(0).getField())).append(" )");
         return builder.toString();
     }
 
     /**
      *
      * Takes all the search values and categorizes them in lists to a key
-     * according to the SearchField
+     * according to the SearchField, in the order of the SearchField enum
      *
      * @param searchValues
      * @return
      */
-    private static HashMap<SearchField, List<SearchValue>> combineSearchFields(List<SearchValue> searchValues) {
-        HashMap<SearchField, List<SearchValue>> values = new HashMap<>();
+    private static Map<SearchField, List<SearchValue>> combineSearchFields(List<SearchValue> searchValues) {
+        Map<SearchField, List<SearchValue>> values = new EnumMap<>(SearchField.class);
         for (SearchValue search : searchValues) {
             if (values.containsKey(search.getField())) {
                 values.get(search.getField()).add(search);
@@ -0,0 +1,46 @@
+package eu.europa.ec.fisheries.uvms.movement.service.message;
+
+import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+import eu.europa.ec.fisheries.uvms.movement.service.bean.AssetEnrichmentCache;
+import eu.europa.ec.fisheries.uvms.movement.service.bean.LatestMovementsSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.MessageDriven;
+import javax.inject.Inject;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+
+/**
+ * Clears the cached asset information when Asset publishes a change to an asset or mobile terminal on the event stream.
+ */
+@MessageDriven(activationConfig = {
+        @ActivationConfigProperty(propertyName = "destinationLookup", propertyValue = MessageConstants.EVENT_STREAM_TOPIC),
+        @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "javax.jms.Topic"),
+        @ActivationConfigProperty(propertyName = "messageSelector", propertyValue = MessageConstants.EVENT_STREAM_EVENT + " <> 'Movement'")})
+public class AssetEventConsumerBean implements MessageListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AssetEventConsumerBean.class);
+
+    @Inject
+    private AssetEnrichmentCache assetEnrichmentCache;
+
+    @Inject
+    private LatestMovementsSnapshot latestMovementsSnapshot;
+
+    @Override
+    public void onMessage(Message message) {
+        try {
+            String event = message.getStringProperty(MessageConstants.EVENT_STREAM_EVENT);
+            if (event != null && (event.contains("Asset") || event.contains("MobileTerminal"))) {
+                LOG.debug("Got event {}, clearing cached asset information", event);
+                assetEnrichmentCache.invalidateAll();
+                latestMovementsSnapshot.invalidateAssetInfo();
+            }
+        } catch (JMSException e) {
+            LOG.error("Could not read event stream message", e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.message;
+
+import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementListByQueryResponse;
+import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementMapByQueryResponse;
+import eu.europa.ec.fisheries.schema.movement.search.v1.MovementMapResponseType;
+import eu.europa.ec.fisheries.schema.movement.search.v1.MovementQuery;
+import eu.europa.ec.fisheries.uvms.movement.model.mapper.ChunkedReplyMapper;
+import eu.europa.ec.fisheries.uvms.movement.service.bean.MovementService;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.jms.JMSException;
+import javax.jms.TextMessage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends MOVEMENT_LIST and MOVEMENT_MAP responses as a sequence of gzipped chunks through the MovementProducer, see
+ * ChunkedReplyMapper. Only one chunk is marshalled at a time, so a large response is never held as one XML document.
+ * All chunks are sent in the request's transaction, a failure part way rolls back the chunks already sent and the
+ * redelivered request sends the whole reply again.
+ *
+ * A movement list is fetched from the database chunk by chunk, so at most one chunk of movements is in memory. A
+ * movement map is not: segments and tracks are built from all movements of an asset, so the whole map is still
+ * loaded and mapped before the first chunk is sent, and only its sent parts are released. The memory a map reply
+ * needs grows with the number of movements the query matches.
+ */
+@Stateless
+public class ChunkedReplyProducer {
+
+    static final int MOVEMENTS_PER_CHUNK = 500;
+
+    @Inject
+    private MovementProducer movementProducer;
+
+    @Inject
+    private MovementService movementService;
+
+    /**
+     * Sends the page of the query in chunks of MOVEMENTS_PER_CHUNK, each chunk fetched just before it is sent.
+     */
+    public void sendMovementList(TextMessage request, MovementQuery query) throws JMSException {
+        int count = movementService.getListChunkCount(query, MOVEMENTS_PER_CHUNK);
+        for (int index = 0; index < count; index++) {
+            GetMovementListByQueryResponse chunk = new GetMovementListByQueryResponse();
+            chunk.getMovement().addAll(movementService.getListChunk(query, index, MOVEMENTS_PER_CHUNK));
+            movementProducer.sendResponseChunkToSender(request, ChunkedReplyMapper.compress(chunk), index, count);
+        }
+    }
+
+    /**
+     * Sends the assets in chunks of about MOVEMENTS_PER_CHUNK movements, segments and tracks. An asset is never split
+     * over two chunks. The entries of the list are released while it is sent.
+     */
+    public void sendMovementMap(TextMessage request, List<MovementMapResponseType> movementMap) throws JMSException {
+        List<Integer> chunkEnds = getChunkEnds(movementMap);
+        int start = 0;
+        for (int index = 0; index < chunkEnds.size(); index++) {
+            GetMovementMapByQueryResponse chunk = new GetMovementMapByQueryResponse();
+            for (int i = start; i < chunkEnds.get(index); i++) {
+                chunk.getMovementMap().add(movementMap.set(i, null));
+            }
+            start = chunkEnds.get(index);
+            movementProducer.sendResponseChunkToSender(request, ChunkedReplyMapper.compress(chunk), index, chunkEnds.size());
+        }
+        movementMap.clear();
+    }
+
+    /**
+     * The end index, exclusive, of each chunk of the map. The chunk count is sent with every chunk, so all
+     * chunks are planned before the first one is sent.
+     */
+    static List<Integer> getChunkEnds(List<MovementMapResponseType> movementMap) {
+        List<Integer> chunkEnds = new ArrayList<>();
+        int size = 0;
+        for (int i = 0; i < movementMap.size(); i++) {
+            MovementMapResponseType asset = movementMap.get(i);
+            int assetSize = Math.max(1, asset.getMovements().size() + asset.getSegments().size() + asset.getTracks().size());
+            if (size > 0 && size + assetSize > MOVEMENTS_PER_CHUNK) {
+                chunkEnds.add(i);
+                size = 0;
+            }
+            size += assetSize;
+        }
+        // An empty map is sent as one empty chunk
+        chunkEnds.add(movementMap.size());
+        return chunkEnds;
+    }
+}
@@ -1,10 +1,14 @@
 package eu.europa.ec.fisheries.uvms.movement.service.message;
 
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
 import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
 import eu.europa.ec.fisheries.uvms.commons.message.context.MappedDiagnosticContext;
+import eu.europa.ec.fisheries.uvms.config.service.ParameterService;
 import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.service.constant.ParameterKey;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
 import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovement;
+import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovementBatch;
 import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementMapper;
 import eu.europa.ec.fisheries.uvms.movement.service.util.JsonBConfiguratorMovement;
 import org.slf4j.Logger;
@@ -12,18 +16,31 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.enterprise.event.Observes;
 import javax.enterprise.event.TransactionPhase;
 import javax.inject.Inject;
 import javax.jms.*;
 import javax.json.bind.Jsonb;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Sends the created movements to the event stream topic as one Movement message per movement. With the
+ * movement.event.stream.batched setting a Movements message per batching window and movement source is sent as
+ * well, a JSON array of the latest movement per asset.
+ */
 @Stateless
 public class EventStreamSender {
 
     private static final Logger LOG = LoggerFactory.getLogger(EventStreamSender.class);
 
+    public static final String EVENT_ID_PROPERTY = "EVENT_ID";
+
+    private static final long SETTING_REFRESH_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
     @Resource(mappedName = "java:/" + MessageConstants.EVENT_STREAM_TOPIC)
     private Destination destination;
 
@@ -31,8 +48,14 @@ public class EventStreamSender {
     @JMSConnectionFactory("java:/ConnectionFactory")
     JMSContext context;
 
+    @EJB
+    private ParameterService parameterService;
+
     private Jsonb jsonb;
 
+    private boolean batched;
+    private long batchedReadAt;
+
     @PostConstruct
     public void init() {
         jsonb = new JsonBConfiguratorMovement().getContext(null);
@@ -58,4 +81,47 @@ public class EventStreamSender {
             throw new RuntimeException(e);
         }
     }
+
+    public void createdMovements(@Observes CreatedMovementBatch batch){
+        if (!isBatched()) {
+            return;
+        }
+        try {
+            Set<MovementSourceType> sources = new LinkedHashSet<>();
+            for (MovementDto movement : batch.getMovements()) {
+                sources.add(movement.getSource());
+            }
+            JMSProducer producer = context.createProducer().setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+            for (MovementSourceType source : sources) {
+                String outgoingJson = batch.getJsonArray(movement -> movement.getSource() == source);
+
+                TextMessage message = this.context.createTextMessage(outgoingJson);
+                message.setStringProperty(MessageConstants.EVENT_STREAM_EVENT, "Movements");
+                message.setStringProperty(MessageConstants.EVENT_STREAM_SUBSCRIBER_LIST, null);
+                message.setStringProperty(MessageConstants.EVENT_STREAM_MOVEMENT_SOURCE, source == null ? null : source.value());
+                message.setLongProperty(EVENT_ID_PROPERTY, batch.getId());
+                MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
+
+                producer.send(destination, message);
+            }
+        }catch (Exception e){
+            // Not rethrown, the other observers of the batch should still get it
+            LOG.error("Error while sending batched update event to event stream topic: ", e);
+        }
+    }
+
+    private boolean isBatched() {
+        long now = System.currentTimeMillis();
+        if (now - batchedReadAt < SETTING_REFRESH_MILLIS) {
+            return batched;
+        }
+        batchedReadAt = now;
+        try {
+            batched = Boolean.parseBoolean(parameterService.getStringValue(ParameterKey.EVENT_STREAM_BATCHED.getKey()));
+        } catch (Exception e) {
+            LOG.debug("No {} setting, batched events are not sent", ParameterKey.EVENT_STREAM_BATCHED.getKey());
+            batched = false;
+        }
+        return batched;
+    }
 }
@@ -5,14 +5,21 @@ import eu.europa.ec.fisheries.schema.exchange.module.v1.ProcessedMovementRespons
 import eu.europa.ec.fisheries.schema.exchange.movement.v1.MovementRefType;
 import eu.europa.ec.fisheries.schema.exchange.movement.v1.MovementRefTypeType;
 import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+import eu.europa.ec.fisheries.uvms.commons.message.context.MappedDiagnosticContext;
 import eu.europa.ec.fisheries.uvms.commons.message.impl.AbstractProducer;
 import eu.europa.ec.fisheries.uvms.exchange.model.mapper.JAXBMarshaller;
 
 import javax.annotation.Resource;
 import javax.ejb.Stateless;
+import javax.inject.Inject;
 import javax.jms.Destination;
+import javax.jms.JMSConnectionFactory;
+import javax.jms.JMSContext;
 import javax.jms.JMSException;
+import javax.jms.JMSProducer;
 import javax.jms.Queue;
+import javax.jms.TextMessage;
+import java.util.List;
 import java.util.UUID;
 
 @Stateless
@@ -24,19 +31,51 @@ public class ExchangeBean extends AbstractProducer {
     @Resource(mappedName = "java:/" + MessageConstants.QUEUE_EXCHANGE_EVENT)
     private Destination destination;
 
+    @Inject
+    @JMSConnectionFactory("java:/ConnectionFactory")
+    private JMSContext context;
+
     public void sendAckToExchange(MovementRefTypeType refType, UUID refGuid, String ackResponseMessageId) throws JMSException {
         if (ackResponseMessageId == null) {
             return;
         }
-        ProcessedMovementResponse processedMovementResponse = new ProcessedMovementResponse();
-        processedMovementResponse.setMethod(ExchangeModuleMethod.PROCESSED_MOVEMENT);
-        processedMovementResponse.setUsername("");
+        send(createProcessedMovementResponse(createMovementRef(refType, refGuid, ackResponseMessageId)));
+    }
+
+    /**
+     * Sends one ack per movement reference over a single producer. References without an ack id are skipped.
+     */
+    public void sendAcksToExchange(List<MovementRefType> movementRefs) throws JMSException {
+        JMSProducer producer = null;
+        for (MovementRefType movementRef : movementRefs) {
+            if (movementRef.getAckResponseMessageID() == null) {
+                continue;
+            }
+            if (producer == null) {
+                producer = context.createProducer();
+            }
+            ProcessedMovementResponse processedMovementResponse = createProcessedMovementResponse(movementRef);
+            TextMessage message = context.createTextMessage(JAXBMarshaller.marshallJaxBObjectToString(processedMovementResponse));
+            message.setStringProperty(MessageConstants.JMS_FUNCTION_PROPERTY, processedMovementResponse.getMethod().toString());
+            MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
+            producer.send(getDestination(), message);
+        }
+    }
+
+    public static MovementRefType createMovementRef(MovementRefTypeType refType, UUID refGuid, String ackResponseMessageId) {
         MovementRefType movementRefType = new MovementRefType();
         movementRefType.setAckResponseMessageID(ackResponseMessageId);
         movementRefType.setType(refType);
         movementRefType.setMovementRefGuid(refGuid.toString());
+        return movementRefType;
+    }
+
+    private ProcessedMovementResponse createProcessedMovementResponse(MovementRefType movementRefType) {
+        ProcessedMovementResponse processedMovementResponse = new ProcessedMovementResponse();
+        processedMovementResponse.setMethod(ExchangeModuleMethod.PROCESSED_MOVEMENT);
+        processedMovementResponse.setUsername("");
         processedMovementResponse.setMovementRefType(movementRefType);
-        send(processedMovementResponse);
+        return processedMovementResponse;
     }
     
     public void send(ProcessedMovementResponse processedMovementResponse) throws JMSException {
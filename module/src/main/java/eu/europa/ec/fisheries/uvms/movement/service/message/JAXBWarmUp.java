@@ -0,0 +1,59 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.message;
+
+import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementListByQueryRequest;
+import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementListByQueryResponse;
+import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementMapByQueryRequest;
+import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementMapByQueryResponse;
+import eu.europa.ec.fisheries.schema.movement.module.v1.MovementBaseRequest;
+import eu.europa.ec.fisheries.schema.movement.module.v1.PingResponse;
+import eu.europa.ec.fisheries.uvms.movement.model.mapper.JAXBMarshaller;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+
+/**
+ * Creates the JAXBContexts of the JMS requests and replies at startup instead of on the first message.
+ */
+@Singleton
+@Startup
+public class JAXBWarmUp {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JAXBWarmUp.class);
+
+    @Resource
+    private TimerService timerService;
+
+    @PostConstruct
+    public void init() {
+        // In a timer so that deployment does not wait for it
+        timerService.createSingleActionTimer(0, new TimerConfig(null, false));
+    }
+
+    @Timeout
+    public void warmUp() {
+        long before = System.currentTimeMillis();
+        JAXBMarshaller.warmUp(MovementBaseRequest.class,
+                GetMovementListByQueryRequest.class, GetMovementListByQueryResponse.class,
+                GetMovementMapByQueryRequest.class, GetMovementMapByQueryResponse.class,
+                PingResponse.class);
+        LOG.info("Created JAXB contexts in {} ms", System.currentTimeMillis() - before);
+    }
+}
@@ -61,9 +61,7 @@ public class MovementCreateConsumerBean implements MessageListener {
 
                     case "CREATE_BATCH" :
                         List<IncomingMovement> movementList = jsonb.fromJson(textMessage.getText(), new ArrayList<IncomingMovement>(){}.getClass().getGenericSuperclass());
-                        for (IncomingMovement im: movementList) {
-                            movementCreate.processIncomingMovement(im);
-                        }
+                        movementCreate.processIncomingMovementBatch(movementList);
                         break;
                     case "PING":
                         movementEventBean.ping(textMessage);
@@ -16,6 +16,7 @@ import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementMapByQueryReq
 import eu.europa.ec.fisheries.schema.movement.module.v1.PingResponse;
 import eu.europa.ec.fisheries.schema.movement.source.v1.GetMovementMapByQueryResponse;
 import eu.europa.ec.fisheries.uvms.movement.model.GetMovementListByQueryResponse;
+import eu.europa.ec.fisheries.uvms.movement.model.mapper.ChunkedReplyMapper;
 import eu.europa.ec.fisheries.uvms.movement.model.mapper.JAXBMarshaller;
 import eu.europa.ec.fisheries.uvms.movement.model.mapper.MovementModuleResponseMapper;
 import eu.europa.ec.fisheries.uvms.movement.service.bean.MovementService;
@@ -42,6 +43,9 @@ public class MovementEventBean {
     @Inject
     private MovementProducer messageProducer;
 
+    @Inject
+    private ChunkedReplyProducer chunkedReplyProducer;
+
     @Inject
     @ErrorEvent
     private Event<EventMessage> errorEvent;
@@ -50,9 +54,13 @@ public class MovementEventBean {
     public void getMovementListByQuery(TextMessage jmsMessage) {
         try {
             GetMovementListByQueryRequest request = JAXBMarshaller.unmarshallTextMessage(jmsMessage, GetMovementListByQueryRequest.class);
-            GetMovementListByQueryResponse movementList = movementService.getList(request.getQuery());
-            String responseString = MovementModuleResponseMapper.mapTogetMovementListByQueryResponse(movementList.getMovement());
-            messageProducer.sendResponseMessageToSender(jmsMessage, responseString);
+            if (ChunkedReplyMapper.isChunkedReplyRequested(jmsMessage)) {
+                chunkedReplyProducer.sendMovementList(jmsMessage, request.getQuery());
+            } else {
+                GetMovementListByQueryResponse movementList = movementService.getList(request.getQuery());
+                String responseString = MovementModuleResponseMapper.mapTogetMovementListByQueryResponse(movementList.getMovement());
+                messageProducer.sendResponseMessageToSender(jmsMessage, responseString);
+            }
             LOG.info("Response sent back to requestor on queue [ {} ]", jmsMessage!= null ? jmsMessage.getJMSReplyTo() : "Null!!!");
         } catch (Exception ex) {
             LOG.error("[ Error on getMovementListByQuery ] ", ex);
@@ -69,9 +77,12 @@ public class MovementEventBean {
             LOG.info("Get Movement By Query Received.. processing request in MovementEventServiceBean : {}", jmsMessage.getText());
             GetMovementMapByQueryRequest request = JAXBMarshaller.unmarshallTextMessage(jmsMessage, GetMovementMapByQueryRequest.class);
             GetMovementMapByQueryResponse movementList = movementService.getMapByQuery(request.getQuery());
-            String responseString = MovementModuleResponseMapper.mapToMovementMapResponse(movementList.getMovementMap());
-
-            messageProducer.sendResponseMessageToSender(jmsMessage, responseString);
+            if (ChunkedReplyMapper.isChunkedReplyRequested(jmsMessage)) {
+                chunkedReplyProducer.sendMovementMap(jmsMessage, movementList.getMovementMap());
+            } else {
+                String responseString = MovementModuleResponseMapper.mapToMovementMapResponse(movementList.getMovementMap());
+                messageProducer.sendResponseMessageToSender(jmsMessage, responseString);
+            }
             LOG.info("Response sent back to requestor on queue [ {} ]", jmsMessage!= null ? jmsMessage.getJMSReplyTo() : "Null!!!");
         } catch (Exception ex) {
             LOG.error("[ Error when creating getMovementMapByQuery ] ", ex);
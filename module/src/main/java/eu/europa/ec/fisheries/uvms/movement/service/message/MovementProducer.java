@@ -12,12 +12,20 @@ copy of the GNU General Public License along with the IFDM Suite. If not, see <h
 package eu.europa.ec.fisheries.uvms.movement.service.message;
 
 import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+import eu.europa.ec.fisheries.uvms.commons.message.context.MappedDiagnosticContext;
 import eu.europa.ec.fisheries.uvms.commons.message.impl.AbstractProducer;
+import eu.europa.ec.fisheries.uvms.movement.model.mapper.ChunkedReplyMapper;
 
 import javax.annotation.Resource;
 import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.jms.BytesMessage;
 import javax.jms.Destination;
+import javax.jms.JMSConnectionFactory;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
 import javax.jms.Queue;
+import javax.jms.TextMessage;
 
 @Stateless
 public class MovementProducer extends AbstractProducer {
@@ -25,8 +33,26 @@ public class MovementProducer extends AbstractProducer {
     @Resource(mappedName =  "java:/" + MessageConstants.QUEUE_MOVEMENT)
     private Queue destination;
 
+    @Inject
+    @JMSConnectionFactory("java:/ConnectionFactory")
+    private JMSContext context;
+
     @Override
     public Destination getDestination() {
         return destination;
     }
+
+    /**
+     * Sends one chunk of a chunked reply to the sender of the request, see ChunkedReplyMapper. The chunks are sent
+     * in the caller's transaction, so either all chunks of a reply are delivered or none.
+     */
+    public void sendResponseChunkToSender(TextMessage request, byte[] chunk, int index, int count) throws JMSException {
+        BytesMessage message = context.createBytesMessage();
+        message.writeBytes(chunk);
+        message.setJMSCorrelationID(request.getJMSMessageID());
+        message.setIntProperty(ChunkedReplyMapper.CHUNK_INDEX_PROPERTY, index);
+        message.setIntProperty(ChunkedReplyMapper.CHUNK_COUNT_PROPERTY, count);
+        MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
+        context.createProducer().send(request.getJMSReplyTo(), message);
+    }
 }
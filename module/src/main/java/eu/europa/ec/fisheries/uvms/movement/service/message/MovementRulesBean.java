@@ -1,6 +1,7 @@
 package eu.europa.ec.fisheries.uvms.movement.service.message;
 
 import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+import eu.europa.ec.fisheries.uvms.commons.message.context.MappedDiagnosticContext;
 import eu.europa.ec.fisheries.uvms.commons.message.impl.AbstractProducer;
 import eu.europa.ec.fisheries.uvms.movement.service.util.JsonBConfiguratorMovement;
 import eu.europa.ec.fisheries.uvms.movementrules.model.dto.MovementDetails;
@@ -8,10 +9,16 @@ import eu.europa.ec.fisheries.uvms.movementrules.model.dto.MovementDetails;
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.ejb.Stateless;
+import javax.inject.Inject;
 import javax.jms.Destination;
+import javax.jms.JMSConnectionFactory;
+import javax.jms.JMSContext;
 import javax.jms.JMSException;
+import javax.jms.JMSProducer;
 import javax.jms.Queue;
+import javax.jms.TextMessage;
 import javax.json.bind.Jsonb;
+import java.util.List;
 
 @Stateless
 public class MovementRulesBean extends AbstractProducer {
@@ -19,6 +26,10 @@ public class MovementRulesBean extends AbstractProducer {
     @Resource(mappedName = "java:/" + MessageConstants.QUEUE_MOVEMENTRULES_EVENT)
     private Queue destination;
 
+    @Inject
+    @JMSConnectionFactory("java:/ConnectionFactory")
+    private JMSContext context;
+
     private Jsonb jsonb;
 
     @PostConstruct
@@ -31,6 +42,22 @@ public class MovementRulesBean extends AbstractProducer {
         sendMessageToSpecificQueueWithFunction(movementDetailJson, getDestination(), null, "EVALUATE_RULES", null);
     }
 
+    /**
+     * Sends all movement details over a single producer instead of opening a new session per message.
+     */
+    public void send(List<MovementDetails> movementDetailsList) throws JMSException {
+        if (movementDetailsList.isEmpty()) {
+            return;
+        }
+        JMSProducer producer = context.createProducer();
+        for (MovementDetails movementDetails : movementDetailsList) {
+            TextMessage message = context.createTextMessage(jsonb.toJson(movementDetails));
+            message.setStringProperty(MessageConstants.JMS_FUNCTION_PROPERTY, "EVALUATE_RULES");
+            MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
+            producer.send(getDestination(), message);
+        }
+    }
+
     @Override
     public Destination getDestination() {
         return destination;
@@ -0,0 +1,74 @@
+package eu.europa.ec.fisheries.uvms.movement.service.message;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ejb.EJB;
+import javax.enterprise.context.ApplicationScoped;
+import javax.jms.JMSException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the messages to MovementRules and Exchange that the processing of incoming movements has collected, in one
+ * go once all movements are stored. It is called directly by the caller, not from a transactional observer, so the
+ * sends are part of the caller's transaction and a failed send is thrown back to the caller. That rolls back the
+ * transaction, the stored movements and any messages already sent with it, and the incoming message is delivered
+ * again with nothing lost.
+ */
+@ApplicationScoped
+public class OutgoingMessageDispatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutgoingMessageDispatcher.class);
+
+    @EJB
+    private MovementRulesBean movementRulesBean;
+
+    @EJB
+    private ExchangeBean exchangeBean;
+
+    private final AtomicLong sentMessages = new AtomicLong();
+    private final AtomicLong failedMessages = new AtomicLong();
+    private final AtomicLong sentBatches = new AtomicLong();
+    private final AtomicLong totalSendNanos = new AtomicLong();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+
+    public void dispatch(OutgoingMessages messages) throws JMSException {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            movementRulesBean.send(messages.getMovementDetails());
+            exchangeBean.sendAcksToExchange(messages.getMovementRefs());
+            sentMessages.addAndGet(messages.size());
+        } catch (JMSException | RuntimeException e) {
+            // Nothing of the transaction is delivered, so all of its messages count as failed
+            failedMessages.addAndGet(messages.size());
+            LOG.error("Could not send {} movements to MovementRules and {} acks to Exchange",
+                    messages.getMovementDetails().size(), messages.getMovementRefs().size(), e);
+            throw e;
+        } finally {
+            long duration = System.nanoTime() - start;
+            sentBatches.incrementAndGet();
+            totalSendNanos.addAndGet(duration);
+            maxSendNanos.accumulateAndGet(duration, Math::max);
+        }
+    }
+
+    public long getSentMessages() {
+        return sentMessages.get();
+    }
+
+    public long getFailedMessages() {
+        return failedMessages.get();
+    }
+
+    public double getAverageSendLatencyMillis() {
+        long batches = sentBatches.get();
+        return batches == 0 ? 0 : totalSendNanos.get() / (batches * 1_000_000d);
+    }
+
+    public double getMaxSendLatencyMillis() {
+        return maxSendNanos.get() / 1_000_000d;
+    }
+}
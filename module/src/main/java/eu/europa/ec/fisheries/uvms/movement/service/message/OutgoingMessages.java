@@ -0,0 +1,41 @@
+package eu.europa.ec.fisheries.uvms.movement.service.message;
+
+import eu.europa.ec.fisheries.schema.exchange.movement.v1.MovementRefType;
+import eu.europa.ec.fisheries.uvms.movementrules.model.dto.MovementDetails;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Messages to MovementRules and Exchange produced while processing incoming movements. Sent by
+ * {@link OutgoingMessageDispatcher} in the same transaction, once all movements are stored.
+ */
+public class OutgoingMessages {
+
+    private final List<MovementDetails> movementDetails = new ArrayList<>();
+    private final List<MovementRefType> movementRefs = new ArrayList<>();
+
+    public void addMovementDetails(MovementDetails details) {
+        movementDetails.add(details);
+    }
+
+    public void addMovementRef(MovementRefType movementRef) {
+        movementRefs.add(movementRef);
+    }
+
+    public List<MovementDetails> getMovementDetails() {
+        return movementDetails;
+    }
+
+    public List<MovementRefType> getMovementRefs() {
+        return movementRefs;
+    }
+
+    public boolean isEmpty() {
+        return movementDetails.isEmpty() && movementRefs.isEmpty();
+    }
+
+    public int size() {
+        return movementDetails.size() + movementRefs.size();
+    }
+}
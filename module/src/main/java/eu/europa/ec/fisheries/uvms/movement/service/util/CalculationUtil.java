@@ -16,32 +16,31 @@ import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
 import org.locationtech.jts.geom.Point;
 
 import java.math.BigInteger;
-import java.time.Duration;
 import java.util.UUID;
 
 public class CalculationUtil {
     
     private CalculationUtil() {}
 
-    private static final double NAUTICAL_MILE_ONE_METER = 0.000539956803;
-    private static final int EARTH_RADIUS_METER = 6371000;
-    private static final double FACTOR_METER_PER_SECOND_TO_KNOTS = 1.9438444924574;
-
     /**
      * Calculated the distance between 2 points and returns the distance in meters
+     *
+     * @see Geodesy#distanceMeter(double, double, double, double)
      */
     public static double calculateDistance(Double prevLat, Double prevLon, Double currentLat, Double currentLon) {
-        return distanceMeter(prevLat, prevLon, currentLat, currentLon);
+        return Geodesy.distanceMeter(prevLat, prevLon, currentLat, currentLon);
     }
 
     /**
      *
      * Calculates the course between 2 Points
+     *
+     * @see Geodesy#bearing(double, double, double, double)
      */
     public static Double calculateCourse(double prevLat, double prevLon, double currentLat, double currentLon) {
         if(prevLat == 0.0 && prevLon == 0.0 && currentLat == 0.0 && currentLon == 0.0)
             return null;
-        return bearing(prevLat, prevLon, currentLat, currentLon);
+        return Geodesy.bearing(prevLat, prevLon, currentLat, currentLon);
     }
 
     public static SegmentCalculations getPositionCalculations(Movement previousPosition, Movement currentPosition) {
@@ -61,74 +60,45 @@ public class CalculationUtil {
         Point pointPreviousPosition = previousPosition.getLocation();
 
         double distanceInMeters = 0;
-        double durationInMilliSeconds = 0;
+        double durationInSeconds = 0;
         double speedOverGround = 0;
         double courseOverGround = 0;
-        double distanceBetweenPointsInNauticalMiles = 0;
 
         if ((pointThisPosition.getX() != pointPreviousPosition.getX()) ||  (pointThisPosition.getY() != pointPreviousPosition.getY())) {
 
-            distanceInMeters = calculateDistance(pointPreviousPosition.getY(), pointPreviousPosition.getX(), pointThisPosition.getY(), pointThisPosition.getX());
-            durationInMilliSeconds = (double)Duration.between(previousPosition.getTimestamp(), currentPosition.getTimestamp()).abs().toMillis();
-
-            courseOverGround = calculateCourse(pointPreviousPosition.getY(), pointPreviousPosition.getX(), pointThisPosition.getY(), pointThisPosition.getX());
-            distanceBetweenPointsInNauticalMiles = CalculationUtil.getNauticalMilesFromMeter(distanceInMeters);
-            if(distanceInMeters > 0) {
-                speedOverGround = (distanceInMeters / (durationInMilliSeconds/1000)) * FACTOR_METER_PER_SECOND_TO_KNOTS; 
-            }
+            distanceInMeters = Geodesy.distanceMeter(pointPreviousPosition.getY(), pointPreviousPosition.getX(), pointThisPosition.getY(), pointThisPosition.getX());
+            durationInSeconds = getDurationInSeconds(previousPosition, currentPosition);
+            courseOverGround = Geodesy.bearing(pointPreviousPosition.getY(), pointPreviousPosition.getX(), pointThisPosition.getY(), pointThisPosition.getX());
+            speedOverGround = Geodesy.speedKnots(distanceInMeters, durationInSeconds);
         }
 
         calculations.setAvgSpeed(speedOverGround);
-        calculations.setDistanceBetweenPoints(distanceBetweenPointsInNauticalMiles);
-        calculations.setDurationBetweenPoints(durationInMilliSeconds/1000);
+        calculations.setDistanceBetweenPoints(Geodesy.toNauticalMiles(distanceInMeters));
+        calculations.setDurationBetweenPoints(durationInSeconds);
         calculations.setCourse(courseOverGround);
 
         return calculations;
     }
 
-    public static Double getNauticalMilesFromMeter(Double meters) {
-        return NAUTICAL_MILE_ONE_METER * meters;
-    }
-
     /**
-     * Computes the bearing in degrees between two points on Earth.
-     *
-     * @param prevLat Latitude of the first point
-     * @param prevLon Longitude of the first point
-     * @param currentLat Latitude of the second point
-     * @param currentLon Longitude of the second point
-     * @return Bearing between the two points in degrees. A value of 0 means due
-     * north.
+     * The average speed in knots between two positions, without the other segment calculations.
      */
-    private static double bearing(double prevLat, double prevLon, double currentLat, double currentLon) {
-        double lat1Rad = Math.toRadians(prevLat);
-        double lat2Rad = Math.toRadians(currentLat);
-        double deltaLonRad = Math.toRadians(currentLon - prevLon);
-
-        double y = Math.sin(deltaLonRad) * Math.cos(lat2Rad);
-        double x = Math.cos(lat1Rad) * Math.sin(lat2Rad) - Math.sin(lat1Rad) * Math.cos(lat2Rad)
-                * Math.cos(deltaLonRad);
-        return radToDegrees(Math.atan2(y, x));
+    public static double getAvgSpeed(Movement previousPosition, Movement currentPosition) {
+        Point pointThisPosition = currentPosition.getLocation();
+        Point pointPreviousPosition = previousPosition.getLocation();
+        if (pointThisPosition == null || pointPreviousPosition == null) {
+            throw new IllegalArgumentException("CalculationUtil.getAvgSpeed. Position without location");
+        }
+        double distanceInMeters = Geodesy.distanceMeter(pointPreviousPosition.getY(), pointPreviousPosition.getX(), pointThisPosition.getY(), pointThisPosition.getX());
+        return Geodesy.speedKnots(distanceInMeters, getDurationInSeconds(previousPosition, currentPosition));
     }
 
-    /**
-     * Converts an angle in radians to degrees
-     */
-    private static double radToDegrees(double rad) {
-        return (Math.toDegrees(rad) + 360) % 360;
+    private static double getDurationInSeconds(Movement previousPosition, Movement currentPosition) {
+        return (double) Math.abs(currentPosition.getTimestamp().toEpochMilli() - previousPosition.getTimestamp().toEpochMilli()) / 1000;
     }
 
-    /**
-     * Calculate the distance between two points (Latitude, Longitude)
-     */
-    private static double distanceMeter(double prevLat, double prevLon, double currentLat, double currentLon) {
-        double lat1Rad = Math.toRadians(prevLat);
-        double lat2Rad = Math.toRadians(currentLat);
-        double deltaLonRad = Math.toRadians(currentLon - prevLon);
-
-        return Math.acos(Math.sin(lat1Rad) * Math.sin(lat2Rad) + Math.cos(lat1Rad) * Math.cos(lat2Rad)
-                * Math.cos(deltaLonRad))
-                * EARTH_RADIUS_METER;
+    public static Double getNauticalMilesFromMeter(Double meters) {
+        return Geodesy.toNauticalMiles(meters);
     }
 
     public static final BigInteger B = BigInteger.ONE.shiftLeft(64); // 2^64
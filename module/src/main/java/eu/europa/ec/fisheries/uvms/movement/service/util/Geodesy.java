@@ -0,0 +1,147 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.util;
+
+/**
+ * Distance, bearing and speed on a spherical Earth with primitives only. The batch methods take positions in arrays
+ * ordered by time and write the value of segment i, from position i to position i + 1, to index i of the result.
+ */
+public class Geodesy {
+
+    public static final double EARTH_RADIUS_METER = 6371000;
+    public static final double NAUTICAL_MILE_ONE_METER = 0.000539956803;
+    public static final double FACTOR_METER_PER_SECOND_TO_KNOTS = 1.9438444924574;
+
+    private Geodesy() {}
+
+    /**
+     * The great circle distance in meters with the haversine formula, which unlike the law of cosines keeps its
+     * precision for the short distances between two reports.
+     */
+    public static double distanceMeter(double prevLat, double prevLon, double currentLat, double currentLon) {
+        double lat1Rad = Math.toRadians(prevLat);
+        double lat2Rad = Math.toRadians(currentLat);
+        return haversine(lat2Rad - lat1Rad, Math.toRadians(currentLon - prevLon), Math.cos(lat1Rad), Math.cos(lat2Rad));
+    }
+
+    /**
+     * The initial bearing in degrees from the first point to the second, 0 is due north.
+     */
+    public static double bearing(double prevLat, double prevLon, double currentLat, double currentLon) {
+        double lat1Rad = Math.toRadians(prevLat);
+        double lat2Rad = Math.toRadians(currentLat);
+        double deltaLonRad = Math.toRadians(currentLon - prevLon);
+
+        double y = Math.sin(deltaLonRad) * Math.cos(lat2Rad);
+        double x = Math.cos(lat1Rad) * Math.sin(lat2Rad) - Math.sin(lat1Rad) * Math.cos(lat2Rad)
+                * Math.cos(deltaLonRad);
+        return radToDegrees(Math.atan2(y, x));
+    }
+
+    /**
+     * @return speed in knots, 0 when the distance is 0
+     */
+    public static double speedKnots(double distanceInMeters, double durationInSeconds) {
+        return distanceInMeters > 0 ? (distanceInMeters / durationInSeconds) * FACTOR_METER_PER_SECOND_TO_KNOTS : 0;
+    }
+
+    public static double toNauticalMiles(double meters) {
+        return NAUTICAL_MILE_ONE_METER * meters;
+    }
+
+    /**
+     * The distance in meters of each segment.
+     */
+    public static void distances(double[] latitude, double[] longitude, double[] distanceInMeters) {
+        int segments = checkSegments(latitude, longitude, distanceInMeters);
+        if (segments == 0) {
+            return;
+        }
+        double latRad = Math.toRadians(latitude[0]);
+        double cosLat = Math.cos(latRad);
+        for (int i = 0; i < segments; i++) {
+            double nextLatRad = Math.toRadians(latitude[i + 1]);
+            double nextCosLat = Math.cos(nextLatRad);
+            distanceInMeters[i] = haversine(nextLatRad - latRad, Math.toRadians(longitude[i + 1] - longitude[i]), cosLat, nextCosLat);
+            latRad = nextLatRad;
+            cosLat = nextCosLat;
+        }
+    }
+
+    /**
+     * The initial bearing in degrees of each segment.
+     */
+    public static void bearings(double[] latitude, double[] longitude, double[] bearing) {
+        int segments = checkSegments(latitude, longitude, bearing);
+        if (segments == 0) {
+            return;
+        }
+        double latRad = Math.toRadians(latitude[0]);
+        double sinLat = Math.sin(latRad);
+        double cosLat = Math.cos(latRad);
+        for (int i = 0; i < segments; i++) {
+            double nextLatRad = Math.toRadians(latitude[i + 1]);
+            double nextSinLat = Math.sin(nextLatRad);
+            double nextCosLat = Math.cos(nextLatRad);
+            double deltaLonRad = Math.toRadians(longitude[i + 1] - longitude[i]);
+
+            double y = Math.sin(deltaLonRad) * nextCosLat;
+            double x = cosLat * nextSinLat - sinLat * nextCosLat * Math.cos(deltaLonRad);
+            bearing[i] = radToDegrees(Math.atan2(y, x));
+            sinLat = nextSinLat;
+            cosLat = nextCosLat;
+        }
+    }
+
+    /**
+     * The speed in knots of each segment from its distance and the timestamps of the positions.
+     *
+     * @param distanceInMeters of each segment
+     * @param timestamp of each position in epoch milliseconds
+     */
+    public static void speeds(double[] distanceInMeters, long[] timestamp, double[] speedInKnots) {
+        if (timestamp.length != distanceInMeters.length + 1 && !(timestamp.length == 0 && distanceInMeters.length == 0)) {
+            throw new IllegalArgumentException("Expected " + (distanceInMeters.length + 1) + " timestamps but got " + timestamp.length);
+        }
+        if (speedInKnots.length < distanceInMeters.length) {
+            throw new IllegalArgumentException("Result array is shorter than the number of segments");
+        }
+        for (int i = 0; i < distanceInMeters.length; i++) {
+            speedInKnots[i] = speedKnots(distanceInMeters[i], (double) Math.abs(timestamp[i + 1] - timestamp[i]) / 1000);
+        }
+    }
+
+    private static double haversine(double deltaLatRad, double deltaLonRad, double cosLat1, double cosLat2) {
+        double sinHalfDeltaLat = Math.sin(deltaLatRad / 2);
+        double sinHalfDeltaLon = Math.sin(deltaLonRad / 2);
+        double a = sinHalfDeltaLat * sinHalfDeltaLat + cosLat1 * cosLat2 * sinHalfDeltaLon * sinHalfDeltaLon;
+        return 2 * Math.atan2(Math.sqrt(a), Math.sqrt(Math.max(1 - a, 0))) * EARTH_RADIUS_METER;
+    }
+
+    private static int checkSegments(double[] latitude, double[] longitude, double[] result) {
+        if (latitude.length != longitude.length) {
+            throw new IllegalArgumentException("Latitude and longitude arrays differ in length");
+        }
+        int segments = Math.max(latitude.length - 1, 0);
+        if (result.length < segments) {
+            throw new IllegalArgumentException("Result array is shorter than the number of segments");
+        }
+        return segments;
+    }
+
+    /**
+     * Converts an angle in radians to degrees between 0 and 360
+     */
+    private static double radToDegrees(double rad) {
+        return (Math.toDegrees(rad) + 360) % 360;
+    }
+}
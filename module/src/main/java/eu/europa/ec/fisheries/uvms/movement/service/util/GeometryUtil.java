@@ -16,12 +16,15 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Function;
 
 public class GeometryUtil {
     
@@ -30,7 +33,7 @@ public class GeometryUtil {
     private static final Logger LOG = LoggerFactory.getLogger(GeometryUtil.class);
 
     private static final GeometryFactory FACTORY = new GeometryFactory();
-    static final int SRID = 4326;
+    public static final int SRID = 4326;
 
     /**
      * Returns a LineString for insertion in database
@@ -108,4 +111,69 @@ public class GeometryUtil {
         return lineString;
     }
 
+    /**
+     * The tolerance in degrees for a map zoom level, the width of one pixel of a 256 pixel web map tile. An explicit
+     * tolerance wins over the zoom level, without either there is no simplification.
+     *
+     * @param tolerance
+     * @param zoom
+     * @return tolerance in degrees
+     */
+    public static double getTolerance(Double tolerance, Integer zoom) {
+        if (tolerance != null) {
+            return Math.max(tolerance, 0d);
+        }
+        if (zoom != null) {
+            return 360d / (256 * Math.pow(2, Math.max(zoom, 0)));
+        }
+        return 0d;
+    }
+
+    /**
+     * Simplifies the line with Douglas-Peucker, without creating self intersections that were not there. The first and
+     * the last point are always kept.
+     *
+     * @param line
+     * @param tolerance in degrees, 0 returns the line as it is
+     * @return simplified LineString
+     */
+    public static LineString simplify(LineString line, double tolerance) {
+        if (tolerance <= 0 || line.getNumPoints() < 3) {
+            return line;
+        }
+        LineString simplified = (LineString) TopologyPreservingSimplifier.simplify(line, tolerance);
+        simplified.setSRID(line.getSRID());
+        return simplified;
+    }
+
+    /**
+     * Simplifies a track given as a list of positions and returns the positions that are kept, in the same order.
+     *
+     * @param positions
+     * @param location the coordinate of a position
+     * @param tolerance in degrees, 0 returns all positions
+     * @return the kept positions
+     */
+    public static <T> List<T> simplify(List<T> positions, Function<T, Coordinate> location, double tolerance) {
+        if (tolerance <= 0 || positions.size() < 3) {
+            return positions;
+        }
+        Coordinate[] coordinates = new Coordinate[positions.size()];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = location.apply(positions.get(i));
+        }
+        Coordinate[] kept = simplify(FACTORY.createLineString(coordinates), tolerance).getCoordinates();
+
+        // The simplified line is a subsequence of the original, so the kept positions are found in one pass
+        List<T> simplified = new ArrayList<>(kept.length);
+        int next = 0;
+        for (int i = 0; i < coordinates.length && next < kept.length; i++) {
+            if (coordinates[i].equals2D(kept[next])) {
+                simplified.add(positions.get(i));
+                next++;
+            }
+        }
+        return simplified;
+    }
+
 }
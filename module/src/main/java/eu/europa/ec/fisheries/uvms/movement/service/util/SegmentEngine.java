@@ -0,0 +1,147 @@
+/*
+﻿Developed with the contribution of the European Commission - Directorate General for Maritime Affairs and Fisheries
+© European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can
+redistribute it and/or modify it under the terms of the GNU General Public License as published by the
+Free Software Foundation, either version 3 of the License, or any later version. The IFDM Suite is distributed in
+the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details. You should have received a
+copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.movement.service.util;
+
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import org.locationtech.jts.geom.Point;
+
+import java.util.List;
+
+/**
+ * Segment calculations for a whole track at once. The positions are kept in primitive arrays ordered by timestamp and
+ * segment i goes from position i to position i + 1. All segments are calculated with the Geodesy batch methods when
+ * the engine is created, with the same results as CalculationUtil.getPositionCalculations.
+ *
+ * The WKT of a segment is written to a StringBuilder that is reused, so an engine must not be shared between threads.
+ */
+public class SegmentEngine {
+
+    private final double[] longitude;
+    private final double[] latitude;
+    private final long[] timestamp;
+
+    private final double[] distance;
+    private final double[] duration;
+    private final double[] speed;
+    private final double[] course;
+
+    private final StringBuilder wkt = new StringBuilder(64);
+
+    /**
+     * @param longitude in degrees
+     * @param latitude in degrees
+     * @param timestamp in epoch milliseconds
+     */
+    public SegmentEngine(double[] longitude, double[] latitude, long[] timestamp) {
+        if (longitude.length != latitude.length || longitude.length != timestamp.length) {
+            throw new IllegalArgumentException("Longitude, latitude and timestamp arrays differ in length");
+        }
+        this.longitude = longitude;
+        this.latitude = latitude;
+        this.timestamp = timestamp;
+        int segments = Math.max(longitude.length - 1, 0);
+        distance = new double[segments];
+        duration = new double[segments];
+        speed = new double[segments];
+        course = new double[segments];
+        calculate();
+    }
+
+    /**
+     * @param previous the position before the first movement or null, adds a leading segment when set
+     * @param movements ordered by timestamp
+     */
+    public static SegmentEngine fromMovements(Movement previous, List<Movement> movements) {
+        int offset = previous != null ? 1 : 0;
+        int size = movements.size() + offset;
+        double[] longitude = new double[size];
+        double[] latitude = new double[size];
+        long[] timestamp = new long[size];
+        if (previous != null) {
+            setPosition(previous, 0, longitude, latitude, timestamp);
+        }
+        for (int i = 0; i < movements.size(); i++) {
+            setPosition(movements.get(i), i + offset, longitude, latitude, timestamp);
+        }
+        return new SegmentEngine(longitude, latitude, timestamp);
+    }
+
+    private static void setPosition(Movement movement, int index, double[] longitude, double[] latitude, long[] timestamp) {
+        Point location = movement.getLocation();
+        if (location == null) {
+            throw new IllegalArgumentException("Movement " + movement.getId() + " has no location");
+        }
+        longitude[index] = location.getX();
+        latitude[index] = location.getY();
+        timestamp[index] = movement.getTimestamp().toEpochMilli();
+    }
+
+    private void calculate() {
+        Geodesy.distances(latitude, longitude, distance);
+        Geodesy.bearings(latitude, longitude, course);
+        Geodesy.speeds(distance, timestamp, speed);
+        for (int i = 0; i < distance.length; i++) {
+            // A position reported twice is a segment without length, duration or course
+            if (longitude[i] == longitude[i + 1] && latitude[i] == latitude[i + 1]) {
+                distance[i] = 0;
+                course[i] = 0;
+                speed[i] = 0;
+            } else {
+                distance[i] = Geodesy.toNauticalMiles(distance[i]);
+                duration[i] = (double) Math.abs(timestamp[i + 1] - timestamp[i]) / 1000;
+            }
+        }
+    }
+
+    public int getSegmentCount() {
+        return distance.length;
+    }
+
+    /**
+     * @return distance in nautical miles
+     */
+    public double getDistance(int segment) {
+        return distance[segment];
+    }
+
+    /**
+     * @return duration in seconds
+     */
+    public double getDuration(int segment) {
+        return duration[segment];
+    }
+
+    /**
+     * @return speed over ground in knots
+     */
+    public double getSpeed(int segment) {
+        return speed[segment];
+    }
+
+    /**
+     * @return course over ground in degrees, 0 is due north
+     */
+    public double getCourse(int segment) {
+        return course[segment];
+    }
+
+    /**
+     * @return the segment as a WKT LineString
+     */
+    public String getWkt(int segment) {
+        wkt.setLength(0);
+        wkt.append("LINESTRING (")
+                .append(longitude[segment]).append(' ').append(latitude[segment]).append(", ")
+                .append(longitude[segment + 1]).append(' ').append(latitude[segment + 1]).append(')');
+        return wkt.toString();
+    }
+}
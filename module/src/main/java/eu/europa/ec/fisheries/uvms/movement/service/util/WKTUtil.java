@@ -15,6 +15,7 @@ import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.impl.CoordinateArraySequence;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
@@ -38,6 +39,10 @@ public class WKTUtil {
         return WKTWriter.toLineString(seq);
     }
     
+    public static String getWktLineString(LineString lineString) {
+        return WKTWriter.toLineString(lineString.getCoordinateSequence());
+    }
+
     public static String getWktLineStringFromMovements(Movement previous, Movement current) {
         return WKTWriter.toLineString(GeometryUtil.getLineStringFromMovements(previous, current).getCoordinateSequence());
     }
@@ -0,0 +1,73 @@
+package eu.europa.ec.fisheries.uvms.movement.longpolling.service;
+
+import org.junit.Test;
+
+import javax.servlet.AsyncContext;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class LongPollingContextHelperTest {
+
+    private static final String PATH = "/activity/movement";
+
+    @Test
+    public void popInOrderPerPathTest() {
+        LongPollingContextHelper helper = new LongPollingContextHelper();
+        AsyncContext first = mock(AsyncContext.class);
+        AsyncContext second = mock(AsyncContext.class);
+        AsyncContext other = mock(AsyncContext.class);
+        helper.add(first, PATH);
+        helper.add(other, "/activity/alarm");
+        helper.add(second, PATH);
+
+        assertEquals(Arrays.asList(first, second), helper.popContexts(PATH));
+        assertNull(helper.popContext(PATH));
+        assertSame(other, helper.popContext("/activity/alarm"));
+        assertEquals(0, helper.getWaiting());
+    }
+
+    @Test
+    public void removedContextIsNotPoppedTest() {
+        LongPollingContextHelper helper = new LongPollingContextHelper();
+        AsyncContext timedOut = mock(AsyncContext.class);
+        AsyncContext waiting = mock(AsyncContext.class);
+        helper.add(timedOut, PATH);
+        helper.add(waiting, PATH);
+
+        assertTrue(helper.remove(timedOut));
+
+        assertSame(waiting, helper.popContext(PATH));
+        assertNull(helper.popContext(PATH));
+    }
+
+    @Test
+    public void contextIsClaimedOnceTest() {
+        LongPollingContextHelper helper = new LongPollingContextHelper();
+        AsyncContext ctx = mock(AsyncContext.class);
+        helper.add(ctx, PATH);
+
+        assertSame(ctx, helper.popContext(PATH));
+        assertFalse(helper.remove(ctx));
+    }
+
+    @Test
+    public void manyTimeoutsWithoutEventsTest() {
+        LongPollingContextHelper helper = new LongPollingContextHelper();
+        for (int i = 0; i < LongPollingContextHelper.PURGE_THRESHOLD * 3; i++) {
+            AsyncContext ctx = mock(AsyncContext.class);
+            helper.add(ctx, PATH);
+            helper.remove(ctx);
+        }
+        AsyncContext waiting = mock(AsyncContext.class);
+        helper.add(waiting, PATH);
+
+        assertEquals(1, helper.getWaiting());
+        assertEquals(Arrays.asList(waiting), helper.popContexts(PATH));
+    }
+}
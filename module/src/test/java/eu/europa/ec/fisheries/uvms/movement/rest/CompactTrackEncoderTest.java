@@ -0,0 +1,95 @@
+package eu.europa.ec.fisheries.uvms.movement.rest;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementPoint;
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.rest.dto.CompactTrack;
+import eu.europa.ec.fisheries.uvms.movement.service.util.JsonBConfiguratorMovement;
+import org.junit.Test;
+
+import javax.json.bind.Jsonb;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompactTrackEncoderTest {
+
+    @Test
+    public void polylineSignedValuesTest() {
+        // Example from the Google polyline documentation, -179.9832104 with five decimals
+        StringBuilder encoded = new StringBuilder();
+        CompactTrackEncoder.encodeSigned(-17998321, encoded);
+        assertEquals("`~oia@", encoded.toString());
+
+        int[] cursor = {0};
+        assertEquals(-17998321L, CompactTrackEncoder.decodeSigned(encoded.toString(), cursor));
+        assertEquals(encoded.length(), cursor[0]);
+    }
+
+    @Test
+    public void roundTripTest() {
+        List<MovementDto> movements = getTrack(2, 50);
+
+        List<MovementDto> decoded = CompactTrackEncoder.decode(CompactTrackEncoder.encode(movements));
+
+        assertEquals(movements.size(), decoded.size());
+        for (int i = 0; i < movements.size(); i++) {
+            MovementDto expected = movements.get(i);
+            MovementDto actual = decoded.get(i);
+            assertEquals(expected.getAsset(), actual.getAsset());
+            assertEquals(expected.getSource(), actual.getSource());
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+            assertEquals(expected.getSpeed(), actual.getSpeed());
+            assertEquals(expected.getHeading(), actual.getHeading());
+            assertEquals(expected.getLocation().getLongitude(), actual.getLocation().getLongitude(), 0.000001);
+            assertEquals(expected.getLocation().getLatitude(), actual.getLocation().getLatitude(), 0.000001);
+        }
+    }
+
+    @Test
+    public void emptyTrackTest() {
+        CompactTrack track = CompactTrackEncoder.encode(Collections.emptyList());
+
+        assertTrue(CompactTrackEncoder.decode(track).isEmpty());
+    }
+
+    @Test
+    public void compactTrackIsSmallerTest() {
+        Jsonb jsonb = new JsonBConfiguratorMovement().getContext(null);
+        List<MovementDto> movements = getTrack(5, 1000);
+
+        int plainSize = jsonb.toJson(movements).getBytes(StandardCharsets.UTF_8).length;
+        int compactSize = jsonb.toJson(CompactTrackEncoder.encode(movements)).getBytes(StandardCharsets.UTF_8).length;
+
+        assertTrue("Compact " + compactSize + " bytes, plain " + plainSize + " bytes", compactSize * 5 < plainSize);
+    }
+
+    private List<MovementDto> getTrack(int assets, int positionsPerAsset) {
+        List<MovementDto> movements = new ArrayList<>();
+        Instant start = Instant.parse("2019-05-01T12:00:00.123Z");
+        for (int a = 0; a < assets; a++) {
+            String asset = UUID.randomUUID().toString();
+            for (int i = 0; i < positionsPerAsset; i++) {
+                MovementDto movement = new MovementDto();
+                movement.setId(UUID.randomUUID());
+                movement.setAsset(asset);
+                movement.setSource(i % 3 == 0 ? MovementSourceType.INMARSAT_C : MovementSourceType.AIS);
+                movement.setTimestamp(start.plusSeconds(30L * i + a));
+                movement.setSpeed(8.5f + (i % 10) / 10f);
+                movement.setHeading((float) (i % 360));
+                MovementPoint location = new MovementPoint();
+                location.setLongitude(11.123456 + a + i * 0.0013);
+                location.setLatitude(57.654321 - i * 0.0007);
+                movement.setLocation(location);
+                movements.add(movement);
+            }
+        }
+        return movements;
+    }
+}
@@ -0,0 +1,101 @@
+package eu.europa.ec.fisheries.uvms.movement.rest;
+
+import eu.europa.ec.fisheries.uvms.movement.service.bean.LatestMovementsSnapshot;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LatestMovementsResponseCacheTest {
+
+    @Mock
+    private LatestMovementsSnapshot snapshot;
+
+    @InjectMocks
+    private LatestMovementsResponseCache cache;
+
+    @Before
+    public void init() {
+        cache.init();
+        doReturn("{}").when(snapshot).getMicroAssets(anyList());
+    }
+
+    @Test
+    public void reusedForTheSameVersionTest() {
+        doReturn(1L).when(snapshot).getVersion();
+        doReturn(Collections.emptyList()).when(snapshot).getLatest(any());
+
+        LatestMovementsResponseCache.CachedResponse first = cache.get(Collections.emptyList(), false);
+        LatestMovementsResponseCache.CachedResponse second = cache.get(Collections.emptyList(), false);
+
+        assertThat(second, is(sameInstance(first)));
+        verify(snapshot, times(1)).getLatest(any());
+    }
+
+    @Test
+    public void rebuiltWhenTheVersionChangesTest() {
+        doReturn(1L, 2L).when(snapshot).getVersion();
+        doReturn(Collections.emptyList()).when(snapshot).getLatest(any());
+
+        LatestMovementsResponseCache.CachedResponse first = cache.get(Collections.emptyList(), false);
+        LatestMovementsResponseCache.CachedResponse second = cache.get(Collections.emptyList(), false);
+
+        assertThat(second, is(not(sameInstance(first))));
+        verify(snapshot, times(2)).getLatest(any());
+    }
+
+    @Test
+    public void concurrentRequestsBuildOnceTest() throws Exception {
+        doReturn(1L).when(snapshot).getVersion();
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            building.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Collections.emptyList();
+        }).when(snapshot).getLatest(any());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<LatestMovementsResponseCache.CachedResponse>> responses = new ArrayList<>();
+            responses.add(executor.submit(() -> cache.get(Collections.emptyList(), false)));
+            assertThat(building.await(5, TimeUnit.SECONDS), is(true));
+            for (int i = 0; i < 3; i++) {
+                responses.add(executor.submit(() -> cache.get(Collections.emptyList(), false)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            LatestMovementsResponseCache.CachedResponse first = responses.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<LatestMovementsResponseCache.CachedResponse> response : responses) {
+                assertThat(response.get(5, TimeUnit.SECONDS), is(sameInstance(first)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(snapshot, times(1)).getLatest(any());
+    }
+}
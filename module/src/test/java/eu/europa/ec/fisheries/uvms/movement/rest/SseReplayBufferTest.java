@@ -0,0 +1,60 @@
+package eu.europa.ec.fisheries.uvms.movement.rest;
+
+import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovementBatch;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SseReplayBufferTest {
+
+    @Test
+    public void replayAfterLastEventIdTest() {
+        SseReplayBuffer buffer = getBuffer(10, 100, 105);
+
+        List<CreatedMovementBatch> missed = buffer.getAfter(102);
+
+        assertEquals(3, missed.size());
+        assertEquals(103, missed.get(0).getId());
+        assertEquals(105, missed.get(2).getId());
+        assertTrue(buffer.getAfter(105).isEmpty());
+        assertEquals(6, buffer.getAfter(99).size());
+    }
+
+    @Test
+    public void pushedOutBatchesCanNotBeReplayedTest() {
+        SseReplayBuffer buffer = getBuffer(4, 100, 109);
+
+        assertEquals(4, buffer.getSize());
+        assertEquals(4, buffer.getAfter(105).size());
+        assertNull(buffer.getAfter(104));
+    }
+
+    @Test
+    public void unknownIdCanNotBeReplayedTest() {
+        assertNull(getBuffer(4, 100, 101).getAfter(200));
+        assertNull(new SseReplayBuffer(4).getAfter(100));
+    }
+
+    @Test
+    public void idFromAnotherEpochCanNotBeReplayedTest() {
+        long epoch = 7L << CreatedMovementBatch.SEQUENCE_BITS;
+        SseReplayBuffer buffer = getBuffer(10, epoch + 100, epoch + 105);
+
+        assertEquals(3, buffer.getAfter(epoch + 102).size());
+        assertNull(buffer.getAfter(102));
+        assertNull(buffer.getAfter((8L << CreatedMovementBatch.SEQUENCE_BITS) + 102));
+    }
+
+    private SseReplayBuffer getBuffer(int capacity, long firstId, long lastId) {
+        SseReplayBuffer buffer = new SseReplayBuffer(capacity);
+        for (long id = firstId; id <= lastId; id++) {
+            buffer.add(new CreatedMovementBatch(id, Collections.emptyList(), Collections.emptyList()));
+        }
+        return buffer;
+    }
+}
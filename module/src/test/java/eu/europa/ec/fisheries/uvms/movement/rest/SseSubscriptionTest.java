@@ -0,0 +1,130 @@
+package eu.europa.ec.fisheries.uvms.movement.rest;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementPoint;
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovementBatch;
+import org.junit.Test;
+
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class SseSubscriptionTest {
+
+    @Test
+    public void emptyFilterMatchesEverythingTest() {
+        SseSubscription subscription = new SseSubscription(null, null, null, null, null);
+
+        assertTrue(subscription.matches(getMovement("a", MovementSourceType.AIS, 11d, 57d)));
+    }
+
+    @Test
+    public void assetAndSourceFilterTest() {
+        SseSubscription subscription = new SseSubscription(null, null, Collections.singletonList("a"),
+                Collections.singletonList(MovementSourceType.AIS), null);
+
+        assertTrue(subscription.matches(getMovement("a", MovementSourceType.AIS, 11d, 57d)));
+        assertFalse(subscription.matches(getMovement("b", MovementSourceType.AIS, 11d, 57d)));
+        assertFalse(subscription.matches(getMovement("a", MovementSourceType.INMARSAT_C, 11d, 57d)));
+    }
+
+    @Test
+    public void boundingBoxFilterTest() {
+        SseSubscription subscription = new SseSubscription(null, null, null, null, SseSubscription.parseBoundingBox("10, 55, 12, 58"));
+
+        assertTrue(subscription.matches(getMovement("a", MovementSourceType.AIS, 11d, 57d)));
+        assertFalse(subscription.matches(getMovement("a", MovementSourceType.AIS, 13d, 57d)));
+        assertFalse(subscription.matches(getMovement("a", MovementSourceType.AIS, 11d, 54d)));
+    }
+
+    @Test
+    public void parseBoundingBoxTest() {
+        assertNull(SseSubscription.parseBoundingBox(null));
+        assertNull(SseSubscription.parseBoundingBox(" "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBoundingBoxTest() {
+        SseSubscription.parseBoundingBox("12,55,10,58");
+    }
+
+    @Test
+    public void onlyMatchingMovementsAreSentTest() {
+        Sse sse = mock(Sse.class);
+        OutboundSseEvent.Builder builder = mock(OutboundSseEvent.Builder.class, RETURNS_SELF);
+        doReturn(builder).when(sse).newEventBuilder();
+        SseSubscription subscription = new SseSubscription(null, sse, Collections.singletonList("a"), null, null);
+
+        assertTrue(subscription.offer(getBatch(7, "a", "b"), 1000));
+        assertFalse(subscription.offer(getBatch(8, "b"), 1000));
+        subscription.poll();
+
+        verify(builder).id("7");
+        verify(builder).name(SseSubscription.MOVEMENTS_EVENT);
+        verify(builder).data(String.class, "[{\"asset\":\"a\"}]");
+        assertEquals(0, subscription.getQueued());
+    }
+
+    @Test
+    public void oldestEventsAreDroppedWhenFullTest() {
+        SseSubscription subscription = new SseSubscription(null, null, null, null, null);
+        subscription.offer(getBatch(1, "a"), 1000);
+        subscription.offer(getBatch(2, "a"), 2000);
+        for (int i = 2; i < SseSubscription.MAX_QUEUED_EVENTS; i++) {
+            subscription.offer(getBatch(i + 1, "a"), 3000);
+        }
+        assertEquals(0, subscription.getDropped());
+        assertEquals(4000, subscription.getLagMillis(5000));
+
+        subscription.offer(getBatch(SseSubscription.MAX_QUEUED_EVENTS + 1, "a"), 3000);
+
+        assertEquals(1, subscription.getDropped());
+        assertEquals(SseSubscription.MAX_QUEUED_EVENTS, subscription.getQueued());
+        assertEquals(3000, subscription.getLagMillis(5000));
+    }
+
+    @Test
+    public void sendTimeoutTest() {
+        SseSubscription subscription = new SseSubscription(null, null, null, null, null);
+        assertFalse(subscription.isSendTimedOut(100_000, 10_000));
+
+        subscription.sendStarted(1000);
+        assertFalse(subscription.isSendTimedOut(11_000, 10_000));
+        assertTrue(subscription.isSendTimedOut(11_001, 10_000));
+
+        subscription.sendCompleted();
+        assertFalse(subscription.isSendTimedOut(100_000, 10_000));
+    }
+
+    private CreatedMovementBatch getBatch(long id, String... assets) {
+        MovementDto[] movements = new MovementDto[assets.length];
+        String[] json = new String[assets.length];
+        for (int i = 0; i < assets.length; i++) {
+            movements[i] = getMovement(assets[i], MovementSourceType.AIS, 11d, 57d);
+            json[i] = "{\"asset\":\"" + assets[i] + "\"}";
+        }
+        return new CreatedMovementBatch(id, Arrays.asList(movements), Arrays.asList(json));
+    }
+
+    private MovementDto getMovement(String asset, MovementSourceType source, double longitude, double latitude) {
+        MovementDto movement = new MovementDto();
+        movement.setAsset(asset);
+        movement.setSource(source);
+        MovementPoint location = new MovementPoint();
+        location.setLongitude(longitude);
+        location.setLatitude(latitude);
+        movement.setLocation(location);
+        return movement;
+    }
+}
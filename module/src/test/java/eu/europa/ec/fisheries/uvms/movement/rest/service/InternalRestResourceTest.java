@@ -278,6 +278,37 @@ public class InternalRestResourceTest extends BuildMovementRestDeployment {
         assertEquals(1, movementExtendedList.size());
     }
 
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void streamMovementsForConnectIdsBetweenDates() {
+        Movement movementBaseType = MovementTestHelper.createMovement();
+        Movement createdMovement = movementService.createAndProcessMovement(movementBaseType);
+        Movement secondMovement = MovementTestHelper.createMovement();
+        secondMovement.setMovementConnect(movementBaseType.getMovementConnect());
+        secondMovement.setTimestamp(createdMovement.getTimestamp().plusSeconds(60));
+        movementService.createAndProcessMovement(secondMovement);
+
+        List<String> connectIds = new ArrayList<>();
+        connectIds.add(movementBaseType.getMovementConnect().getId().toString());
+
+        Instant now = Instant.now();
+        MovementsForConnectIdsBetweenDatesRequest request = new MovementsForConnectIdsBetweenDatesRequest(connectIds, now.minus(1, ChronoUnit.DAYS), now.plus(1, ChronoUnit.DAYS));
+
+        Response response = getWebTarget()
+                .path("internal/movementsForConnectIdsBetweenDates")
+                .queryParam("stream", true)
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, getTokenInternalRest())
+                .post(Entity.entity(request, MediaType.APPLICATION_JSON_TYPE), Response.class);
+        assertEquals(200, response.getStatus());
+
+        List<MovementDto> movements = response.readEntity(new GenericType<List<MovementDto>>() {});
+
+        assertEquals(2, movements.size());
+        assertEquals(secondMovement.getId(), movements.get(0).getId());
+        assertEquals(createdMovement.getId(), movements.get(1).getId());
+    }
+
     private MovementQuery createMovementQuery(Movement createdMovement) {
         MovementQuery query = new MovementQuery();
         if(createdMovement != null) {
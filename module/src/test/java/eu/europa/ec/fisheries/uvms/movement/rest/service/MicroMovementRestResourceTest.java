@@ -4,11 +4,15 @@ import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
 import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
 import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
 import eu.europa.ec.fisheries.uvms.movement.rest.BuildMovementRestDeployment;
+import eu.europa.ec.fisheries.uvms.movement.rest.CompactTrackEncoder;
 import eu.europa.ec.fisheries.uvms.movement.rest.MovementTestHelper;
+import eu.europa.ec.fisheries.uvms.movement.rest.RestConstants;
+import eu.europa.ec.fisheries.uvms.movement.rest.dto.CompactTrack;
 import eu.europa.ec.fisheries.uvms.movement.rest.dto.RealTimeMapInitialData;
 import eu.europa.ec.fisheries.uvms.movement.rest.dto.TrackForAssetsQuery;
 import eu.europa.ec.fisheries.uvms.movement.service.bean.MovementService;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.util.JsonBConfiguratorMovement;
 import org.jboss.arquillian.container.test.api.OperateOnDeployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.junit.Test;
@@ -16,9 +20,11 @@ import org.junit.runner.RunWith;
 
 import javax.inject.Inject;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
@@ -88,6 +94,41 @@ public class MicroMovementRestResourceTest extends BuildMovementRestDeployment {
                 .anyMatch(m -> m.getId().equals(createdMovement2.getId())));
     }
 
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void getCompactTrackForAssetsTest() {
+        Movement movementBaseType1 = MovementTestHelper.createMovement();
+        Movement createdMovement1 = movementService.createAndProcessMovement(movementBaseType1);
+
+        Movement movementBaseType2 = MovementTestHelper.createMovement(57.5d, 11.5d);
+        Movement createdMovement2 = movementService.createAndProcessMovement(movementBaseType2);
+
+        OffsetDateTime timestamp = createdMovement1.getTimestamp().minus(5, ChronoUnit.MINUTES).atOffset(ZoneOffset.UTC);
+        TrackForAssetsQuery query = new TrackForAssetsQuery();
+        query.setAssetIds(Arrays.asList(createdMovement1.getMovementConnect().getId(), createdMovement2.getMovementConnect().getId()));
+
+        Response response = getWebTarget()
+                .path("micro")
+                .path("track")
+                .path("assets")
+                .queryParam("startDate", timestamp.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss Z")))
+                .request(RestConstants.COMPACT_TRACK_JSON)
+                .header(HttpHeaders.AUTHORIZATION, getToken())
+                .post(Entity.json(query));
+
+        assertEquals(200, response.getStatus());
+        assertTrue(response.getMediaType().isCompatible(MediaType.valueOf(RestConstants.COMPACT_TRACK_JSON)));
+        CompactTrack track = new JsonBConfiguratorMovement().getContext(null).fromJson(response.readEntity(String.class), CompactTrack.class);
+        List<MovementDto> movements = CompactTrackEncoder.decode(track);
+
+        assertEquals(2, movements.size());
+        String asset2 = createdMovement2.getMovementConnect().getId().toString();
+        MovementDto second = movements.stream().filter(m -> m.getAsset().equals(asset2)).findAny().orElseThrow(AssertionError::new);
+        assertEquals(57.5d, second.getLocation().getLongitude(), 0.000001);
+        assertEquals(11.5d, second.getLocation().getLatitude(), 0.000001);
+        assertEquals(createdMovement2.getTimestamp().toEpochMilli(), second.getTimestamp().toEpochMilli());
+    }
+
     @Test
     @OperateOnDeployment("movementservice")
     public void getTrackForOnlyOneSourceTest() {
@@ -343,5 +384,45 @@ public class MicroMovementRestResourceTest extends BuildMovementRestDeployment {
         assertEquals("AssetMT rest mock in movement rest module", output.getAssetList());
     }
 
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void getLastMovementForAllAssetsNotModifiedTest() {
+        movementService.createAndProcessMovement(MovementTestHelper.createMovement());
+
+        Response first = getWebTarget()
+                .path("micro")
+                .path("latest")
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, getToken())
+                .post(Entity.json(""));
+        assertEquals(200, first.getStatus());
+        EntityTag etag = first.getEntityTag();
+        assertNotNull(etag);
+
+        Response notModified = getWebTarget()
+                .path("micro")
+                .path("latest")
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, getToken())
+                .header(HttpHeaders.IF_NONE_MATCH, etag.toString())
+                .post(Entity.json(""));
+        assertEquals(304, notModified.getStatus());
+
+        Movement createdMovement = movementService.createAndProcessMovement(MovementTestHelper.createMovement());
+
+        Response changed = getWebTarget()
+                .path("micro")
+                .path("latest")
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, getToken())
+                .header(HttpHeaders.IF_NONE_MATCH, etag.toString())
+                .post(Entity.json(""));
+        assertEquals(200, changed.getStatus());
+        assertNotEquals(etag, changed.getEntityTag());
+        assertTrue(changed.readEntity(RealTimeMapInitialData.class).getMovements()
+                .stream()
+                .anyMatch(m -> m.getId().equals(createdMovement.getId())));
+    }
+
 
 }
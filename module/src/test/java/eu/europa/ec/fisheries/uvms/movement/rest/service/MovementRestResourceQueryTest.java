@@ -7,6 +7,7 @@ import eu.europa.ec.fisheries.uvms.movement.model.GetMovementListByQueryResponse
 import eu.europa.ec.fisheries.uvms.movement.rest.BuildMovementRestDeployment;
 import eu.europa.ec.fisheries.uvms.movement.rest.MovementTestHelper;
 import eu.europa.ec.fisheries.uvms.movement.service.bean.MovementService;
+import eu.europa.ec.fisheries.uvms.movement.service.dto.MovementKeysetListResponseDto;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
 import org.jboss.arquillian.container.test.api.OperateOnDeployment;
 import org.jboss.arquillian.junit.Arquillian;
@@ -15,8 +16,10 @@ import org.junit.runner.RunWith;
 
 import javax.inject.Inject;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import java.math.BigInteger;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -344,6 +347,57 @@ public class MovementRestResourceQueryTest extends BuildMovementRestDeployment {
         assertTrue(movements.stream().anyMatch(type -> type.getGuid().equals(createdMovement2.getId().toString())));
     }
 
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void getKeysetListByConnectId() {
+        Movement movementBaseType1 = MovementTestHelper.createMovement();
+        Movement createdMovement1 = movementService.createAndProcessMovement(movementBaseType1);
+
+        Movement movementBaseType2 = MovementTestHelper.createMovement();
+        movementBaseType2.setMovementConnect(movementBaseType1.getMovementConnect());
+        movementBaseType2.setTimestamp(Instant.now().minus(10, ChronoUnit.SECONDS));
+        Movement createdMovement2 = movementService.createAndProcessMovement(movementBaseType2);
+
+        Movement movementBaseType3 = MovementTestHelper.createMovement();
+        movementBaseType3.setMovementConnect(movementBaseType1.getMovementConnect());
+        movementBaseType3.setTimestamp(Instant.now().minus(20, ChronoUnit.SECONDS));
+        Movement createdMovement3 = movementService.createAndProcessMovement(movementBaseType3);
+
+        MovementQuery query = MovementTestHelper.createMovementQuery();
+        query.getPagination().setListSize(BigInteger.valueOf(2));
+        ListCriteria criteria = new ListCriteria();
+        criteria.setKey(SearchKey.CONNECT_ID);
+        criteria.setValue(createdMovement1.getMovementConnect().getId().toString());
+        query.getMovementSearchCriteria().add(criteria);
+
+        MovementKeysetListResponseDto firstPage = getKeysetListByQuery(query, null);
+        assertThat(firstPage.getMovement().size(), is(2));
+        assertThat(firstPage.getMovement().get(0).getGuid(), is(createdMovement1.getId().toString()));
+        assertThat(firstPage.getMovement().get(1).getGuid(), is(createdMovement2.getId().toString()));
+        assertThat(firstPage.getTotalNumberOfMovements(), is(3L));
+        assertTrue(firstPage.isTotalNumberExact());
+        assertThat(firstPage.getNextCursor(), is(notNullValue()));
+
+        MovementKeysetListResponseDto secondPage = getKeysetListByQuery(query, firstPage.getNextCursor());
+        assertThat(secondPage.getMovement().size(), is(1));
+        assertThat(secondPage.getMovement().get(0).getGuid(), is(createdMovement3.getId().toString()));
+        assertNull(secondPage.getNextCursor());
+    }
+
+    private MovementKeysetListResponseDto getKeysetListByQuery(MovementQuery query, String cursor) {
+        WebTarget target = getWebTarget()
+                .path("movement")
+                .path("list")
+                .path("keyset");
+        if (cursor != null) {
+            target = target.queryParam("cursor", cursor);
+        }
+        return target
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, getToken())
+                .post(Entity.json(query), MovementKeysetListResponseDto.class);
+    }
+
     private GetMovementListByQueryResponse getListByQuery(MovementQuery query) {
         return getWebTarget()
                 .path("movement")
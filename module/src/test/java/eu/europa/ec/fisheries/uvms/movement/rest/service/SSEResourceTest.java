@@ -2,6 +2,7 @@ package eu.europa.ec.fisheries.uvms.movement.rest.service;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
@@ -69,7 +70,7 @@ public class SSEResourceTest extends BuildMovementRestDeployment {
             Thread.sleep(1000 * 1 * 1);
             assertTrue(source.isOpen());
             assertTrue(errorString,errorString.isEmpty());
-            assertEquals(dataString,3 ,dataString.split("\\}\\{").length);
+            assertEquals(dataString, 3, countMovements(dataString));
             Pattern p = Pattern.compile("\"timestamp\":\\d{13}");
             Matcher m = p.matcher(dataString);
             assertTrue(m.find());
@@ -81,6 +82,45 @@ public class SSEResourceTest extends BuildMovementRestDeployment {
 
     }
 
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void SSEAssetFilterTest() throws Exception{
+        UUID assetId = UUID.randomUUID();
+
+        Client client = ClientBuilder.newClient();
+        WebTarget target = client.target("http://localhost:8080/test/rest/sse/subscribe").queryParam("asset", assetId.toString());
+        AuthorizationHeaderWebTarget jwtTarget = new AuthorizationHeaderWebTarget(target, getToken());
+
+        try (SseEventSource source = SseEventSource.target(jwtTarget).reconnectingEvery(1, TimeUnit.SECONDS).build()) {
+            source.register(onEvent, onError, onComplete);
+            source.open();
+            assertTrue(source.isOpen());
+
+            movementService.createAndProcessMovement(MovementTestHelper.createMovement());
+
+            Movement movement = MovementTestHelper.createMovement();
+            movement.getMovementConnect().setId(assetId);
+            movementService.createAndProcessMovement(movement);
+
+            movementService.createAndProcessMovement(MovementTestHelper.createMovement());
+
+            Thread.sleep(1000);
+            assertTrue(errorString, errorString.isEmpty());
+            assertEquals(dataString, 1, countMovements(dataString));
+            assertTrue(dataString, dataString.contains(assetId.toString()));
+        }
+    }
+
+    // The movements come in arrays, several per event when they are created close together
+    private int countMovements(String data) {
+        Matcher m = Pattern.compile("\"asset\":").matcher(data);
+        int count = 0;
+        while (m.find()) {
+            count++;
+        }
+        return count;
+    }
+
     private static Consumer<InboundSseEvent> onEvent = (inboundSseEvent) -> {
         String data = inboundSseEvent.readData();
         dataString = dataString.concat(data);
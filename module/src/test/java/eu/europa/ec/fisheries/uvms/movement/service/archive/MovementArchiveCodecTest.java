@@ -0,0 +1,125 @@
+package eu.europa.ec.fisheries.uvms.movement.service.archive;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementPoint;
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.schema.movement.v1.MovementTypeType;
+import eu.europa.ec.fisheries.uvms.movement.model.constants.SatId;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MovementArchiveCodecTest {
+
+    private static final Instant START = Instant.parse("2019-03-01T00:00:00.123456Z");
+
+    @Test
+    public void roundTripTest() {
+        UUID asset = UUID.randomUUID();
+        List<MovementDto> movements = getTrack(asset, 500);
+
+        List<MovementDto> decoded = MovementArchiveCodec.decode(ByteBuffer.wrap(MovementArchiveCodec.encode(asset, movements)), null, null);
+
+        assertEquals(movements.size(), decoded.size());
+        for (int i = 0; i < movements.size(); i++) {
+            MovementDto expected = movements.get(i);
+            MovementDto actual = decoded.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getAsset(), actual.getAsset());
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+            assertEquals(expected.getLocation().getLatitude(), actual.getLocation().getLatitude(), 0.0000001);
+            assertEquals(expected.getLocation().getLongitude(), actual.getLocation().getLongitude(), 0.0000001);
+            assertEquals(expected.getSpeed(), actual.getSpeed());
+            assertEquals(expected.getHeading(), actual.getHeading());
+            assertEquals(expected.getCalculatedSpeed(), actual.getCalculatedSpeed());
+            assertEquals(expected.getStatus(), actual.getStatus());
+            assertEquals(expected.getSource(), actual.getSource());
+            assertEquals(expected.getMovementType(), actual.getMovementType());
+            assertEquals(expected.getLesReportTime(), actual.getLesReportTime());
+            assertEquals(expected.getSourceSatelliteId(), actual.getSourceSatelliteId());
+            assertEquals(expected.getUpdated(), actual.getUpdated());
+            assertEquals(expected.getUpdatedBy(), actual.getUpdatedBy());
+            assertEquals(expected.getAisPositionAccuracy(), actual.getAisPositionAccuracy());
+        }
+    }
+
+    @Test
+    public void timeRangeTest() {
+        UUID asset = UUID.randomUUID();
+        ByteBuffer file = ByteBuffer.wrap(MovementArchiveCodec.encode(asset, getTrack(asset, 100)));
+
+        List<MovementDto> decoded = MovementArchiveCodec.decode(file, START.plusSeconds(300), START.plusSeconds(600));
+
+        assertEquals(11, decoded.size());
+        assertEquals(START.plusSeconds(300), decoded.get(0).getTimestamp());
+        assertTrue(MovementArchiveCodec.decode(file, START.minusSeconds(60), START.minusSeconds(1)).isEmpty());
+    }
+
+    @Test
+    public void emptyFileTest() {
+        UUID asset = UUID.randomUUID();
+
+        byte[] encoded = MovementArchiveCodec.encode(asset, Collections.emptyList());
+
+        assertTrue(MovementArchiveCodec.decode(ByteBuffer.wrap(encoded), null, null).isEmpty());
+    }
+
+    @Test
+    public void encodedIsSmallTest() {
+        UUID asset = UUID.randomUUID();
+
+        byte[] encoded = MovementArchiveCodec.encode(asset, getTrack(asset, 1000));
+
+        // The ids alone take 16 bytes per movement
+        assertTrue("Archived " + encoded.length + " bytes", encoded.length < 1000 * 48);
+    }
+
+    @Test
+    public void enumsAreStoredByValueTest() {
+        UUID asset = UUID.randomUUID();
+
+        byte[] encoded = MovementArchiveCodec.encode(asset, getTrack(asset, 10));
+
+        assertEquals(MovementArchiveCodec.VERSION, ByteBuffer.wrap(encoded).getShort(4));
+        String content = new String(encoded, StandardCharsets.UTF_8);
+        assertTrue(content.contains(MovementSourceType.INMARSAT_C.value()));
+        assertTrue(content.contains(MovementSourceType.AIS.value()));
+        assertTrue(content.contains(MovementTypeType.POS.value()));
+    }
+
+    private List<MovementDto> getTrack(UUID asset, int positions) {
+        List<MovementDto> movements = new ArrayList<>();
+        for (int i = 0; i < positions; i++) {
+            MovementDto movement = new MovementDto();
+            movement.setId(UUID.randomUUID());
+            movement.setAsset(asset.toString());
+            movement.setTimestamp(START.plusSeconds(30L * i));
+            MovementPoint location = new MovementPoint();
+            location.setLatitude(57.1234567 + i * 0.0001);
+            location.setLongitude(-11.7654321 + i * 0.0002);
+            movement.setLocation(location);
+            movement.setSpeed(i % 5 == 0 ? null : 8.5f + i % 3);
+            movement.setHeading((float) (i % 360));
+            movement.setCalculatedSpeed(i % 2 == 0 ? null : 8.4 + i / 1000d);
+            movement.setStatus(i % 4 == 0 ? null : "01" + i % 3);
+            movement.setSource(i % 3 == 0 ? MovementSourceType.INMARSAT_C : MovementSourceType.AIS);
+            movement.setMovementType(i % 7 == 0 ? null : MovementTypeType.POS);
+            movement.setLesReportTime(i % 3 == 0 ? movement.getTimestamp().minusSeconds(5) : null);
+            movement.setSourceSatelliteId(i % 3 == 0 ? SatId.AORW : null);
+            movement.setUpdated(movement.getTimestamp().plusMillis(10));
+            movement.setUpdatedBy("UVMS");
+            movement.setAisPositionAccuracy(i % 3 == 0 ? null : (short) 1);
+            movements.add(movement);
+        }
+        return movements;
+    }
+}
@@ -0,0 +1,130 @@
+package eu.europa.ec.fisheries.uvms.movement.service.archive;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementPoint;
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.uvms.config.service.ParameterService;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.service.constant.ParameterKey;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MovementArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private ParameterService parameterService;
+
+    @InjectMocks
+    private MovementArchive archive;
+
+    @Test
+    public void writeAndReadTest() throws Exception {
+        useTemporaryFolder();
+        UUID asset = UUID.randomUUID();
+        MovementDto march = getMovement(asset, Instant.parse("2019-03-31T23:59:00Z"));
+        MovementDto april = getMovement(asset, Instant.parse("2019-04-01T00:01:00Z"));
+        archive.write(asset, YearMonth.of(2019, 3), Collections.singletonList(march));
+        archive.write(asset, YearMonth.of(2019, 4), Collections.singletonList(april));
+
+        List<MovementDto> movements = archive.read(Collections.singletonList(asset), Instant.parse("2019-03-01T00:00:00Z"),
+                Instant.parse("2019-05-01T00:00:00Z"), movement -> true, Integer.MAX_VALUE);
+
+        assertThat(movements.size(), is(2));
+        assertThat(movements.get(0).getId(), is(march.getId()));
+        assertThat(movements.get(1).getId(), is(april.getId()));
+        assertThat(archive.read(null, Instant.parse("2019-04-01T00:00:00Z"), null, movement -> true, Integer.MAX_VALUE).size(), is(1));
+        assertThat(archive.read(Collections.singletonList(UUID.randomUUID()), null, null, movement -> true, Integer.MAX_VALUE).isEmpty(), is(true));
+    }
+
+    @Test
+    public void writeMergesWithArchivedTest() throws Exception {
+        useTemporaryFolder();
+        UUID asset = UUID.randomUUID();
+        MovementDto first = getMovement(asset, Instant.parse("2019-03-02T00:00:00Z"));
+        MovementDto second = getMovement(asset, Instant.parse("2019-03-01T00:00:00Z"));
+        archive.write(asset, YearMonth.of(2019, 3), Collections.singletonList(first));
+        archive.write(asset, YearMonth.of(2019, 3), Arrays.asList(second, first));
+
+        List<MovementDto> movements = archive.read(null, null, null, movement -> true, Integer.MAX_VALUE);
+
+        assertThat(movements.size(), is(2));
+        assertThat(movements.get(0).getId(), is(second.getId()));
+    }
+
+    @Test
+    public void filterAndLimitTest() throws Exception {
+        useTemporaryFolder();
+        UUID asset = UUID.randomUUID();
+        MovementDto ais = getMovement(asset, Instant.parse("2019-03-01T00:00:00Z"));
+        MovementDto vms = getMovement(asset, Instant.parse("2019-03-01T00:01:00Z"));
+        vms.setSource(MovementSourceType.INMARSAT_C);
+        MovementDto later = getMovement(asset, Instant.parse("2019-03-01T00:02:00Z"));
+        archive.write(asset, YearMonth.of(2019, 3), Arrays.asList(ais, vms, later));
+
+        List<MovementDto> movements = archive.read(null, null, null, movement -> movement.getSource() == MovementSourceType.AIS, 1);
+
+        assertThat(movements.size(), is(1));
+        assertThat(movements.get(0).getId(), is(ais.getId()));
+    }
+
+    @Test
+    public void nothingArchivedWithoutDirectoryTest() throws Exception {
+        doReturn(null).when(parameterService).getStringValue(ParameterKey.ARCHIVE_DIRECTORY.getKey());
+        UUID asset = UUID.randomUUID();
+
+        assertThat(archive.isWritable(), is(false));
+        assertThat(archive.read(null, null, null, movement -> true, Integer.MAX_VALUE).isEmpty(), is(true));
+        try {
+            archive.write(asset, YearMonth.of(2019, 3), Collections.singletonList(getMovement(asset, Instant.now())));
+            fail("Archived without a directory");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void idsAreComparedUnsignedTest() {
+        UUID low = UUID.fromString("10000000-0000-0000-0000-000000000000");
+        UUID high = UUID.fromString("f0000000-0000-0000-0000-000000000000");
+
+        assertThat(MovementArchive.compareIds(low, high) < 0, is(true));
+        assertThat(MovementArchive.compareIds(high, low) > 0, is(true));
+        assertThat(MovementArchive.compareIds(low, low), is(0));
+    }
+
+    private void useTemporaryFolder() throws Exception {
+        doReturn(folder.getRoot().getAbsolutePath()).when(parameterService).getStringValue(ParameterKey.ARCHIVE_DIRECTORY.getKey());
+    }
+
+    private MovementDto getMovement(UUID asset, Instant timestamp) {
+        MovementDto movement = new MovementDto();
+        movement.setId(UUID.randomUUID());
+        movement.setAsset(asset.toString());
+        movement.setTimestamp(timestamp);
+        movement.setSource(MovementSourceType.AIS);
+        MovementPoint location = new MovementPoint();
+        location.setLatitude(57.5);
+        location.setLongitude(11.5);
+        movement.setLocation(location);
+        return movement;
+    }
+}
@@ -0,0 +1,98 @@
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.uvms.asset.client.model.AssetMTEnrichmentRequest;
+import eu.europa.ec.fisheries.uvms.asset.client.model.AssetMTEnrichmentResponse;
+import eu.europa.ec.fisheries.uvms.movement.service.dto.AssetMTEnrichmentKey;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class AssetEnrichmentCacheTest {
+
+    private AssetEnrichmentCache cache;
+
+    @Before
+    public void init() {
+        cache = new AssetEnrichmentCache();
+    }
+
+    @Test
+    public void hitAfterPutTest() {
+        AssetMTEnrichmentResponse response = getResponse();
+        cache.put(getKey("IRCS1"), response);
+
+        assertThat(cache.get(getKey("IRCS1")), is(sameInstance(response)));
+        assertThat(cache.getHits(), is(1L));
+        assertThat(cache.getMisses(), is(0L));
+    }
+
+    @Test
+    public void missOnOtherIdentifiersTest() {
+        cache.put(getKey("IRCS1"), getResponse());
+
+        assertThat(cache.get(getKey("IRCS2")), is(nullValue()));
+        assertThat(cache.getMisses(), is(1L));
+    }
+
+    @Test
+    public void userIsNotPartOfKeyTest() {
+        AssetMTEnrichmentRequest request1 = getRequest("IRCS1");
+        request1.setUser("user1");
+        AssetMTEnrichmentRequest request2 = getRequest("IRCS1");
+        request2.setUser("user2");
+
+        assertThat(AssetMTEnrichmentKey.of(request1), is(AssetMTEnrichmentKey.of(request2)));
+    }
+
+    @Test
+    public void unknownAssetIsNotCachedTest() {
+        cache.put(getKey("IRCS1"), new AssetMTEnrichmentResponse());
+
+        assertThat(cache.get(getKey("IRCS1")), is(nullValue()));
+        assertThat(cache.getSize(), is(0));
+    }
+
+    @Test
+    public void invalidateAllTest() {
+        cache.put(getKey("IRCS1"), getResponse());
+        cache.put(getKey("IRCS2"), getResponse());
+        cache.invalidateAll();
+
+        assertThat(cache.getSize(), is(0));
+        assertThat(cache.get(getKey("IRCS1")), is(nullValue()));
+        assertThat(cache.getInvalidations(), is(1L));
+    }
+
+    @Test
+    public void sizeIsBoundedTest() {
+        for (int i = 0; i < AssetEnrichmentCache.MAX_SIZE + 10; i++) {
+            cache.put(getKey("IRCS" + i), getResponse());
+        }
+
+        assertThat(cache.getSize() <= AssetEnrichmentCache.MAX_SIZE, is(true));
+        assertThat(cache.getEvictions() > 0, is(true));
+    }
+
+    private AssetMTEnrichmentKey getKey(String ircs) {
+        return AssetMTEnrichmentKey.of(getRequest(ircs));
+    }
+
+    private AssetMTEnrichmentRequest getRequest(String ircs) {
+        AssetMTEnrichmentRequest request = new AssetMTEnrichmentRequest();
+        request.setIrcsValue(ircs);
+        request.setMmsiValue("123456789");
+        return request;
+    }
+
+    private AssetMTEnrichmentResponse getResponse() {
+        AssetMTEnrichmentResponse response = new AssetMTEnrichmentResponse();
+        response.setAssetUUID(UUID.randomUUID().toString());
+        return response;
+    }
+}
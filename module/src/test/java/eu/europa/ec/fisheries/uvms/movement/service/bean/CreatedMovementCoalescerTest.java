@@ -0,0 +1,91 @@
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.uvms.config.service.ParameterService;
+import eu.europa.ec.fisheries.uvms.movement.service.event.CreatedMovementBatch;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.MovementConnect;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CreatedMovementCoalescerTest {
+
+    @Mock
+    private ParameterService parameterService;
+
+    @InjectMocks
+    private CreatedMovementCoalescer coalescer;
+
+    @Test
+    public void latestMovementPerAssetTest() {
+        UUID asset = UUID.randomUUID();
+        Movement older = getMovement(asset, Instant.now().minusSeconds(60));
+        Movement latest = getMovement(asset, Instant.now());
+        coalescer.createdMovement(latest);
+        coalescer.createdMovement(older);
+        coalescer.createdMovement(getMovement(UUID.randomUUID(), Instant.now()));
+
+        CreatedMovementBatch batch = coalescer.takeBatch();
+
+        assertThat(batch.getMovements().size(), is(2));
+        assertTrue(batch.getJsonArray(movement -> movement.getAsset().equals(asset.toString())).contains(latest.getId().toString()));
+        assertThat(coalescer.getPending(), is(0));
+        assertThat(coalescer.takeBatch(), is(nullValue()));
+    }
+
+    @Test
+    public void batchIdsIncreaseTest() {
+        coalescer.createdMovement(getMovement(UUID.randomUUID(), Instant.now()));
+        long first = coalescer.takeBatch().getId();
+        coalescer.createdMovement(getMovement(UUID.randomUUID(), Instant.now()));
+
+        long second = coalescer.takeBatch().getId();
+
+        assertThat(second, is(first + 1));
+        assertTrue(first > 0);
+        assertThat(CreatedMovementBatch.getEpoch(second), is(CreatedMovementBatch.getEpoch(first)));
+    }
+
+    @Test
+    public void windowFromSettingTest() throws Exception {
+        doReturn("1000").when(parameterService).getStringValue(anyString());
+
+        assertThat(coalescer.getWindowMillis(), is(1000L));
+    }
+
+    @Test
+    public void defaultWindowWithoutSettingTest() throws Exception {
+        doThrow(new RuntimeException("No setting")).when(parameterService).getStringValue(anyString());
+
+        assertThat(coalescer.getWindowMillis(), is(CreatedMovementCoalescer.DEFAULT_WINDOW_MILLIS));
+    }
+
+    private Movement getMovement(UUID asset, Instant timestamp) {
+        MovementConnect movementConnect = new MovementConnect();
+        movementConnect.setId(asset);
+        Movement movement = new Movement();
+        movement.setId(UUID.randomUUID());
+        movement.setMovementConnect(movementConnect);
+        movement.setTimestamp(timestamp);
+        movement.setSource(MovementSourceType.AIS);
+        movement.setLocation(new GeometryFactory().createPoint(new Coordinate(11d, 57d)));
+        return movement;
+    }
+}
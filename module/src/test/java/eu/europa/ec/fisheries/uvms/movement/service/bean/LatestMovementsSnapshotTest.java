@@ -0,0 +1,171 @@
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.uvms.asset.client.AssetClient;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
+import eu.europa.ec.fisheries.uvms.movement.service.dao.MovementDao;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.MovementConnect;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LatestMovementsSnapshotTest {
+
+    @Mock
+    private MovementDao movementDao;
+
+    @Mock
+    private AssetClient assetClient;
+
+    @InjectMocks
+    private LatestMovementsSnapshot snapshot;
+
+    @Test
+    public void loadedOnceFromDatabaseTest() {
+        MovementDto stored = getMovementDto(UUID.randomUUID(), Instant.now().minusSeconds(60), MovementSourceType.AIS);
+        doReturn(Collections.singletonList(stored)).when(movementDao).getLatestWithLimit(any(), anyList());
+
+        assertThat(snapshot.getLatest(EnumSet.allOf(MovementSourceType.class)).size(), is(1));
+        assertThat(snapshot.getLatest(EnumSet.allOf(MovementSourceType.class)).size(), is(1));
+        verify(movementDao, times(1)).getLatestWithLimit(any(), anyList());
+    }
+
+    @Test
+    public void createdMovementReplacesOlderTest() {
+        UUID asset = UUID.randomUUID();
+        MovementDto stored = getMovementDto(asset, Instant.now().minusSeconds(60), MovementSourceType.AIS);
+        doReturn(Collections.singletonList(stored)).when(movementDao).getLatestWithLimit(any(), anyList());
+        snapshot.getLatest(EnumSet.allOf(MovementSourceType.class));
+
+        Movement created = getMovement(asset, Instant.now(), MovementSourceType.INMARSAT_C);
+        snapshot.createdMovement(created);
+
+        List<MovementDto> latest = snapshot.getLatest(EnumSet.allOf(MovementSourceType.class));
+        assertThat(latest.size(), is(1));
+        assertThat(latest.get(0).getId(), is(created.getId()));
+    }
+
+    @Test
+    public void versionChangesOncePerIntervalTest() {
+        UUID asset = UUID.randomUUID();
+        doReturn(Collections.emptyList()).when(movementDao).getLatestWithLimit(any(), anyList());
+        snapshot.getLatest(EnumSet.allOf(MovementSourceType.class));
+        long interval = LatestMovementsSnapshot.VERSION_INTERVAL.toMillis();
+        long now = System.currentTimeMillis() + interval;
+        long version = snapshot.getVersion(now);
+
+        snapshot.createdMovement(getMovement(asset, Instant.now().minusSeconds(10), MovementSourceType.AIS));
+        snapshot.createdMovement(getMovement(asset, Instant.now(), MovementSourceType.AIS));
+        assertThat(snapshot.getVersion(now), is(version));
+
+        assertThat(snapshot.getVersion(now + interval), is(version + 1));
+        assertThat(snapshot.getVersion(now + 2 * interval), is(version + 1));
+    }
+
+    @Test
+    public void movementsFromOtherNodesAreReadEachIntervalTest() {
+        MovementDto stored = getMovementDto(UUID.randomUUID(), Instant.now().minusSeconds(60), MovementSourceType.AIS);
+        MovementDto fromOtherNode = getMovementDto(UUID.randomUUID(), Instant.now(), MovementSourceType.AIS);
+        doReturn(Collections.singletonList(stored)).doReturn(Collections.singletonList(fromOtherNode))
+                .when(movementDao).getLatestWithLimit(any(), anyList());
+        snapshot.getLatest(EnumSet.allOf(MovementSourceType.class));
+
+        long version = snapshot.getVersion(System.currentTimeMillis() + LatestMovementsSnapshot.VERSION_INTERVAL.toMillis());
+
+        assertThat(version, is(1L));
+        assertThat(snapshot.getLatest(EnumSet.allOf(MovementSourceType.class)).size(), is(2));
+        verify(movementDao, times(2)).getLatestWithLimit(any(), anyList());
+    }
+
+    @Test
+    public void olderCreatedMovementIsIgnoredTest() {
+        UUID asset = UUID.randomUUID();
+        MovementDto stored = getMovementDto(asset, Instant.now(), MovementSourceType.AIS);
+        doReturn(Collections.singletonList(stored)).when(movementDao).getLatestWithLimit(any(), anyList());
+        snapshot.getLatest(EnumSet.allOf(MovementSourceType.class));
+
+        snapshot.createdMovement(getMovement(asset, Instant.now().minusSeconds(600), MovementSourceType.AIS));
+
+        assertThat(snapshot.getLatest(EnumSet.allOf(MovementSourceType.class)).get(0).getId(), is(stored.getId()));
+    }
+
+    @Test
+    public void filterOnSourceAndAgeTest() {
+        MovementDto ais = getMovementDto(UUID.randomUUID(), Instant.now(), MovementSourceType.AIS);
+        MovementDto vms = getMovementDto(UUID.randomUUID(), Instant.now(), MovementSourceType.INMARSAT_C);
+        MovementDto old = getMovementDto(UUID.randomUUID(), Instant.now().minus(LatestMovementsSnapshot.WINDOW).minusSeconds(1), MovementSourceType.AIS);
+        doReturn(Arrays.asList(ais, vms, old)).when(movementDao).getLatestWithLimit(any(), anyList());
+
+        List<MovementDto> latest = snapshot.getLatest(Collections.singletonList(MovementSourceType.AIS));
+
+        assertThat(latest.size(), is(1));
+        assertThat(latest.get(0).getId(), is(ais.getId()));
+    }
+
+    @Test
+    public void movementsBeforeFirstUseAreNotTrackedTest() {
+        snapshot.createdMovement(getMovement(UUID.randomUUID(), Instant.now(), MovementSourceType.AIS));
+
+        assertThat(snapshot.getSize(), is(0));
+    }
+
+    @Test
+    public void assetInfoIsCachedTest() {
+        doReturn("assets").when(assetClient).getMicroAssetList(anyList());
+
+        assertThat(snapshot.getMicroAssets(Arrays.asList("a", "b")), is("assets"));
+        assertThat(snapshot.getMicroAssets(Collections.singletonList("a")), is("assets"));
+        verify(assetClient, times(1)).getMicroAssetList(anyList());
+
+        snapshot.getMicroAssets(Arrays.asList("a", "c"));
+        verify(assetClient, times(2)).getMicroAssetList(anyList());
+
+        snapshot.invalidateAssetInfo();
+        snapshot.getMicroAssets(Collections.singletonList("a"));
+        verify(assetClient, times(3)).getMicroAssetList(anyList());
+    }
+
+    private MovementDto getMovementDto(UUID asset, Instant timestamp, MovementSourceType source) {
+        MovementDto movement = new MovementDto();
+        movement.setId(UUID.randomUUID());
+        movement.setAsset(asset.toString());
+        movement.setTimestamp(timestamp);
+        movement.setUpdated(timestamp);
+        movement.setSource(source);
+        return movement;
+    }
+
+    private Movement getMovement(UUID asset, Instant timestamp, MovementSourceType source) {
+        MovementConnect movementConnect = new MovementConnect();
+        movementConnect.setId(asset);
+        Movement movement = new Movement();
+        movement.setId(UUID.randomUUID());
+        movement.setMovementConnect(movementConnect);
+        movement.setTimestamp(timestamp);
+        movement.setUpdated(timestamp);
+        movement.setSource(source);
+        movement.setLocation(new GeometryFactory().createPoint(new Coordinate(11d, 57d)));
+        return movement;
+    }
+}
@@ -0,0 +1,138 @@
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.MovementConnect;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class MovementConnectStateCacheTest {
+
+    private MovementConnectStateCache cache;
+    private MovementConnect movementConnect;
+    private Instant start;
+
+    @Before
+    public void init() {
+        cache = new MovementConnectStateCache();
+        movementConnect = new MovementConnect();
+        movementConnect.setId(UUID.randomUUID());
+        start = Instant.now();
+    }
+
+    @Test
+    public void noStateBeforeFirstMovementTest() {
+        assertThat(cache.get(movementConnect), is(nullValue()));
+        assertThat(cache.getMisses(), is(1L));
+    }
+
+    @Test
+    public void latestTimestampTest() {
+        storeInOrder(start, MovementSourceType.AIS);
+        storeInOrder(start.plusSeconds(10), MovementSourceType.AIS);
+
+        MovementConnectStateCache.State state = cache.get(movementConnect);
+        assertThat(state, is(notNullValue()));
+        assertThat(state.getLatestTimestamp(), is(start.plusSeconds(10)));
+        assertThat(state.isFreeTimestamp(start.plusSeconds(20)), is(true));
+        assertThat(state.isFreeTimestamp(start.plusSeconds(5)), is(false));
+        assertThat(state.isFreeTimestamp(start.plusSeconds(10)), is(false));
+        assertThat(state.isFreeTimestamp(start), is(false));
+        assertThat(state.isFreeTimestamp(start.minusSeconds(5)), is(false));
+    }
+
+    @Test
+    public void outOfOrderMovementIsRememberedTest() {
+        storeInOrder(start, MovementSourceType.AIS);
+        storeInOrder(start.plusSeconds(10), MovementSourceType.AIS);
+        Movement outOfOrder = getMovement(start.plusSeconds(5), MovementSourceType.AIS);
+        cache.createdMovement(outOfOrder);
+
+        assertThat(cache.get(movementConnect).isFreeTimestamp(start.plusSeconds(5)), is(false));
+    }
+
+    @Test
+    public void latestVmsTest() {
+        storeInOrder(start, MovementSourceType.AIS);
+        assertThat(cache.get(movementConnect).isLatestVmsKnown(), is(false));
+
+        Movement vms = storeInOrder(start.plusSeconds(10), MovementSourceType.INMARSAT_C);
+        storeInOrder(start.plusSeconds(20), MovementSourceType.AIS);
+
+        MovementConnectStateCache.State state = cache.get(movementConnect);
+        assertThat(state.isLatestVmsKnown(), is(true));
+        assertThat(state.getLatestVmsTimestamp(), is(vms.getTimestamp()));
+        assertThat(state.getLatestVms().getId(), is(vms.getId()));
+        assertThat(state.getLatestVms().getLocation(), is(vms.getLocation()));
+    }
+
+    @Test
+    public void stateIsDroppedWhenLatestMovementChangedElsewhereTest() {
+        storeInOrder(start, MovementSourceType.AIS);
+        movementConnect.setLatestMovement(getMovement(start.plusSeconds(10), MovementSourceType.AIS));
+
+        assertThat(cache.get(movementConnect), is(nullValue()));
+        assertThat(cache.getSize(), is(0));
+    }
+
+    @Test
+    public void invalidateTest() {
+        storeInOrder(start, MovementSourceType.AIS);
+        cache.invalidate(movementConnect.getId());
+
+        assertThat(cache.get(movementConnect), is(nullValue()));
+    }
+
+    @Test
+    public void leastRecentlyUsedStateIsEvictedTest() {
+        storeInOrder(start, MovementSourceType.AIS);
+        MovementConnect first = movementConnect;
+        movementConnect = new MovementConnect();
+        movementConnect.setId(UUID.randomUUID());
+        storeInOrder(start, MovementSourceType.AIS);
+        MovementConnect second = movementConnect;
+
+        // Fill the cache, reading the first state in between keeps it in use
+        for (int i = 2; i < MovementConnectStateCache.MAX_SIZE; i++) {
+            movementConnect = new MovementConnect();
+            movementConnect.setId(UUID.randomUUID());
+            storeInOrder(start, MovementSourceType.AIS);
+        }
+        assertThat(cache.get(first), is(notNullValue()));
+        movementConnect = new MovementConnect();
+        movementConnect.setId(UUID.randomUUID());
+        storeInOrder(start, MovementSourceType.AIS);
+
+        assertThat(cache.getSize(), is(MovementConnectStateCache.MAX_SIZE));
+        assertThat(cache.get(first), is(notNullValue()));
+        assertThat(cache.get(second), is(nullValue()));
+    }
+
+    private Movement storeInOrder(Instant timestamp, MovementSourceType source) {
+        Movement movement = getMovement(timestamp, source);
+        movement.setPreviousMovement(movementConnect.getLatestMovement());
+        movementConnect.setLatestMovement(movement);
+        cache.createdMovement(movement);
+        return movement;
+    }
+
+    private Movement getMovement(Instant timestamp, MovementSourceType source) {
+        Movement movement = new Movement();
+        movement.setId(UUID.randomUUID());
+        movement.setTimestamp(timestamp);
+        movement.setSource(source);
+        movement.setLocation(new GeometryFactory().createPoint(new Coordinate(1d, 2d)));
+        movement.setMovementConnect(movementConnect);
+        return movement;
+    }
+}
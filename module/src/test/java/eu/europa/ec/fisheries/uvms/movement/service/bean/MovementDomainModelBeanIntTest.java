@@ -4,6 +4,7 @@ import eu.europa.ec.fisheries.schema.movement.search.v1.*;
 import eu.europa.ec.fisheries.schema.movement.source.v1.GetMovementMapByQueryResponse;
 import eu.europa.ec.fisheries.schema.movement.v1.MovementSegment;
 import eu.europa.ec.fisheries.schema.movement.v1.MovementTrack;
+import eu.europa.ec.fisheries.schema.movement.v1.MovementType;
 import eu.europa.ec.fisheries.schema.movement.v1.SegmentCategoryType;
 import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
 import eu.europa.ec.fisheries.uvms.movement.model.GetMovementListByQueryResponse;
@@ -233,6 +234,43 @@ public class MovementDomainModelBeanIntTest extends TransactionalTests {
     	*/
     }
 
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void testGetMovementListByQueryInChunks() {
+        MovementQuery input = new MovementQuery();
+        ListPagination listPagination = new ListPagination();
+        listPagination.setListSize(new BigInteger("15"));
+        listPagination.setPage(new BigInteger("1"));
+        input.setPagination(listPagination);
+
+        UUID connectID = UUID.randomUUID();
+        UUID connectID2 = UUID.randomUUID();
+        createAndProcess10MovementsFromVarbergGrena(connectID);
+        createAndProcess10MovementsFromVarbergGrena(connectID2);
+        for (UUID id : new UUID[] {connectID, connectID2}) {
+            ListCriteria listCriteria = new ListCriteria();
+            listCriteria.setKey(SearchKey.CONNECT_ID);
+            listCriteria.setValue(id.toString());
+            input.getMovementSearchCriteria().add(listCriteria);
+        }
+
+        assertEquals(4, movementService.getListChunkCount(input, 4));
+        List<String> chunked = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            List<MovementType> chunk = movementService.getListChunk(input, i, 4);
+            assertEquals(i < 3 ? 4 : 3, chunk.size());
+            chunk.forEach(movement -> chunked.add(movement.getGuid()));
+        }
+
+        List<String> page = new ArrayList<>();
+        movementService.getList(input).getMovement().forEach(movement -> page.add(movement.getGuid()));
+        assertEquals(page, chunked);
+
+        listPagination.setPage(new BigInteger("3"));
+        assertEquals(1, movementService.getListChunkCount(input, 4));
+        assertTrue(movementService.getListChunk(input, 0, 4).isEmpty());
+    }
+
     @Test
     @OperateOnDeployment("movementservice")
     public void testGetMovementListByQuery_WillFailEmptyRangeSearchCriteria() {
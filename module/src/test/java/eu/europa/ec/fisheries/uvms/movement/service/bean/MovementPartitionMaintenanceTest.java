@@ -0,0 +1,93 @@
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.uvms.config.service.ParameterService;
+import eu.europa.ec.fisheries.uvms.movement.service.constant.ParameterKey;
+import eu.europa.ec.fisheries.uvms.movement.service.dao.MovementPartitionDao;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MovementPartitionMaintenanceTest {
+
+    @Mock
+    private ParameterService parameterService;
+
+    @Mock
+    private MovementPartitionDao partitionDao;
+
+    @InjectMocks
+    private MovementPartitionMaintenance maintenance;
+
+    @Test
+    public void upcomingPartitionsAreCreatedTest() {
+        maintenance.createUpcomingPartitions(YearMonth.of(2019, 11));
+
+        verify(partitionDao).createPartition(YearMonth.of(2019, 11));
+        verify(partitionDao).createPartition(YearMonth.of(2019, 12));
+        verify(partitionDao).createPartition(YearMonth.of(2020, 1));
+        verify(partitionDao).createPartition(YearMonth.of(2020, 2));
+    }
+
+    @Test
+    public void expiredPartitionsAreDetachedTest() throws Exception {
+        doReturn("12").when(parameterService).getStringValue(ParameterKey.PARTITION_RETENTION_MONTHS.getKey());
+        doReturn(Arrays.asList("movement_default", "movement_y2018m10", "movement_y2018m11", "movement_y2018m12"))
+                .when(partitionDao).getPartitionNames();
+
+        maintenance.detachExpiredPartitions(YearMonth.of(2019, 11));
+
+        verify(partitionDao).detachPartition("movement_y2018m10");
+        verify(partitionDao, never()).detachPartition("movement_y2018m11");
+        verify(partitionDao, never()).detachPartition("movement_default");
+    }
+
+    @Test
+    public void nothingIsDetachedWithoutRetentionTest() throws Exception {
+        doReturn(null).when(parameterService).getStringValue(ParameterKey.PARTITION_RETENTION_MONTHS.getKey());
+
+        maintenance.detachExpiredPartitions(YearMonth.of(2019, 11));
+
+        verify(partitionDao, never()).getPartitionNames();
+        verify(partitionDao, never()).detachPartition(anyString());
+    }
+
+    @Test
+    public void oldestMonthTest() {
+        assertThat(MovementPartitionMaintenance.getOldestMonth(Arrays.asList("movement_default", "movement_y2018m11", "movement_y2018m10")),
+                is(YearMonth.of(2018, 10)));
+        assertThat(MovementPartitionMaintenance.getOldestMonth(Collections.singletonList("movement_default")), is(nullValue()));
+    }
+
+    @Test
+    public void notPartitionedTest() {
+        doReturn(false).when(partitionDao).isPartitioned();
+
+        maintenance.maintain();
+
+        verify(partitionDao, never()).createPartition(any());
+    }
+
+    @Test
+    public void partitionMonthTest() {
+        assertThat(MovementPartitionMaintenance.getMonth("movement_y2019m03"), is(YearMonth.of(2019, 3)));
+        assertThat(MovementPartitionMaintenance.getMonth("movement_default"), is(nullValue()));
+        assertThat(MovementPartitionMaintenance.getExpiredPartitions(Collections.singletonList("movement_y2019m03"),
+                YearMonth.of(2019, 3)).isEmpty(), is(true));
+    }
+}
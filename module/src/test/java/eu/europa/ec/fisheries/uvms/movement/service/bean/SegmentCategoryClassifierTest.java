@@ -0,0 +1,114 @@
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.schema.movement.v1.SegmentCategoryType;
+import eu.europa.ec.fisheries.uvms.config.service.ParameterService;
+import eu.europa.ec.fisheries.uvms.movement.service.constant.ParameterKey;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import eu.europa.ec.fisheries.uvms.movement.service.util.WKTUtil;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SegmentCategoryClassifierTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private ParameterService parameterService;
+
+    @InjectMocks
+    private SegmentCategoryClassifier classifier;
+
+    @Before
+    public void init() {
+        classifier.setPortAreas(Arrays.asList(
+                WKTUtil.getGeometryFromWKTSrring("POLYGON((11 57, 12 57, 12 58, 11 58, 11 57))"),
+                WKTUtil.getGeometryFromWKTSrring("POLYGON((18 59, 19 59, 19 60, 18 60, 18 59))")));
+    }
+
+    @Test
+    public void coldClassifierTest() {
+        classifier.setPortAreas(Collections.emptyList());
+
+        assertThat(classifier.isCold(), is(true));
+        assertThat(classifier.classify(getMovement(11.5, 57.5), getMovement(13, 57.5)), is(nullValue()));
+        assertThat(classifier.getColdClassifications(), is(1L));
+    }
+
+    @Test
+    public void exitPortTest() {
+        assertThat(classifier.classify(getMovement(11.5, 57.5), getMovement(13, 57.5)), is(SegmentCategoryType.EXIT_PORT));
+    }
+
+    @Test
+    public void enterPortTest() {
+        assertThat(classifier.classify(getMovement(17, 59.5), getMovement(18.5, 59.5)), is(SegmentCategoryType.ENTER_PORT));
+    }
+
+    @Test
+    public void inPortTest() {
+        assertThat(classifier.classify(getMovement(11.2, 57.2), getMovement(11.8, 57.8)), is(SegmentCategoryType.IN_PORT));
+    }
+
+    @Test
+    public void atSeaTest() {
+        assertThat(classifier.classify(getMovement(13, 57.5), getMovement(14, 58)), is(SegmentCategoryType.OTHER));
+        assertThat(classifier.getLocalClassifications(), is(1L));
+    }
+
+    @Test
+    public void pointOnPortBorderIsInPortTest() {
+        assertThat(classifier.classify(getMovement(12, 57.5), getMovement(13, 57.5)), is(SegmentCategoryType.EXIT_PORT));
+    }
+
+    @Test
+    public void portAreasFromFileTest() throws Exception {
+        File file = folder.newFile("port-areas.wkt");
+        Files.write(file.toPath(), Arrays.asList("# Port areas exported from Spatial", "",
+                "POLYGON((20 60, 21 60, 21 61, 20 61, 20 60))"), StandardCharsets.UTF_8);
+        doReturn(file.getAbsolutePath()).when(parameterService).getStringValue(ParameterKey.PORT_AREAS_FILE.getKey());
+
+        classifier.refresh();
+
+        assertThat(classifier.classify(getMovement(20.5, 60.5), getMovement(22, 60.5)), is(SegmentCategoryType.EXIT_PORT));
+        // The port areas from before are replaced
+        assertThat(classifier.classify(getMovement(11.5, 57.5), getMovement(13, 57.5)), is(SegmentCategoryType.OTHER));
+        assertThat(classifier.getLocalClassifications(), is(2L));
+    }
+
+    @Test
+    public void coldWithoutPortAreasFileTest() throws Exception {
+        classifier.setPortAreas(Collections.emptyList());
+        doReturn(null).when(parameterService).getStringValue(ParameterKey.PORT_AREAS_FILE.getKey());
+
+        classifier.refresh();
+
+        assertThat(classifier.isCold(), is(true));
+    }
+
+    private Movement getMovement(double longitude, double latitude) {
+        Movement movement = new Movement();
+        movement.setLocation(new GeometryFactory().createPoint(new Coordinate(longitude, latitude)));
+        return movement;
+    }
+}
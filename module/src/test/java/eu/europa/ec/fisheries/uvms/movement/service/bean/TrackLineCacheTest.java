@@ -0,0 +1,89 @@
+package eu.europa.ec.fisheries.uvms.movement.service.bean;
+
+import eu.europa.ec.fisheries.uvms.movement.service.dao.MovementDao;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Track;
+import eu.europa.ec.fisheries.uvms.movement.service.util.GeometryUtil;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TrackLineCacheTest {
+
+    @Mock
+    private MovementDao movementDao;
+
+    @InjectMocks
+    private TrackLineCache trackLineCache;
+
+    @Test
+    public void linesAreCachedPerToleranceTest() {
+        Track track = getTrack();
+        doReturn(Collections.singletonMap(track.getId(), getZigzagLine())).when(movementDao).getLinesFromTracks(anyCollection(), anyInt());
+
+        assertThat(trackLineCache.getLines(Collections.singletonList(track), 0).get(track.getId()).getNumPoints(), is(100));
+        assertThat(trackLineCache.getLines(Collections.singletonList(track), 0).get(track.getId()).getNumPoints(), is(100));
+        verify(movementDao, times(1)).getLinesFromTracks(anyCollection(), anyInt());
+
+        assertThat(trackLineCache.getLines(Collections.singletonList(track), 0.001).get(track.getId()).getNumPoints(), is(2));
+        assertThat(trackLineCache.getLines(Collections.singletonList(track), 0.001).get(track.getId()).getNumPoints(), is(2));
+        verify(movementDao, times(2)).getLinesFromTracks(anyCollection(), anyInt());
+    }
+
+    @Test
+    public void updatedTrackIsReloadedTest() {
+        Track track = getTrack();
+        doReturn(Collections.singletonMap(track.getId(), getZigzagLine())).when(movementDao).getLinesFromTracks(anyCollection(), anyInt());
+        trackLineCache.getLines(Collections.singletonList(track), 0);
+
+        track.setUpdated(track.getUpdated().plusSeconds(1));
+        trackLineCache.getLines(Collections.singletonList(track), 0);
+
+        verify(movementDao, times(2)).getLinesFromTracks(anyCollection(), anyInt());
+    }
+
+    @Test
+    public void trackWithoutLineIsCachedTest() {
+        Track track = getTrack();
+        doReturn(Collections.emptyMap()).when(movementDao).getLinesFromTracks(anyCollection(), anyInt());
+
+        Map<UUID, LineString> lines = trackLineCache.getLines(Collections.singletonList(track), 0);
+        trackLineCache.getLines(Collections.singletonList(track), 0);
+
+        assertThat(lines.isEmpty(), is(true));
+        assertThat(trackLineCache.getSize(), is(1));
+        verify(movementDao, times(1)).getLinesFromTracks(anyCollection(), anyInt());
+    }
+
+    private Track getTrack() {
+        Track track = new Track();
+        track.setId(UUID.randomUUID());
+        track.setUpdated(Instant.now());
+        return track;
+    }
+
+    private LineString getZigzagLine() {
+        Coordinate[] coordinates = new Coordinate[100];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = new Coordinate(11.0 + i * 0.01, 57.0 + (i % 2) * 0.0001);
+        }
+        return GeometryUtil.getLineString(coordinates);
+    }
+}
@@ -6,6 +6,8 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import java.time.Instant;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -25,6 +27,9 @@ public class TrackServiceTest {
 
     @Mock
     private SpatialRestClient spatialClient;
+
+    @Mock
+    private SegmentCategoryClassifier segmentCategoryClassifier;
     
     @InjectMocks
     private TrackService trackService;
@@ -66,6 +71,17 @@ public class TrackServiceTest {
         assertThat(current.getTrack().getDuration(), is(notNullValue()));
     }
     
+    @Test
+    public void locallyClassifiedExitPortTest() {
+        doReturn(SegmentCategoryType.EXIT_PORT).when(segmentCategoryClassifier).classify(any(), any());
+        Movement previous = getMovement();
+        previous.setTrack(new Track());
+        Movement current = getMovement();
+        trackService.upsertTrack(previous, current);
+        assertThat(previous.getTrack(), is(not(current.getTrack())));
+        verify(spatialClient, never()).getSegmentCategoryType(any(), any());
+    }
+    
     private Movement getMovement() {
         Movement movement = new Movement();
         Coordinate coordinate = new Coordinate(1, 1);
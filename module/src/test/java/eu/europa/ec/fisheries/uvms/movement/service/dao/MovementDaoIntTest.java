@@ -3,10 +3,16 @@ package eu.europa.ec.fisheries.uvms.movement.service.dao;
 import eu.europa.ec.fisheries.schema.movement.v1.MovementSourceType;
 import eu.europa.ec.fisheries.schema.movement.v1.MovementTypeType;
 import eu.europa.ec.fisheries.uvms.commons.date.DateUtils;
+import eu.europa.ec.fisheries.uvms.config.service.ParameterService;
+import eu.europa.ec.fisheries.uvms.movement.model.dto.MovementDto;
 import eu.europa.ec.fisheries.uvms.movement.service.TransactionalTests;
+import eu.europa.ec.fisheries.uvms.movement.service.archive.MovementArchive;
+import eu.europa.ec.fisheries.uvms.movement.service.constant.ParameterKey;
 import eu.europa.ec.fisheries.uvms.movement.service.dto.CursorPagination;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
 import eu.europa.ec.fisheries.uvms.movement.service.entity.MovementConnect;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Track;
+import eu.europa.ec.fisheries.uvms.movement.service.mapper.MovementMapper;
 import eu.europa.ec.fisheries.uvms.movement.service.mapper.search.SearchField;
 import eu.europa.ec.fisheries.uvms.movement.service.mapper.search.SearchFieldMapper;
 import eu.europa.ec.fisheries.uvms.movement.service.mapper.search.SearchValue;
@@ -19,15 +25,19 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.internal.matchers.ThrowableMessageMatcher;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
 
 import javax.ejb.EJB;
 import javax.ejb.EJBTransactionRolledbackException;
+import javax.inject.Inject;
 import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.YearMonth;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
@@ -57,9 +67,18 @@ public class MovementDaoIntTest extends TransactionalTests {
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder archiveFolder = new TemporaryFolder();
+
     @EJB
     private MovementDao movementDao;
 
+    @Inject
+    private MovementArchive movementArchive;
+
+    @EJB
+    private ParameterService parameterService;
+
 
     /******************************************************************************************************************
      *   TEST FUNCTIONS
@@ -501,6 +520,192 @@ public class MovementDaoIntTest extends TransactionalTests {
         
     }
 
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void getCursorBasedListMergesArchivedMovements() throws Exception {
+        parameterService.setStringValue(ParameterKey.ARCHIVE_DIRECTORY.getKey(), archiveFolder.getRoot().getAbsolutePath(), "Test archive");
+        MovementConnect movementConnect = movementDao.createMovementConnect(createMovementConnectHelper());
+        Instant timestamp = Instant.parse("2019-03-10T10:00:00Z");
+
+        // Only in the archive, in both while being archived, and not archived yet
+        Movement archivedOnly = createMovementHelper();
+        archivedOnly.setId(UUID.randomUUID());
+        archivedOnly.setMovementConnect(movementConnect);
+        archivedOnly.setTimestamp(timestamp);
+        Movement inBoth = createMovementHelper();
+        inBoth.setMovementConnect(movementConnect);
+        inBoth.setTimestamp(timestamp.plus(1, ChronoUnit.HOURS));
+        movementDao.createMovement(inBoth);
+        Movement databaseOnly = createMovementHelper();
+        databaseOnly.setMovementConnect(movementConnect);
+        databaseOnly.setTimestamp(timestamp.plus(2, ChronoUnit.HOURS));
+        movementDao.createMovement(databaseOnly);
+
+        // Other source in both stores, filtered out
+        Movement archivedAis = createMovementHelper();
+        archivedAis.setId(UUID.randomUUID());
+        archivedAis.setMovementConnect(movementConnect);
+        archivedAis.setTimestamp(timestamp.plus(30, ChronoUnit.MINUTES));
+        archivedAis.setSource(MovementSourceType.AIS);
+        Movement databaseAis = createMovementHelper();
+        databaseAis.setMovementConnect(movementConnect);
+        databaseAis.setTimestamp(timestamp.plus(90, ChronoUnit.MINUTES));
+        databaseAis.setSource(MovementSourceType.AIS);
+        movementDao.createMovement(databaseAis);
+
+        movementArchive.write(movementConnect.getId(), YearMonth.of(2019, 3), Arrays.asList(
+                MovementMapper.mapToMovementDto(archivedOnly),
+                MovementMapper.mapToMovementDto(inBoth),
+                MovementMapper.mapToMovementDto(archivedAis)));
+
+        CursorPagination cursorPagination = new CursorPagination();
+        cursorPagination.setFrom(timestamp.minus(1, ChronoUnit.HOURS));
+        cursorPagination.setTo(timestamp.plus(3, ChronoUnit.HOURS));
+        cursorPagination.setConnectIds(Arrays.asList(movementConnect.getId()));
+        cursorPagination.setSources(Arrays.asList(MovementSourceType.NAF));
+        cursorPagination.setLimit(2);
+
+        List<Movement> movements = movementDao.getCursorBasedList(cursorPagination);
+
+        assertThat(movements.size(), CoreMatchers.is(2));
+        assertThat(movements.get(0).getId(), CoreMatchers.is(archivedOnly.getId()));
+        assertThat(movements.get(1).getId(), CoreMatchers.is(inBoth.getId()));
+
+        cursorPagination.setTimestampCursor(movements.get(1).getTimestamp());
+        cursorPagination.setIdCursor(movements.get(1).getId());
+
+        List<Movement> movements2 = movementDao.getCursorBasedList(cursorPagination);
+
+        assertThat(movements2.size(), CoreMatchers.is(2));
+        assertThat(movements2.get(0).getId(), CoreMatchers.is(inBoth.getId()));
+        assertThat(movements2.get(1).getId(), CoreMatchers.is(databaseOnly.getId()));
+    }
+
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void microMovementProjectionsMatchMappedEntities() {
+        MovementConnect createdMovementConnect = movementDao.createMovementConnect(createMovementConnectHelper());
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<Movement> created = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Movement movement = createMovementHelper(10d + i, 57d);
+            movement.setMovementConnect(createdMovementConnect);
+            movement.setTimestamp(now.minusSeconds(60 * i));
+            movement.setCalculatedSpeed(5d);
+            movement.setHeading(90f);
+            created.add(movementDao.createMovement(movement));
+        }
+        em.flush();
+        List<MovementSourceType> sources = Arrays.asList(MovementSourceType.values());
+        List<UUID> connectIds = Collections.singletonList(createdMovementConnect.getId());
+
+        List<MovementDto> forAsset = movementDao.getMicroMovementDtosForAssetAfterDate(createdMovementConnect.getId(), now.minusSeconds(300), now.plusSeconds(1), sources);
+        List<MovementDto> latest = movementDao.getLatestNumberOfMovementsForAsset(createdMovementConnect.getId(), 2, sources);
+        List<MovementDto> forConnectIds = movementDao.getMicroMovementsForConnectIdsBetweenDates(connectIds, now.minusSeconds(300), now, sources);
+
+        assertEquals(3, forAsset.size());
+        assertEquals(2, latest.size());
+        assertEquals(3, forConnectIds.size());
+        for (int i = 0; i < 3; i++) {
+            assertMovementDto(MovementMapper.mapToMovementDto(created.get(i)), forAsset.get(i));
+            assertMovementDto(MovementMapper.mapToMovementDto(created.get(i)), forConnectIds.get(i));
+        }
+        assertMovementDto(MovementMapper.mapToMovementDto(created.get(0)), latest.get(0));
+    }
+
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void getLatestMovementsPerConnect() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<SearchValue> searchValues = new ArrayList<>();
+        Set<UUID> expected = new HashSet<>();
+        for (int c = 0; c < 2; c++) {
+            MovementConnect createdMovementConnect = movementDao.createMovementConnect(createMovementConnectHelper());
+            searchValues.add(new SearchValue(SearchField.CONNECT_ID, createdMovementConnect.getId().toString()));
+            for (int i = 0; i < 3; i++) {
+                Movement movement = createMovementHelper(10d + i, 57d);
+                movement.setMovementConnect(createdMovementConnect);
+                movement.setTimestamp(now.minusSeconds(60 * i));
+                Movement created = movementDao.createMovement(movement);
+                if (i < 2) {
+                    expected.add(created.getId());
+                }
+            }
+        }
+        searchValues.add(new SearchValue(SearchField.SOURCE, MovementSourceType.NAF.value()));
+        em.flush();
+
+        String sql = SearchFieldMapper.createLatestReportsSearchSql(searchValues);
+        assertNotNull(sql);
+        List<Movement> latest = movementDao.getLatestMovementsPerConnect(sql, searchValues, 2);
+
+        assertEquals(4, latest.size());
+        assertEquals(expected, latest.stream().map(Movement::getId).collect(Collectors.toSet()));
+
+        searchValues.set(searchValues.size() - 1, new SearchValue(SearchField.SOURCE, MovementSourceType.AIS.value()));
+        assertTrue(movementDao.getLatestMovementsPerConnect(sql, searchValues, 2).isEmpty());
+    }
+
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void getCappedMovementListSearchCount() {
+        MovementConnect createdMovementConnect = movementDao.createMovementConnect(createMovementConnectHelper());
+        Instant now = Instant.now();
+        for (int i = 0; i < 3; i++) {
+            Movement movement = createMovementHelper(10d + i, 57d);
+            movement.setMovementConnect(createdMovementConnect);
+            movement.setTimestamp(now.minusSeconds(60 * i));
+            movementDao.createMovement(movement);
+        }
+        em.flush();
+        List<SearchValue> searchValues = new ArrayList<>();
+        searchValues.add(new SearchValue(SearchField.CONNECT_ID, createdMovementConnect.getId().toString()));
+
+        String sql = SearchFieldMapper.createCappedCountSearchSql(searchValues);
+        assertNotNull(sql);
+        assertEquals(3, movementDao.getMovementListSearchCount(sql, searchValues, 10));
+        assertEquals(2, movementDao.getMovementListSearchCount(sql, searchValues, 2));
+    }
+
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void getLinesFromTracks() {
+        MovementConnect createdMovementConnect = movementDao.createMovementConnect(createMovementConnectHelper());
+        Track track = new Track();
+        track.setUpdated(Instant.now());
+        track.setUpdatedBy("Arquillian");
+        Instant now = Instant.now();
+        for (int i = 0; i < 3; i++) {
+            Movement movement = createMovementHelper(10d + i, 57d);
+            movement.setMovementConnect(createdMovementConnect);
+            movement.setTimestamp(now.minusSeconds(60 * i));
+            movement.setTrack(track);
+            movementDao.createMovement(movement);
+        }
+        em.flush();
+
+        Map<UUID, LineString> lines = movementDao.getLinesFromTracks(Arrays.asList(track.getId(), UUID.randomUUID()), 2);
+
+        assertEquals(1, lines.size());
+        LineString line = lines.get(track.getId());
+        assertEquals(2, line.getNumPoints());
+        assertEquals(10d, line.getCoordinateN(0).x, 0d);
+        assertEquals(11d, line.getCoordinateN(1).x, 0d);
+    }
+
+    private void assertMovementDto(MovementDto expected, MovementDto actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getAsset(), actual.getAsset());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getLocation().getLongitude(), actual.getLocation().getLongitude(), 0d);
+        assertEquals(expected.getLocation().getLatitude(), actual.getLocation().getLatitude(), 0d);
+        assertEquals(expected.getSpeed(), actual.getSpeed());
+        assertEquals(expected.getCalculatedSpeed(), actual.getCalculatedSpeed());
+        assertEquals(expected.getHeading(), actual.getHeading());
+        assertEquals(expected.getSource(), actual.getSource());
+        assertEquals(expected.getMovementType(), actual.getMovementType());
+    }
+
     /******************************************************************************************************************
      *   HELPER FUNCTIONS
      ******************************************************************************************************************/
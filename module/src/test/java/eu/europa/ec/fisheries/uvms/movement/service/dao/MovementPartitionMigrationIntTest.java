@@ -0,0 +1,115 @@
+package eu.europa.ec.fisheries.uvms.movement.service.dao;
+
+import eu.europa.ec.fisheries.uvms.movement.service.TransactionalTests;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.MovementConnect;
+import org.jboss.arquillian.container.test.api.OperateOnDeployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.persistence.Query;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Runs the steps of the v5.6.4 partitioning changelog against a populated copy of the unpartitioned movement table
+ * in a schema of its own. Everything, the DDL included, is rolled back after the test.
+ */
+@RunWith(Arquillian.class)
+public class MovementPartitionMigrationIntTest extends TransactionalTests {
+
+    private static final String SCHEMA = "movement_migration_test";
+
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void partitionPopulatedMovementTableTest() {
+        MovementConnect movementConnect = new MovementConnect();
+        movementConnect.setId(UUID.randomUUID());
+        movementConnect.setUpdatedBy("arquillian");
+        movementConnect.setUpdated(Instant.now());
+        em.persist(movementConnect);
+        em.flush();
+
+        createUnpartitionedMovementTable();
+        Instant updated = Instant.now().minus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.MILLIS);
+        insertMovement(movementConnect.getId(), Instant.now().minus(60, ChronoUnit.DAYS), updated);
+        insertMovement(movementConnect.getId(), Instant.now(), updated);
+        UUID withoutTimestamp = insertMovement(movementConnect.getId(), null, updated);
+
+        call("SELECT movement.set_missing_movement_timestamps('" + SCHEMA + "')");
+        call("SELECT movement.partition_movement('" + SCHEMA + "')");
+        execute("INSERT INTO " + SCHEMA + ".movement SELECT * FROM " + SCHEMA + ".movement_unpartitioned");
+        call("SELECT movement.constrain_partitioned_movement('" + SCHEMA + "')");
+
+        assertThat(count("SELECT count(*) FROM " + SCHEMA + ".movement"), is(3L));
+        Timestamp timestamp = (Timestamp) em.createNativeQuery("SELECT \"timestamp\" FROM " + SCHEMA + ".movement WHERE id = :id")
+                .setParameter("id", withoutTimestamp)
+                .getSingleResult();
+        assertThat(timestamp.toInstant(), is(updated));
+
+        // The old primary key and indexes were renamed, their names are used by the partitioned table
+        List<?> oldIndexes = em.createNativeQuery("SELECT CAST(indexname AS text) FROM pg_indexes " +
+                "WHERE schemaname = '" + SCHEMA + "' AND tablename = 'movement_unpartitioned'")
+                .getResultList();
+        assertThat(oldIndexes.size(), is(5));
+        for (Object oldIndex : oldIndexes) {
+            assertThat((String) oldIndex, startsWith("unpartitioned_"));
+        }
+        assertThat(count("SELECT count(*) FROM pg_constraint WHERE conname = 'movement_pkey' " +
+                "AND conrelid = to_regclass('" + SCHEMA + ".movement')"), is(1L));
+        assertThat(count("SELECT count(*) FROM pg_inherits WHERE inhparent = to_regclass('" + SCHEMA + ".movement')") > 3, is(true));
+        assertThat(count("SELECT count(*) FROM " + SCHEMA + ".movement_default"), is(0L));
+    }
+
+    /**
+     * The movement table as it was before partitioning, with the primary key and indexes of earlier changelogs.
+     */
+    private void createUnpartitionedMovementTable() {
+        execute("CREATE SCHEMA " + SCHEMA);
+        execute("CREATE TABLE " + SCHEMA + ".movement (LIKE movement.movement INCLUDING DEFAULTS)");
+        execute("ALTER TABLE " + SCHEMA + ".movement ALTER COLUMN \"timestamp\" DROP NOT NULL");
+        execute("ALTER TABLE " + SCHEMA + ".movement ADD CONSTRAINT movement_pkey PRIMARY KEY (id)");
+        execute("CREATE INDEX move_track_timestamp_idx ON " + SCHEMA + ".movement (track_id, \"timestamp\" DESC)");
+        execute("CREATE INDEX move_by_assetid_idx ON " + SCHEMA + ".movement (movementconnect_id, source_id, \"timestamp\" DESC)");
+        execute("CREATE INDEX move_connectid_timestamp_idx ON " + SCHEMA + ".movement (movementconnect_id, \"timestamp\" DESC)");
+        execute("CREATE INDEX move_timestamp_id_vms_partial_idx ON " + SCHEMA + ".movement (\"timestamp\" ASC NULLS LAST, id ASC NULLS LAST) " +
+                "WHERE source_id = ANY (ARRAY[0, 2, 3, 4, 5, 6])");
+    }
+
+    private UUID insertMovement(UUID connectId, Instant timestamp, Instant updated) {
+        UUID id = UUID.randomUUID();
+        Query query = em.createNativeQuery("INSERT INTO " + SCHEMA + ".movement (id, location, update_time, update_user, movementconnect_id, source_id) " +
+                "VALUES (:id, ST_SetSRID(ST_MakePoint(11, 57), 4326), :updated, 'arquillian', :connectId, 1)")
+                .setParameter("id", id)
+                .setParameter("updated", Timestamp.from(updated))
+                .setParameter("connectId", connectId);
+        query.executeUpdate();
+        if (timestamp != null) {
+            em.createNativeQuery("UPDATE " + SCHEMA + ".movement SET \"timestamp\" = :timestamp WHERE id = :id")
+                    .setParameter("timestamp", Timestamp.from(timestamp))
+                    .setParameter("id", id)
+                    .executeUpdate();
+        }
+        return id;
+    }
+
+    private void execute(String sql) {
+        em.createNativeQuery(sql).executeUpdate();
+    }
+
+    // The steps are functions returning void, called with a SELECT
+    private void call(String sql) {
+        em.createNativeQuery(sql).getResultList();
+    }
+
+    private long count(String sql) {
+        return ((Number) em.createNativeQuery(sql).getSingleResult()).longValue();
+    }
+}
@@ -12,11 +12,15 @@ copy of the GNU General Public License along with the IFDM Suite. If not, see <h
 package eu.europa.ec.fisheries.uvms.movement.service.mapper;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import org.hamcrest.CoreMatchers;
 import org.jboss.arquillian.container.test.api.OperateOnDeployment;
 import org.jboss.arquillian.junit.Arquillian;
@@ -39,7 +43,7 @@ import eu.europa.ec.fisheries.uvms.movement.service.mapper.search.SearchValue;
 public class SearchMapperListTest extends TransactionalTests {
 
     private static final String INITIAL_SELECT = "SELECT  m FROM Movement m ";
-    private static final String ORDER_BY = "ORDER BY m.timestamp DESC ";
+    private static final String ORDER_BY = "ORDER BY m.timestamp DESC, m.id DESC ";
     private static final String NO_DUPLICATE = "";
 
     @Test
@@ -84,7 +88,7 @@ public class SearchMapperListTest extends TransactionalTests {
         assertTrue(mapSearchField.size() == 1);
 
         String data = SearchFieldMapper.createMinimalSelectSearchSql(mapSearchField, true);
-        assertEquals("SELECT  m FROM MinimalMovement m INNER JOIN FETCH m.movementConnect mc  WHERE  ( toSeg.segmentCategory = 6 OR fromSeg.segmentCategory = 6 )  ORDER BY m.timestamp DESC ", data);
+        assertEquals("SELECT  m FROM MinimalMovement m INNER JOIN FETCH m.movementConnect mc  WHERE  ( toSeg.segmentCategory = :category OR fromSeg.segmentCategory = :category )  ORDER BY m.timestamp DESC ", data);
     }
 
     @Test
@@ -107,8 +111,12 @@ public class SearchMapperListTest extends TransactionalTests {
         assertTrue(mapSearchField.size() == 2);
 
         String data = SearchFieldMapper.createSelectSearchSql(mapSearchField, false);
-        assertThat(data, CoreMatchers.containsString("m.status = '11'"));
-        assertThat(data, CoreMatchers.containsString("m.source = 3"));
+        assertThat(data, CoreMatchers.containsString("m.status = :status"));
+        assertThat(data, CoreMatchers.containsString("m.source = :source"));
+
+        Map<String, Object> parameters = SearchFieldMapper.createSearchParameters(mapSearchField);
+        assertEquals("11", parameters.get("status"));
+        assertEquals(MovementSourceType.MANUAL, parameters.get("source"));
     }
     
     @Test
@@ -127,10 +135,38 @@ public class SearchMapperListTest extends TransactionalTests {
 
         String data = SearchFieldMapper.createCountSearchSql(mapSearchField, true);
         String correctOutput = "SELECT COUNT( m) FROM Movement m  INNER JOIN m.movementConnect mc  LEFT JOIN m.track tra "
-        		+ " WHERE m.source = 3";
+        		+ " WHERE m.source = :source";
         assertEquals(correctOutput, data);
     }
 
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void testSameCriteriaKeysShareQuery() {
+        List<SearchValue> first = new ArrayList<>();
+        first.add(new SearchValue(SearchField.CONNECT_ID, UUID.randomUUID().toString()));
+        first.add(new SearchValue(SearchField.CONNECT_ID, UUID.randomUUID().toString()));
+        first.add(new SearchValue(SearchField.MOVEMENT_SPEED, "1", "5"));
+
+        List<SearchValue> second = new ArrayList<>();
+        second.add(new SearchValue(SearchField.MOVEMENT_SPEED, "10", "12"));
+        second.add(new SearchValue(SearchField.CONNECT_ID, UUID.randomUUID().toString()));
+        second.add(new SearchValue(SearchField.CONNECT_ID, UUID.randomUUID().toString()));
+        second.add(new SearchValue(SearchField.CONNECT_ID, UUID.randomUUID().toString()));
+
+        String data = SearchFieldMapper.createSelectSearchSql(first, true);
+        assertSame(data, SearchFieldMapper.createSelectSearchSql(second, true));
+        assertThat(data, CoreMatchers.containsString("m.movementConnect.id IN ( :connect_id )"));
+        assertThat(data, CoreMatchers.containsString("m.speed >= :movement_speed_from AND m.speed <= :movement_speed_to"));
+
+        Map<String, Object> parameters = SearchFieldMapper.createSearchParameters(second);
+        assertEquals(3, ((List<?>) parameters.get("connect_id")).size());
+        assertEquals(10f, parameters.get("movement_speed_from"));
+        assertEquals(12f, parameters.get("movement_speed_to"));
+
+        second.remove(0);
+        assertNotSame(data, SearchFieldMapper.createSelectSearchSql(second, true));
+    }
+
     private SearchValue getSearchValue(String value, SearchField field) {
         return new SearchValue(field, value);
     }
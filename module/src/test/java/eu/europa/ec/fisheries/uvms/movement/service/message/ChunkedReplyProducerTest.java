@@ -0,0 +1,47 @@
+package eu.europa.ec.fisheries.uvms.movement.service.message;
+
+import eu.europa.ec.fisheries.schema.movement.search.v1.MovementMapResponseType;
+import eu.europa.ec.fisheries.schema.movement.v1.MovementType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ChunkedReplyProducerTest {
+
+    @Test
+    public void emptyMapIsOneChunkTest() {
+        assertThat(ChunkedReplyProducer.getChunkEnds(Collections.emptyList()), is(Collections.singletonList(0)));
+    }
+
+    @Test
+    public void smallAssetsShareChunksTest() {
+        List<MovementMapResponseType> movementMap = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            movementMap.add(getAsset(ChunkedReplyProducer.MOVEMENTS_PER_CHUNK / 4));
+        }
+
+        assertThat(ChunkedReplyProducer.getChunkEnds(movementMap), is(Arrays.asList(4, 8, 10)));
+    }
+
+    @Test
+    public void largeAssetIsNotSplitTest() {
+        List<MovementMapResponseType> movementMap = Arrays.asList(getAsset(1),
+                getAsset(ChunkedReplyProducer.MOVEMENTS_PER_CHUNK * 2), getAsset(1));
+
+        assertThat(ChunkedReplyProducer.getChunkEnds(movementMap), is(Arrays.asList(1, 2, 3)));
+    }
+
+    private MovementMapResponseType getAsset(int movements) {
+        MovementMapResponseType asset = new MovementMapResponseType();
+        for (int i = 0; i < movements; i++) {
+            asset.getMovements().add(new MovementType());
+        }
+        return asset;
+    }
+}
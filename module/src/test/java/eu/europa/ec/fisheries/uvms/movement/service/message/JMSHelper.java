@@ -10,16 +10,19 @@ copy of the GNU General Public License along with the IFDM Suite. If not, see <h
  */
 package eu.europa.ec.fisheries.uvms.movement.service.message;
 
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 import javax.jms.*;
 
 import eu.europa.ec.fisheries.schema.movement.module.v1.CreateMovementBatchResponse;
 import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementListByQueryResponse;
+import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementMapByQueryResponse;
 import eu.europa.ec.fisheries.schema.movement.module.v1.PingResponse;
 import eu.europa.ec.fisheries.schema.movement.search.v1.MovementQuery;
 import eu.europa.ec.fisheries.schema.movement.v1.MovementBaseType;
 import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+import eu.europa.ec.fisheries.uvms.movement.model.mapper.ChunkedReplyMapper;
 import eu.europa.ec.fisheries.uvms.movement.model.mapper.JAXBMarshaller;
 import eu.europa.ec.fisheries.uvms.movement.model.mapper.MovementModuleRequestMapper;
 
@@ -63,7 +66,23 @@ public class JMSHelper {
         return JAXBMarshaller.unmarshallTextMessage((TextMessage) response, GetMovementListByQueryResponse.class);
     }
 
+    public GetMovementListByQueryResponse getMovementListByQueryChunked(MovementQuery movementQuery, String groupId) throws Exception {
+        String request = MovementModuleRequestMapper.mapToGetMovementListByQueryRequest(movementQuery);
+        String correlationId = sendMovementMessage(request, groupId, null, true);
+        return ChunkedReplyMapper.mapToMovementListResponse(listenForChunks(correlationId));
+    }
+
+    public GetMovementMapByQueryResponse getMovementMapByQueryChunked(MovementQuery movementQuery, String groupId) throws Exception {
+        String request = MovementModuleRequestMapper.mapToGetMovementMapByQueryRequest(movementQuery);
+        String correlationId = sendMovementMessage(request, groupId, null, true);
+        return ChunkedReplyMapper.mapToMovementMapResponse(listenForChunks(correlationId));
+    }
+
     public String sendMovementMessage(String text, String groupId, String function) throws Exception {
+        return sendMovementMessage(text, groupId, function, false);
+    }
+
+    public String sendMovementMessage(String text, String groupId, String function, boolean chunkedReply) throws Exception {
         Connection connection = connectionFactory.createConnection();
         try {
             Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
@@ -75,6 +94,9 @@ public class JMSHelper {
             message.setStringProperty("FUNCTION", function);
             message.setText(text);
             message.setJMSReplyTo(responseQueue);
+            if (chunkedReply) {
+                ChunkedReplyMapper.requestChunkedReply(message);
+            }
 
             session.createProducer(movementQueue).send(message);
 
@@ -98,6 +120,26 @@ public class JMSHelper {
         }
     }
 
+    public List<Message> listenForChunks(String correlationId) throws Exception {
+        List<Message> chunks = new ArrayList<>();
+        Connection connection = connectionFactory.createConnection();
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue responseQueue = session.createQueue(RESPONSE_QUEUE);
+            MessageConsumer consumer = session.createConsumer(responseQueue, "JMSCorrelationID='" + correlationId + "'");
+
+            Message chunk = consumer.receive(TIMEOUT);
+            while (chunk != null) {
+                chunks.add(chunk);
+                chunk = chunks.size() < ChunkedReplyMapper.getChunkCount(chunk) ? consumer.receive(TIMEOUT) : null;
+            }
+            return chunks;
+        } finally {
+            connection.close();
+        }
+    }
+
     public Message listenOnMRQueue() throws Exception {
         Connection connection = connectionFactory.createConnection();
         try {
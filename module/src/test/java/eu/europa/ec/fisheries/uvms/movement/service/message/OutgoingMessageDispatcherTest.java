@@ -0,0 +1,75 @@
+package eu.europa.ec.fisheries.uvms.movement.service.message;
+
+import eu.europa.ec.fisheries.schema.exchange.movement.v1.MovementRefTypeType;
+import eu.europa.ec.fisheries.uvms.movementrules.model.dto.MovementDetails;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.jms.JMSException;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OutgoingMessageDispatcherTest {
+
+    @Mock
+    private MovementRulesBean movementRulesBean;
+
+    @Mock
+    private ExchangeBean exchangeBean;
+
+    @InjectMocks
+    private OutgoingMessageDispatcher dispatcher;
+
+    @Test
+    public void messagesAreSentTogetherTest() throws Exception {
+        dispatcher.dispatch(getMessages());
+
+        assertThat(dispatcher.getSentMessages(), is(2L));
+        verify(movementRulesBean).send(anyList());
+        verify(exchangeBean).sendAcksToExchange(anyList());
+    }
+
+    @Test
+    public void emptyMessagesAreIgnoredTest() throws Exception {
+        dispatcher.dispatch(new OutgoingMessages());
+
+        verify(movementRulesBean, never()).send(anyList());
+        verify(exchangeBean, never()).sendAcksToExchange(anyList());
+    }
+
+    @Test
+    public void failedSendIsThrownToTheCallerTest() throws Exception {
+        JMSException failure = new JMSException("Broker down");
+        doThrow(failure).when(movementRulesBean).send(anyList());
+
+        try {
+            dispatcher.dispatch(getMessages());
+            fail("The failed send should be thrown so that the caller's transaction rolls back");
+        } catch (JMSException e) {
+            assertThat(e, is(sameInstance(failure)));
+        }
+
+        verify(exchangeBean, never()).sendAcksToExchange(anyList());
+        assertThat(dispatcher.getFailedMessages(), is(2L));
+        assertThat(dispatcher.getSentMessages(), is(0L));
+    }
+
+    private OutgoingMessages getMessages() {
+        OutgoingMessages messages = new OutgoingMessages();
+        messages.addMovementDetails(new MovementDetails());
+        messages.addMovementRef(ExchangeBean.createMovementRef(MovementRefTypeType.MOVEMENT, UUID.randomUUID(), "ackId"));
+        return messages;
+    }
+}
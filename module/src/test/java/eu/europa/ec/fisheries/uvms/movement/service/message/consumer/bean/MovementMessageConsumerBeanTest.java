@@ -3,6 +3,7 @@ package eu.europa.ec.fisheries.uvms.movement.service.message.consumer.bean;
 import eu.europa.ec.fisheries.schema.exchange.module.v1.ProcessedMovementResponse;
 import eu.europa.ec.fisheries.schema.exchange.movement.v1.MovementRefTypeType;
 import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementListByQueryResponse;
+import eu.europa.ec.fisheries.schema.movement.module.v1.GetMovementMapByQueryResponse;
 import eu.europa.ec.fisheries.schema.movement.module.v1.PingResponse;
 import eu.europa.ec.fisheries.schema.movement.search.v1.*;
 import eu.europa.ec.fisheries.schema.movement.v1.MovementBaseType;
@@ -245,6 +246,42 @@ public class MovementMessageConsumerBeanTest extends BuildMovementServiceTestDep
         assertThat(movements.get(0).getSegmentIds(), is(movements.get(1).getSegmentIds()));
     }
 
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void getMovementListAndMapByQueryChunked() throws Exception {
+        String uuid = UUID.randomUUID().toString();
+        MovementDetails movementDetails = null;
+        for (int i = 0; i < 3; i++) {
+            IncomingMovement incomingMovement = MovementTestHelper.createIncomingMovement(1d * i, 1d * i);
+            incomingMovement.setAssetGuid(uuid);
+            incomingMovement.setAssetHistoryId(uuid);
+            incomingMovement.setAssetIRCS("TestIrcs:" + uuid);
+            incomingMovement.setPositionTime(Instant.now().minusSeconds(600 - i * 60L));
+            movementDetails = sendIncomingMovementAndWaitForResponse(incomingMovement);
+        }
+        MovementQuery listQuery = MovementTestHelper.createMovementQuery(true, false, false);
+        ListCriteria criteria = new ListCriteria();
+        criteria.setKey(SearchKey.CONNECT_ID);
+        criteria.setValue(movementDetails.getConnectId());
+        listQuery.getMovementSearchCriteria().add(criteria);
+
+        GetMovementListByQueryResponse chunkedList = jmsHelper.getMovementListByQueryChunked(listQuery, uuid);
+        GetMovementListByQueryResponse list = jmsHelper.getMovementListByQuery(listQuery, uuid);
+
+        assertThat(chunkedList.getMovement().size(), is(3));
+        for (int i = 0; i < list.getMovement().size(); i++) {
+            assertThat(chunkedList.getMovement().get(i).getGuid(), is(list.getMovement().get(i).getGuid()));
+        }
+
+        MovementQuery mapQuery = MovementTestHelper.createMovementQuery(false, false, false);
+        mapQuery.getMovementSearchCriteria().add(criteria);
+        GetMovementMapByQueryResponse chunkedMap = jmsHelper.getMovementMapByQueryChunked(mapQuery, uuid);
+
+        assertThat(chunkedMap.getMovementMap().size(), is(1));
+        assertThat(chunkedMap.getMovementMap().get(0).getKey(), is(movementDetails.getConnectId()));
+        assertThat(chunkedMap.getMovementMap().get(0).getMovements().size(), is(3));
+    }
+
     @Test
     @Ignore("This one needs create batch functionality")
     @OperateOnDeployment("movementservice")
@@ -259,6 +296,112 @@ public class MovementMessageConsumerBeanTest extends BuildMovementServiceTestDep
         assertThat(createdMovement.size(), is(3));*/
     }
 
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void createMovementBatchVerifyCalculatedData() throws Exception {
+        UUID assetHistoryId = UUID.randomUUID();
+        Instant positionTime = Instant.now().minus(1, ChronoUnit.HOURS);
+        List<IncomingMovement> batch = new ArrayList<>();
+        for (int i = 2; i >= 0; i--) {
+            IncomingMovement incomingMovement = MovementTestHelper.createIncomingMovementType(1d * i, 2d * i);
+            incomingMovement.setAssetIRCS("TestIrcs:" + assetHistoryId);
+            incomingMovement.setPositionTime(positionTime.plus(i, ChronoUnit.MINUTES));
+            batch.add(incomingMovement);
+        }
+        jmsHelper.sendMovementMessage(jsonb.toJson(batch), assetHistoryId.toString(), "CREATE_BATCH");
+
+        List<MovementDetails> movementDetailsList = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            TextMessage response = (TextMessage) jmsHelper.listenOnMRQueue();
+            movementDetailsList.add(jsonb.fromJson(response.getText(), MovementDetails.class));
+        }
+
+        // Positions are stored and sent in position time order
+        assertThat(movementDetailsList.get(0).getSumPositionReport(), is(1));
+        assertThat(movementDetailsList.get(0).getPreviousVMSLatitude(), is(nullValue()));
+        assertThat(movementDetailsList.get(1).getSumPositionReport(), is(2));
+        assertThat(movementDetailsList.get(1).getPreviousVMSLatitude(), is(0d));
+        assertThat(movementDetailsList.get(2).getSumPositionReport(), is(3));
+        assertThat(movementDetailsList.get(2).getPreviousVMSLatitude(), is(2d));
+        assertThat(movementDetailsList.get(2).getPreviousVMSLongitude(), is(1d));
+    }
+
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void createMovementBatchSeveralAssets() throws Exception {
+        UUID assetId1 = UUID.randomUUID();
+        UUID assetId2 = UUID.randomUUID();
+        Instant positionTime = Instant.now().minus(1, ChronoUnit.HOURS);
+        List<IncomingMovement> batch = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            IncomingMovement incomingMovement = MovementTestHelper.createIncomingMovementType();
+            incomingMovement.setAssetIRCS("TestIrcs:" + (i % 2 == 0 ? assetId1 : assetId2));
+            incomingMovement.setPositionTime(positionTime.plus(i, ChronoUnit.MINUTES));
+            batch.add(incomingMovement);
+        }
+        jmsHelper.sendMovementMessage(jsonb.toJson(batch), assetId1.toString(), "CREATE_BATCH");
+
+        Map<String, Integer> positionsPerAsset = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            TextMessage response = (TextMessage) jmsHelper.listenOnMRQueue();
+            MovementDetails movementDetails = jsonb.fromJson(response.getText(), MovementDetails.class);
+            positionsPerAsset.merge(movementDetails.getConnectId(), 1, Integer::sum);
+        }
+
+        assertThat(positionsPerAsset.get(assetId1.toString()), is(2));
+        assertThat(positionsPerAsset.get(assetId2.toString()), is(2));
+    }
+
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void createMovementBatchIgnoresDuplicateAISPositions() throws Exception {
+        UUID assetHistoryId = UUID.randomUUID();
+        Instant positionTime = Instant.now().minus(1, ChronoUnit.HOURS);
+        IncomingMovement movement = MovementTestHelper.createIncomingMovementType();
+        movement.setAssetIRCS("TestIrcs:" + assetHistoryId);
+        movement.setMovementSourceType(MovementSourceType.AIS.value());
+        movement.setPositionTime(positionTime);
+        sendIncomingMovementAndWaitForResponse(movement);
+
+        IncomingMovement newMovement = MovementTestHelper.createIncomingMovementType();
+        newMovement.setAssetIRCS("TestIrcs:" + assetHistoryId);
+        newMovement.setMovementSourceType(MovementSourceType.AIS.value());
+        newMovement.setPositionTime(positionTime.plus(1, ChronoUnit.MINUTES));
+
+        jmsHelper.sendMovementMessage(jsonb.toJson(Arrays.asList(movement, newMovement, newMovement)), assetHistoryId.toString(), "CREATE_BATCH");
+
+        TextMessage response = (TextMessage) jmsHelper.listenOnMRQueue();
+        MovementDetails movementDetails = jsonb.fromJson(response.getText(), MovementDetails.class);
+        assertThat(movementDetails.getSumPositionReport(), is(2));
+        assertThat(jmsHelper.listenOnMRQueue(), is(nullValue()));
+    }
+
+    @Test
+    @OperateOnDeployment("movementservice")
+    public void createMovementBatchMovesDuplicateTimestamps() throws Exception {
+        UUID assetHistoryId = UUID.randomUUID();
+        Instant positionTime = Instant.now().minus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.SECONDS);
+        List<IncomingMovement> batch = new ArrayList<>();
+        for (MovementTypeType movementType : Arrays.asList(MovementTypeType.POS, MovementTypeType.MAN, MovementTypeType.POS)) {
+            IncomingMovement incomingMovement = MovementTestHelper.createIncomingMovementType();
+            incomingMovement.setAssetIRCS("TestIrcs:" + assetHistoryId);
+            incomingMovement.setMovementType(movementType.value());
+            incomingMovement.setPositionTime(positionTime);
+            batch.add(incomingMovement);
+        }
+        // The last one is a second later, it collides with the moved MAN position and is moved again
+        batch.get(2).setPositionTime(positionTime.plusSeconds(1));
+        jmsHelper.sendMovementMessage(jsonb.toJson(batch), assetHistoryId.toString(), "CREATE_BATCH");
+
+        Set<Instant> positionTimes = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            TextMessage response = (TextMessage) jmsHelper.listenOnMRQueue();
+            positionTimes.add(jsonb.fromJson(response.getText(), MovementDetails.class).getPositionTime());
+        }
+
+        assertThat(positionTimes, is(new HashSet<>(Arrays.asList(positionTime, positionTime.plusSeconds(1), positionTime.plusSeconds(2)))));
+    }
+
     @Test
     @OperateOnDeployment("movementservice")
     public void createMovementVerifyPreviousPosition() throws Exception {
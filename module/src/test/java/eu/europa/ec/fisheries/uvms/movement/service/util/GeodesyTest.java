@@ -0,0 +1,72 @@
+package eu.europa.ec.fisheries.uvms.movement.service.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class GeodesyTest {
+
+    @Test
+    public void distanceTest() {
+        assertEquals(8752D, Geodesy.distanceMeter(57.678582, 11.695033, 57.600009, 11.703635), 1D);
+        // Across the date line
+        assertEquals(1700000D, Geodesy.distanceMeter(7.678582, 179.695033, -7.600009, -179.703635), 500D);
+        assertEquals(0D, Geodesy.distanceMeter(57.5, 11.5, 57.5, 11.5), 0D);
+    }
+
+    @Test
+    public void shortDistanceTest() {
+        // One millionth of a degree of latitude, about 11 cm, where the law of cosines is off by centimeters
+        double expected = Math.toRadians(0.000001) * Geodesy.EARTH_RADIUS_METER;
+        assertEquals(expected, Geodesy.distanceMeter(57.000000, 11.5, 57.000001, 11.5), 0.0000001);
+    }
+
+    @Test
+    public void bearingTest() {
+        assertEquals(0D, Geodesy.bearing(0, 0, 1, 0), 0D);
+        assertEquals(90D, Geodesy.bearing(0, 0, 0, 1), 0D);
+        assertEquals(180D, Geodesy.bearing(0, 0, -1, 0), 0D);
+        assertEquals(270D, Geodesy.bearing(0, 0, 0, -1), 0D);
+        assertEquals(44.99563645534488, Geodesy.bearing(0, 0, 1, 1), 0D);
+    }
+
+    @Test
+    public void speedTest() {
+        assertEquals(Geodesy.FACTOR_METER_PER_SECOND_TO_KNOTS, Geodesy.speedKnots(100, 100), 0D);
+        assertEquals(0D, Geodesy.speedKnots(0, 0), 0D);
+    }
+
+    @Test
+    public void batchEqualsSingleTest() {
+        double[] latitude = {57.1, 57.2, 57.25, 57.25, 57.3};
+        double[] longitude = {11.1, 11.15, 11.3, 11.3, 11.2};
+        long[] timestamp = {0, 600_000, 1_200_000, 1_500_000, 2_100_000};
+        double[] distance = new double[4];
+        double[] bearing = new double[4];
+        double[] speed = new double[4];
+
+        Geodesy.distances(latitude, longitude, distance);
+        Geodesy.bearings(latitude, longitude, bearing);
+        Geodesy.speeds(distance, timestamp, speed);
+
+        for (int i = 0; i < 4; i++) {
+            double expectedDistance = Geodesy.distanceMeter(latitude[i], longitude[i], latitude[i + 1], longitude[i + 1]);
+            assertEquals(expectedDistance, distance[i], 0.000001);
+            assertEquals(Geodesy.bearing(latitude[i], longitude[i], latitude[i + 1], longitude[i + 1]), bearing[i], 0.000001);
+            assertEquals(Geodesy.speedKnots(expectedDistance, (timestamp[i + 1] - timestamp[i]) / 1000d), speed[i], 0.000001);
+        }
+        assertEquals(0D, speed[2], 0D);
+    }
+
+    @Test
+    public void batchWithoutSegmentsTest() {
+        Geodesy.distances(new double[1], new double[1], new double[0]);
+        Geodesy.bearings(new double[0], new double[0], new double[0]);
+        Geodesy.speeds(new double[0], new long[1], new double[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resultArrayTooShortTest() {
+        Geodesy.distances(new double[3], new double[3], new double[1]);
+    }
+}
@@ -15,6 +15,7 @@ import org.locationtech.jts.geom.LineString;
 
 import javax.ejb.EJB;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -122,4 +123,49 @@ public class GeometryUtilTest extends TransactionalTests {
 			assertTrue(true);
 		}
 	}
+
+	@Test
+    @OperateOnDeployment("movementservice")
+	public void testSimplifyLineString() {
+		Coordinate[] input = new Coordinate[100];
+		for (int i = 0; i < input.length; i++) {
+			input[i] = new Coordinate(11.0 + i * 0.01, 57.0 + (i % 2) * 0.0001);
+		}
+		LineString line = GeometryUtil.getLineString(input);
+
+		LineString simplified = GeometryUtil.simplify(line, 0.001);
+
+		assertEquals(2, simplified.getNumPoints());
+		assertEquals(line.getStartPoint(), simplified.getStartPoint());
+		assertEquals(line.getEndPoint(), simplified.getEndPoint());
+		assertEquals(GeometryUtil.SRID, simplified.getSRID());
+
+		assertSame(line, GeometryUtil.simplify(line, 0));
+		assertEquals(100, GeometryUtil.simplify(line, 0.00001).getNumPoints());
+	}
+
+	@Test
+    @OperateOnDeployment("movementservice")
+	public void testSimplifyPositions() {
+		List<Coordinate> positions = Arrays.asList(
+				new Coordinate(11.0, 57.0),
+				new Coordinate(11.1, 57.00001),
+				new Coordinate(11.2, 57.0),
+				new Coordinate(11.3, 57.5),
+				new Coordinate(11.4, 57.5));
+
+		List<Coordinate> simplified = GeometryUtil.simplify(positions, position -> position, 0.01);
+
+		assertEquals(Arrays.asList(positions.get(0), positions.get(2), positions.get(3), positions.get(4)), simplified);
+	}
+
+	@Test
+    @OperateOnDeployment("movementservice")
+	public void testGetTolerance() {
+		assertEquals(0d, GeometryUtil.getTolerance(null, null), 0);
+		assertEquals(0.5d, GeometryUtil.getTolerance(0.5d, 3), 0);
+		assertEquals(0d, GeometryUtil.getTolerance(-1d, null), 0);
+		assertEquals(360d / 256, GeometryUtil.getTolerance(null, 0), 0);
+		assertTrue(GeometryUtil.getTolerance(null, 10) < GeometryUtil.getTolerance(null, 5));
+	}
 }
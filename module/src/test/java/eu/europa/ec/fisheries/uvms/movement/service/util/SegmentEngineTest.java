@@ -0,0 +1,94 @@
+package eu.europa.ec.fisheries.uvms.movement.service.util;
+
+import eu.europa.ec.fisheries.uvms.movement.service.dto.SegmentCalculations;
+import eu.europa.ec.fisheries.uvms.movement.service.entity.Movement;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class SegmentEngineTest {
+
+    private static final GeometryFactory FACTORY = new GeometryFactory();
+
+    @Test
+    public void sameResultAsCalculationUtilTest() {
+        List<Movement> movements = getTrack(200);
+
+        SegmentEngine engine = SegmentEngine.fromMovements(null, movements);
+
+        assertEquals(movements.size() - 1, engine.getSegmentCount());
+        for (int i = 0; i < engine.getSegmentCount(); i++) {
+            SegmentCalculations expected = CalculationUtil.getPositionCalculations(movements.get(i), movements.get(i + 1));
+            assertEquals(expected.getDistanceBetweenPoints(), engine.getDistance(i), 0.0000001);
+            assertEquals(expected.getDurationBetweenPoints(), engine.getDuration(i), 0.0000001);
+            assertEquals(expected.getAvgSpeed(), engine.getSpeed(i), 0.0000001);
+            assertEquals(expected.getCourse(), engine.getCourse(i), 0.0000001);
+
+            Geometry expectedWkt = WKTUtil.getGeometryFromWKTSrring(WKTUtil.getWktLineStringFromMovements(movements.get(i), movements.get(i + 1)));
+            Geometry wkt = WKTUtil.getGeometryFromWKTSrring(engine.getWkt(i));
+            assertEquals(expectedWkt, wkt);
+        }
+    }
+
+    @Test
+    public void previousMovementAddsLeadingSegmentTest() {
+        List<Movement> track = getTrack(10);
+
+        SegmentEngine engine = SegmentEngine.fromMovements(track.get(0), track.subList(1, track.size()));
+
+        assertEquals(track.size() - 1, engine.getSegmentCount());
+        SegmentCalculations expected = CalculationUtil.getPositionCalculations(track.get(0), track.get(1));
+        assertEquals(expected.getDistanceBetweenPoints(), engine.getDistance(0), 0.0000001);
+    }
+
+    @Test
+    public void samePositionTwiceTest() {
+        Movement first = getMovement(11.5, 57.5, Instant.parse("2019-05-01T12:00:00Z"));
+        Movement second = getMovement(11.5, 57.5, Instant.parse("2019-05-01T12:10:00Z"));
+
+        SegmentEngine engine = SegmentEngine.fromMovements(null, Arrays.asList(first, second));
+
+        assertEquals(0, engine.getDistance(0), 0);
+        assertEquals(0, engine.getDuration(0), 0);
+        assertEquals(0, engine.getSpeed(0), 0);
+        assertEquals(0, engine.getCourse(0), 0);
+    }
+
+    @Test
+    public void noSegmentsTest() {
+        assertEquals(0, SegmentEngine.fromMovements(null, Collections.emptyList()).getSegmentCount());
+        assertEquals(0, SegmentEngine.fromMovements(null, getTrack(1)).getSegmentCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentArrayLengthsTest() {
+        new SegmentEngine(new double[2], new double[2], new long[1]);
+    }
+
+    private List<Movement> getTrack(int positions) {
+        List<Movement> movements = new ArrayList<>();
+        Instant start = Instant.parse("2019-05-01T12:00:00Z");
+        for (int i = 0; i < positions; i++) {
+            movements.add(getMovement(11.123456 + i * 0.0013 + (i % 7) * 0.0002, 57.654321 - i * 0.0007, start.plusSeconds(30L * i)));
+        }
+        return movements;
+    }
+
+    private Movement getMovement(double longitude, double latitude, Instant timestamp) {
+        Movement movement = new Movement();
+        movement.setId(UUID.randomUUID());
+        movement.setLocation(FACTORY.createPoint(new Coordinate(longitude, latitude)));
+        movement.setTimestamp(timestamp);
+        return movement;
+    }
+}